@@ -0,0 +1,78 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.vector.BatchKernels;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks comparing the scalar and the vectorized {@link BatchKernels} on a point cloud. The forked JVM is
+ * started with the incubator module of the Vector API.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(value=1, jvmArgsAppend="--add-modules=jdk.incubator.vector")
+public class BatchKernelBenchmark {
+	/**
+	 * The number of points and lines in a batch.
+	 */
+	private static final int POINTS=16*Inputs.SIZE;
+
+	@Param({"scalar", "vectorized"})
+	private String kernels;
+
+	private BatchKernels batch;
+	private final double[] xs=new double[POINTS], ys=new double[POINTS], zs=new double[POINTS];
+	private final double[] dxs=new double[POINTS], dys=new double[POINTS], dzs=new double[POINTS];
+	private final double[] result=new double[POINTS];
+	private Line3 line;
+	private Plane3 plane;
+
+	@Setup
+	public void setup() {
+		batch=kernels.equals("scalar") ? BatchKernels.scalar() : BatchKernels.vectorized();
+		Inputs in=new Inputs(59);
+		for (int i=0; i<POINTS; i++) {
+			xs[i]=in.coord();
+			ys[i]=in.coord();
+			zs[i]=in.coord();
+			dxs[i]=in.coord();
+			dys[i]=in.coord();
+			dzs[i]=in.coord();
+		}
+		line=in.line3();
+		plane=in.plane3();
+	}
+
+	@Benchmark
+	public double[] lineDistances() {
+		batch.distances(line, xs, ys, zs, 0, POINTS, result, 0);
+		return result;
+	}
+
+	@Benchmark
+	public double[] planeDistances() {
+		batch.distances(plane, xs, ys, zs, 0, POINTS, result, 0);
+		return result;
+	}
+
+	@Benchmark
+	public int planeLineIntersections() {
+		return batch.intersect(plane, xs, ys, zs, dxs, dys, dzs, 0, POINTS, result, 0);
+	}
+}
@@ -0,0 +1,158 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Box2;
+import hu.kazocsaba.math.geometry.Box3;
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.PlaneSide;
+import hu.kazocsaba.math.geometry.Segment2;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Box2} and {@link Box3}.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class BoxBenchmark {
+	private final Vector2[] points=new Vector2[Inputs.SIZE];
+	private final double[] sizes=new double[Inputs.SIZE];
+	private final Box2[] boxes=new Box2[Inputs.SIZE];
+	private final Line2[] linesThrough=new Line2[Inputs.SIZE];
+	private final Line2[] linesMissing=new Line2[Inputs.SIZE];
+	private final Line2[] linesTouching=new Line2[Inputs.SIZE];
+	private final Line2[] axisLines=new Line2[Inputs.SIZE];
+	private final double[] pxs=new double[Inputs.SIZE];
+	private final double[] pys=new double[Inputs.SIZE];
+	private final double[] dxs=new double[Inputs.SIZE];
+	private final double[] dys=new double[Inputs.SIZE];
+	private final double[] tEnter=new double[Inputs.SIZE];
+	private final double[] tExit=new double[Inputs.SIZE];
+	private final double[] clipResult=new double[2];
+	private final Box3[] boxes3=new Box3[Inputs.SIZE];
+	private final Box3[] otherBoxes3=new Box3[Inputs.SIZE];
+	private final Line3[] linesThrough3=new Line3[Inputs.SIZE];
+	private final Plane3[] planes=new Plane3[Inputs.SIZE];
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(46);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			points[i]=in.point2();
+			sizes[i]=1+Math.abs(in.coord());
+			boxes[i]=in.box2();
+			linesThrough[i]=in.lineThrough(boxes[i]);
+			linesMissing[i]=in.lineMissing(boxes[i]);
+			linesTouching[i]=in.lineTouchingCorner(boxes[i]);
+			Vector2 center=MatrixFactory.createVector(
+					boxes[i].getPoint().getX()+boxes[i].getWidth()/2,
+					boxes[i].getPoint().getY()+boxes[i].getHeight()/2);
+			axisLines[i]=Line2.createFromDir(center, in.axisDir2());
+			Line2 line=in.flip() ? linesThrough[i] : linesMissing[i];
+			pxs[i]=line.getPoint().getX();
+			pys[i]=line.getPoint().getY();
+			dxs[i]=line.getDir().getX();
+			dys[i]=line.getDir().getY();
+			boxes3[i]=in.box3();
+			otherBoxes3[i]=in.box3();
+			linesThrough3[i]=in.lineThrough(boxes3[i]);
+			planes[i]=in.plane3();
+		}
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Box2 create() {
+		int i=next();
+		return new Box2(points[i], sizes[i], sizes[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public ImmutableVector2 getTopRight() {
+		return boxes[next()].getTopRight();
+	}
+
+	@Benchmark
+	public Segment2 intersectLine() {
+		int i=next();
+		return boxes[i].intersect(linesThrough[i]);
+	}
+
+	@Benchmark
+	public Segment2 intersectLineMissing() {
+		int i=next();
+		return boxes[i].intersect(linesMissing[i]);
+	}
+
+	/**
+	 * Lines which only touch a corner of the box; the intersection is a single point, which is reported as
+	 * no intersection.
+	 */
+	@Benchmark
+	public Segment2 intersectLineTouchingCorner() {
+		int i=next();
+		return boxes[i].intersect(linesTouching[i]);
+	}
+
+	@Benchmark
+	public Segment2 intersectAxisParallelLine() {
+		int i=next();
+		return boxes[i].intersect(axisLines[i]);
+	}
+
+	@Benchmark
+	public boolean clipLine() {
+		int i=next();
+		return boxes[i].clip(linesThrough[i], clipResult);
+	}
+
+	/**
+	 * Clips {@value Inputs#SIZE} lines, about half of which miss, against one box; one operation is the whole batch.
+	 */
+	@Benchmark
+	public int clipBatch() {
+		return boxes[next()].clip(pxs, pys, dxs, dys, 0, Inputs.SIZE, tEnter, tExit, 0);
+	}
+
+	@Benchmark
+	public boolean clipLine3() {
+		int i=next();
+		return boxes3[i].clip(linesThrough3[i], clipResult);
+	}
+
+	@Benchmark
+	public PlaneSide classify3() {
+		int i=next();
+		return boxes3[i].classify(planes[i]);
+	}
+
+	@Benchmark
+	public boolean overlaps3() {
+		int i=next();
+		return boxes3[i].overlaps(otherBoxes3[i]);
+	}
+}
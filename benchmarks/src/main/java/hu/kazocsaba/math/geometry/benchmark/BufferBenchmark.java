@@ -0,0 +1,100 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Line3Buffer;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.Plane3Buffer;
+import hu.kazocsaba.math.geometry.Segment3;
+import hu.kazocsaba.math.geometry.Segment3Buffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks comparing the packed buffers with arrays of objects. Each operation computes the distances of a point
+ * from all the stored objects; for objects, the primitive queries are used, so the difference is due to the memory
+ * layout.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class BufferBenchmark {
+	@Param({"1000000"})
+	private int count;
+
+	private Line3[] lines;
+	private Segment3[] segments;
+	private Plane3[] planes;
+	private Line3Buffer lineBuffer;
+	private Segment3Buffer segmentBuffer;
+	private Plane3Buffer planeBuffer;
+	private double[] distances;
+	private double x, y, z;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(47);
+		lines=new Line3[count];
+		segments=new Segment3[count];
+		planes=new Plane3[count];
+		lineBuffer=new Line3Buffer(count);
+		segmentBuffer=new Segment3Buffer(count);
+		planeBuffer=new Plane3Buffer(count);
+		for (int i=0; i<count; i++) {
+			lines[i]=in.line3();
+			segments[i]=in.segment3();
+			planes[i]=in.plane3();
+			lineBuffer.add(lines[i]);
+			segmentBuffer.add(segments[i]);
+			planeBuffer.add(planes[i]);
+		}
+		distances=new double[count];
+		x=in.coord();
+		y=in.coord();
+		z=in.coord();
+	}
+
+	@Benchmark
+	public double[] lineObjects() {
+		for (int i=0; i<count; i++)
+			distances[i]=lines[i].distance(x, y, z);
+		return distances;
+	}
+
+	@Benchmark
+	public double[] lineBuffer() {
+		lineBuffer.distances(x, y, z, distances, 0);
+		return distances;
+	}
+
+	@Benchmark
+	public double[] planeObjects() {
+		for (int i=0; i<count; i++)
+			distances[i]=planes[i].signedDistance(x, y, z);
+		return distances;
+	}
+
+	@Benchmark
+	public double[] planeBuffer() {
+		planeBuffer.signedDistances(x, y, z, distances, 0);
+		return distances;
+	}
+
+	@Benchmark
+	public int segmentBufferNearest() {
+		return segmentBuffer.findNearest(x, y, z);
+	}
+}
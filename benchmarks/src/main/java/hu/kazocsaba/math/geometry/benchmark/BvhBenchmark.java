@@ -0,0 +1,96 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Bvh2;
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Segment2;
+import hu.kazocsaba.math.matrix.Vector2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Bvh2}, compared to a linear scan over the segments.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class BvhBenchmark {
+	/**
+	 * The number of indexed segments.
+	 */
+	private static final int SEGMENTS=64*Inputs.SIZE;
+	private static final double NEAR=1;
+
+	private final List<Segment2> segments=new ArrayList<Segment2>();
+	private final Line2[] lines=new Line2[Inputs.SIZE];
+	private final Vector2[] points=new Vector2[Inputs.SIZE];
+	private Bvh2<Segment2> bvh;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(47);
+		for (int i=0; i<SEGMENTS; i++) {
+			Vector2 p=in.point2();
+			segments.add(new Segment2(p, p.plus(in.dir2())));
+		}
+		for (int i=0; i<Inputs.SIZE; i++) {
+			lines[i]=in.line2();
+			points[i]=in.point2();
+		}
+		bvh=Bvh2.createFromSegments(segments);
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Bvh2<Segment2> build() {
+		return Bvh2.createFromSegments(segments);
+	}
+
+	@Benchmark
+	public List<Segment2> findNear() {
+		return bvh.findNear(lines[next()], NEAR);
+	}
+
+	/**
+	 * The same query as {@link #findNear()}, answered by testing every segment.
+	 */
+	@Benchmark
+	public List<Segment2> findNearLinearScan() {
+		Line2 line=lines[next()];
+		List<Segment2> result=new ArrayList<Segment2>();
+		for (Segment2 segment: segments) {
+			double d1=line.distance(segment.getP1().getX(), segment.getP1().getY());
+			double d2=line.distance(segment.getP2().getX(), segment.getP2().getY());
+			// the segment crosses the line if its end points are on different sides
+			double s1=line.getDir().getX()*(segment.getP1().getY()-line.getPoint().getY())-line.getDir().getY()*(segment.getP1().getX()-line.getPoint().getX());
+			double s2=line.getDir().getX()*(segment.getP2().getY()-line.getPoint().getY())-line.getDir().getY()*(segment.getP2().getX()-line.getPoint().getX());
+			if (s1*s2<=0 || Math.min(d1, d2)<=NEAR) result.add(segment);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public Segment2 findNearest() {
+		return bvh.findNearest(points[next()]);
+	}
+}
@@ -0,0 +1,108 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Circle3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Circle3}.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CircleBenchmark {
+	/**
+	 * The number of points of a tessellated circle.
+	 */
+	private static final int POLYLINE_POINTS=64;
+
+	private final Vector3[] centers=new Vector3[Inputs.SIZE];
+	private final Vector3[] normals=new Vector3[Inputs.SIZE];
+	private final double[] radii=new double[Inputs.SIZE];
+	private final double[] angles=new double[Inputs.SIZE];
+	private final Circle3[] circles=new Circle3[Inputs.SIZE];
+	private final Circle3[] axisCircles=new Circle3[Inputs.SIZE];
+	private final double[] polyline=new double[3*POLYLINE_POINTS];
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(45);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			centers[i]=in.point3();
+			normals[i]=in.dir3();
+			radii[i]=.1+Math.abs(in.coord());
+			angles[i]=in.angle();
+			circles[i]=in.circle3();
+			axisCircles[i]=Circle3.create(in.point3(), in.axisDir3(), radii[i]);
+		}
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Circle3 create() {
+		int i=next();
+		return Circle3.create(centers[i], normals[i], radii[i]);
+	}
+
+	@Benchmark
+	public Vector3 getPointAt() {
+		int i=next();
+		return circles[i].getPointAt(angles[i]);
+	}
+
+	/**
+	 * Circles whose normal is parallel to a coordinate axis, for which the radial vector is computed by the
+	 * other branches.
+	 */
+	@Benchmark
+	public Vector3 getPointAtAxisNormal() {
+		int i=next();
+		return axisCircles[i].getPointAt(angles[i]);
+	}
+
+	/**
+	 * Tessellates a circle into {@value #POLYLINE_POINTS} points; one operation is the whole polyline.
+	 */
+	@Benchmark
+	public double[] getPoints() {
+		circles[next()].getPoints(POLYLINE_POINTS, polyline, 0);
+		return polyline;
+	}
+
+	/**
+	 * The same tessellation as {@link #getPoints()}, evaluating each angle separately.
+	 */
+	@Benchmark
+	public double[] getPointsByAngle() {
+		Circle3 circle=circles[next()];
+		for (int i=0; i<POLYLINE_POINTS; i++)
+			circle.getPointAt(2*Math.PI*i/POLYLINE_POINTS, polyline, 3*i);
+		return polyline;
+	}
+
+	@Benchmark
+	public Plane3 getPlane() {
+		return circles[next()].getPlane();
+	}
+}
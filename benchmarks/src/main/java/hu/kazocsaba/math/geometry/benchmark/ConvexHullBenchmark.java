@@ -0,0 +1,76 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.ConvexHull2;
+import hu.kazocsaba.math.geometry.ConvexHull3;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link ConvexHull2} and {@link ConvexHull3} on normally distributed point clouds, added at once
+ * and one by one.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ConvexHullBenchmark {
+	@Param({"10000", "200000"})
+	public int count;
+
+	private double[] points2, points3;
+
+	@Setup
+	public void setup() {
+		Random random=new Random(59);
+		points2=new double[2*count];
+		for (int i=0; i<points2.length; i++)
+			points2[i]=random.nextGaussian()*100;
+		points3=new double[3*count];
+		for (int i=0; i<points3.length; i++)
+			points3[i]=random.nextGaussian()*100;
+	}
+
+	@Benchmark
+	public int hull2() {
+		ConvexHull2 hull=new ConvexHull2();
+		hull.add(points2, 0, count);
+		return hull.getVertexCount();
+	}
+
+	@Benchmark
+	public int hull2Streamed() {
+		ConvexHull2 hull=new ConvexHull2();
+		for (int i=0; i<count; i++)
+			hull.add(points2[2*i], points2[2*i+1]);
+		return hull.getVertexCount();
+	}
+
+	@Benchmark
+	public int hull3() {
+		ConvexHull3 hull=new ConvexHull3();
+		hull.add(points3, 0, count);
+		return hull.getVertexCount();
+	}
+
+	@Benchmark
+	public int hull3Streamed() {
+		ConvexHull3 hull=new ConvexHull3();
+		for (int i=0; i<count; i++)
+			hull.add(points3[3*i], points3[3*i+1], points3[3*i+2]);
+		return hull.getVertexCount();
+	}
+}
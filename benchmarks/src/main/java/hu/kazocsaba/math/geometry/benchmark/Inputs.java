@@ -0,0 +1,181 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Box2;
+import hu.kazocsaba.math.geometry.Box3;
+import hu.kazocsaba.math.geometry.Circle3;
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.Segment2;
+import hu.kazocsaba.math.geometry.Segment3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+
+/**
+ * Randomized input generator for the benchmarks. All coordinates are drawn from a fixed range so that the
+ * generated data resembles typical scene geometry; the degenerate and near-degenerate generators produce
+ * inputs which hit the special-case branches of the library.
+ * @author Kazó Csaba
+ */
+final class Inputs {
+	/**
+	 * The number of precomputed inputs per benchmark. It is a power of two so that the index can be wrapped
+	 * with a mask.
+	 */
+	static final int SIZE=1024;
+	static final int MASK=SIZE-1;
+
+	private static final double RANGE=100;
+
+	private final Random random;
+
+	Inputs(long seed) {
+		random=new Random(seed);
+	}
+
+	double coord() {
+		return (random.nextDouble()*2-1)*RANGE;
+	}
+
+	double angle() {
+		return random.nextDouble()*2*Math.PI;
+	}
+
+	/**
+	 * Returns a random angle which is small but large enough to avoid all EPS-based degeneracy checks.
+	 */
+	double smallAngle() {
+		return Math.pow(10, -3-3*random.nextDouble());
+	}
+
+	boolean flip() {
+		return random.nextBoolean();
+	}
+
+	Vector2 point2() {
+		return MatrixFactory.createVector(coord(), coord());
+	}
+
+	Vector3 point3() {
+		return MatrixFactory.createVector(coord(), coord(), coord());
+	}
+
+	Vector2 dir2() {
+		double a=angle();
+		double length=.1+random.nextDouble()*10;
+		return MatrixFactory.createVector(length*Math.cos(a), length*Math.sin(a));
+	}
+
+	Vector3 dir3() {
+		// uniform on the sphere, with random length
+		double z=random.nextDouble()*2-1;
+		double a=angle();
+		double r=Math.sqrt(1-z*z);
+		double length=.1+random.nextDouble()*10;
+		return MatrixFactory.createVector(length*r*Math.cos(a), length*r*Math.sin(a), length*z);
+	}
+
+	/**
+	 * Returns a direction which encloses a small angle with the argument.
+	 */
+	Vector3 nearParallel(Vector3 dir) {
+		Vector3 perp=dir.cross(dir3());
+		perp.scale(dir.norm()*Math.tan(smallAngle())/perp.norm());
+		Vector3 result=dir.plus(perp);
+		if (flip()) result.scale(-1);
+		return result;
+	}
+
+	/**
+	 * Returns a direction which is parallel to one of the coordinate axes.
+	 */
+	Vector2 axisDir2() {
+		double length=.1+random.nextDouble()*10;
+		return flip() ? MatrixFactory.createVector(length, 0) : MatrixFactory.createVector(0, length);
+	}
+
+	Vector3 axisDir3() {
+		double length=.1+random.nextDouble()*10;
+		switch (random.nextInt(3)) {
+			case 0: return MatrixFactory.createVector(length, 0, 0);
+			case 1: return MatrixFactory.createVector(0, length, 0);
+			default: return MatrixFactory.createVector(0, 0, length);
+		}
+	}
+
+	Line2 line2() {
+		return Line2.createFromDir(point2(), dir2());
+	}
+
+	Line3 line3() {
+		return Line3.createFromDir(point3(), dir3());
+	}
+
+	Segment2 segment2() {
+		return new Segment2(point2(), point2());
+	}
+
+	Segment3 segment3() {
+		return new Segment3(point3(), point3());
+	}
+
+	Plane3 plane3() {
+		return Plane3.create(point3(), dir3());
+	}
+
+	Circle3 circle3() {
+		return Circle3.create(point3(), dir3(), .1+random.nextDouble()*10);
+	}
+
+	Box2 box2() {
+		return new Box2(point2(), 1+random.nextDouble()*RANGE, 1+random.nextDouble()*RANGE);
+	}
+
+	Box3 box3() {
+		return new Box3(point3(), 1+random.nextDouble()*RANGE, 1+random.nextDouble()*RANGE, 1+random.nextDouble()*RANGE);
+	}
+
+	/**
+	 * Returns a line which passes through the interior of the box.
+	 */
+	Line3 lineThrough(Box3 box) {
+		Vector3 p=MatrixFactory.createVector(
+				box.getPoint().getX()+random.nextDouble()*box.getWidth(),
+				box.getPoint().getY()+random.nextDouble()*box.getHeight(),
+				box.getPoint().getZ()+random.nextDouble()*box.getDepth());
+		return Line3.createFromDir(p, dir3());
+	}
+
+	/**
+	 * Returns a line which passes through the interior of the box.
+	 */
+	Line2 lineThrough(Box2 box) {
+		Vector2 p=MatrixFactory.createVector(
+				box.getPoint().getX()+random.nextDouble()*box.getWidth(),
+				box.getPoint().getY()+random.nextDouble()*box.getHeight());
+		return Line2.createFromDir(p, dir2());
+	}
+
+	/**
+	 * Returns a line which misses the box.
+	 */
+	Line2 lineMissing(Box2 box) {
+		// a line through the center, shifted along its normal by more than half the diagonal
+		Vector2 dir=dir2();
+		double offset=(.6+random.nextDouble())*Math.hypot(box.getWidth(), box.getHeight())/dir.norm();
+		Vector2 p=MatrixFactory.createVector(
+				box.getPoint().getX()+box.getWidth()/2-dir.getY()*offset,
+				box.getPoint().getY()+box.getHeight()/2+dir.getX()*offset);
+		return Line2.createFromDir(p, dir);
+	}
+
+	/**
+	 * Returns a line which only touches the box at a corner.
+	 */
+	Line2 lineTouchingCorner(Box2 box) {
+		Vector2 corner=box.getTopRight();
+		return Line2.createFromDir(corner, MatrixFactory.createVector(1, -1));
+	}
+}
@@ -0,0 +1,255 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.DegenerateCaseException;
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link hu.kazocsaba.math.geometry.Line}, {@link Line2} and {@link Line3}.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class LineBenchmark {
+	private final Vector2[] points2=new Vector2[Inputs.SIZE];
+	private final Vector2[] dirs2=new Vector2[Inputs.SIZE];
+	private final Vector3[] points3=new Vector3[Inputs.SIZE];
+	private final Vector3[] dirs3=new Vector3[Inputs.SIZE];
+	private final double[] values=new double[Inputs.SIZE];
+	private final double[] xs=new double[Inputs.SIZE];
+	private final double[] ys=new double[Inputs.SIZE];
+	private final double[] zs=new double[Inputs.SIZE];
+	private final Vector3 result3=MatrixFactory.createVector3();
+	private final Line2[] lines2=new Line2[Inputs.SIZE];
+	private final Line2[] axisLines2=new Line2[Inputs.SIZE];
+	private final Line3[] lines3=new Line3[Inputs.SIZE];
+	private final Line3[] otherLines3=new Line3[Inputs.SIZE];
+	private final Line3[] nearParallelLines3=new Line3[Inputs.SIZE];
+	private final Line3[] parallelLines3=new Line3[Inputs.SIZE];
+	private final Line3[] axisLines3=new Line3[Inputs.SIZE];
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(42);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			points2[i]=in.point2();
+			dirs2[i]=in.dir2();
+			points3[i]=in.point3();
+			dirs3[i]=in.dir3();
+			values[i]=in.coord();
+			xs[i]=points3[i].getX();
+			ys[i]=points3[i].getY();
+			zs[i]=points3[i].getZ();
+			lines2[i]=in.line2();
+			axisLines2[i]=Line2.createFromDir(in.point2(), in.axisDir2());
+			lines3[i]=in.line3();
+			otherLines3[i]=in.line3();
+			nearParallelLines3[i]=Line3.createFromDir(in.point3(), in.nearParallel(lines3[i].getDir()));
+			parallelLines3[i]=Line3.createFromDir(in.point3(), lines3[i].getDir().times(in.flip() ? -2 : .5));
+			axisLines3[i]=Line3.createFromDir(in.point3(), in.axisDir3());
+		}
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Line2 line2CreateFromDir() {
+		int i=next();
+		return Line2.createFromDir(points2[i], dirs2[i]);
+	}
+
+	@Benchmark
+	public Line2 line2CreateFromNormal() {
+		int i=next();
+		return Line2.createFromNormal(points2[i], dirs2[i]);
+	}
+
+	@Benchmark
+	public Line2 line2CreateFromTwoPoints() {
+		int i=next();
+		return Line2.createFromTwoPoints(points2[i], points2[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public Line3 line3CreateFromDir() {
+		int i=next();
+		return Line3.createFromDir(points3[i], dirs3[i]);
+	}
+
+	@Benchmark
+	public Line3 line3CreateFromTwoPoints() {
+		int i=next();
+		return Line3.createFromTwoPoints(points3[i], points3[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public Vector2 line2GetPointAt() {
+		int i=next();
+		return lines2[i].getPointAt(values[i]);
+	}
+
+	@Benchmark
+	public Vector3 line3GetPointAt() {
+		int i=next();
+		return lines3[i].getPointAt(values[i]);
+	}
+
+	@Benchmark
+	public Vector3 line3GetPointAtInto() {
+		int i=next();
+		return lines3[i].getPointAt(values[i], result3);
+	}
+
+	@Benchmark
+	public Vector2 line2GetPointWhereCoord() {
+		int i=next();
+		return lines2[i].getPointWhereCoord(i & 1, values[i]);
+	}
+
+	@Benchmark
+	public Vector3 line3GetPointWhereCoord() {
+		int i=next();
+		return lines3[i].getPointWhereCoord(i%3, values[i]);
+	}
+
+	/**
+	 * Measures the cost of the exception thrown for a line parallel to the requested coordinate plane.
+	 */
+	@Benchmark
+	public Vector line3GetPointWhereCoordDegenerate() {
+		int i=next();
+		Line3 line=axisLines3[i];
+		// pick a coordinate along which the line does not move
+		int coord=Math.abs(line.getDir().getX())>0 ? 1 : 0;
+		try {
+			return line.getPointWhereCoord(coord, values[i]);
+		} catch (DegenerateCaseException e) {
+			return null;
+		}
+	}
+
+	@Benchmark
+	public double line2GetClosestT() {
+		int i=next();
+		return lines2[i].getClosestT(points2[i]);
+	}
+
+	@Benchmark
+	public double line3GetClosestT() {
+		int i=next();
+		return lines3[i].getClosestT(points3[i]);
+	}
+
+	@Benchmark
+	public double line3GetClosestTPrimitive() {
+		int i=next();
+		return lines3[i].getClosestT(xs[i], ys[i], zs[i]);
+	}
+
+	@Benchmark
+	public double line2DistancePoint() {
+		int i=next();
+		return lines2[i].distance(points2[i]);
+	}
+
+	@Benchmark
+	public double line3DistancePoint() {
+		int i=next();
+		return lines3[i].distance(points3[i]);
+	}
+
+	@Benchmark
+	public double line2DistancePointPrimitive() {
+		int i=next();
+		return lines2[i].distance(xs[i], ys[i]);
+	}
+
+	@Benchmark
+	public double line3DistancePointPrimitive() {
+		int i=next();
+		return lines3[i].distance(xs[i], ys[i], zs[i]);
+	}
+
+	@Benchmark
+	public double line3DistanceLine() {
+		int i=next();
+		return lines3[i].distance(otherLines3[i]);
+	}
+
+	@Benchmark
+	public double line3DistanceLineNearParallel() {
+		int i=next();
+		return lines3[i].distance(nearParallelLines3[i]);
+	}
+
+	@Benchmark
+	public double line3DistanceLineParallel() {
+		int i=next();
+		return lines3[i].distance(parallelLines3[i]);
+	}
+
+	@Benchmark
+	public double line2GetYforX() {
+		int i=next();
+		return lines2[i].getYforX(values[i]);
+	}
+
+	@Benchmark
+	public double line2GetXforY() {
+		int i=next();
+		return lines2[i].getXforY(values[i]);
+	}
+
+	/**
+	 * Measures the cost of the exception thrown for axis-parallel lines; about half of the inputs are degenerate.
+	 */
+	@Benchmark
+	public double line2GetYforXDegenerate() {
+		int i=next();
+		try {
+			return axisLines2[i].getYforX(values[i]);
+		} catch (DegenerateCaseException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * The same inputs as {@link #line2GetYforXDegenerate()}, using the method that returns NaN instead of throwing.
+	 */
+	@Benchmark
+	public double line2FindYforXDegenerate() {
+		int i=next();
+		return axisLines2[i].findYforX(values[i]);
+	}
+
+	@Benchmark
+	public Matrix3 line3GetRotation() {
+		int i=next();
+		return lines3[i].getRotation(values[i]);
+	}
+}
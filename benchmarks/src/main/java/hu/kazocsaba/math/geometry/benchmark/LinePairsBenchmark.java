@@ -0,0 +1,78 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Line3Buffer;
+import hu.kazocsaba.math.geometry.Line3Pairs;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Line3Pairs}, compared with calling {@link Line3#distance(hu.kazocsaba.math.geometry.Line)}
+ * for every pair.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class LinePairsBenchmark {
+	private final Line3[] lines=new Line3[Inputs.SIZE];
+	private final Line3Buffer buffer=new Line3Buffer(Inputs.SIZE);
+	private final double[] distances=new double[Inputs.SIZE*Inputs.SIZE];
+	private final double[] t2s=new double[Inputs.SIZE*Inputs.SIZE];
+	private final Line3Pairs.Listener counter=new Line3Pairs.Listener() {
+		@Override
+		public void pair(int first, int second, double distance, double t1, double t2) {
+			pairs++;
+		}
+	};
+
+	private int pairs;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(61);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			lines[i]=in.line3();
+			buffer.add(lines[i]);
+		}
+	}
+
+	@Benchmark
+	public double[] lineDistanceLoop() {
+		for (int i=0; i<Inputs.SIZE; i++)
+			for (int j=0; j<Inputs.SIZE; j++)
+				distances[i*Inputs.SIZE+j]=lines[i].distance(lines[j]);
+		return distances;
+	}
+
+	@Benchmark
+	public double[] distances() {
+		Line3Pairs.distances(buffer, buffer, distances, 0);
+		return distances;
+	}
+
+	@Benchmark
+	public double[] closestParameters() {
+		Line3Pairs.closestParameters(buffer, buffer, distances, t2s, 0);
+		return distances;
+	}
+
+	@Benchmark
+	public int findPairsWithin() {
+		pairs=0;
+		Line3Pairs.findPairsWithin(buffer, buffer, 1, counter);
+		return pairs;
+	}
+}
@@ -0,0 +1,190 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.DegenerateCaseException;
+import hu.kazocsaba.math.geometry.IntersectionType;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.Workspace;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Plane3}.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class PlaneBenchmark {
+	private final Vector3[] points=new Vector3[Inputs.SIZE];
+	private final Vector3[] normals=new Vector3[Inputs.SIZE];
+	private final Plane3[] planes=new Plane3[Inputs.SIZE];
+	private final Plane3[] otherPlanes=new Plane3[Inputs.SIZE];
+	private final Plane3[] nearParallelPlanes=new Plane3[Inputs.SIZE];
+	private final Plane3[] parallelPlanes=new Plane3[Inputs.SIZE];
+	private final Line3[] lines=new Line3[Inputs.SIZE];
+	private final Line3[] nearParallelLines=new Line3[Inputs.SIZE];
+	private final Line3[] parallelLines=new Line3[Inputs.SIZE];
+	private final double[] xs=new double[Inputs.SIZE];
+	private final double[] ys=new double[Inputs.SIZE];
+	private final double[] zs=new double[Inputs.SIZE];
+	private final double[] distances=new double[Inputs.SIZE];
+
+	private final Workspace workspace=new Workspace();
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(44);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			points[i]=in.point3();
+			normals[i]=in.dir3();
+			planes[i]=in.plane3();
+			otherPlanes[i]=in.plane3();
+			nearParallelPlanes[i]=Plane3.create(in.point3(), in.nearParallel(planes[i].getNormal()));
+			// scaled by powers of two, so that the planes are exactly parallel
+			parallelPlanes[i]=Plane3.create(in.point3(), planes[i].getNormal().times(in.flip() ? -4 : .5));
+			lines[i]=in.line3();
+			xs[i]=points[i].getX();
+			ys[i]=points[i].getY();
+			zs[i]=points[i].getZ();
+
+			// directions lying exactly in the plane, and ones tilted slightly out of it
+			Vector3 normal=planes[i].getNormal();
+			Vector3 inPlane=MatrixFactory.createVector(normal.getY(), -normal.getX(), 0);
+			parallelLines[i]=Line3.createFromDir(in.point3(), inPlane);
+			Vector3 tilted=inPlane.plus(planes[i].getUnitNormal().times(inPlane.norm()*Math.tan(in.smallAngle())));
+			nearParallelLines[i]=Line3.createFromDir(in.point3(), tilted);
+		}
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Plane3 create() {
+		int i=next();
+		return Plane3.create(points[i], normals[i]);
+	}
+
+	@Benchmark
+	public double distance() {
+		int i=next();
+		return planes[i].distance(points[i]);
+	}
+
+	/**
+	 * Signed distances of {@value Inputs#SIZE} points from one plane; one operation is the whole batch.
+	 */
+	@Benchmark
+	public double[] signedDistancesBatch() {
+		planes[next()].signedDistances(xs, ys, zs, 0, Inputs.SIZE, distances, 0);
+		return distances;
+	}
+
+	/**
+	 * Counts the inliers among {@value Inputs#SIZE} points; one operation is the whole batch.
+	 */
+	@Benchmark
+	public int countWithinBatch() {
+		return planes[next()].countWithin(xs, ys, zs, 0, Inputs.SIZE, 5);
+	}
+
+	@Benchmark
+	public Vector3 intersectLine() {
+		int i=next();
+		return planes[i].intersect(lines[i]);
+	}
+
+	@Benchmark
+	public Vector3 intersectLineWorkspace() {
+		int i=next();
+		return planes[i].intersect(lines[i], workspace);
+	}
+
+	@Benchmark
+	public Vector3 intersectLineNearParallel() {
+		int i=next();
+		return planes[i].intersect(nearParallelLines[i]);
+	}
+
+	/**
+	 * Measures the cost of the exception thrown for a line parallel to the plane.
+	 */
+	@Benchmark
+	public Vector3 intersectLineParallel() {
+		int i=next();
+		try {
+			return planes[i].intersect(parallelLines[i]);
+		} catch (DegenerateCaseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * The same inputs as {@link #intersectLineParallel()}, using the method that does not throw exceptions.
+	 */
+	@Benchmark
+	public IntersectionType findIntersectionLineParallel() {
+		int i=next();
+		return planes[i].findIntersection(parallelLines[i], workspace);
+	}
+
+	@Benchmark
+	public Line3 intersectPlane() {
+		int i=next();
+		return planes[i].intersect(otherPlanes[i]);
+	}
+
+	@Benchmark
+	public Vector3 intersectPlaneWorkspace() {
+		int i=next();
+		planes[i].intersect(otherPlanes[i], workspace);
+		return workspace.getDir3();
+	}
+
+	@Benchmark
+	public Line3 intersectPlaneNearParallel() {
+		int i=next();
+		return planes[i].intersect(nearParallelPlanes[i]);
+	}
+
+	/**
+	 * Measures the cost of the exception thrown for parallel planes.
+	 */
+	@Benchmark
+	public Line3 intersectPlaneParallel() {
+		int i=next();
+		try {
+			return planes[i].intersect(parallelPlanes[i]);
+		} catch (DegenerateCaseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * The same inputs as {@link #intersectPlaneParallel()}, using the method that does not throw exceptions.
+	 */
+	@Benchmark
+	public IntersectionType findIntersectionPlaneParallel() {
+		int i=next();
+		return planes[i].findIntersection(parallelPlanes[i], workspace);
+	}
+}
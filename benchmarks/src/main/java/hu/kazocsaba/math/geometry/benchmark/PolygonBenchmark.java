@@ -0,0 +1,91 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Box2;
+import hu.kazocsaba.math.geometry.Polygon2;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Polygon2}: the point-in-polygon test with and without the edge index, and clipping.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class PolygonBenchmark {
+	@Param({"16", "1024"})
+	public int vertices;
+
+	private Polygon2 polygon, indexed;
+	private final double[] xs=new double[Inputs.SIZE], ys=new double[Inputs.SIZE];
+	private final boolean[] inside=new boolean[Inputs.SIZE];
+	private final Box2[] boxes=new Box2[Inputs.SIZE];
+	private int index;
+
+	@Setup
+	public void setup() {
+		Random random=new Random(47);
+		// a star-shaped polygon around the origin, like a typical zone outline
+		double[] coords=new double[2*vertices];
+		for (int i=0; i<vertices; i++) {
+			double angle=2*Math.PI*i/vertices, radius=50+random.nextDouble()*50;
+			coords[2*i]=radius*Math.cos(angle);
+			coords[2*i+1]=radius*Math.sin(angle);
+		}
+		polygon=Polygon2.create(coords, 0, vertices);
+		indexed=polygon.indexed();
+		Inputs in=new Inputs(47);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			xs[i]=in.coord();
+			ys[i]=in.coord();
+			boxes[i]=new Box2(MatrixFactory.createVector(in.coord(), in.coord()), 1+Math.abs(in.coord()), 1+Math.abs(in.coord()));
+		}
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public boolean contains() {
+		int i=next();
+		return polygon.contains(xs[i], ys[i]);
+	}
+
+	@Benchmark
+	public boolean containsIndexed() {
+		int i=next();
+		return indexed.contains(xs[i], ys[i]);
+	}
+
+	@Benchmark
+	public int containsBatchIndexed() {
+		return indexed.contains(xs, ys, 0, Inputs.SIZE, inside, 0);
+	}
+
+	@Benchmark
+	public Polygon2 index() {
+		return polygon.indexed();
+	}
+
+	@Benchmark
+	public Polygon2 clip() {
+		return polygon.clip(boxes[next()]);
+	}
+}
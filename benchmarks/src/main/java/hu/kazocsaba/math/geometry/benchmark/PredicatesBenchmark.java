@@ -0,0 +1,110 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Predicates;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Predicates}, compared with the plain floating point evaluation. Besides random points, the
+ * predicates are measured on points which are exactly collinear or coplanar, and on points which are off by a
+ * few units in the last place, with coordinates in the range of UTM meters.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class PredicatesBenchmark {
+	// a, b, c, d for each input, x, y and z coordinates interleaved
+	private final double[] random=new double[12*Inputs.SIZE];
+	private final double[] degenerate=new double[12*Inputs.SIZE];
+	private final double[] nearlyDegenerate=new double[12*Inputs.SIZE];
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(25);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			int base=12*i;
+			for (int k=0; k<12; k++)
+				random[base+k]=in.coord();
+			// integer points on a common plane and line: a, b, c in the plane z=x+2y, d on the line through a and b
+			for (int k=0; k<3; k++) {
+				double x=Math.rint(5e5+in.coord()), y=Math.rint(5e6+in.coord());
+				degenerate[base+3*k]=x;
+				degenerate[base+3*k+1]=y;
+				degenerate[base+3*k+2]=x+2*y;
+			}
+			for (int k=0; k<3; k++)
+				degenerate[base+9+k]=2*degenerate[base+3+k]-degenerate[base+k];
+			// d moved off the line by a few ulps
+			System.arraycopy(degenerate, base, nearlyDegenerate, base, 12);
+			nearlyDegenerate[base+9]+=(1+in.coord()/25)*Math.ulp(nearlyDegenerate[base+9]);
+		}
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return 12*index;
+	}
+
+	private static int orient2dNaive(double[] p, int i) {
+		double det=(p[i]-p[i+9])*(p[i+4]-p[i+10])-(p[i+1]-p[i+10])*(p[i+3]-p[i+9]);
+		return det>0 ? 1 : det<0 ? -1 : 0;
+	}
+
+	private static int orient2d(double[] p, int i) {
+		return Predicates.orient2d(p[i], p[i+1], p[i+3], p[i+4], p[i+9], p[i+10]);
+	}
+
+	private static int orient3d(double[] p, int i) {
+		return Predicates.orient3d(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5], p[i+6], p[i+7], p[i+8], p[i+9], p[i+10], p[i+11]);
+	}
+
+	@Benchmark
+	public int orient2dNaive() {
+		return orient2dNaive(random, next());
+	}
+
+	@Benchmark
+	public int orient2d() {
+		return orient2d(random, next());
+	}
+
+	@Benchmark
+	public int orient2dDegenerate() {
+		return orient2d(degenerate, next());
+	}
+
+	@Benchmark
+	public int orient2dNearlyDegenerate() {
+		return orient2d(nearlyDegenerate, next());
+	}
+
+	@Benchmark
+	public int orient3d() {
+		return orient3d(random, next());
+	}
+
+	@Benchmark
+	public int orient3dDegenerate() {
+		return orient3d(degenerate, next());
+	}
+
+	@Benchmark
+	public int orient3dNearlyDegenerate() {
+		return orient3d(nearlyDegenerate, next());
+	}
+}
@@ -0,0 +1,79 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Quaternion;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Quaternion}, compared with rotating by the matrix of {@link Line3#getRotation(double)}.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class QuaternionBenchmark {
+	private final Vector3[] points=new Vector3[Inputs.SIZE];
+	private final double[] xs=new double[Inputs.SIZE], ys=new double[Inputs.SIZE], zs=new double[Inputs.SIZE];
+	private final Quaternion[] rotations=new Quaternion[Inputs.SIZE];
+
+	private Line3 axis;
+	private double angle;
+	private Quaternion rotation;
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(73);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			points[i]=in.point3();
+			xs[i]=points[i].getX();
+			ys[i]=points[i].getY();
+			zs[i]=points[i].getZ();
+			rotations[i]=Quaternion.createRotation(in.dir3(), in.angle());
+		}
+		axis=in.line3();
+		angle=in.angle();
+		rotation=Quaternion.createRotation(axis, angle);
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Vector3 matrixRotate() {
+		return axis.getRotation(angle).mul(points[next()]);
+	}
+
+	@Benchmark
+	public Vector3 quaternionRotate() {
+		return rotation.rotate(points[next()]);
+	}
+
+	@Benchmark
+	public double[] quaternionRotateBatch() {
+		rotation.rotate(xs, ys, zs, 0, Inputs.SIZE);
+		return xs;
+	}
+
+	@Benchmark
+	public Quaternion slerp() {
+		int i=next();
+		return rotations[i].slerp(rotations[(i+1) & Inputs.MASK], .3);
+	}
+}
@@ -0,0 +1,138 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Segment2;
+import hu.kazocsaba.math.geometry.Segment2Buffer;
+import hu.kazocsaba.math.geometry.Segment3;
+import hu.kazocsaba.math.geometry.SegmentSweep;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Segment2}, {@link Segment3} and {@link SegmentSweep}.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class SegmentBenchmark {
+	private final Vector2[] points2=new Vector2[Inputs.SIZE];
+	private final Vector3[] points3=new Vector3[Inputs.SIZE];
+	private final double[] values=new double[Inputs.SIZE];
+	private final Segment2[] segments2=new Segment2[Inputs.SIZE];
+	private final Segment3[] segments3=new Segment3[Inputs.SIZE];
+
+	private final Segment2Buffer buffer2=new Segment2Buffer(Inputs.SIZE);
+	private List<Segment2> segmentList;
+	private final SegmentSweep.Listener<Segment2> counter=new SegmentSweep.Listener<Segment2>() {
+		@Override
+		public void intersection(Segment2 first, Segment2 second, double x, double y) {
+			pairs++;
+		}
+	};
+
+	private int index;
+	private int pairs;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(43);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			points2[i]=in.point2();
+			points3[i]=in.point3();
+			values[i]=in.coord()/50;
+			segments2[i]=in.segment2();
+			segments3[i]=in.segment3();
+		}
+		segmentList=Arrays.asList(segments2);
+		for (Segment2 segment: segments2)
+			buffer2.add(segment);
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Segment2 segment2Create() {
+		int i=next();
+		return new Segment2(points2[i], points2[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public Segment3 segment3Create() {
+		int i=next();
+		return new Segment3(points3[i], points3[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public Vector2 segment2GetPointAt() {
+		int i=next();
+		return segments2[i].getPointAt(values[i]);
+	}
+
+	@Benchmark
+	public Vector3 segment3GetPointAt() {
+		int i=next();
+		return segments3[i].getPointAt(values[i]);
+	}
+
+	@Benchmark
+	public Line2 segment2GetPerpendicularBisector() {
+		return segments2[next()].getPerpendicularBisector();
+	}
+
+	@Benchmark
+	public boolean segment2Intersects() {
+		int i=next();
+		return segments2[i].intersects(segments2[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public double segment2Distance() {
+		int i=next();
+		return segments2[i].distance(segments2[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public double segment3Distance() {
+		int i=next();
+		return segments3[i].distance(segments3[(i+1) & Inputs.MASK]);
+	}
+
+	@Benchmark
+	public double segment3PointDistance() {
+		int i=next();
+		return segments3[i].distance(points3[i]);
+	}
+
+	@Benchmark
+	public int segment2BufferFindNearest() {
+		Vector2 p=points2[next()];
+		return buffer2.findNearest(p.getX(), p.getY());
+	}
+
+	@Benchmark
+	public int segmentSweep() {
+		pairs=0;
+		SegmentSweep.findIntersections(segmentList, counter);
+		return pairs;
+	}
+}
@@ -0,0 +1,101 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Box2;
+import hu.kazocsaba.math.geometry.Bvh2;
+import hu.kazocsaba.math.geometry.Segment2;
+import hu.kazocsaba.math.geometry.SegmentGrid2;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link SegmentGrid2}, compared to {@link Bvh2} on the same uniformly distributed segments.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class SegmentGridBenchmark {
+	/**
+	 * The number of indexed segments.
+	 */
+	private static final int SEGMENTS=64*Inputs.SIZE;
+	/**
+	 * The number of cells along each axis.
+	 */
+	private static final int CELLS=256;
+
+	private final List<Segment2> segments=new ArrayList<Segment2>();
+	private final Vector2[] points=new Vector2[Inputs.SIZE];
+	private final Box2[] boxes=new Box2[Inputs.SIZE];
+	private final Box2 extent=new Box2(MatrixFactory.createVector(-100, -100), 200, 200);
+	private SegmentGrid2<Segment2> grid;
+	private Bvh2<Segment2> bvh;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(53);
+		for (int i=0; i<SEGMENTS; i++) {
+			Vector2 p=in.point2();
+			segments.add(new Segment2(p, p.plus(in.dir2().times(.2))));
+		}
+		for (int i=0; i<Inputs.SIZE; i++) {
+			points[i]=in.point2();
+			boxes[i]=new Box2(in.point2(), 2, 2);
+		}
+		grid=SegmentGrid2.createFromSegments(extent, CELLS, CELLS, segments);
+		bvh=Bvh2.createFromSegments(segments);
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public SegmentGrid2<Segment2> build() {
+		return SegmentGrid2.createFromSegments(extent, CELLS, CELLS, segments);
+	}
+
+	@Benchmark
+	public Segment2 findNearest() {
+		return grid.findNearest(points[next()]);
+	}
+
+	@Benchmark
+	public List<Segment2> findNearest8() {
+		return grid.findNearest(points[next()], 8);
+	}
+
+	@Benchmark
+	public List<Segment2> findOverlapping() {
+		return grid.findOverlapping(boxes[next()]);
+	}
+
+	@Benchmark
+	public Segment2 bvhFindNearest() {
+		return bvh.findNearest(points[next()]);
+	}
+
+	@Benchmark
+	public List<Segment2> bvhFindOverlapping() {
+		return bvh.findOverlapping(boxes[next()]);
+	}
+}
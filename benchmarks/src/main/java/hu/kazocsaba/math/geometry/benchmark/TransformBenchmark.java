@@ -0,0 +1,102 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Circle3;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.Plane3Buffer;
+import hu.kazocsaba.math.geometry.Transform3;
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Transform3}, compared with transforming the vectors of the objects and creating them again
+ * with their factories.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class TransformBenchmark {
+	private final Line3[] lines=new Line3[Inputs.SIZE];
+	private final Plane3[] planes=new Plane3[Inputs.SIZE];
+	private final Circle3[] circles=new Circle3[Inputs.SIZE];
+	private final Plane3Buffer planeBuffer=new Plane3Buffer(Inputs.SIZE);
+
+	private Transform3 transform;
+	private Matrix3 rotation;
+	private Vector3 translation;
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(71);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			lines[i]=in.line3();
+			planes[i]=in.plane3();
+			circles[i]=in.circle3();
+			planeBuffer.add(planes[i]);
+		}
+		Line3 axis=in.line3();
+		rotation=axis.getRotation(in.angle());
+		translation=in.point3();
+		transform=Transform3.createRigid(rotation, translation);
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public Line3 lineFactory() {
+		Line3 line=lines[next()];
+		return Line3.createFromDir(rotation.mul(line.getPoint()).plus(translation), rotation.mul(line.getDir()));
+	}
+
+	@Benchmark
+	public Line3 lineTransform() {
+		return transform.transform(lines[next()]);
+	}
+
+	@Benchmark
+	public Plane3 planeFactory() {
+		Plane3 plane=planes[next()];
+		return Plane3.create(rotation.mul(plane.getPoint()).plus(translation), rotation.mul(plane.getNormal()));
+	}
+
+	@Benchmark
+	public Plane3 planeTransform() {
+		return transform.transform(planes[next()]);
+	}
+
+	@Benchmark
+	public Circle3 circleFactory() {
+		Circle3 circle=circles[next()];
+		return Circle3.create(rotation.mul(circle.getCenter()).plus(translation), rotation.mul(circle.getNormal()), circle.getRadius());
+	}
+
+	@Benchmark
+	public Circle3 circleTransform() {
+		return transform.transform(circles[next()]);
+	}
+
+	@Benchmark
+	public Plane3Buffer planeBufferTransform() {
+		planeBuffer.transform(transform);
+		return planeBuffer;
+	}
+}
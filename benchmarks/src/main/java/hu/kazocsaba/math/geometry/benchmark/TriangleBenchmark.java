@@ -0,0 +1,118 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Line3Buffer;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.Triangle3;
+import hu.kazocsaba.math.geometry.Triangle3Buffer;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Triangle3} and ray casting against a {@link Triangle3Buffer} mesh. The baseline intersects
+ * the plane of the triangle and tests the barycentric coordinates of the point, as done before Triangle3 existed.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class TriangleBenchmark {
+	/**
+	 * The number of grid cells along each side of the height field mesh; the mesh has twice as many triangles
+	 * as cells.
+	 */
+	@Param({"256"})
+	public int gridSize;
+
+	private final Triangle3[] triangles=new Triangle3[Inputs.SIZE];
+	private final Line3[] lines=new Line3[Inputs.SIZE];
+	private final double[] result=new double[3];
+	private Triangle3Buffer mesh;
+	private Line3Buffer rays;
+	private int[] hitTriangles;
+	private double[] hits;
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(53);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			Vector3 a=in.point3();
+			triangles[i]=new Triangle3(a, a.plus(in.dir3().times(20)), a.plus(in.dir3().times(20)));
+			// aimed at the triangle, so that the test does not always exit early
+			lines[i]=Line3.createFromTwoPoints(in.point3(), triangles[i].getPointAt(in.coord()/200+.3, in.coord()/200+.3));
+		}
+
+		// a height field over [0,100]x[0,100], triangulated row by row
+		mesh=new Triangle3Buffer(2*gridSize*gridSize);
+		double cell=100.0/gridSize;
+		for (int y=0; y<gridSize; y++)
+			for (int x=0; x<gridSize; x++) {
+				double x0=x*cell, y0=y*cell, x1=x0+cell, y1=y0+cell;
+				mesh.add(x0, y0, height(x0, y0), x1, y0, height(x1, y0), x1, y1, height(x1, y1));
+				mesh.add(x0, y0, height(x0, y0), x1, y1, height(x1, y1), x0, y1, height(x0, y1));
+			}
+		rays=new Line3Buffer(Inputs.SIZE);
+		for (int i=0; i<Inputs.SIZE; i++) {
+			// picking rays from a camera above the surface
+			Vector3 target=MatrixFactory.createVector(50+in.coord()/2, 50+in.coord()/2, 0);
+			rays.add(Line3.createFromTwoPoints(MatrixFactory.createVector(50, -50, 80), target));
+		}
+		hitTriangles=new int[Inputs.SIZE];
+		hits=new double[3*Inputs.SIZE];
+	}
+
+	private static double height(double x, double y) {
+		return 5*Math.sin(x/7)*Math.cos(y/11);
+	}
+
+	private int next() {
+		index=(index+1) & Inputs.MASK;
+		return index;
+	}
+
+	@Benchmark
+	public boolean planeIntersectBaseline() {
+		int i=next();
+		Triangle3 triangle=triangles[i];
+		Line3 line=lines[i];
+		Plane3 plane=Plane3.create(triangle.getA(), triangle.getB().minus(triangle.getA()).cross(triangle.getC().minus(triangle.getA())));
+		Vector3 p=plane.intersect(line);
+		Vector3 e1=triangle.getB().minus(triangle.getA()), e2=triangle.getC().minus(triangle.getA()), q=p.minus(triangle.getA());
+		double d11=e1.dot(e1), d12=e1.dot(e2), d22=e2.dot(e2), q1=q.dot(e1), q2=q.dot(e2);
+		double det=d11*d22-d12*d12;
+		double u=(d22*q1-d12*q2)/det, v=(d11*q2-d12*q1)/det;
+		return u>=0 && v>=0 && u+v<=1;
+	}
+
+	@Benchmark
+	public boolean triangleIntersect() {
+		int i=next();
+		return triangles[i].intersect(lines[i], result, 0);
+	}
+
+	@Benchmark
+	public int meshRaycast() {
+		return mesh.raycast(rays.get(next()), result, 0);
+	}
+
+	@Benchmark
+	public int meshRaycastBatch() {
+		return mesh.raycast(rays, hitTriangles, 0, hits, 0);
+	}
+}
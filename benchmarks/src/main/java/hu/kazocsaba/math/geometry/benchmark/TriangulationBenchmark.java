@@ -0,0 +1,69 @@
+package hu.kazocsaba.math.geometry.benchmark;
+
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Line3Buffer;
+import hu.kazocsaba.math.geometry.Triangulation;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Triangulation}, on bundles of four rays through a common point.
+ * @author Kazó Csaba
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class TriangulationBenchmark {
+	private static final int RAYS=4;
+
+	private final List<List<Line3>> bundles=new ArrayList<List<Line3>>();
+	private final Line3Buffer buffer=new Line3Buffer(RAYS*Inputs.SIZE);
+	private final int[] bundleStarts=new int[Inputs.SIZE+1];
+	private final double[] points=new double[3*Inputs.SIZE];
+	private final double[] residuals=new double[RAYS*Inputs.SIZE];
+
+	private int index;
+
+	@Setup
+	public void setup() {
+		Inputs in=new Inputs(67);
+		for (int k=0; k<Inputs.SIZE; k++) {
+			Vector3 point=in.point3();
+			List<Line3> bundle=new ArrayList<Line3>();
+			for (int i=0; i<RAYS; i++) {
+				Vector3 center=in.point3();
+				Line3 ray=Line3.createFromTwoPoints(center, point);
+				bundle.add(ray);
+				buffer.add(ray);
+			}
+			bundles.add(bundle);
+			bundleStarts[k+1]=buffer.size();
+		}
+	}
+
+	@Benchmark
+	public Vector3 triangulate() {
+		index=(index+1) & Inputs.MASK;
+		return Triangulation.triangulate(bundles.get(index));
+	}
+
+	@Benchmark
+	public int triangulateBatch() {
+		return Triangulation.triangulate(buffer, bundleStarts, Inputs.SIZE, null, points, 0, residuals);
+	}
+}
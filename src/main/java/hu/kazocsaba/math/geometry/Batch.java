@@ -0,0 +1,22 @@
+package hu.kazocsaba.math.geometry;
+
+/**
+ * Helper methods for the batch operations working on coordinate arrays.
+ * @author Kazó Csaba
+ */
+final class Batch {
+	private Batch() {}
+
+	/**
+	 * Checks that the range {@code [offset, offset+length)} lies within an array.
+	 * @param array the name of the array, used in the error message
+	 * @param arrayLength the length of the array
+	 * @param offset the start of the range
+	 * @param length the length of the range
+	 * @throws IndexOutOfBoundsException if the range does not fit into the array
+	 */
+	static void checkRange(String array, int arrayLength, int offset, int length) {
+		if (offset<0 || length<0 || offset>arrayLength-length)
+			throw new IndexOutOfBoundsException("Range ["+offset+", "+offset+"+"+length+") is outside "+array+" (length "+arrayLength+")");
+	}
+}
@@ -13,6 +13,7 @@ public final class Box2 {
 	
 	private final ImmutableVector2 point;
 	private final double width, height;
+	final double minX, minY, maxX, maxY;
 
 	/**
 	 * Creates a new box.
@@ -26,6 +27,10 @@ public final class Box2 {
 		this.point = ImmutableMatrixFactory.copy(point);
 		this.width = width;
 		this.height = height;
+		minX=this.point.getX();
+		minY=this.point.getY();
+		maxX=minX+width;
+		maxY=minY+height;
 	}
 
 	/**
@@ -82,81 +87,133 @@ public final class Box2 {
 	}
 	
 	/**
-	 * Returns the intersection of a line and this box, or {@code null} if they do not intersect.
+	 * Returns the intersection of a line and this box, or {@code null} if they do not intersect. If the line only
+	 * touches the box at a single point, {@code null} is returned; this is decided exactly, from the sides of the
+	 * line the corners of the box are on. The returned segment has the same orientation as the line: it starts
+	 * where the line enters the box. Intersections shorter than 1e-8 cannot be represented as a segment, and are
+	 * also reported as {@code null}.
 	 * @param line the line
 	 * @return the intersection as a line segment
 	 */
 	public Segment2 intersect(Line2 line) {
-		Vector2 lineDir=line.getDir();
-		
-		try {
-			if (Math.abs(lineDir.getY())>Math.abs(lineDir.getX())) {
-				// vertical
-				double xtop=line.getXforY(getPoint().getY());
-				double xbot=line.getXforY(getPoint().getY()+getHeight());
-
-				int xpostop=0, xposbot=0;
-				if (xtop>getPoint().getX()+getWidth())
-					xpostop=1;
-				else if (xtop<getPoint().getX())
-					xpostop=-1;
-				if (xbot>getPoint().getX()+getWidth())
-					xposbot=1;
-				else if (xbot<getPoint().getX())
-					xposbot=-1;
-
-				if (xpostop*xposbot==1)
-					return null;
-				if (xpostop*xposbot==-1)
-					return new Segment2(line.getPointWhereCoord(0, getPoint().getX()), line.getPointWhereCoord(0, getPoint().getX()+getWidth()));
-
-				if (xpostop==-1) {
-					return new Segment2(line.getPointWhereCoord(0, getPoint().getX()), ImmutableMatrixFactory.createVector(xbot, getPoint().getY()+getHeight()));
-				} else if (xpostop==1) {
-					return new Segment2(line.getPointWhereCoord(0, getPoint().getX()+getWidth()), ImmutableMatrixFactory.createVector(xbot, getPoint().getY()+getHeight()));
-				} else if (xposbot==-1) {
-					return new Segment2(ImmutableMatrixFactory.createVector(xtop, getPoint().getY()), line.getPointWhereCoord(0, getPoint().getX()));
-				} else if (xposbot==1) {
-					return new Segment2(ImmutableMatrixFactory.createVector(xtop, getPoint().getY()), line.getPointWhereCoord(0, getPoint().getX()+getWidth()));
-				} else {
-					return new Segment2(ImmutableMatrixFactory.createVector(xtop, getPoint().getY()), ImmutableMatrixFactory.createVector(xbot, getPoint().getY()+getHeight()));
-				}
+		int left=0, right=0, on=0;
+		for (int corner=0; corner<4; corner++) {
+			int side=Predicates.sideOfLine(line, (corner&1)==0 ? minX : maxX, (corner&2)==0 ? minY : maxY);
+			if (side>0) left++; else if (side<0) right++; else on++;
+		}
+		// unless the line crosses the interior or runs along a side, it misses the box or touches a corner
+		if ((left==0 || right==0) && on<2) return null;
+		double[] t=new double[2];
+		if (!clip(line, t)) return null;
+		if ((t[1]-t[0])*Math.hypot(line.dx, line.dy)<EPS) return null;
+		return new Segment2(line.getPointAt(t[0]), line.getPointAt(t[1]));
+	}
+	
+	/**
+	 * Computes the parameter values where a line enters and exits this box. This method neither allocates memory
+	 * nor throws exceptions, and is therefore suitable for clipping large numbers of lines.
+	 * @param line the line
+	 * @param result the array to store the parameter values in: the entry parameter is stored at index 0,
+	 * the exit parameter at index 1
+	 * @return {@code true} if the line intersects the box (possibly at a single point), {@code false} otherwise;
+	 * in the latter case the contents of {@code result} are unspecified
+	 * @see Line2#getPointAt(double)
+	 */
+	public boolean clip(Line2 line, double[] result) {
+		return clip(line.px, line.py, line.dx, line.dy, result, 0);
+	}
+	
+	/**
+	 * Computes the parameter values where a line enters and exits this box. The line is specified as
+	 * {@code (px,py)+t*(dx,dy)}. This method neither allocates memory nor throws exceptions.
+	 * @param px the x coordinate of the point of the line
+	 * @param py the y coordinate of the point of the line
+	 * @param dx the x coordinate of the direction of the line
+	 * @param dy the y coordinate of the direction of the line
+	 * @param result the array to store the parameter values in: the entry parameter is stored at index
+	 * {@code offset}, the exit parameter at index {@code offset+1}
+	 * @param offset the index in {@code result} where the entry parameter is stored
+	 * @return {@code true} if the line intersects the box (possibly at a single point), {@code false} otherwise;
+	 * in the latter case the contents of {@code result} are unspecified
+	 */
+	public boolean clip(double px, double py, double dx, double dy, double[] result, int offset) {
+		double tEnter=Double.NEGATIVE_INFINITY, tExit=Double.POSITIVE_INFINITY;
+		// slab method: intersect the parameter intervals where the line is between the vertical and the horizontal sides
+		if (dx!=0) {
+			double inv=1/dx;
+			double t1=(minX-px)*inv, t2=(maxX-px)*inv;
+			tEnter=Math.min(t1, t2);
+			tExit=Math.max(t1, t2);
+		} else if (px<minX || px>maxX)
+			return false;
+		if (dy!=0) {
+			double inv=1/dy;
+			double t1=(minY-py)*inv, t2=(maxY-py)*inv;
+			tEnter=Math.max(tEnter, Math.min(t1, t2));
+			tExit=Math.min(tExit, Math.max(t1, t2));
+		} else if (py<minY || py>maxY)
+			return false;
+		result[offset]=tEnter;
+		result[offset+1]=tExit;
+		return tEnter<=tExit;
+	}
+	
+	/**
+	 * Clips a set of lines against this box. The {@code i}th line is specified as
+	 * {@code (pxs[offset+i], pys[offset+i]) + t*(dxs[offset+i], dys[offset+i])}; the parameter values where it
+	 * enters and exits the box are stored in {@code tEnter[resultOffset+i]} and {@code tExit[resultOffset+i]}. For
+	 * lines which miss the box, both values are set to {@link Double#NaN}.
+	 * @param pxs the x coordinates of the points of the lines
+	 * @param pys the y coordinates of the points of the lines
+	 * @param dxs the x coordinates of the directions of the lines
+	 * @param dys the y coordinates of the directions of the lines
+	 * @param offset the index of the first line in the input arrays
+	 * @param length the number of lines
+	 * @param tEnter the array to store the entry parameters in
+	 * @param tExit the array to store the exit parameters in
+	 * @param resultOffset the index in the result arrays where the values of the first line are stored
+	 * @return the number of lines which intersect the box
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 */
+	public int clip(double[] pxs, double[] pys, double[] dxs, double[] dys, int offset, int length,
+			double[] tEnter, double[] tExit, int resultOffset) {
+		Batch.checkRange("pxs", pxs.length, offset, length);
+		Batch.checkRange("pys", pys.length, offset, length);
+		Batch.checkRange("dxs", dxs.length, offset, length);
+		Batch.checkRange("dys", dys.length, offset, length);
+		Batch.checkRange("tEnter", tEnter.length, resultOffset, length);
+		Batch.checkRange("tExit", tExit.length, resultOffset, length);
+		double x0=minX, x1=maxX, y0=minY, y1=maxY;
+		int hits=0;
+		for (int i=0; i<length; i++) {
+			double px=pxs[offset+i], py=pys[offset+i];
+			double dx=dxs[offset+i], dy=dys[offset+i];
+			double enter=Double.NEGATIVE_INFINITY, exit=Double.POSITIVE_INFINITY;
+			// the only branches depend on whether a direction component is zero, which is rarely mispredicted
+			if (dx!=0) {
+				double inv=1/dx;
+				double t1=(x0-px)*inv, t2=(x1-px)*inv;
+				enter=Math.min(t1, t2);
+				exit=Math.max(t1, t2);
+			} else if (px<x0 || px>x1)
+				exit=Double.NEGATIVE_INFINITY;
+			if (dy!=0) {
+				double inv=1/dy;
+				double t1=(y0-py)*inv, t2=(y1-py)*inv;
+				enter=Math.max(enter, Math.min(t1, t2));
+				exit=Math.min(exit, Math.max(t1, t2));
+			} else if (py<y0 || py>y1)
+				exit=Double.NEGATIVE_INFINITY;
+			if (enter<=exit) {
+				tEnter[resultOffset+i]=enter;
+				tExit[resultOffset+i]=exit;
+				hits++;
 			} else {
-				// horizontal
-				double ytop=line.getYforX(getPoint().getX());
-				double ybot=line.getYforX(getPoint().getX()+getWidth());
-
-				int ypostop=0, yposbot=0;
-				if (ytop>getPoint().getY()+getHeight())
-					ypostop=1;
-				else if (ytop<getPoint().getY())
-					ypostop=-1;
-				if (ybot>getPoint().getY()+getHeight())
-					yposbot=1;
-				else if (ybot<getPoint().getY())
-					yposbot=-1;
-
-				if (ypostop*yposbot==1)
-					return null;
-				if (ypostop*yposbot==-1)
-					return new Segment2(line.getPointWhereCoord(1, getPoint().getY()), line.getPointWhereCoord(1, getPoint().getY()+getHeight()));
-
-				if (ypostop==-1) {
-					return new Segment2(ImmutableMatrixFactory.createVector(getPoint().getX()+getWidth(), ybot), line.getPointWhereCoord(1, getPoint().getY()));
-				} else if (ypostop==1) {
-					return new Segment2(ImmutableMatrixFactory.createVector(getPoint().getX()+getWidth(), ybot), line.getPointWhereCoord(1, getPoint().getY()+getHeight()));
-				} else if (yposbot==-1) {
-					return new Segment2(ImmutableMatrixFactory.createVector(getPoint().getX(), ytop), line.getPointWhereCoord(1, getPoint().getY()));
-				} else if (yposbot==1) {
-					return new Segment2(ImmutableMatrixFactory.createVector(getPoint().getX(), ytop), line.getPointWhereCoord(1, getPoint().getY()+getHeight()));
-				} else {
-					return new Segment2(ImmutableMatrixFactory.createVector(getPoint().getX(), ytop), ImmutableMatrixFactory.createVector(getPoint().getX()+getWidth(), ybot));
-				}
+				tEnter[resultOffset+i]=Double.NaN;
+				tExit[resultOffset+i]=Double.NaN;
 			}
-		} catch (IllegalArgumentException e) {
-			// couldn't construct a Segment2; this means that the intersection is a single point
-			return null;
 		}
+		return hits;
 	}
 
 	@Override
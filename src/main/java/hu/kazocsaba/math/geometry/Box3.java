@@ -0,0 +1,197 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+
+/**
+ * An axis-aligned 3D box. It is specified by the position of its corner with the minimal coordinates and its
+ * width, height and depth (its size along the x, y and z axes).
+ * @author Kazó Csaba
+ */
+public final class Box3 {
+	private static final double EPS=1e-8;
+
+	private final ImmutableVector3 point;
+	private final double width, height, depth;
+	final double minX, minY, minZ, maxX, maxY, maxZ;
+
+	/**
+	 * Creates a new box.
+	 * @param point the corner with the minimal coordinates
+	 * @param width the size along the x axis
+	 * @param height the size along the y axis
+	 * @param depth the size along the z axis
+	 * @throws IllegalArgumentException if any of the sizes is negative or too small
+	 */
+	public Box3(Vector3 point, double width, double height, double depth) {
+		if (width<EPS || height<EPS || depth<EPS) throw new IllegalArgumentException("Box must have positive size");
+		this.point = ImmutableMatrixFactory.copy(point);
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		minX=this.point.getX();
+		minY=this.point.getY();
+		minZ=this.point.getZ();
+		maxX=minX+width;
+		maxY=minY+height;
+		maxZ=minZ+depth;
+	}
+
+	/**
+	 * Returns the corner of this box with the minimal coordinates.
+	 * @return the minimal corner
+	 */
+	public ImmutableVector3 getPoint() {
+		return point;
+	}
+
+	/**
+	 * Returns the corner of this box with the maximal coordinates.
+	 * @return the maximal corner
+	 */
+	public ImmutableVector3 getMaxPoint() {
+		return ImmutableMatrixFactory.createVector(maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Returns the width of this box.
+	 * @return the size along the x axis
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of this box.
+	 * @return the size along the y axis
+	 */
+	public double getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the depth of this box.
+	 * @return the size along the z axis
+	 */
+	public double getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the intersection of a line and this box, or {@code null} if they do not intersect. If the line only
+	 * touches the box at a single point, {@code null} is returned. The returned segment starts where the line
+	 * enters the box.
+	 * @param line the line
+	 * @return the intersection as a line segment
+	 */
+	public Segment3 intersect(Line3 line) {
+		double[] t=new double[2];
+		if (!clip(line, t)) return null;
+		// a single point cannot be represented as a segment
+		if ((t[1]-t[0])*Math.sqrt(line.dx*line.dx+line.dy*line.dy+line.dz*line.dz)<EPS) return null;
+		return new Segment3(line.getPointAt(t[0]), line.getPointAt(t[1]));
+	}
+
+	/**
+	 * Computes the parameter values where a line enters and exits this box. This method neither allocates memory
+	 * nor throws exceptions.
+	 * @param line the line
+	 * @param result the array to store the parameter values in: the entry parameter is stored at index 0,
+	 * the exit parameter at index 1
+	 * @return {@code true} if the line intersects the box (possibly at a single point), {@code false} otherwise;
+	 * in the latter case the contents of {@code result} are unspecified
+	 * @see Line3#getPointAt(double)
+	 */
+	public boolean clip(Line3 line, double[] result) {
+		return clip(line.px, line.py, line.pz, line.dx, line.dy, line.dz, result, 0);
+	}
+
+	/**
+	 * Computes the parameter values where a line enters and exits this box. The line is specified as
+	 * {@code (px,py,pz)+t*(dx,dy,dz)}. This method neither allocates memory nor throws exceptions.
+	 * @param px the x coordinate of the point of the line
+	 * @param py the y coordinate of the point of the line
+	 * @param pz the z coordinate of the point of the line
+	 * @param dx the x coordinate of the direction of the line
+	 * @param dy the y coordinate of the direction of the line
+	 * @param dz the z coordinate of the direction of the line
+	 * @param result the array to store the parameter values in: the entry parameter is stored at index
+	 * {@code offset}, the exit parameter at index {@code offset+1}
+	 * @param offset the index in {@code result} where the entry parameter is stored
+	 * @return {@code true} if the line intersects the box (possibly at a single point), {@code false} otherwise;
+	 * in the latter case the contents of {@code result} are unspecified
+	 */
+	public boolean clip(double px, double py, double pz, double dx, double dy, double dz, double[] result, int offset) {
+		double tEnter=Double.NEGATIVE_INFINITY, tExit=Double.POSITIVE_INFINITY;
+		// slab method: intersect the parameter intervals where the line is between the opposite faces
+		if (dx!=0) {
+			double inv=1/dx;
+			double t1=(minX-px)*inv, t2=(maxX-px)*inv;
+			tEnter=Math.min(t1, t2);
+			tExit=Math.max(t1, t2);
+		} else if (px<minX || px>maxX)
+			return false;
+		if (dy!=0) {
+			double inv=1/dy;
+			double t1=(minY-py)*inv, t2=(maxY-py)*inv;
+			tEnter=Math.max(tEnter, Math.min(t1, t2));
+			tExit=Math.min(tExit, Math.max(t1, t2));
+		} else if (py<minY || py>maxY)
+			return false;
+		if (dz!=0) {
+			double inv=1/dz;
+			double t1=(minZ-pz)*inv, t2=(maxZ-pz)*inv;
+			tEnter=Math.max(tEnter, Math.min(t1, t2));
+			tExit=Math.min(tExit, Math.max(t1, t2));
+		} else if (pz<minZ || pz>maxZ)
+			return false;
+		result[offset]=tEnter;
+		result[offset+1]=tExit;
+		return tEnter<=tExit;
+	}
+
+	/**
+	 * Determines on which side of a plane this box is. This method neither allocates memory nor throws exceptions.
+	 * @param plane the plane
+	 * @return {@link PlaneSide#FRONT} if the box is on the side the normal vector of the plane points to,
+	 * {@link PlaneSide#BACK} if it is on the opposite side, and {@link PlaneSide#STRADDLING} if the plane
+	 * intersects or touches the box
+	 */
+	public PlaneSide classify(Plane3 plane) {
+		// compare the signed distance of the center with the projection of the half-diagonal onto the normal
+		double distance=plane.signedDistance((minX+maxX)/2, (minY+maxY)/2, (minZ+maxZ)/2);
+		double radius=(Math.abs(plane.nx)*width+Math.abs(plane.ny)*height+Math.abs(plane.nz)*depth)/2;
+		if (distance>radius) return PlaneSide.FRONT;
+		if (distance<-radius) return PlaneSide.BACK;
+		return PlaneSide.STRADDLING;
+	}
+
+	/**
+	 * Returns whether this box and another one have a common point.
+	 * @param box the other box
+	 * @return {@code true} if the boxes overlap or touch
+	 */
+	public boolean overlaps(Box3 box) {
+		return minX<=box.maxX && box.minX<=maxX
+				&& minY<=box.maxY && box.minY<=maxY
+				&& minZ<=box.maxZ && box.minZ<=maxZ;
+	}
+
+	/**
+	 * Returns the smallest box containing both this box and another one.
+	 * @param box the other box
+	 * @return the union of the bounds of the boxes
+	 */
+	public Box3 union(Box3 box) {
+		double x0=Math.min(minX, box.minX), y0=Math.min(minY, box.minY), z0=Math.min(minZ, box.minZ);
+		return new Box3(ImmutableMatrixFactory.createVector(x0, y0, z0),
+				Math.max(maxX, box.maxX)-x0, Math.max(maxY, box.maxY)-y0, Math.max(maxZ, box.maxZ)-z0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Box[%s -> %s]", getPoint(), getMaxPoint());
+	}
+
+}
@@ -0,0 +1,530 @@
+package hu.kazocsaba.math.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A bounding volume hierarchy: a spatial index of line segments or axis-aligned boxes. The objects are organized
+ * into a binary tree of axis-aligned bounding boxes, which allows answering overlap, line proximity and nearest
+ * neighbour queries without testing every object.
+ * <p>
+ * The tree is built with the surface area heuristic evaluated over a fixed number of bins per axis. Large inputs
+ * are built in parallel on a shared fork/join pool; the resulting tree does not depend on the number of threads.
+ * <p>
+ * Instances of this class are immutable and can be queried from multiple threads.
+ * @param <T> the type of the indexed objects
+ * @author Kazó Csaba
+ * @see Bvh2
+ * @see Bvh3
+ */
+public class Bvh<T> {
+	/**
+	 * Nodes with at most this many objects may become leaves.
+	 */
+	private static final int MAX_LEAF_SIZE=8;
+	/**
+	 * The number of bins per axis used to evaluate the split candidates.
+	 */
+	private static final int BINS=16;
+	/**
+	 * Ranges with at least this many objects are built by parallel tasks.
+	 */
+	private static final int PARALLEL_THRESHOLD=4096;
+	/**
+	 * The cost of visiting a node relative to the cost of testing an object.
+	 */
+	private static final double TRAVERSAL_COST=1;
+
+	private final int dim;
+	private final List<T> items;
+	private final boolean boxes;
+	// the end points of the segments, or the minimal and maximal corners of the boxes
+	private final double[] a, b;
+	// the objects in the order of the leaves
+	private final int[] order;
+	// the nodes in depth-first order; the left child of an internal node directly follows it
+	private final double[] nodeMin, nodeMax;
+	private final int[] nodeFirst, nodeCount, nodeRight;
+
+	Bvh(int dim, List<T> items, boolean boxes, double[] a, double[] b) {
+		this.dim = dim;
+		this.items = items;
+		this.boxes = boxes;
+		this.a = a;
+		this.b = b;
+		int n=items.size();
+		order=new int[n];
+		for (int i=0; i<n; i++) order[i]=i;
+		if (n==0) {
+			nodeMin=nodeMax=new double[0];
+			nodeFirst=nodeCount=nodeRight=new int[0];
+			return;
+		}
+
+		double[] boundsMin=new double[n*dim], boundsMax=new double[n*dim], centroids=new double[n*dim];
+		for (int i=0; i<n*dim; i++) {
+			boundsMin[i]=Math.min(a[i], b[i]);
+			boundsMax[i]=Math.max(a[i], b[i]);
+			centroids[i]=(boundsMin[i]+boundsMax[i])/2;
+		}
+		BuildTask root=new BuildTask(dim, boundsMin, boundsMax, centroids, order, 0, n);
+		Node tree=n>=PARALLEL_THRESHOLD ? Parallel.invoke(root) : root.compute();
+
+		nodeMin=new double[tree.size*dim];
+		nodeMax=new double[tree.size*dim];
+		nodeFirst=new int[tree.size];
+		nodeCount=new int[tree.size];
+		nodeRight=new int[tree.size];
+		flatten(tree, 0);
+	}
+
+	private int flatten(Node node, int index) {
+		System.arraycopy(node.min, 0, nodeMin, index*dim, dim);
+		System.arraycopy(node.max, 0, nodeMax, index*dim, dim);
+		if (node.left==null) {
+			nodeFirst[index]=node.first;
+			nodeCount[index]=node.count;
+			return index+1;
+		}
+		int next=flatten(node.left, index+1);
+		nodeRight[index]=next;
+		return flatten(node.right, next);
+	}
+
+	/**
+	 * Returns the number of objects in this hierarchy.
+	 * @return the number of objects
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Returns the objects in this hierarchy.
+	 * @return an unmodifiable list of the objects, in the order they were specified
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the objects which overlap an axis-aligned box.
+	 */
+	List<T> findOverlapping(double[] min, double[] max) {
+		List<T> result=new ArrayList<T>();
+		int[] stack=new int[64];
+		int top=0;
+		if (nodeCount.length>0) stack[top++]=0;
+		while (top>0) {
+			int node=stack[--top];
+			if (!overlaps(nodeMin, nodeMax, node*dim, min, max)) continue;
+			if (nodeCount[node]>0) {
+				for (int i=nodeFirst[node], end=i+nodeCount[node]; i<end; i++) {
+					int item=order[i];
+					if (boxes ? overlaps(a, b, item*dim, min, max) : segmentOverlaps(item, min, max))
+						result.add(items.get(item));
+				}
+			} else {
+				if (top+2>stack.length) stack=Arrays.copyOf(stack, stack.length*2);
+				stack[top++]=nodeRight[node];
+				stack[top++]=node+1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the objects which are within the specified distance of the line {@code point+t*dir}.
+	 */
+	List<T> findNear(double[] point, double[] dir, double maxDistance) {
+		if (!(maxDistance>=0)) throw new IllegalArgumentException("The distance must be non-negative");
+		double[] unitDir=new double[dim];
+		double norm=0;
+		for (int k=0; k<dim; k++) norm+=dir[k]*dir[k];
+		norm=Math.sqrt(norm);
+		for (int k=0; k<dim; k++) unitDir[k]=dir[k]/norm;
+		double maxDistanceSq=maxDistance*maxDistance;
+		double[] edge=new double[2*dim];
+
+		List<T> result=new ArrayList<T>();
+		int[] stack=new int[64];
+		int top=0;
+		if (nodeCount.length>0) stack[top++]=0;
+		while (top>0) {
+			int node=stack[--top];
+			// the line passes within the distance of the node only if it intersects the enlarged bounding box
+			if (!lineIntersects(point, dir, nodeMin, nodeMax, node*dim, maxDistance)) continue;
+			if (nodeCount[node]>0) {
+				for (int i=nodeFirst[node], end=i+nodeCount[node]; i<end; i++) {
+					int item=order[i];
+					double distanceSq;
+					if (boxes)
+						distanceSq=boxLineDistanceSq(item, point, dir, unitDir, edge);
+					else
+						distanceSq=segmentLineDistanceSq(a, item*dim, b, item*dim, point, unitDir);
+					if (distanceSq<=maxDistanceSq) result.add(items.get(item));
+				}
+			} else {
+				if (top+2>stack.length) stack=Arrays.copyOf(stack, stack.length*2);
+				stack[top++]=nodeRight[node];
+				stack[top++]=node+1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the object closest to a point, or {@code null} if this hierarchy is empty.
+	 */
+	T findNearest(double[] point) {
+		int best=-1;
+		double bestDistanceSq=Double.POSITIVE_INFINITY;
+		int[] stack=new int[64];
+		double[] stackDistanceSq=new double[64];
+		int top=0;
+		if (nodeCount.length>0) {
+			stack[0]=0;
+			stackDistanceSq[0]=0;
+			top=1;
+		}
+		while (top>0) {
+			top--;
+			int node=stack[top];
+			if (stackDistanceSq[top]>=bestDistanceSq) continue;
+			if (nodeCount[node]>0) {
+				for (int i=nodeFirst[node], end=i+nodeCount[node]; i<end; i++) {
+					int item=order[i];
+					double distanceSq=boxes ? pointBoxDistanceSq(point, a, b, item*dim) : pointSegmentDistanceSq(point, item);
+					if (distanceSq<bestDistanceSq) {
+						best=item;
+						bestDistanceSq=distanceSq;
+					}
+				}
+			} else {
+				if (top+2>stack.length) {
+					stack=Arrays.copyOf(stack, stack.length*2);
+					stackDistanceSq=Arrays.copyOf(stackDistanceSq, stack.length);
+				}
+				int left=node+1, right=nodeRight[node];
+				double leftDistanceSq=pointBoxDistanceSq(point, nodeMin, nodeMax, left*dim);
+				double rightDistanceSq=pointBoxDistanceSq(point, nodeMin, nodeMax, right*dim);
+				// the closer child is pushed last so that it is visited first
+				if (leftDistanceSq<=rightDistanceSq) {
+					stack[top]=right;
+					stackDistanceSq[top++]=rightDistanceSq;
+					stack[top]=left;
+					stackDistanceSq[top++]=leftDistanceSq;
+				} else {
+					stack[top]=left;
+					stackDistanceSq[top++]=leftDistanceSq;
+					stack[top]=right;
+					stackDistanceSq[top++]=rightDistanceSq;
+				}
+			}
+		}
+		return best==-1 ? null : items.get(best);
+	}
+
+	private boolean overlaps(double[] boxMin, double[] boxMax, int offset, double[] min, double[] max) {
+		for (int k=0; k<dim; k++)
+			if (boxMin[offset+k]>max[k] || boxMax[offset+k]<min[k]) return false;
+		return true;
+	}
+
+	private boolean segmentOverlaps(int item, double[] min, double[] max) {
+		// clip the parameter range [0,1] of the segment with the slabs of the box
+		double tEnter=0, tExit=1;
+		for (int k=0; k<dim; k++) {
+			double p=a[item*dim+k], d=b[item*dim+k]-p;
+			if (d!=0) {
+				double t1=(min[k]-p)/d, t2=(max[k]-p)/d;
+				tEnter=Math.max(tEnter, Math.min(t1, t2));
+				tExit=Math.min(tExit, Math.max(t1, t2));
+				if (tEnter>tExit) return false;
+			} else if (p<min[k] || p>max[k])
+				return false;
+		}
+		return true;
+	}
+
+	private boolean lineIntersects(double[] point, double[] dir, double[] boxMin, double[] boxMax, int offset, double margin) {
+		double tEnter=Double.NEGATIVE_INFINITY, tExit=Double.POSITIVE_INFINITY;
+		for (int k=0; k<dim; k++) {
+			double min=boxMin[offset+k]-margin, max=boxMax[offset+k]+margin;
+			if (dir[k]!=0) {
+				double t1=(min-point[k])/dir[k], t2=(max-point[k])/dir[k];
+				tEnter=Math.max(tEnter, Math.min(t1, t2));
+				tExit=Math.min(tExit, Math.max(t1, t2));
+				if (tEnter>tExit) return false;
+			} else if (point[k]<min || point[k]>max)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the squared distance of the segment {@code p1-p2} from the line through {@code point} with the
+	 * specified unit direction.
+	 */
+	private double segmentLineDistanceSq(double[] p1, int p1Offset, double[] p2, int p2Offset, double[] point, double[] unitDir) {
+		// the distance is measured in the subspace perpendicular to the line, where it is a convex quadratic
+		// function of the segment parameter
+		double wu=0, du=0;
+		for (int k=0; k<dim; k++) {
+			wu+=(p1[p1Offset+k]-point[k])*unitDir[k];
+			du+=(p2[p2Offset+k]-p1[p1Offset+k])*unitDir[k];
+		}
+		double wd=0, dd=0;
+		for (int k=0; k<dim; k++) {
+			double w=p1[p1Offset+k]-point[k]-wu*unitDir[k];
+			double d=p2[p2Offset+k]-p1[p1Offset+k]-du*unitDir[k];
+			wd+=w*d;
+			dd+=d*d;
+		}
+		double t=0;
+		if (dd>0) t=Math.max(0, Math.min(1, -wd/dd));
+		double distanceSq=0;
+		for (int k=0; k<dim; k++) {
+			double w=p1[p1Offset+k]-point[k]-wu*unitDir[k];
+			double d=p2[p2Offset+k]-p1[p1Offset+k]-du*unitDir[k];
+			double r=w+t*d;
+			distanceSq+=r*r;
+		}
+		return distanceSq;
+	}
+
+	private double boxLineDistanceSq(int item, double[] point, double[] dir, double[] unitDir, double[] edge) {
+		if (lineIntersects(point, dir, a, b, item*dim, 0)) return 0;
+		// if the line misses the box, then one of the closest points of the box is on an edge
+		double distanceSq=Double.POSITIVE_INFINITY;
+		for (int axis=0; axis<dim; axis++) {
+			for (int corner=0; corner<1<<(dim-1); corner++) {
+				for (int k=0, bit=0; k<dim; k++) {
+					if (k==axis) {
+						edge[k]=a[item*dim+k];
+						edge[dim+k]=b[item*dim+k];
+					} else {
+						edge[k]=edge[dim+k]=((corner>>bit)&1)==0 ? a[item*dim+k] : b[item*dim+k];
+						bit++;
+					}
+				}
+				distanceSq=Math.min(distanceSq, segmentLineDistanceSq(edge, 0, edge, dim, point, unitDir));
+			}
+		}
+		return distanceSq;
+	}
+
+	private double pointBoxDistanceSq(double[] point, double[] boxMin, double[] boxMax, int offset) {
+		double distanceSq=0;
+		for (int k=0; k<dim; k++) {
+			double d=Math.max(0, Math.max(boxMin[offset+k]-point[k], point[k]-boxMax[offset+k]));
+			distanceSq+=d*d;
+		}
+		return distanceSq;
+	}
+
+	private double pointSegmentDistanceSq(double[] point, int item) {
+		double wd=0, dd=0;
+		for (int k=0; k<dim; k++) {
+			double d=b[item*dim+k]-a[item*dim+k];
+			wd+=(point[k]-a[item*dim+k])*d;
+			dd+=d*d;
+		}
+		double t=Math.max(0, Math.min(1, wd/dd));
+		double distanceSq=0;
+		for (int k=0; k<dim; k++) {
+			double r=point[k]-a[item*dim+k]-t*(b[item*dim+k]-a[item*dim+k]);
+			distanceSq+=r*r;
+		}
+		return distanceSq;
+	}
+
+	/**
+	 * A node of the tree under construction.
+	 */
+	private static final class Node {
+		final double[] min, max;
+		int first, count;
+		Node left, right;
+		/**
+		 * The number of nodes in the subtree.
+		 */
+		int size;
+
+		Node(double[] min, double[] max) {
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Builds the subtree of a range of the objects. The task reorders its range of the {@code order} array so that
+	 * the objects of each leaf are contiguous. The bounds and centroids are indexed by position in {@code order}
+	 * and are moved together with it, so that the objects of a range are read sequentially.
+	 */
+	private static final class BuildTask extends RecursiveTask<Node> {
+		private final int dim;
+		private final double[] boundsMin, boundsMax, centroids;
+		private final int[] order;
+		private final int start, end;
+
+		BuildTask(int dim, double[] boundsMin, double[] boundsMax, double[] centroids, int[] order, int start, int end) {
+			this.dim = dim;
+			this.boundsMin = boundsMin;
+			this.boundsMax = boundsMax;
+			this.centroids = centroids;
+			this.order = order;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Node compute() {
+			int count=end-start;
+			double[] min=new double[dim], max=new double[dim];
+			double[] centroidMin=new double[dim], centroidMax=new double[dim];
+			Arrays.fill(min, Double.POSITIVE_INFINITY);
+			Arrays.fill(max, Double.NEGATIVE_INFINITY);
+			Arrays.fill(centroidMin, Double.POSITIVE_INFINITY);
+			Arrays.fill(centroidMax, Double.NEGATIVE_INFINITY);
+			for (int i=start; i<end; i++) {
+				int offset=i*dim;
+				for (int k=0; k<dim; k++) {
+					if (boundsMin[offset+k]<min[k]) min[k]=boundsMin[offset+k];
+					if (boundsMax[offset+k]>max[k]) max[k]=boundsMax[offset+k];
+					if (centroids[offset+k]<centroidMin[k]) centroidMin[k]=centroids[offset+k];
+					if (centroids[offset+k]>centroidMax[k]) centroidMax[k]=centroids[offset+k];
+				}
+			}
+			Node node=new Node(min, max);
+			node.size=1;
+			node.first=start;
+			node.count=count;
+			if (count==1) return node;
+
+			// find the split with the lowest surface area heuristic cost
+			int bestAxis=-1, bestSplit=0, bestImbalance=0;
+			double bestCost=Double.POSITIVE_INFINITY;
+			int[] binCount=new int[BINS];
+			double[] binMin=new double[BINS*dim], binMax=new double[BINS*dim];
+			double[] rightCost=new double[BINS];
+			double[] sweepMin=new double[dim], sweepMax=new double[dim];
+			for (int axis=0; axis<dim; axis++) {
+				double extent=centroidMax[axis]-centroidMin[axis];
+				if (!(extent>0)) continue;
+				double scale=BINS/extent;
+				Arrays.fill(binCount, 0);
+				Arrays.fill(binMin, Double.POSITIVE_INFINITY);
+				Arrays.fill(binMax, Double.NEGATIVE_INFINITY);
+				for (int i=start; i<end; i++) {
+					int offset=i*dim;
+					int bin=bin(centroids[offset+axis], centroidMin[axis], scale);
+					binCount[bin]++;
+					for (int k=0; k<dim; k++) {
+						// comparisons instead of Math.min and Math.max, which also handle NaN and signed zeros
+						if (boundsMin[offset+k]<binMin[bin*dim+k]) binMin[bin*dim+k]=boundsMin[offset+k];
+						if (boundsMax[offset+k]>binMax[bin*dim+k]) binMax[bin*dim+k]=boundsMax[offset+k];
+					}
+				}
+				// splitting before bin s puts bins [0,s) to the left and [s,BINS) to the right
+				Arrays.fill(sweepMin, Double.POSITIVE_INFINITY);
+				Arrays.fill(sweepMax, Double.NEGATIVE_INFINITY);
+				int rightCount=0;
+				for (int s=BINS-1; s>0; s--) {
+					rightCount+=binCount[s];
+					grow(sweepMin, sweepMax, binMin, binMax, s);
+					rightCost[s]=rightCount==0 ? 0 : area(sweepMin, sweepMax)*rightCount;
+				}
+				Arrays.fill(sweepMin, Double.POSITIVE_INFINITY);
+				Arrays.fill(sweepMax, Double.NEGATIVE_INFINITY);
+				int leftCount=0;
+				for (int s=1; s<BINS; s++) {
+					leftCount+=binCount[s-1];
+					grow(sweepMin, sweepMax, binMin, binMax, s-1);
+					if (leftCount==0 || leftCount==count) continue;
+					double cost=area(sweepMin, sweepMax)*leftCount+rightCost[s];
+					int imbalance=Math.abs(2*leftCount-count);
+					if (cost<bestCost || cost==bestCost && imbalance<bestImbalance) {
+						bestCost=cost;
+						bestAxis=axis;
+						bestSplit=s;
+						bestImbalance=imbalance;
+					}
+				}
+			}
+
+			int mid;
+			if (bestAxis==-1) {
+				// all the centroids coincide
+				if (count<=MAX_LEAF_SIZE) return node;
+				mid=(start+end)>>>1;
+			} else {
+				double area=area(min, max);
+				if (count<=MAX_LEAF_SIZE && TRAVERSAL_COST*area+bestCost>=count*area) return node;
+				double scale=BINS/(centroidMax[bestAxis]-centroidMin[bestAxis]);
+				int i=start, j=end-1;
+				while (i<=j) {
+					if (bin(centroids[i*dim+bestAxis], centroidMin[bestAxis], scale)<bestSplit)
+						i++;
+					else {
+						swap(i, j);
+						j--;
+					}
+				}
+				mid=i;
+			}
+
+			BuildTask leftTask=new BuildTask(dim, boundsMin, boundsMax, centroids, order, start, mid);
+			BuildTask rightTask=new BuildTask(dim, boundsMin, boundsMax, centroids, order, mid, end);
+			if (count>=PARALLEL_THRESHOLD) {
+				leftTask.fork();
+				node.right=rightTask.compute();
+				node.left=leftTask.join();
+			} else {
+				node.left=leftTask.compute();
+				node.right=rightTask.compute();
+			}
+			node.size=1+node.left.size+node.right.size;
+			return node;
+		}
+
+		private void swap(int i, int j) {
+			int tmp=order[i];
+			order[i]=order[j];
+			order[j]=tmp;
+			swap(boundsMin, i, j);
+			swap(boundsMax, i, j);
+			swap(centroids, i, j);
+		}
+
+		private void swap(double[] array, int i, int j) {
+			for (int k=0; k<dim; k++) {
+				double tmp=array[i*dim+k];
+				array[i*dim+k]=array[j*dim+k];
+				array[j*dim+k]=tmp;
+			}
+		}
+
+		private static int bin(double centroid, double centroidMin, double scale) {
+			return Math.min(BINS-1, (int)((centroid-centroidMin)*scale));
+		}
+
+		private void grow(double[] min, double[] max, double[] binMin, double[] binMax, int bin) {
+			for (int k=0; k<dim; k++) {
+				min[k]=Math.min(min[k], binMin[bin*dim+k]);
+				max[k]=Math.max(max[k], binMax[bin*dim+k]);
+			}
+		}
+
+		/**
+		 * Returns a quantity proportional to the surface area of a box: the perimeter in 2D.
+		 */
+		private double area(double[] min, double[] max) {
+			if (dim==2) return (max[0]-min[0])+(max[1]-min[1]);
+			double x=max[0]-min[0], y=max[1]-min[1], z=max[2]-min[2];
+			return x*y+y*z+z*x;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Vector2;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounding volume hierarchy of 2D line segments or boxes.
+ * @param <T> the type of the indexed objects: {@link Segment2} or {@link Box2}
+ * @author Kazó Csaba
+ */
+public final class Bvh2<T> extends Bvh<T> {
+
+	private Bvh2(List<T> items, boolean boxes, double[] a, double[] b) {
+		super(2, items, boxes, a, b);
+	}
+
+	/**
+	 * Builds a hierarchy of line segments.
+	 * @param segments the segments to index
+	 * @return the new hierarchy
+	 * @throws NullPointerException if the collection contains {@code null}
+	 */
+	public static Bvh2<Segment2> createFromSegments(Collection<Segment2> segments) {
+		List<Segment2> items=new ArrayList<Segment2>(segments);
+		double[] a=new double[2*items.size()], b=new double[2*items.size()];
+		for (int i=0; i<items.size(); i++) {
+			Segment2 segment=items.get(i);
+			a[2*i  ]=segment.getP1().getX();
+			a[2*i+1]=segment.getP1().getY();
+			b[2*i  ]=segment.getP2().getX();
+			b[2*i+1]=segment.getP2().getY();
+		}
+		return new Bvh2<Segment2>(Collections.unmodifiableList(items), false, a, b);
+	}
+
+	/**
+	 * Builds a hierarchy of boxes.
+	 * @param boxes the boxes to index
+	 * @return the new hierarchy
+	 * @throws NullPointerException if the collection contains {@code null}
+	 */
+	public static Bvh2<Box2> createFromBoxes(Collection<Box2> boxes) {
+		List<Box2> items=new ArrayList<Box2>(boxes);
+		double[] a=new double[2*items.size()], b=new double[2*items.size()];
+		for (int i=0; i<items.size(); i++) {
+			Box2 box=items.get(i);
+			a[2*i  ]=box.minX;
+			a[2*i+1]=box.minY;
+			b[2*i  ]=box.maxX;
+			b[2*i+1]=box.maxY;
+		}
+		return new Bvh2<Box2>(Collections.unmodifiableList(items), true, a, b);
+	}
+
+	/**
+	 * Returns the objects which have a common point with a box.
+	 * @param box the box
+	 * @return the objects overlapping the box, in unspecified order
+	 */
+	public List<T> findOverlapping(Box2 box) {
+		return findOverlapping(new double[] {box.minX, box.minY}, new double[] {box.maxX, box.maxY});
+	}
+
+	/**
+	 * Returns the objects which are not farther from a line than the specified distance. With zero distance,
+	 * this method returns the objects which the line intersects.
+	 * @param line the line
+	 * @param maxDistance the maximal distance
+	 * @return the objects near the line, in unspecified order
+	 * @throws IllegalArgumentException if the distance is negative
+	 */
+	public List<T> findNear(Line2 line, double maxDistance) {
+		return findNear(new double[] {line.px, line.py}, new double[] {line.dx, line.dy}, maxDistance);
+	}
+
+	/**
+	 * Returns the object closest to a point. For points inside a box, the distance of the box is zero.
+	 * @param point the point
+	 * @return the closest object, or {@code null} if the hierarchy is empty
+	 */
+	public T findNearest(Vector2 point) {
+		return findNearest(new double[] {point.getX(), point.getY()});
+	}
+}
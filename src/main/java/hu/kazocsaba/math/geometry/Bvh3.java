@@ -0,0 +1,91 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounding volume hierarchy of 3D line segments or boxes.
+ * @param <T> the type of the indexed objects: {@link Segment3} or {@link Box3}
+ * @author Kazó Csaba
+ */
+public final class Bvh3<T> extends Bvh<T> {
+
+	private Bvh3(List<T> items, boolean boxes, double[] a, double[] b) {
+		super(3, items, boxes, a, b);
+	}
+
+	/**
+	 * Builds a hierarchy of line segments.
+	 * @param segments the segments to index
+	 * @return the new hierarchy
+	 * @throws NullPointerException if the collection contains {@code null}
+	 */
+	public static Bvh3<Segment3> createFromSegments(Collection<Segment3> segments) {
+		List<Segment3> items=new ArrayList<Segment3>(segments);
+		double[] a=new double[3*items.size()], b=new double[3*items.size()];
+		for (int i=0; i<items.size(); i++) {
+			Segment3 segment=items.get(i);
+			a[3*i  ]=segment.getP1().getX();
+			a[3*i+1]=segment.getP1().getY();
+			a[3*i+2]=segment.getP1().getZ();
+			b[3*i  ]=segment.getP2().getX();
+			b[3*i+1]=segment.getP2().getY();
+			b[3*i+2]=segment.getP2().getZ();
+		}
+		return new Bvh3<Segment3>(Collections.unmodifiableList(items), false, a, b);
+	}
+
+	/**
+	 * Builds a hierarchy of boxes.
+	 * @param boxes the boxes to index
+	 * @return the new hierarchy
+	 * @throws NullPointerException if the collection contains {@code null}
+	 */
+	public static Bvh3<Box3> createFromBoxes(Collection<Box3> boxes) {
+		List<Box3> items=new ArrayList<Box3>(boxes);
+		double[] a=new double[3*items.size()], b=new double[3*items.size()];
+		for (int i=0; i<items.size(); i++) {
+			Box3 box=items.get(i);
+			a[3*i  ]=box.minX;
+			a[3*i+1]=box.minY;
+			a[3*i+2]=box.minZ;
+			b[3*i  ]=box.maxX;
+			b[3*i+1]=box.maxY;
+			b[3*i+2]=box.maxZ;
+		}
+		return new Bvh3<Box3>(Collections.unmodifiableList(items), true, a, b);
+	}
+
+	/**
+	 * Returns the objects which have a common point with a box.
+	 * @param box the box
+	 * @return the objects overlapping the box, in unspecified order
+	 */
+	public List<T> findOverlapping(Box3 box) {
+		return findOverlapping(new double[] {box.minX, box.minY, box.minZ}, new double[] {box.maxX, box.maxY, box.maxZ});
+	}
+
+	/**
+	 * Returns the objects which are not farther from a line than the specified distance. With zero distance,
+	 * this method returns the objects which the line intersects.
+	 * @param line the line
+	 * @param maxDistance the maximal distance
+	 * @return the objects near the line, in unspecified order
+	 * @throws IllegalArgumentException if the distance is negative
+	 */
+	public List<T> findNear(Line3 line, double maxDistance) {
+		return findNear(new double[] {line.px, line.py, line.pz}, new double[] {line.dx, line.dy, line.dz}, maxDistance);
+	}
+
+	/**
+	 * Returns the object closest to a point. For points inside a box, the distance of the box is zero.
+	 * @param point the point
+	 * @return the closest object, or {@code null} if the hierarchy is empty
+	 */
+	public T findNearest(Vector3 point) {
+		return findNearest(new double[] {point.getX(), point.getY(), point.getZ()});
+	}
+}
@@ -2,7 +2,10 @@ package hu.kazocsaba.math.geometry;
 
 import hu.kazocsaba.math.matrix.MatrixFactory;
 import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
 import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A circle in 3D space. It is specified by the center C, the radius r, and the unit normal N of the plane containing
@@ -11,9 +14,22 @@ import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
  */
 public class Circle3 {
 	private static final double EPS=1e-8;
+	/**
+	 * The number of points computed by the rotation recurrence in {@link #getPoints(int, double[], int)} before
+	 * the angle is evaluated directly again, which bounds the accumulation of rounding errors.
+	 */
+	private static final int RECURRENCE_LENGTH=64;
 	
 	private final Line3 centerLine;
-	private final double radius;
+	final double radius;
+	// primitive copies of the center and the unit normal
+	final double cx, cy, cz;
+	final double nx, ny, nz;
+	// orthonormal basis of the plane of the circle: u points to the point at angle zero, and v=N x u
+	final double ux, uy, uz;
+	final double vx, vy, vz;
+	// computed on first use; since planes are immutable, a race can at worst compute it twice
+	private Plane3 plane;
 
 	Circle3(Vector3 center, Vector3 normal, double radius) {
 		if (radius<=0) throw new IllegalArgumentException("Radius must be positive");
@@ -22,6 +38,58 @@ public class Circle3 {
 		
 		centerLine=Line3.createFromDir(center, normal);
 		this.radius = radius;
+		cx=center.getX();
+		cy=center.getY();
+		cz=center.getZ();
+		ImmutableVector3 n=centerLine.getDir();
+		nx=n.getX()/normalLength;
+		ny=n.getY()/normalLength;
+		nz=n.getZ()/normalLength;
+		
+		// a vector perpendicular to the normal, obtained by dividing by its largest coordinate
+		double rx, ry, rz;
+		double xabs=Math.abs(nx), yabs=Math.abs(ny), zabs=Math.abs(nz);
+		if (xabs>=yabs && xabs>=zabs) {
+			rx=-(ny+nz)/nx;
+			ry=1;
+			rz=1;
+		} else if (yabs>=zabs) {
+			rx=1;
+			ry=-(nx+nz)/ny;
+			rz=1;
+		} else {
+			rx=1;
+			ry=1;
+			rz=-(nx+ny)/nz;
+		}
+		double rLength=Math.sqrt(rx*rx+ry*ry+rz*rz);
+		ux=rx/rLength;
+		uy=ry/rLength;
+		uz=rz/rLength;
+		vx=ny*uz-nz*uy;
+		vy=nz*ux-nx*uz;
+		vz=nx*uy-ny*ux;
+	}
+
+	/**
+	 * Creates a new circle with the specified unit normal and first basis vector, which must be orthogonal.
+	 */
+	Circle3(double cx, double cy, double cz, double nx, double ny, double nz, double ux, double uy, double uz, double radius) {
+		if (radius<=0) throw new IllegalArgumentException("Radius must be positive");
+		centerLine=new Line3(ImmutableMatrixFactory.createVector(cx, cy, cz), ImmutableMatrixFactory.createVector(nx, ny, nz));
+		this.radius=radius;
+		this.cx=cx;
+		this.cy=cy;
+		this.cz=cz;
+		this.nx=nx;
+		this.ny=ny;
+		this.nz=nz;
+		this.ux=ux;
+		this.uy=uy;
+		this.uz=uz;
+		vx=ny*uz-nz*uy;
+		vy=nz*ux-nx*uz;
+		vz=nx*uy-ny*ux;
 	}
 	
 	/**
@@ -63,36 +131,120 @@ public class Circle3 {
 	
 	/**
 	 * Returns the point on the circumference of this circle described by an angle. The point corresponding to the
-	 * angle zero is unspecified but fixed for a given circle.
+	 * angle zero is unspecified but fixed for a given circle. Increasing angles move counterclockwise when viewed
+	 * from the direction the normal vector points to.
 	 * @param radians the angle specifying the point
 	 * @return the point on the circle
 	 */
 	public Vector3 getPointAt(double radians) {
-		Vector3 radialVector;
-		
-		// Rotate the normal vector by 90 degrees
-		
-		double xabs=Math.abs(getNormal().getX());
-		double yabs=Math.abs(getNormal().getY());
-		double zabs=Math.abs(getNormal().getZ());
-		
-		if (xabs>=yabs && xabs>=zabs) {
-			// divide by the x coordinate
-			radialVector=MatrixFactory.createVector(-(getNormal().getY()+getNormal().getZ())/getNormal().getX(), 1, 1);
-		} else if (yabs>=zabs) {
-			// divide by the y coordinate
-			radialVector=MatrixFactory.createVector(1, -(getNormal().getX()+getNormal().getZ())/getNormal().getY(), 1);
-		} else {
-			// divide by the z coordinate
-			radialVector=MatrixFactory.createVector(1, 1, -(getNormal().getX()+getNormal().getY())/getNormal().getZ());
+		return getPointAt(radians, MatrixFactory.createVector3());
+	}
+	
+	/**
+	 * Computes the point on the circumference of this circle described by an angle and stores it in the specified
+	 * vector.
+	 * @param radians the angle specifying the point
+	 * @param result the vector to store the result in
+	 * @return {@code result}
+	 * @see #getPointAt(double)
+	 */
+	public Vector3 getPointAt(double radians, Vector3 result) {
+		double c=radius*Math.cos(radians), s=radius*Math.sin(radians);
+		result.setX(cx+c*ux+s*vx);
+		result.setY(cy+c*uy+s*vy);
+		result.setZ(cz+c*uz+s*vz);
+		return result;
+	}
+	
+	/**
+	 * Computes the point on the circumference of this circle described by an angle and stores its coordinates in
+	 * an array.
+	 * @param radians the angle specifying the point
+	 * @param result the array to store the x, y and z coordinates in
+	 * @param offset the index of the x coordinate in the array
+	 * @see #getPointAt(double)
+	 */
+	public void getPointAt(double radians, double[] result, int offset) {
+		double c=radius*Math.cos(radians), s=radius*Math.sin(radians);
+		result[offset]=cx+c*ux+s*vx;
+		result[offset+1]=cy+c*uy+s*vy;
+		result[offset+2]=cz+c*uz+s*vz;
+	}
+	
+	/**
+	 * Returns evenly spaced points of the circumference of this circle. The {@code i}th point is the one at the
+	 * angle {@code 2*PI*i/count}.
+	 * @param count the number of points
+	 * @return a new list of the points
+	 * @throws IllegalArgumentException if {@code count} is not positive
+	 * @see #getPointAt(double)
+	 */
+	public List<Vector3> getPoints(int count) {
+		if (count<=0) throw new IllegalArgumentException("The number of points must be positive");
+		double[] coords=new double[3*count];
+		getPoints(count, coords, 0);
+		List<Vector3> points=new ArrayList<Vector3>(count);
+		for (int i=0; i<count; i++)
+			points.add(MatrixFactory.createVector(coords[3*i], coords[3*i+1], coords[3*i+2]));
+		return points;
+	}
+	
+	/**
+	 * Computes evenly spaced points of the circumference of this circle and stores their coordinates in an array.
+	 * The {@code i}th point is the one at the angle {@code 2*PI*i/count}, and its x, y and z coordinates are stored
+	 * at indices {@code offset+3*i}, {@code offset+3*i+1} and {@code offset+3*i+2}. The points are computed by
+	 * repeatedly rotating the previous one, so only a few trigonometric functions are evaluated.
+	 * @param count the number of points
+	 * @param result the array to store the coordinates in
+	 * @param offset the index of the first coordinate in the array
+	 * @throws IllegalArgumentException if {@code count} is not positive
+	 * @throws IndexOutOfBoundsException if the array is too small
+	 * @see #getPointAt(double)
+	 */
+	public void getPoints(int count, double[] result, int offset) {
+		if (count<=0) throw new IllegalArgumentException("The number of points must be positive");
+		Batch.checkRange("result", result.length, offset, 3*count);
+		double step=2*Math.PI/count;
+		double cosStep=Math.cos(step), sinStep=Math.sin(step);
+		double c=0, s=0;
+		for (int i=0; i<count; i++) {
+			if (i%RECURRENCE_LENGTH==0) {
+				c=radius*Math.cos(i*step);
+				s=radius*Math.sin(i*step);
+			} else {
+				double rotatedC=c*cosStep-s*sinStep;
+				s=s*cosStep+c*sinStep;
+				c=rotatedC;
+			}
+			result[offset+3*i  ]=cx+c*ux+s*vx;
+			result[offset+3*i+1]=cy+c*uy+s*vy;
+			result[offset+3*i+2]=cz+c*uz+s*vz;
 		}
-		radialVector.scale(radius/radialVector.norm());
-		
-		// Rotate the radialVector around the centerLine
-		
-		Vector3 p=centerLine.getRotation(radians).mul(radialVector);
-		p.add(centerLine.getPoint());
-		return p;
+	}
+	
+	/**
+	 * Returns the distance between a point and the circumference of this circle.
+	 * @param p a point
+	 * @return the distance of {@code p} from the closest point of the circle
+	 */
+	public double distance(Vector3 p) {
+		return distance(p.getX(), p.getY(), p.getZ());
+	}
+	
+	/**
+	 * Returns the distance between a point and the circumference of this circle.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from the closest point of the circle
+	 */
+	public double distance(double x, double y, double z) {
+		double vx=x-cx, vy=y-cy, vz=z-cz;
+		// height above the plane of the circle and distance from the axis
+		double h=vx*nx+vy*ny+vz*nz;
+		double axisDistance=Math.sqrt(Math.max(0, vx*vx+vy*vy+vz*vz-h*h));
+		double radial=axisDistance-radius;
+		return Math.sqrt(h*h+radial*radial);
 	}
 	
 	/**
@@ -100,7 +252,9 @@ public class Circle3 {
 	 * @return the plane of the circle
 	 */
 	public Plane3 getPlane() {
-		return Plane3.create(centerLine.getPoint(), centerLine.getDir());
+		Plane3 result=plane;
+		if (result==null) plane=result=Plane3.create(centerLine.getPoint(), centerLine.getDir());
+		return result;
 	}
 
 	/**
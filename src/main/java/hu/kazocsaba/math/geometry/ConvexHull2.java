@@ -0,0 +1,298 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The convex hull of a growing set of 2D points. Points can be added at any time; the hull is computed with
+ * Andrew's monotone chain algorithm when it is queried. Only the vertices of the hull are kept between updates,
+ * so streams of points can be processed in bounded memory: the points added since the last update are folded into
+ * the hull as soon as they outnumber its vertices.
+ * <p>
+ * Large sets of points are split into chunks whose hulls are computed in parallel on a shared fork/join pool, and
+ * the hull of the chunk hulls is the result.
+ * <p>
+ * This class is not thread-safe: since the queries update the hull, an instance must not be accessed by multiple
+ * threads at the same time.
+ * @author Kazó Csaba
+ * @see ConvexHull3
+ */
+public final class ConvexHull2 {
+	private static final double EPS=1e-8;
+	/**
+	 * Points not yet folded into the hull are kept until there are this many of them, or more than the vertices.
+	 */
+	private static final int MIN_PENDING=4096;
+	/**
+	 * Sets of at least this many points are processed in parallel chunks.
+	 */
+	private static final int PARALLEL_THRESHOLD=1<<16;
+	private static final int CHUNK_SIZE=1<<14;
+
+	// x0, y0, x1, y1, ...; the first hullSize points are the vertices of the hull in counterclockwise order
+	private double[] points=new double[32];
+	private int size, hullSize;
+
+	/**
+	 * Creates the hull of an empty set.
+	 */
+	public ConvexHull2() {}
+
+	/**
+	 * Adds a point to the set.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @throws IllegalArgumentException if a coordinate is infinite or NaN
+	 */
+	public void add(double x, double y) {
+		if (Double.isInfinite(x) || Double.isNaN(x) || Double.isInfinite(y) || Double.isNaN(y))
+			throw new IllegalArgumentException("Point with non-finite coordinates");
+		if (2*size+2>points.length) points=Arrays.copyOf(points, Math.max(2*size+2, points.length*3/2));
+		points[2*size]=x;
+		points[2*size+1]=y;
+		size++;
+		if (size-hullSize>Math.max(MIN_PENDING, hullSize)) update();
+	}
+
+	/**
+	 * Adds a set of points. The coordinates of the {@code i}th point are {@code coords[offset+2*i]} and
+	 * {@code coords[offset+2*i+1]}.
+	 * @param coords the array containing the coordinates
+	 * @param offset the index of the x coordinate of the first point
+	 * @param count the number of points
+	 * @throws IllegalArgumentException if a coordinate is infinite or NaN
+	 * @throws IndexOutOfBoundsException if the array does not contain the specified range
+	 */
+	public void add(double[] coords, int offset, int count) {
+		if (count<0) throw new IllegalArgumentException("Negative point count");
+		Batch.checkRange("coords", coords.length, offset, 2*count);
+		for (int i=offset; i<offset+2*count; i++)
+			if (Double.isInfinite(coords[i]) || Double.isNaN(coords[i])) throw new IllegalArgumentException("Point with non-finite coordinates");
+		if (2*(size+count)>points.length) points=Arrays.copyOf(points, Math.max(2*(size+count), points.length*3/2));
+		System.arraycopy(coords, offset, points, 2*size, 2*count);
+		size+=count;
+		if (size-hullSize>Math.max(MIN_PENDING, hullSize)) update();
+	}
+
+	/**
+	 * Folds the pending points into the hull.
+	 */
+	private void update() {
+		if (size==hullSize) return;
+		double[] hull;
+		if (size>=PARALLEL_THRESHOLD) {
+			double[] candidates=Parallel.invoke(new HullTask(points, 0, size));
+			hull=hull(candidates, candidates.length/2);
+		} else
+			hull=hull(points, size);
+		hullSize=size=hull.length/2;
+		points=Arrays.copyOf(hull, Math.max(hull.length, 32));
+	}
+
+	/**
+	 * Computes the hulls of chunks of a range of points in parallel, returning the coordinates of their vertices.
+	 */
+	private static final class HullTask extends RecursiveTask<double[]> {
+		private final double[] points;
+		private final int start, end;
+
+		HullTask(double[] points, int start, int end) {
+			this.points=points;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (end-start<=CHUNK_SIZE)
+				return hull(Arrays.copyOfRange(points, 2*start, 2*end), end-start);
+			int middle=(start+end)>>>1;
+			HullTask left=new HullTask(points, start, middle);
+			left.fork();
+			double[] right=new HullTask(points, middle, end).compute();
+			// the union is not reduced here: if most points are hull vertices, that would only repeat work
+			return concat(left.join(), right);
+		}
+	}
+
+	static double[] concat(double[] a, double[] b) {
+		double[] result=Arrays.copyOf(a, a.length+b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * Computes the convex hull of a set of points with the monotone chain algorithm.
+	 * @return the coordinates of the hull vertices in counterclockwise order, starting with the lexicographically
+	 * smallest point; collinear points are not included
+	 */
+	static double[] hull(double[] p, int n) {
+		int[] vertices=hullIndices(p, n);
+		double[] result=new double[2*vertices.length];
+		for (int i=0; i<vertices.length; i++) {
+			result[2*i]=p[2*vertices[i]];
+			result[2*i+1]=p[2*vertices[i]+1];
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the convex hull of a set of points like {@link #hull(double[], int)}, returning the indices of the
+	 * vertices.
+	 */
+	static int[] hullIndices(double[] p, int n) {
+		if (n==0) return new int[0];
+		int[] order=new int[n];
+		for (int i=0; i<n; i++) order[i]=i;
+		sort(p, order, new int[n], 0, n);
+		// the lower chain from left to right, then the upper chain back
+		int[] chain=new int[2*n];
+		int k=0;
+		for (int i=0; i<n; i++) {
+			while (k>=2 && turn(p, chain[k-2], chain[k-1], order[i])<=0) k--;
+			chain[k++]=order[i];
+		}
+		for (int i=n-2, lower=k+1; i>=0; i--) {
+			while (k>=lower && turn(p, chain[k-2], chain[k-1], order[i])<=0) k--;
+			chain[k++]=order[i];
+		}
+		// the first point is repeated at the end
+		if (k>1) k--;
+		if (k==2 && p[2*chain[0]]==p[2*chain[1]] && p[2*chain[0]+1]==p[2*chain[1]+1]) k=1;
+		return Arrays.copyOf(chain, k);
+	}
+
+	/**
+	 * Returns the exact orientation of three points, so that rounding cannot make the chains non-convex.
+	 */
+	private static int turn(double[] p, int o, int a, int b) {
+		return Predicates.orient2d(p[2*o], p[2*o+1], p[2*a], p[2*a+1], p[2*b], p[2*b+1]);
+	}
+
+	/**
+	 * Sorts point indices lexicographically by their coordinates, using merge sort to avoid boxing.
+	 */
+	private static void sort(double[] p, int[] order, int[] buffer, int from, int to) {
+		if (to-from<=16) {
+			for (int i=from+1; i<to; i++) {
+				int index=order[i], j=i;
+				while (j>from && less(p, index, order[j-1])) {
+					order[j]=order[j-1];
+					j--;
+				}
+				order[j]=index;
+			}
+			return;
+		}
+		int middle=(from+to)>>>1;
+		sort(p, order, buffer, from, middle);
+		sort(p, order, buffer, middle, to);
+		if (!less(p, order[middle], order[middle-1])) return;
+		System.arraycopy(order, from, buffer, from, to-from);
+		for (int i=from, a=from, b=middle; i<to; i++)
+			order[i]=b==to || a<middle && !less(p, buffer[b], buffer[a]) ? buffer[a++] : buffer[b++];
+	}
+
+	private static boolean less(double[] p, int a, int b) {
+		return p[2*a]<p[2*b] || p[2*a]==p[2*b] && p[2*a+1]<p[2*b+1];
+	}
+
+	/**
+	 * Returns the number of vertices of the hull. Points in the interior of an edge are not vertices.
+	 * @return the number of vertices: 0 for an empty set, 1 if all points are equal, 2 if they are collinear
+	 */
+	public int getVertexCount() {
+		update();
+		return hullSize;
+	}
+
+	/**
+	 * Copies the coordinates of the hull vertices into an array, in counterclockwise order, x and y coordinates
+	 * alternating.
+	 * @param result the array to store the coordinates in
+	 * @param offset the index of the x coordinate of the first vertex in {@code result}
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@code 2*getVertexCount()} values from
+	 * {@code offset}
+	 */
+	public void getVertices(double[] result, int offset) {
+		update();
+		Batch.checkRange("result", result.length, offset, 2*hullSize);
+		System.arraycopy(points, 0, result, offset, 2*hullSize);
+	}
+
+	/**
+	 * Returns the hull as a polygon with its vertices in counterclockwise order. Vertices closer than 1e-8 to the
+	 * previous one are left out.
+	 * @return the hull
+	 * @throws DegenerateCaseException if the hull has no area, that is, the points are collinear
+	 */
+	public Polygon2 getPolygon() {
+		update();
+		double[] coords=new double[2*hullSize];
+		int count=0;
+		for (int i=0; i<hullSize; i++) {
+			double x=points[2*i], y=points[2*i+1];
+			if (count>0 && Math.hypot(x-coords[2*count-2], y-coords[2*count-1])<EPS) continue;
+			coords[2*count]=x;
+			coords[2*count+1]=y;
+			count++;
+		}
+		while (count>1 && Math.hypot(coords[0]-coords[2*count-2], coords[1]-coords[2*count-1])<EPS) count--;
+		if (count<3) throw new DegenerateCaseException("The points are collinear");
+		return Polygon2.create(coords, 0, count);
+	}
+
+	/**
+	 * Returns the edges of the hull.
+	 * @return the edges of {@link #getPolygon()}
+	 * @throws DegenerateCaseException if the hull has no area, that is, the points are collinear
+	 */
+	public List<Segment2> getEdges() {
+		return getPolygon().getEdges();
+	}
+
+	/**
+	 * Returns the smallest axis-aligned box containing the points.
+	 * @return the bounding box of the points
+	 * @throws DegenerateCaseException if the set is empty
+	 * @throws IllegalArgumentException if the width or the height of the box is too small for a {@link Box2}
+	 */
+	public Box2 getBoundingBox() {
+		update();
+		if (hullSize==0) throw new DegenerateCaseException("No points");
+		double minX=points[0], minY=points[1], maxX=minX, maxY=minY;
+		for (int i=1; i<hullSize; i++) {
+			minX=Math.min(minX, points[2*i]);
+			maxX=Math.max(maxX, points[2*i]);
+			minY=Math.min(minY, points[2*i+1]);
+			maxY=Math.max(maxY, points[2*i+1]);
+		}
+		return new Box2(ImmutableMatrixFactory.createVector(minX, minY), maxX-minX, maxY-minY);
+	}
+
+	/**
+	 * Decides whether a point is inside the hull. Points on the boundary, or closer than 1e-8 to it, are inside.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return {@code true} if the point is inside the hull; always {@code false} if the hull has no area
+	 */
+	public boolean contains(double x, double y) {
+		update();
+		if (hullSize<3) return false;
+		double[] p=points;
+		for (int i=0; i<hullSize; i++) {
+			int j=i+1==hullSize ? 0 : i+1;
+			double ex=p[2*j]-p[2*i], ey=p[2*j+1]-p[2*i+1];
+			// the signed distance from the line of the edge, positive on the inner side
+			if ((ex*(y-p[2*i+1])-ey*(x-p[2*i]))<-EPS*Math.hypot(ex, ey)) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ConvexHull2[%d vertices]", getVertexCount());
+	}
+}
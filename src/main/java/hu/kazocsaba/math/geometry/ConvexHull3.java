@@ -0,0 +1,587 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The convex hull of a growing set of 3D points. Points can be added at any time; the hull is computed with the
+ * quickhull algorithm when it is queried. The faces of the hull are triangles with outward normals; a planar face
+ * with more than three vertices is split into coplanar triangles, and points on the boundary of the hull may
+ * become vertices. Only the vertices of the hull are kept between updates, so streams of points can be processed
+ * in bounded memory: the points added since the last update are folded into the hull as soon as they outnumber its
+ * vertices. While the points are coplanar, the vertices of their 2D hull in their plane are kept.
+ * <p>
+ * Large sets of points are split into chunks whose hulls are computed in parallel on a shared fork/join pool, and
+ * the hull of the chunk hulls is the result.
+ * <p>
+ * This class is not thread-safe: since the queries update the hull, an instance must not be accessed by multiple
+ * threads at the same time.
+ * @author Kazó Csaba
+ * @see ConvexHull2
+ */
+public final class ConvexHull3 {
+	private static final double EPS=1e-8;
+	/**
+	 * Points not yet folded into the hull are kept until there are this many of them, or more than the vertices.
+	 */
+	private static final int MIN_PENDING=4096;
+	/**
+	 * Sets of at least this many points are processed in parallel chunks.
+	 */
+	private static final int PARALLEL_THRESHOLD=1<<16;
+	private static final int CHUNK_SIZE=1<<14;
+
+	// x0, y0, z0, x1, ...; after an update, the first hullSize points are the vertices of the hull
+	private double[] points=new double[48];
+	private int size, hullSize;
+	// the vertex indices of the faces, and their planes (normal and offset), or null if the points are coplanar
+	private int[] faces;
+	private double[] planes;
+
+	/**
+	 * Creates the hull of an empty set.
+	 */
+	public ConvexHull3() {}
+
+	/**
+	 * Adds a point to the set.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @throws IllegalArgumentException if a coordinate is infinite or NaN
+	 */
+	public void add(double x, double y, double z) {
+		if (!finite(x) || !finite(y) || !finite(z)) throw new IllegalArgumentException("Point with non-finite coordinates");
+		if (3*size+3>points.length) points=Arrays.copyOf(points, Math.max(3*size+3, points.length*3/2));
+		points[3*size]=x;
+		points[3*size+1]=y;
+		points[3*size+2]=z;
+		size++;
+		if (size-hullSize>Math.max(MIN_PENDING, hullSize)) update();
+	}
+
+	/**
+	 * Adds a set of points. The coordinates of the {@code i}th point are {@code coords[offset+3*i]},
+	 * {@code coords[offset+3*i+1]} and {@code coords[offset+3*i+2]}.
+	 * @param coords the array containing the coordinates
+	 * @param offset the index of the x coordinate of the first point
+	 * @param count the number of points
+	 * @throws IllegalArgumentException if a coordinate is infinite or NaN
+	 * @throws IndexOutOfBoundsException if the array does not contain the specified range
+	 */
+	public void add(double[] coords, int offset, int count) {
+		if (count<0) throw new IllegalArgumentException("Negative point count");
+		Batch.checkRange("coords", coords.length, offset, 3*count);
+		for (int i=offset; i<offset+3*count; i++)
+			if (!finite(coords[i])) throw new IllegalArgumentException("Point with non-finite coordinates");
+		if (3*(size+count)>points.length) points=Arrays.copyOf(points, Math.max(3*(size+count), points.length*3/2));
+		System.arraycopy(coords, offset, points, 3*size, 3*count);
+		size+=count;
+		if (size-hullSize>Math.max(MIN_PENDING, hullSize)) update();
+	}
+
+	private static boolean finite(double value) {
+		return !Double.isInfinite(value) && !Double.isNaN(value);
+	}
+
+	/**
+	 * Folds the pending points into the hull.
+	 */
+	private void update() {
+		if (size==hullSize) return;
+		double[] candidates;
+		if (size>=PARALLEL_THRESHOLD)
+			candidates=Parallel.invoke(new HullTask(points, 0, size));
+		else
+			candidates=Arrays.copyOf(points, 3*size);
+		Hull hull=Hull.build(candidates, candidates.length/3);
+		if (hull==null) {
+			points=flatHull(candidates, candidates.length/3);
+			hullSize=size=points.length/3;
+			faces=null;
+			planes=null;
+		} else {
+			points=hull.vertices;
+			hullSize=size=hull.vertices.length/3;
+			faces=hull.faces;
+			planes=hull.planes;
+		}
+	}
+
+	/**
+	 * Computes the hulls of chunks of a range of points in parallel, returning the coordinates of their vertices.
+	 */
+	private static final class HullTask extends RecursiveTask<double[]> {
+		private final double[] points;
+		private final int start, end;
+
+		HullTask(double[] points, int start, int end) {
+			this.points=points;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (end-start<=CHUNK_SIZE) {
+				double[] chunk=Arrays.copyOfRange(points, 3*start, 3*end);
+				Hull hull=Hull.build(chunk, end-start);
+				return hull==null ? flatHull(chunk, end-start) : hull.vertices;
+			}
+			int middle=(start+end)>>>1;
+			HullTask left=new HullTask(points, start, middle);
+			left.fork();
+			double[] right=new HullTask(points, middle, end).compute();
+			// the union is not reduced here: if most points are hull vertices, that would only repeat work
+			return ConvexHull2.concat(left.join(), right);
+		}
+	}
+
+	/**
+	 * Reduces a set of coplanar points to the vertices of their 2D hull. The points are projected onto the
+	 * coordinate plane closest to theirs by dropping a coordinate, which keeps the others exact.
+	 * @return the coordinates of the vertices
+	 */
+	private static double[] flatHull(double[] p, int n) {
+		if (n==0) return new double[0];
+		// a normal of the plane from the point farthest from the first one and the point farthest from their line
+		int far=0;
+		for (int i=1; i<n; i++)
+			if (Hull.distanceSquare(p, 0, i)>Hull.distanceSquare(p, 0, far)) far=i;
+		double ux=p[3*far]-p[0], uy=p[3*far+1]-p[1], uz=p[3*far+2]-p[2];
+		double nx=0, ny=0, nz=0;
+		for (int i=0; i<n; i++) {
+			double vx=p[3*i]-p[0], vy=p[3*i+1]-p[1], vz=p[3*i+2]-p[2];
+			double cx=uy*vz-uz*vy, cy=uz*vx-ux*vz, cz=ux*vy-uy*vx;
+			if (cx*cx+cy*cy+cz*cz>nx*nx+ny*ny+nz*nz) {
+				nx=cx;
+				ny=cy;
+				nz=cz;
+			}
+		}
+		int drop;
+		if (nx!=0 || ny!=0 || nz!=0)
+			drop=Math.abs(nx)>=Math.abs(ny) && Math.abs(nx)>=Math.abs(nz) ? 0 : Math.abs(ny)>=Math.abs(nz) ? 1 : 2;
+		else
+			// collinear points: any coordinate but the one along the line can be dropped
+			drop=Math.abs(ux)<=Math.abs(uy) && Math.abs(ux)<=Math.abs(uz) ? 0 : Math.abs(uy)<=Math.abs(uz) ? 1 : 2;
+		int k1=drop==0 ? 1 : 0, k2=drop==2 ? 1 : 2;
+		double[] projected=new double[2*n];
+		for (int i=0; i<n; i++) {
+			projected[2*i]=p[3*i+k1];
+			projected[2*i+1]=p[3*i+k2];
+		}
+		int[] vertices=ConvexHull2.hullIndices(projected, n);
+		double[] result=new double[3*vertices.length];
+		for (int i=0; i<vertices.length; i++)
+			System.arraycopy(p, 3*vertices[i], result, 3*i, 3);
+		return result;
+	}
+
+	private void checkHull() {
+		update();
+		if (faces==null) throw new DegenerateCaseException(size==0 ? "No points" : "The points are coplanar");
+	}
+
+	/**
+	 * Returns the number of vertices of the hull.
+	 * @return the number of vertices
+	 * @throws DegenerateCaseException if the points are coplanar
+	 */
+	public int getVertexCount() {
+		checkHull();
+		return hullSize;
+	}
+
+	/**
+	 * Copies the coordinates of the hull vertices into an array, x, y and z coordinates following each other.
+	 * @param result the array to store the coordinates in
+	 * @param offset the index of the x coordinate of the first vertex in {@code result}
+	 * @throws DegenerateCaseException if the points are coplanar
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@code 3*getVertexCount()} values from
+	 * {@code offset}
+	 */
+	public void getVertices(double[] result, int offset) {
+		checkHull();
+		Batch.checkRange("result", result.length, offset, 3*hullSize);
+		System.arraycopy(points, 0, result, offset, 3*hullSize);
+	}
+
+	/**
+	 * Returns the number of (triangular) faces of the hull.
+	 * @return the number of faces
+	 * @throws DegenerateCaseException if the points are coplanar
+	 */
+	public int getFaceCount() {
+		checkHull();
+		return faces.length/3;
+	}
+
+	/**
+	 * Returns the planes of the faces of the hull. Their normals point outwards, so the signed distance of the
+	 * points of the hull is not positive from any of them, up to rounding errors. Each plane is computed from the
+	 * vertices of its own triangle, so the planes of coplanar faces may differ by rounding errors.
+	 * @return the planes of the faces
+	 * @throws DegenerateCaseException if the points are coplanar
+	 */
+	public List<Plane3> getFaces() {
+		checkHull();
+		List<Plane3> result=new ArrayList<Plane3>(faces.length/3);
+		for (int f=0; f<faces.length/3; f++) {
+			int a=faces[3*f];
+			result.add(Plane3.create(ImmutableMatrixFactory.createVector(points[3*a], points[3*a+1], points[3*a+2]),
+					ImmutableMatrixFactory.createVector(planes[4*f], planes[4*f+1], planes[4*f+2])));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns the faces of the hull as triangles, for example to cast rays against the hull. The vertices of each
+	 * triangle are in counterclockwise order when viewed from outside.
+	 * @return a new buffer containing the faces, in the order of {@link #getFaces()}
+	 * @throws DegenerateCaseException if the points are coplanar
+	 */
+	public Triangle3Buffer getTriangles() {
+		checkHull();
+		Triangle3Buffer result=new Triangle3Buffer(faces.length/3);
+		double[] p=points;
+		for (int f=0; f<faces.length; f+=3) {
+			int a=3*faces[f], b=3*faces[f+1], c=3*faces[f+2];
+			result.add(p[a], p[a+1], p[a+2], p[b], p[b+1], p[b+2], p[c], p[c+1], p[c+2]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the smallest axis-aligned box containing the points.
+	 * @return the bounding box of the points
+	 * @throws DegenerateCaseException if the points are coplanar
+	 * @throws IllegalArgumentException if a size of the box is too small for a {@link Box3}
+	 */
+	public Box3 getBoundingBox() {
+		checkHull();
+		double[] min={points[0], points[1], points[2]}, max=min.clone();
+		for (int i=1; i<hullSize; i++)
+			for (int k=0; k<3; k++) {
+				min[k]=Math.min(min[k], points[3*i+k]);
+				max[k]=Math.max(max[k], points[3*i+k]);
+			}
+		return new Box3(ImmutableMatrixFactory.createVector(min[0], min[1], min[2]), max[0]-min[0], max[1]-min[1], max[2]-min[2]);
+	}
+
+	/**
+	 * Decides whether a point is inside the hull. Points on the boundary, or closer than 1e-8 to it, are inside.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return {@code true} if the point is inside the hull
+	 * @throws DegenerateCaseException if the points are coplanar
+	 */
+	public boolean contains(double x, double y, double z) {
+		checkHull();
+		double[] pl=planes;
+		for (int f=0; f<pl.length; f+=4)
+			if (pl[f]*x+pl[f+1]*y+pl[f+2]*z-pl[f+3]>EPS) return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		update();
+		return faces==null ? String.format("ConvexHull3[%d coplanar points]", size) :
+				String.format("ConvexHull3[%d vertices, %d faces]", hullSize, faces.length/3);
+	}
+
+	/**
+	 * A face of the hull during the quickhull algorithm.
+	 */
+	private static final class Face {
+		// the vertices in counterclockwise order viewed from outside
+		final int a, b, c;
+		// the unit outward normal and the offset of the plane
+		final double nx, ny, nz, offset;
+		// the faces across the edges a-b, b-c and c-a
+		final Face[] neighbors=new Face[3];
+		// the points outside this face which are assigned to it
+		int[] outside;
+		int outsideCount;
+		boolean deleted;
+		int visited;
+
+		Face(double[] p, int a, int b, int c) {
+			this.a=a;
+			this.b=b;
+			this.c=c;
+			double e1x=p[3*b]-p[3*a], e1y=p[3*b+1]-p[3*a+1], e1z=p[3*b+2]-p[3*a+2];
+			double e2x=p[3*c]-p[3*a], e2y=p[3*c+1]-p[3*a+1], e2z=p[3*c+2]-p[3*a+2];
+			double x=e1y*e2z-e1z*e2y, y=e1z*e2x-e1x*e2z, z=e1x*e2y-e1y*e2x;
+			double length=Math.sqrt(x*x+y*y+z*z);
+			nx=x/length;
+			ny=y/length;
+			nz=z/length;
+			offset=nx*p[3*a]+ny*p[3*a+1]+nz*p[3*a+2];
+		}
+
+		double distance(double[] p, int i) {
+			return nx*p[3*i]+ny*p[3*i+1]+nz*p[3*i+2]-offset;
+		}
+
+		int vertex(int k) {
+			return k==0 ? a : k==1 ? b : c;
+		}
+
+		void addOutside(int i) {
+			if (outside==null) outside=new int[4];
+			else if (outsideCount==outside.length) outside=Arrays.copyOf(outside, 2*outsideCount);
+			outside[outsideCount++]=i;
+		}
+
+		void setNeighbor(int from, int to, Face face) {
+			for (int k=0; k<3; k++)
+				if (vertex(k)==from && vertex((k+1)%3)==to) {
+					neighbors[k]=face;
+					return;
+				}
+			throw new AssertionError();
+		}
+	}
+
+	/**
+	 * The result of the quickhull algorithm.
+	 */
+	private static final class Hull {
+		final double[] vertices;
+		final int[] faces;
+		final double[] planes;
+
+		private Hull(double[] vertices, int[] faces, double[] planes) {
+			this.vertices=vertices;
+			this.faces=faces;
+			this.planes=planes;
+		}
+
+		/**
+		 * Computes the hull of a set of points.
+		 * @return the hull, or null if the points are coplanar
+		 */
+		static Hull build(double[] p, int n) {
+			if (n<4) return null;
+			// the tolerance of the plane tests, proportional to the magnitude of the coordinates
+			double maxX=0, maxY=0, maxZ=0;
+			for (int i=0; i<n; i++) {
+				maxX=Math.max(maxX, Math.abs(p[3*i]));
+				maxY=Math.max(maxY, Math.abs(p[3*i+1]));
+				maxZ=Math.max(maxZ, Math.abs(p[3*i+2]));
+			}
+			double eps=3*Math.ulp(1.0)*(maxX+maxY+maxZ);
+
+			// the initial tetrahedron: the farthest pair of the extreme points along the axes, the point farthest
+			// from their line, and the point farthest from the plane of the three
+			int[] extremes=new int[6];
+			for (int i=1; i<n; i++)
+				for (int k=0; k<3; k++) {
+					if (p[3*i+k]<p[3*extremes[2*k]+k]) extremes[2*k]=i;
+					if (p[3*i+k]>p[3*extremes[2*k+1]+k]) extremes[2*k+1]=i;
+				}
+			int i0=0, i1=0;
+			double best=-1;
+			for (int k=0; k<6; k++)
+				for (int l=k+1; l<6; l++) {
+					double d=distanceSquare(p, extremes[k], extremes[l]);
+					if (d>best) {
+						best=d;
+						i0=extremes[k];
+						i1=extremes[l];
+					}
+				}
+			if (Math.sqrt(best)<=eps) return null;
+			int i2=-1;
+			best=eps;
+			for (int i=0; i<n; i++) {
+				double d=lineDistance(p, i0, i1, i);
+				if (d>best) {
+					best=d;
+					i2=i;
+				}
+			}
+			if (i2<0) return null;
+			Face base=new Face(p, i0, i1, i2);
+			int i3=-1;
+			best=eps;
+			for (int i=0; i<n; i++) {
+				double d=Math.abs(base.distance(p, i));
+				if (d>best) {
+					best=d;
+					i3=i;
+				}
+			}
+			if (i3<0) return null;
+			if (base.distance(p, i3)>0) base=new Face(p, i0, i2, i1);
+			List<Face> all=new ArrayList<Face>();
+			all.add(base);
+			all.add(outward(p, base.a, base.c, i3, base.b));
+			all.add(outward(p, base.b, base.a, i3, base.c));
+			all.add(outward(p, base.c, base.b, i3, base.a));
+			link(all);
+
+			// assign every point to a face it is outside of
+			int[] simplex={i0, i1, i2, i3};
+			Arrays.sort(simplex);
+			for (int i=0; i<n; i++) {
+				if (Arrays.binarySearch(simplex, i)>=0) continue;
+				assign(p, i, all, eps);
+			}
+
+			ArrayDeque<Face> pending=new ArrayDeque<Face>(all);
+			List<Face> visible=new ArrayList<Face>();
+			// horizon edges: their start and end vertices, and the face beyond them
+			List<int[]> horizon=new ArrayList<int[]>();
+			List<Face> beyond=new ArrayList<Face>();
+			ArrayDeque<Face> stack=new ArrayDeque<Face>();
+			Map<Integer, Face> byStart=new HashMap<Integer, Face>(), byEnd=new HashMap<Integer, Face>();
+			int stamp=0;
+			while (!pending.isEmpty()) {
+				Face face=pending.poll();
+				if (face.deleted || face.outsideCount==0) continue;
+				// the point farthest from the face is certainly a vertex of the hull
+				int eye=face.outside[0];
+				double farthest=face.distance(p, eye);
+				for (int k=1; k<face.outsideCount; k++) {
+					double d=face.distance(p, face.outside[k]);
+					if (d>farthest) {
+						farthest=d;
+						eye=face.outside[k];
+					}
+				}
+
+				// the faces visible from the eye form a connected region; its boundary is the horizon
+				stamp++;
+				visible.clear();
+				horizon.clear();
+				beyond.clear();
+				face.visited=stamp;
+				stack.push(face);
+				while (!stack.isEmpty()) {
+					Face f=stack.pop();
+					visible.add(f);
+					for (int k=0; k<3; k++) {
+						Face g=f.neighbors[k];
+						if (g.visited==stamp) continue;
+						if (g.distance(p, eye)>eps) {
+							g.visited=stamp;
+							stack.push(g);
+						} else {
+							horizon.add(new int[] {f.vertex(k), f.vertex((k+1)%3)});
+							beyond.add(g);
+						}
+					}
+				}
+
+				// connect the horizon to the eye
+				List<Face> created=new ArrayList<Face>(horizon.size());
+				byStart.clear();
+				byEnd.clear();
+				for (int k=0; k<horizon.size(); k++) {
+					int from=horizon.get(k)[0], to=horizon.get(k)[1];
+					Face f=new Face(p, from, to, eye);
+					f.neighbors[0]=beyond.get(k);
+					beyond.get(k).setNeighbor(to, from, f);
+					byStart.put(from, f);
+					byEnd.put(to, f);
+					created.add(f);
+				}
+				for (Face f: created) {
+					// across b-eye is the face starting at b, across eye-a the one ending at a
+					f.neighbors[1]=byStart.get(f.b);
+					f.neighbors[2]=byEnd.get(f.a);
+				}
+				all.addAll(created);
+				for (Face f: visible) {
+					f.deleted=true;
+					for (int k=0; k<f.outsideCount; k++)
+						if (f.outside[k]!=eye) assign(p, f.outside[k], created, eps);
+					f.outside=null;
+					f.outsideCount=0;
+				}
+				for (Face f: created)
+					if (f.outsideCount>0) pending.add(f);
+			}
+
+			// renumber the vertices of the remaining faces
+			int[] index=new int[n];
+			Arrays.fill(index, -1);
+			int vertexCount=0, faceCount=0;
+			for (Face f: all)
+				if (!f.deleted) faceCount++;
+			int[] faces=new int[3*faceCount];
+			double[] planes=new double[4*faceCount];
+			int next=0;
+			for (Face f: all) {
+				if (f.deleted) continue;
+				for (int k=0; k<3; k++) {
+					int v=f.vertex(k);
+					if (index[v]<0) index[v]=vertexCount++;
+					faces[3*next+k]=index[v];
+				}
+				planes[4*next]=f.nx;
+				planes[4*next+1]=f.ny;
+				planes[4*next+2]=f.nz;
+				planes[4*next+3]=f.offset;
+				next++;
+			}
+			double[] vertices=new double[3*vertexCount];
+			for (int i=0; i<n; i++)
+				if (index[i]>=0) System.arraycopy(p, 3*i, vertices, 3*index[i], 3);
+			return new Hull(vertices, faces, planes);
+		}
+
+		/**
+		 * Creates a face of the initial tetrahedron, oriented away from its fourth vertex.
+		 */
+		private static Face outward(double[] p, int a, int b, int c, int opposite) {
+			Face face=new Face(p, a, b, c);
+			return face.distance(p, opposite)>0 ? new Face(p, a, c, b) : face;
+		}
+
+		/**
+		 * Sets the neighbors of faces which share edges.
+		 */
+		private static void link(List<Face> faces) {
+			for (Face f: faces)
+				for (int k=0; k<3; k++)
+					for (Face g: faces)
+						for (int l=0; l<3; l++)
+							if (g.vertex(l)==f.vertex((k+1)%3) && g.vertex((l+1)%3)==f.vertex(k)) f.neighbors[k]=g;
+		}
+
+		private static void assign(double[] p, int i, List<Face> faces, double eps) {
+			for (Face f: faces)
+				if (f.distance(p, i)>eps) {
+					f.addOutside(i);
+					return;
+				}
+		}
+
+		private static double distanceSquare(double[] p, int a, int b) {
+			double dx=p[3*b]-p[3*a], dy=p[3*b+1]-p[3*a+1], dz=p[3*b+2]-p[3*a+2];
+			return dx*dx+dy*dy+dz*dz;
+		}
+
+		/**
+		 * Returns the distance of a point from the line through two others.
+		 */
+		private static double lineDistance(double[] p, int a, int b, int i) {
+			double dx=p[3*b]-p[3*a], dy=p[3*b+1]-p[3*a+1], dz=p[3*b+2]-p[3*a+2];
+			double vx=p[3*i]-p[3*a], vy=p[3*i+1]-p[3*a+1], vz=p[3*i+2]-p[3*a+2];
+			double cx=dy*vz-dz*vy, cy=dz*vx-dx*vz, cz=dx*vy-dy*vx;
+			return Math.sqrt((cx*cx+cy*cy+cz*cz)/(dx*dx+dy*dy+dz*dz));
+		}
+	}
+}
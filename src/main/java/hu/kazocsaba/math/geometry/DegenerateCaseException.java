@@ -5,14 +5,22 @@ package hu.kazocsaba.math.geometry;
  * solutions or infinite solutions.
  * For example, {@link Plane3#intersect(Line3)} throws this exception when
  * the line is parallel with the plane.
+ * <p>
+ * Filling in the stack trace is the most expensive part of throwing an exception. If degenerate cases are
+ * frequent, either use the methods which report them without exceptions (such as
+ * {@link Plane3#findIntersection(Line3, Workspace)}), or set the
+ * {@code hu.kazocsaba.math.geometry.stacklessDegenerateCases} system property to {@code true}, in which case
+ * the exceptions thrown by this library have no stack trace.
  * @author Kazó Csaba
  */
 public class DegenerateCaseException extends RuntimeException {
+	private static final boolean STACKLESS=Boolean.getBoolean("hu.kazocsaba.math.geometry.stacklessDegenerateCases");
 
 	/**
 	 * Creates a new instance of <code>DegenerateCaseException</code> without detail message.
 	 */
 	public DegenerateCaseException() {
+		this(null);
 	}
 
 	/**
@@ -20,6 +28,16 @@ public class DegenerateCaseException extends RuntimeException {
 	 * @param msg the detail message.
 	 */
 	public DegenerateCaseException(String msg) {
-		super(msg);
+		this(msg, !STACKLESS);
+	}
+
+	/**
+	 * Constructs an instance of <code>DegenerateCaseException</code> with the specified detail message, and
+	 * optionally without a stack trace.
+	 * @param msg the detail message.
+	 * @param writableStackTrace whether the stack trace should be filled in
+	 */
+	public DegenerateCaseException(String msg, boolean writableStackTrace) {
+		super(msg, null, true, writableStackTrace);
 	}
 }
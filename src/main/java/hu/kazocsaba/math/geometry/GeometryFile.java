@@ -0,0 +1,100 @@
+package hu.kazocsaba.math.geometry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A file of geometric objects written by {@link GeometryWriter}. The file is memory-mapped when opened: only the
+ * section headers are read, and the objects are created on demand from the mapped data.
+ * <p>
+ * The mapped data remains valid until it is garbage collected; the file should not be modified while it is in use.
+ * @author Kazó Csaba
+ */
+public final class GeometryFile {
+	private final List<GeometrySection<?>> sections;
+
+	private GeometryFile(List<GeometrySection<?>> sections) {
+		this.sections=Collections.unmodifiableList(sections);
+	}
+
+	/**
+	 * Opens a file and maps its contents into memory.
+	 * @param file the file to open
+	 * @return the contents of the file
+	 * @throws IOException if an I/O error occurs, or the file is not in the correct format
+	 */
+	public static GeometryFile open(File file) throws IOException {
+		RandomAccessFile raf=new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel=raf.getChannel();
+			long size=channel.size();
+			ByteBuffer header=read(channel, 0, GeometryWriter.HEADER_SIZE);
+			byte[] magic=new byte[GeometryWriter.MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, GeometryWriter.MAGIC)) throw new IOException("Not a geometry file");
+			int version=header.getInt();
+			if (version!=GeometryWriter.VERSION) throw new IOException("Unsupported format version: "+version);
+
+			List<GeometrySection<?>> sections=new ArrayList<GeometrySection<?>>();
+			long position=GeometryWriter.HEADER_SIZE;
+			while (position<size) {
+				ByteBuffer sectionHeader=read(channel, position, GeometryWriter.SECTION_HEADER_SIZE);
+				GeometryType<?> type=GeometryType.forCode(sectionHeader.getInt());
+				if (type==null) throw new IOException("Unknown object type at position "+position);
+				int count=sectionHeader.getInt();
+				long length=8L*type.recordLength*count;
+				position+=GeometryWriter.SECTION_HEADER_SIZE;
+				if (count<0 || position+length>size) throw new IOException("Truncated section at position "+position);
+				sections.add(map(type, channel, position, length));
+				position+=length;
+			}
+			return new GeometryFile(sections);
+		} finally {
+			// closing the file does not invalidate the mappings
+			raf.close();
+		}
+	}
+
+	private static <T> GeometrySection<T> map(GeometryType<T> type, FileChannel channel, long position, long length) throws IOException {
+		ByteBuffer bytes=channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+		return new GeometrySection<T>(type, bytes.asDoubleBuffer());
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer=ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position+buffer.position())<0) throw new IOException("Unexpected end of file");
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Returns the sections of this file, in the order they were written.
+	 * @return an unmodifiable list of the sections
+	 */
+	public List<GeometrySection<?>> getSections() {
+		return sections;
+	}
+
+	/**
+	 * Returns the sections containing objects of the specified type, in the order they were written.
+	 * @param <T> the class of the objects
+	 * @param type the type of the objects
+	 * @return a new list of the sections with the specified type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<GeometrySection<T>> getSections(GeometryType<T> type) {
+		List<GeometrySection<T>> result=new ArrayList<GeometrySection<T>>();
+		for (GeometrySection<?> section: sections)
+			if (section.getType()==type) result.add((GeometrySection<T>)section);
+		return result;
+	}
+}
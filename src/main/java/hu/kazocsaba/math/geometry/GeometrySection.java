@@ -0,0 +1,79 @@
+package hu.kazocsaba.math.geometry;
+
+import java.nio.DoubleBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A section of a {@link GeometryFile}, containing objects of a single type. The section is a read-only list
+ * backed directly by the mapped file: objects are created on access, and the coordinates can also be read
+ * without creating objects.
+ * <p>
+ * Sections can be accessed by multiple threads concurrently.
+ * @param <T> the class of the objects in this section
+ * @author Kazó Csaba
+ */
+public final class GeometrySection<T> extends AbstractList<T> implements RandomAccess {
+	private final GeometryType<T> type;
+	private final DoubleBuffer data;
+	private final int size;
+
+	GeometrySection(GeometryType<T> type, DoubleBuffer data) {
+		this.type=type;
+		this.data=data;
+		size=data.capacity()/type.recordLength;
+	}
+
+	/**
+	 * Returns the type of the objects in this section.
+	 * @return the type of the objects
+	 */
+	public GeometryType<T> getType() {
+		return type;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns an object of this section. A new object is created by each call.
+	 * @param index the index of the object
+	 * @return the object
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	@Override
+	public T get(int index) {
+		checkIndex(index);
+		return type.decode(data, index*type.recordLength);
+	}
+
+	/**
+	 * Returns a coordinate of the record of an object. The layout of the records is described at the constants
+	 * of {@link GeometryType}.
+	 * @param index the index of the object
+	 * @param coord the index of the coordinate within the record
+	 * @return the coordinate
+	 * @throws IndexOutOfBoundsException if either index is invalid
+	 */
+	public double getCoord(int index, int coord) {
+		checkIndex(index);
+		if (coord<0 || coord>=type.recordLength) throw new IndexOutOfBoundsException("Coordinate: "+coord+", record length: "+type.recordLength);
+		return data.get(index*type.recordLength+coord);
+	}
+
+	/**
+	 * Returns the records of all the objects of this section. The returned buffer is a read-only view of the
+	 * mapped file; the record of the object with index {@code i} starts at position
+	 * {@code i*getType().getRecordLength()}.
+	 * @return the coordinates of the objects
+	 */
+	public DoubleBuffer getData() {
+		return data.duplicate();
+	}
+
+	private void checkIndex(int index) {
+		if (index<0 || index>=size) throw new IndexOutOfBoundsException("Index: "+index+", size: "+size);
+	}
+}
@@ -0,0 +1,221 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+import java.nio.DoubleBuffer;
+
+/**
+ * A type of objects which can be stored in the binary geometry format. Every object is stored as a fixed number of
+ * doubles; the layout of each type is given in the documentation of the constants.
+ * @param <T> the class of the objects
+ * @author Kazó Csaba
+ * @see GeometryWriter
+ * @see GeometryFile
+ */
+public abstract class GeometryType<T> {
+	/**
+	 * 2D lines, stored as the point and the direction: {@code px, py, dx, dy}.
+	 */
+	public static final GeometryType<Line2> LINE2=new GeometryType<Line2>(1, "Line2", Line2.class, 4) {
+		@Override
+		void encode(Line2 line, double[] record) {
+			record[0]=line.px;
+			record[1]=line.py;
+			record[2]=line.dx;
+			record[3]=line.dy;
+		}
+
+		@Override
+		Line2 decode(DoubleBuffer data, int base) {
+			return new Line2(ImmutableMatrixFactory.createVector(data.get(base), data.get(base+1)),
+					ImmutableMatrixFactory.createVector(data.get(base+2), data.get(base+3)));
+		}
+	};
+	/**
+	 * 3D lines, stored as the point and the direction: {@code px, py, pz, dx, dy, dz}.
+	 */
+	public static final GeometryType<Line3> LINE3=new GeometryType<Line3>(2, "Line3", Line3.class, 6) {
+		@Override
+		void encode(Line3 line, double[] record) {
+			record[0]=line.px;
+			record[1]=line.py;
+			record[2]=line.pz;
+			record[3]=line.dx;
+			record[4]=line.dy;
+			record[5]=line.dz;
+		}
+
+		@Override
+		Line3 decode(DoubleBuffer data, int base) {
+			return new Line3(vector3(data, base), vector3(data, base+3));
+		}
+	};
+	/**
+	 * 2D segments, stored as the coordinates of the end points: {@code x1, y1, x2, y2}.
+	 */
+	public static final GeometryType<Segment2> SEGMENT2=new GeometryType<Segment2>(3, "Segment2", Segment2.class, 4) {
+		@Override
+		void encode(Segment2 segment, double[] record) {
+			record[0]=segment.getP1().getX();
+			record[1]=segment.getP1().getY();
+			record[2]=segment.getP2().getX();
+			record[3]=segment.getP2().getY();
+		}
+
+		@Override
+		Segment2 decode(DoubleBuffer data, int base) {
+			return new Segment2(ImmutableMatrixFactory.createVector(data.get(base), data.get(base+1)),
+					ImmutableMatrixFactory.createVector(data.get(base+2), data.get(base+3)));
+		}
+	};
+	/**
+	 * 3D segments, stored as the coordinates of the end points: {@code x1, y1, z1, x2, y2, z2}.
+	 */
+	public static final GeometryType<Segment3> SEGMENT3=new GeometryType<Segment3>(4, "Segment3", Segment3.class, 6) {
+		@Override
+		void encode(Segment3 segment, double[] record) {
+			putVector3(segment.getP1().getX(), segment.getP1().getY(), segment.getP1().getZ(), record, 0);
+			putVector3(segment.getP2().getX(), segment.getP2().getY(), segment.getP2().getZ(), record, 3);
+		}
+
+		@Override
+		Segment3 decode(DoubleBuffer data, int base) {
+			return new Segment3(vector3(data, base), vector3(data, base+3));
+		}
+	};
+	/**
+	 * Planes, stored as the point and the normal vector: {@code px, py, pz, nx, ny, nz}.
+	 */
+	public static final GeometryType<Plane3> PLANE3=new GeometryType<Plane3>(5, "Plane3", Plane3.class, 6) {
+		@Override
+		void encode(Plane3 plane, double[] record) {
+			putVector3(plane.getPoint().getX(), plane.getPoint().getY(), plane.getPoint().getZ(), record, 0);
+			putVector3(plane.getNormal().getX(), plane.getNormal().getY(), plane.getNormal().getZ(), record, 3);
+		}
+
+		@Override
+		Plane3 decode(DoubleBuffer data, int base) {
+			return new Plane3(vector3(data, base), vector3(data, base+3));
+		}
+	};
+	/**
+	 * Circles, stored as the center, the unit normal vector and the radius: {@code cx, cy, cz, nx, ny, nz, r}.
+	 */
+	public static final GeometryType<Circle3> CIRCLE3=new GeometryType<Circle3>(6, "Circle3", Circle3.class, 7) {
+		@Override
+		void encode(Circle3 circle, double[] record) {
+			putVector3(circle.getCenter().getX(), circle.getCenter().getY(), circle.getCenter().getZ(), record, 0);
+			putVector3(circle.getNormal().getX(), circle.getNormal().getY(), circle.getNormal().getZ(), record, 3);
+			record[6]=circle.getRadius();
+		}
+
+		@Override
+		Circle3 decode(DoubleBuffer data, int base) {
+			return new Circle3(vector3(data, base), vector3(data, base+3), data.get(base+6));
+		}
+	};
+	/**
+	 * 2D boxes, stored as the corner with the minimal coordinates and the size: {@code x, y, width, height}.
+	 */
+	public static final GeometryType<Box2> BOX2=new GeometryType<Box2>(7, "Box2", Box2.class, 4) {
+		@Override
+		void encode(Box2 box, double[] record) {
+			record[0]=box.minX;
+			record[1]=box.minY;
+			record[2]=box.getWidth();
+			record[3]=box.getHeight();
+		}
+
+		@Override
+		Box2 decode(DoubleBuffer data, int base) {
+			return new Box2(ImmutableMatrixFactory.createVector(data.get(base), data.get(base+1)),
+					data.get(base+2), data.get(base+3));
+		}
+	};
+	/**
+	 * 3D boxes, stored as the corner with the minimal coordinates and the size:
+	 * {@code x, y, z, width, height, depth}.
+	 */
+	public static final GeometryType<Box3> BOX3=new GeometryType<Box3>(8, "Box3", Box3.class, 6) {
+		@Override
+		void encode(Box3 box, double[] record) {
+			putVector3(box.minX, box.minY, box.minZ, record, 0);
+			putVector3(box.getWidth(), box.getHeight(), box.getDepth(), record, 3);
+		}
+
+		@Override
+		Box3 decode(DoubleBuffer data, int base) {
+			return new Box3(vector3(data, base), data.get(base+3), data.get(base+4), data.get(base+5));
+		}
+	};
+
+	private static final GeometryType<?>[] TYPES={LINE2, LINE3, SEGMENT2, SEGMENT3, PLANE3, CIRCLE3, BOX2, BOX3};
+
+	/**
+	 * The identifier of the type in the file format.
+	 */
+	final int code;
+	private final String name;
+	private final Class<T> objectClass;
+	/**
+	 * The number of doubles describing an object.
+	 */
+	final int recordLength;
+
+	private GeometryType(int code, String name, Class<T> objectClass, int recordLength) {
+		this.code=code;
+		this.name=name;
+		this.objectClass=objectClass;
+		this.recordLength=recordLength;
+	}
+
+	/**
+	 * Returns the class of the objects of this type.
+	 * @return the object class
+	 */
+	public Class<T> getObjectClass() {
+		return objectClass;
+	}
+
+	/**
+	 * Returns the number of doubles used to store an object of this type.
+	 * @return the length of a record
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Stores the coordinates describing an object in the first {@code recordLength} elements of an array.
+	 */
+	abstract void encode(T object, double[] record);
+
+	/**
+	 * Creates an object from the record starting at the specified index of the buffer.
+	 */
+	abstract T decode(DoubleBuffer data, int base);
+
+	/**
+	 * Returns the type with the specified identifier, or {@code null} if there is no such type.
+	 */
+	static GeometryType<?> forCode(int code) {
+		for (GeometryType<?> type: TYPES)
+			if (type.code==code) return type;
+		return null;
+	}
+
+	private static ImmutableVector3 vector3(DoubleBuffer data, int base) {
+		return ImmutableMatrixFactory.createVector(data.get(base), data.get(base+1), data.get(base+2));
+	}
+
+	private static void putVector3(double x, double y, double z, double[] record, int offset) {
+		record[offset]=x;
+		record[offset+1]=y;
+		record[offset+2]=z;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
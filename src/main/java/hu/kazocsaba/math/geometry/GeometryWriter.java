@@ -0,0 +1,138 @@
+package hu.kazocsaba.math.geometry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes collections of geometric objects into a file in a compact binary format, which can be read with
+ * {@link GeometryFile}.
+ * <p>
+ * The file starts with a 16 byte header: the ASCII characters {@code GEOM}, the format version as a 4 byte
+ * integer, and 8 reserved bytes. It is followed by sections, each containing objects of a single type: an 8 byte
+ * section header with the type identifier and the number of objects as 4 byte integers, then the records of the
+ * objects as {@linkplain GeometryType#getRecordLength() a fixed number} of doubles. All numbers are little-endian,
+ * and all records are aligned to 8 bytes.
+ * <p>
+ * Consecutive objects of the same type are written into the same section. The objects are written in the order
+ * they are passed to this writer, and are read back in the same order.
+ * @author Kazó Csaba
+ */
+public final class GeometryWriter implements Closeable {
+	/**
+	 * The first four bytes of the file.
+	 */
+	static final byte[] MAGIC={'G', 'E', 'O', 'M'};
+	/**
+	 * The version of the format written by this class.
+	 */
+	static final int VERSION=1;
+	static final int HEADER_SIZE=16;
+	static final int SECTION_HEADER_SIZE=8;
+	private static final int BUFFER_SIZE=1<<16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer=ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final double[] record=new double[8];
+
+	// the type of the current section, the file position of its header, and the number of objects in it
+	private GeometryType<?> sectionType;
+	private long sectionPosition;
+	private int sectionCount;
+	private int sectionLimit;
+	private boolean closed;
+
+	/**
+	 * Creates a new writer. The file is created if it does not exist, and truncated if it does.
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be opened for writing
+	 */
+	public GeometryWriter(File file) throws IOException {
+		channel=new FileOutputStream(file).getChannel();
+		buffer.put(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(0);
+	}
+
+	/**
+	 * Writes an object.
+	 * @param <T> the class of the object
+	 * @param type the type of the object
+	 * @param object the object to write
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if the writer is closed
+	 */
+	public <T> void write(GeometryType<T> type, T object) throws IOException {
+		if (closed) throw new IllegalStateException("Writer is closed");
+		if (type!=sectionType || sectionCount==sectionLimit) startSection(type);
+		type.encode(object, record);
+		if (buffer.remaining()<8*type.recordLength) flush();
+		for (int i=0; i<type.recordLength; i++)
+			buffer.putDouble(record[i]);
+		sectionCount++;
+	}
+
+	/**
+	 * Writes a collection of objects.
+	 * @param <T> the class of the objects
+	 * @param type the type of the objects
+	 * @param objects the objects to write
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if the writer is closed
+	 */
+	public <T> void writeAll(GeometryType<T> type, Iterable<? extends T> objects) throws IOException {
+		for (T object: objects)
+			write(type, object);
+	}
+
+	private void startSection(GeometryType<?> type) throws IOException {
+		finishSection();
+		if (buffer.remaining()<SECTION_HEADER_SIZE) flush();
+		sectionType=type;
+		sectionPosition=channel.position()+buffer.position();
+		sectionCount=0;
+		// the whole section must fit into a single mapped buffer
+		sectionLimit=(Integer.MAX_VALUE-SECTION_HEADER_SIZE)/(8*type.recordLength);
+		buffer.putInt(type.code);
+		// the number of objects is filled in when the section is finished
+		buffer.putInt(0);
+	}
+
+	private void finishSection() throws IOException {
+		if (sectionType==null) return;
+		flush();
+		ByteBuffer count=ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		count.putInt(0, sectionCount);
+		long position=sectionPosition+4;
+		while (count.hasRemaining())
+			position+=channel.write(count, position);
+		sectionType=null;
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Finishes writing the file and closes it. Calling this method on a closed writer has no effect.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed=true;
+		try {
+			finishSection();
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
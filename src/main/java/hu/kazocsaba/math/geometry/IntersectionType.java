@@ -0,0 +1,26 @@
+package hu.kazocsaba.math.geometry;
+
+/**
+ * The kind of the common part of two objects.
+ * @author Kazó Csaba
+ * @see Plane3#findIntersection(Line3, Workspace)
+ * @see Plane3#findIntersection(Plane3, Workspace)
+ */
+public enum IntersectionType {
+	/**
+	 * The objects have no common point.
+	 */
+	NONE,
+	/**
+	 * The objects intersect in a single point.
+	 */
+	POINT,
+	/**
+	 * The objects intersect in a line.
+	 */
+	LINE,
+	/**
+	 * The objects intersect in a plane, i.e. they are coincident planes.
+	 */
+	PLANE
+}
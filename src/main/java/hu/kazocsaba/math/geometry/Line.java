@@ -16,14 +16,19 @@ public class Line {
 	
 	private final ImmutableVector point;
 	private final ImmutableVector dir;
-	private final ImmutableVector unitDir;
+	// the squared length of the direction vector
+	final double dirNormSquare;
+	// computed on first use; since the vector is immutable, a race can at worst compute it twice
+	private ImmutableVector unitDir;
 	
+	/**
+	 * Creates a new line. Immutable arguments are stored without copying.
+	 */
 	Line(Vector point, Vector dir) {
 		this.point=ImmutableMatrixFactory.copy(point);
 		this.dir=ImmutableMatrixFactory.copy(dir);
-		double dirNorm=this.dir.norm();
-		if (dirNorm<EPS) throw new IllegalArgumentException("Badly specified line (direction vector too small)");
-		unitDir = ImmutableMatrixFactory.copy(this.dir.times(1/dirNorm));
+		dirNormSquare=this.dir.dot(this.dir);
+		if (dirNormSquare<EPS*EPS) throw new IllegalArgumentException("Badly specified line (direction vector too small)");
 	}
 	
 	/**
@@ -42,7 +47,11 @@ public class Line {
 	 * <blockquote>{@code getDir().normalized()}.</blockquote>
 	 * @return the direction of the line as a unit vector
 	 */
-	public ImmutableVector getUnitDir() {return unitDir;}
+	public ImmutableVector getUnitDir() {
+		ImmutableVector result=unitDir;
+		if (result==null) unitDir=result=ImmutableMatrixFactory.copy(dir.times(1/Math.sqrt(dirNormSquare)));
+		return result;
+	}
 	/**
 	 * Returns the point on this line corresponding to the parameter value. The parameter {@code t} is linear,
 	 * its value is 0 at {@code point} and 1 at {@code point+dir}.
@@ -62,27 +71,51 @@ public class Line {
 	 * {@code <coord> = value} plane
 	 */
 	public Vector getPointWhereCoord(int coord, double value) {
-		if (coord<0 || coord>=getPoint().getDimension()) throw new IllegalArgumentException();
 		Vector v=MatrixFactory.createLike(getPoint());
-		
-		if (Math.abs(getDir().getCoord(coord))<EPS)
+		if (!findPointWhereCoord(coord, value, v))
 			throw new DegenerateCaseException("No such point");
+		return v;
+	}
+	/**
+	 * Computes the point of the line for which the specified coordinate has a given value. Unlike
+	 * {@link #getPointWhereCoord(int, double)}, this method neither allocates memory nor throws an exception
+	 * in the degenerate case.
+	 * @param coord the index of the coordinate
+	 * @param value the value of the coordinate
+	 * @param result the vector to store the point in; it must have the same dimension as this line
+	 * @return {@code true} if the point was found, {@code false} if this line is parallel with the
+	 * {@code <coord> = value} plane, in which case {@code result} is not modified
+	 * @throws IllegalArgumentException if the index is invalid, or {@code result} has the wrong dimension
+	 */
+	public boolean findPointWhereCoord(int coord, double value, Vector result) {
+		int dim=point.getDimension();
+		if (coord<0 || coord>=dim) throw new IllegalArgumentException();
+		if (result.getDimension()!=dim) throw new IllegalArgumentException("Dimension mismatch: "+dim+" != "+result.getDimension());
 		
-		double t=(value-getPoint().getCoord(coord))/getDir().getCoord(coord);
-		for (int i=0; i<v.getDimension(); i++)
-			v.setCoord(i, getPoint().getCoord(i)+t*getDir().getCoord(i));
+		// the line is parallel with the plane only if it is exactly so: a tiny coordinate just gives a distant point
+		if (dir.getCoord(coord)==0)
+			return false;
 		
-		return v;
+		double t=(value-point.getCoord(coord))/dir.getCoord(coord);
+		for (int i=0; i<dim; i++)
+			result.setCoord(i, point.getCoord(i)+t*dir.getCoord(i));
+		
+		return true;
 	}
 	/**
 	 * Returns the parameter value specifying the point of the line which is closest to the argument. It is given by
 	 * the expression
-	 * <blockquote>{@code p.minus(getPoint()).dot(getUnitDir())/getDir().norm()}.</blockquote>
+	 * <blockquote>{@code p.minus(getPoint()).dot(getDir())/getDir().dot(getDir())}.</blockquote>
 	 * @param p an arbitrary point
 	 * @return the parameter value {@code t} for which {@link #getPointAt(double) getPointAt(t)} is the point of this line closest to {@code p}.
 	 */
 	public double getClosestT(Vector p) {
-		return p.minus(getPoint()).dot(getUnitDir())/getDir().norm();
+		int dim=point.getDimension();
+		if (p.getDimension()!=dim) throw new IllegalArgumentException("Dimension mismatch: "+dim+" != "+p.getDimension());
+		double dot=0;
+		for (int i=0; i<dim; i++)
+			dot+=(p.getCoord(i)-point.getCoord(i))*dir.getCoord(i);
+		return dot/dirNormSquare;
 	}
 	/**
 	 * Returns the distance between this line and a point.
@@ -91,36 +124,61 @@ public class Line {
 	 * @throws IllegalArgumentException if the point is not in the same space as this line (e.g. one is 2D and the other is 3D)
 	 */
 	public double distance(Vector p) {
-		Vector closest=getPointAt(getClosestT(p));
-		return closest.error(p);
+		double t=getClosestT(p);
+		double sum=0;
+		for (int i=0; i<p.getDimension(); i++) {
+			double diff=point.getCoord(i)+t*dir.getCoord(i)-p.getCoord(i);
+			sum+=diff*diff;
+		}
+		return Math.sqrt(sum);
 	}
 	/**
-	 * Returns the distance between this line and the argument.
+	 * Returns the distance between this line and the argument. Whether the lines are parallel is decided exactly, so
+	 * lines at a small angle, or with short direction vectors, are not treated as parallel. This method does not
+	 * allocate memory.
 	 * @param line the other line
 	 * @throws IllegalArgumentException if the two lines are not in the same space (e.g. one is 2D and the other is 3D)
 	 */
 	public double distance(Line line) {
-		if (line.getPoint().getDimension()!=getPoint().getDimension())
-			throw new IllegalArgumentException("Dimension mismatch: "+getPoint().getDimension()+" != "+line.getPoint().getDimension());
-		
-		Vector dp=getPoint().minus(line.getPoint()); // p1-p2
-		
-		Vector d1=getDir();
-		Vector d2=line.getDir();
-		double d1d2=d1.dot(d2);
-		double d1d1=d1.dot(d1);
-		double d2d2=d2.dot(d2);
+		int dim=getPoint().getDimension();
+		if (line.getPoint().getDimension()!=dim)
+			throw new IllegalArgumentException("Dimension mismatch: "+dim+" != "+line.getPoint().getDimension());
 		
-		double denom=(d1d1-d1d2*d1d2/d2d2);
+		ImmutableVector p1=point, p2=line.point;
+		ImmutableVector d1=dir, d2=line.dir;
+		// the dot products of d1, d2 and dp=p1-p2, computed coordinate by coordinate
+		double d1d2=0, d1dp=0, d2dp=0;
+		for (int i=0; i<dim; i++) {
+			double dp=p1.getCoord(i)-p2.getCoord(i);
+			d1d2+=d1.getCoord(i)*d2.getCoord(i);
+			d1dp+=d1.getCoord(i)*dp;
+			d2dp+=d2.getCoord(i)*dp;
+		}
+		double d2d2=line.dirNormSquare;
+		// |d1|^2*|d2|^2-(d1.d2)^2 as the sum of the squared 2x2 minors of the directions, without its cancellation;
+		// the lines are parallel if all the minors are zero
+		double minors=0;
+		boolean parallel=true;
+		for (int i=0; i<dim; i++)
+			for (int j=i+1; j<dim; j++) {
+				double a1=d1.getCoord(i), b1=d1.getCoord(j), a2=d2.getCoord(i), b2=d2.getCoord(j);
+				double minor=a1*b2-b1*a2;
+				minors+=minor*minor;
+				if (parallel && Predicates.orient2d(0, 0, a1, b1, a2, b2)!=0) parallel=false;
+			}
 		double t1;
-		if (Math.abs(denom)<EPS)
-			// the two lines are parallel
+		if (parallel || minors==0)
 			t1=0;
 		else
-			t1=d2.times(d1d2/d2d2).minus(d1).dot(dp)/denom;
-		double t2=(d2.dot(dp)+t1*d1d2)/d2d2;
+			t1=(d2dp*d1d2-d1dp*d2d2)/minors;
+		double t2=(d2dp+t1*d1d2)/d2d2;
 		
-		return dp.plus(d1.times(t1)).minus(d2.times(t2)).norm();
+		double sum=0;
+		for (int i=0; i<dim; i++) {
+			double diff=p1.getCoord(i)-p2.getCoord(i)+t1*d1.getCoord(i)-t2*d2.getCoord(i);
+			sum+=diff*diff;
+		}
+		return Math.sqrt(sum);
 	}
 
 	@Override
@@ -1,5 +1,7 @@
 package hu.kazocsaba.math.geometry;
 
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector;
 import hu.kazocsaba.math.matrix.Vector2;
 import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
 import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
@@ -11,9 +13,16 @@ import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
  * @author Kazó Csaba
  */
 public class Line2 extends Line {
+	// primitive copies of the point and the direction for the allocation-free queries
+	final double px, py;
+	final double dx, dy;
 	
 	Line2(Vector2 point, Vector2 dir) {
 		super(point, dir);
+		px=point.getX();
+		py=point.getY();
+		dx=dir.getX();
+		dy=dir.getY();
 	}
 	@Override
 	public ImmutableVector2 getDir() {
@@ -32,13 +41,118 @@ public class Line2 extends Line {
 
 	@Override
 	public Vector2 getPointAt(double t) {
-		return (Vector2) super.getPointAt(t);
+		return MatrixFactory.createVector(px+t*dx, py+t*dy);
+	}
+	
+	/**
+	 * Computes the point on this line corresponding to the parameter value and stores it in the specified vector.
+	 * @param t the parameter value
+	 * @param result the vector to store the result in
+	 * @return {@code result}
+	 * @see #getPointAt(double)
+	 */
+	public Vector2 getPointAt(double t, Vector2 result) {
+		result.setX(px+t*dx);
+		result.setY(py+t*dy);
+		return result;
+	}
+	
+	/**
+	 * Computes the point on this line corresponding to the parameter value and stores its coordinates in an array.
+	 * @param t the parameter value
+	 * @param result the array to store the x and y coordinates in
+	 * @param offset the index of the x coordinate in the array
+	 * @see #getPointAt(double)
+	 */
+	public void getPointAt(double t, double[] result, int offset) {
+		result[offset]=px+t*dx;
+		result[offset+1]=py+t*dy;
 	}
 
 	@Override
 	public Vector2 getPointWhereCoord(int coord, double value) {
 		return (Vector2) super.getPointWhereCoord(coord, value);
 	}
+
+	@Override
+	public double getClosestT(Vector p) {
+		if (p.getDimension()!=2) return super.getClosestT(p);
+		return getClosestT(p.getCoord(0), p.getCoord(1));
+	}
+	
+	/**
+	 * Returns the parameter value specifying the point of the line which is closest to the specified point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the parameter value {@code t} for which {@link #getPointAt(double) getPointAt(t)} is the point of this
+	 * line closest to {@code (x,y)}
+	 */
+	public double getClosestT(double x, double y) {
+		return ((x-px)*dx+(y-py)*dy)/dirNormSquare;
+	}
+
+	@Override
+	public double distance(Vector p) {
+		if (p.getDimension()!=2) return super.distance(p);
+		return distance(p.getCoord(0), p.getCoord(1));
+	}
+	
+	/**
+	 * Returns the distance between this line and a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the distance of {@code (x,y)} from this line
+	 */
+	public double distance(double x, double y) {
+		return Math.abs((x-px)*dy-(y-py)*dx)/Math.sqrt(dirNormSquare);
+	}
+	
+	/**
+	 * Computes the distances of a set of points from this line. The distance of the point with coordinates
+	 * {@code (xs[offset+i], ys[offset+i])} is stored in {@code result[resultOffset+i]}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see #distance(double, double)
+	 */
+	public void distances(double[] xs, double[] ys, int offset, int length, double[] result, int resultOffset) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("result", result.length, resultOffset, length);
+		double scale=1/Math.sqrt(dirNormSquare);
+		double a=px, b=py, c=dx*scale, d=dy*scale;
+		for (int i=0; i<length; i++)
+			result[resultOffset+i]=Math.abs((xs[offset+i]-a)*d-(ys[offset+i]-b)*c);
+	}
+	
+	/**
+	 * Returns the number of points whose distance from this line is at most the specified tolerance. The
+	 * coordinates of the points are taken from the {@code [offset, offset+length)} range of the coordinate arrays.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param tolerance the maximal distance of the counted points
+	 * @return the number of points within {@code tolerance} of this line
+	 * @throws IndexOutOfBoundsException if the specified range is not valid for the arrays
+	 */
+	public int countWithin(double[] xs, double[] ys, int offset, int length, double tolerance) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		// compare |(p-P) x D| with tolerance*|D|
+		double limit=tolerance*Math.sqrt(dx*dx+dy*dy);
+		double a=px, b=py, c=dx, d=dy;
+		int count=0;
+		for (int i=0; i<length; i++) {
+			double cross=Math.abs((xs[offset+i]-a)*d-(ys[offset+i]-b)*c);
+			count+=cross<=limit ? 1 : 0;
+		}
+		return count;
+	}
 	
 	/**
 	 * Creates a new line from a point and a direction.
@@ -70,7 +184,8 @@ public class Line2 extends Line {
 	 * @throws IllegalArgumentException if the distance between the points is too small
 	 */
 	public static Line2 createFromTwoPoints(Vector2 p1, Vector2 p2) {
-		return new Line2(p1, p2.minus(p1));
+		// an immutable direction is not copied by the constructor
+		return new Line2(p1, ImmutableMatrixFactory.createVector(p2.getX()-p1.getX(), p2.getY()-p1.getY()));
 	}
 	
 	/**
@@ -80,8 +195,8 @@ public class Line2 extends Line {
 	 * @throws DegenerateCaseException when this line is parallel to the y axis
 	 */
 	public double getYforX(double x) {
-		if (Math.abs(getDir().getX())<EPS) throw new DegenerateCaseException("Line is parallel to the y axis");
-		return getPoint().getY()+getDir().getY()/getDir().getX()*(x-getPoint().getX());
+		if (dx==0) throw new DegenerateCaseException("Line is parallel to the y axis");
+		return findYforX(x);
 	}
 	
 	/**
@@ -91,7 +206,29 @@ public class Line2 extends Line {
 	 * @throws DegenerateCaseException when this line is parallel to the x axis
 	 */
 	public double getXforY(double y) {
-		if (Math.abs(getDir().getY())<EPS) throw new DegenerateCaseException("Line is parallel to the x axis");
-		return getPoint().getX()+getDir().getX()/getDir().getY()*(y-getPoint().getY());
+		if (dy==0) throw new DegenerateCaseException("Line is parallel to the x axis");
+		return findXforY(y);
+	}
+	
+	/**
+	 * Returns the y coordinate of the point which lies on this line and has the specified x coordinate. Unlike
+	 * {@link #getYforX(double)}, this method does not throw an exception in the degenerate case.
+	 * @param x the x coordinate
+	 * @return the corresponding y coordinate, or NaN if this line is parallel to the y axis
+	 */
+	public double findYforX(double x) {
+		if (dx==0) return Double.NaN;
+		return py+dy/dx*(x-px);
+	}
+	
+	/**
+	 * Returns the x coordinate of the point which lies on this line and has the specified y coordinate. Unlike
+	 * {@link #getXforY(double)}, this method does not throw an exception in the degenerate case.
+	 * @param y the y coordinate
+	 * @return the corresponding x coordinate, or NaN if this line is parallel to the x axis
+	 */
+	public double findXforY(double y) {
+		if (dy==0) return Double.NaN;
+		return px+dx/dy*(y-py);
 	}
 }
@@ -2,7 +2,9 @@ package hu.kazocsaba.math.geometry;
 
 import hu.kazocsaba.math.matrix.Matrix3;
 import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector;
 import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
 import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
 
 /**
@@ -12,9 +14,18 @@ import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
  * @author Kazó Csaba
  */
 public class Line3 extends Line {
+	// primitive copies of the point and the direction for the allocation-free queries
+	final double px, py, pz;
+	final double dx, dy, dz;
 	
 	Line3(Vector3 point, Vector3 dir) {
 		super(point, dir);
+		px=point.getX();
+		py=point.getY();
+		pz=point.getZ();
+		dx=dir.getX();
+		dy=dir.getY();
+		dz=dir.getZ();
 	}
 
 	@Override
@@ -34,13 +45,141 @@ public class Line3 extends Line {
 
 	@Override
 	public Vector3 getPointAt(double t) {
-		return (Vector3) super.getPointAt(t);
+		return MatrixFactory.createVector(px+t*dx, py+t*dy, pz+t*dz);
+	}
+	
+	/**
+	 * Computes the point on this line corresponding to the parameter value and stores it in the specified vector.
+	 * @param t the parameter value
+	 * @param result the vector to store the result in
+	 * @return {@code result}
+	 * @see #getPointAt(double)
+	 */
+	public Vector3 getPointAt(double t, Vector3 result) {
+		result.setX(px+t*dx);
+		result.setY(py+t*dy);
+		result.setZ(pz+t*dz);
+		return result;
+	}
+	
+	/**
+	 * Computes the point on this line corresponding to the parameter value and stores its coordinates in an array.
+	 * @param t the parameter value
+	 * @param result the array to store the x, y and z coordinates in
+	 * @param offset the index of the x coordinate in the array
+	 * @see #getPointAt(double)
+	 */
+	public void getPointAt(double t, double[] result, int offset) {
+		result[offset]=px+t*dx;
+		result[offset+1]=py+t*dy;
+		result[offset+2]=pz+t*dz;
 	}
 
 	@Override
 	public Vector3 getPointWhereCoord(int coord, double value) {
 		return (Vector3) super.getPointWhereCoord(coord, value);
 	}
+
+	@Override
+	public double getClosestT(Vector p) {
+		if (p.getDimension()!=3) return super.getClosestT(p);
+		return getClosestT(p.getCoord(0), p.getCoord(1), p.getCoord(2));
+	}
+	
+	/**
+	 * Returns the parameter value specifying the point of the line which is closest to the specified point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the parameter value {@code t} for which {@link #getPointAt(double) getPointAt(t)} is the point of this
+	 * line closest to {@code (x,y,z)}
+	 */
+	public double getClosestT(double x, double y, double z) {
+		return ((x-px)*dx+(y-py)*dy+(z-pz)*dz)/dirNormSquare;
+	}
+
+	@Override
+	public double distance(Vector p) {
+		if (p.getDimension()!=3) return super.distance(p);
+		return distance(p.getCoord(0), p.getCoord(1), p.getCoord(2));
+	}
+	
+	/**
+	 * Returns the distance between this line and a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from this line
+	 */
+	public double distance(double x, double y, double z) {
+		double vx=x-px, vy=y-py, vz=z-pz;
+		// |(p-P) x D| / |D|
+		double cx=vy*dz-vz*dy;
+		double cy=vz*dx-vx*dz;
+		double cz=vx*dy-vy*dx;
+		return Math.sqrt((cx*cx+cy*cy+cz*cz)/dirNormSquare);
+	}
+	
+	/**
+	 * Computes the distances of a set of points from this line. The distance of the point with coordinates
+	 * {@code (xs[offset+i], ys[offset+i], zs[offset+i])} is stored in {@code result[resultOffset+i]}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see #distance(double, double, double)
+	 */
+	public void distances(double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		Batch.checkRange("result", result.length, resultOffset, length);
+		// |(p-P) x U| with the unit direction U
+		double scale=1/Math.sqrt(dirNormSquare);
+		double ax=px, ay=py, az=pz, bx=dx*scale, by=dy*scale, bz=dz*scale;
+		for (int i=0; i<length; i++) {
+			double vx=xs[offset+i]-ax, vy=ys[offset+i]-ay, vz=zs[offset+i]-az;
+			double cx=vy*bz-vz*by;
+			double cy=vz*bx-vx*bz;
+			double cz=vx*by-vy*bx;
+			result[resultOffset+i]=Math.sqrt(cx*cx+cy*cy+cz*cz);
+		}
+	}
+	
+	/**
+	 * Returns the number of points whose distance from this line is at most the specified tolerance. The
+	 * coordinates of the points are taken from the {@code [offset, offset+length)} range of the three coordinate
+	 * arrays.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param tolerance the maximal distance of the counted points
+	 * @return the number of points within {@code tolerance} of this line
+	 * @throws IndexOutOfBoundsException if the specified range is not valid for the arrays
+	 */
+	public int countWithin(double[] xs, double[] ys, double[] zs, int offset, int length, double tolerance) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		// compare |(p-P) x D|^2 with tolerance^2*|D|^2
+		double limit=tolerance*tolerance*(dx*dx+dy*dy+dz*dz);
+		double ax=px, ay=py, az=pz, bx=dx, by=dy, bz=dz;
+		int count=0;
+		for (int i=0; i<length; i++) {
+			double vx=xs[offset+i]-ax, vy=ys[offset+i]-ay, vz=zs[offset+i]-az;
+			double cx=vy*bz-vz*by;
+			double cy=vz*bx-vx*bz;
+			double cz=vx*by-vy*bx;
+			count+=cx*cx+cy*cy+cz*cz<=limit ? 1 : 0;
+		}
+		return count;
+	}
 	
 	/**
 	 * Creates a new line from a point and a direction.
@@ -63,7 +202,8 @@ public class Line3 extends Line {
 	 * @throws IllegalArgumentException if the distance between the points is too small
 	 */
 	public static Line3 createFromTwoPoints(Vector3 p1, Vector3 p2) {
-		return new Line3(p1, p2.minus(p1));
+		// an immutable direction is not copied by the constructor
+		return new Line3(p1, ImmutableMatrixFactory.createVector(p2.getX()-p1.getX(), p2.getY()-p1.getY(), p2.getZ()-p1.getZ()));
 	}
 	
 	/**
@@ -79,9 +219,9 @@ public class Line3 extends Line {
 		double c=Math.cos(angle);
 		double mc=1-c;
 		double s=Math.sin(angle);
-		Vector3 u=getDir().times(1/getDir().norm());
+		double length=Math.sqrt(dirNormSquare);
 		Matrix3 r=MatrixFactory.createMatrix3();
-		double x=u.getX(), y=u.getY(), z=u.getZ();
+		double x=dx/length, y=dy/length, z=dz/length;
 		
 		r.set(0, 0, c+x*x*mc);
 		r.set(0, 1, x*y*mc-z*s);
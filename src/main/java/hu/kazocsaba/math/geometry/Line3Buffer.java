@@ -0,0 +1,208 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+
+/**
+ * A growable list of 3D lines stored in packed form. Each line takes six doubles (its point and direction) in a
+ * single array, instead of a {@link Line3} object with its vectors. The lines are identified by their indices,
+ * and the queries of {@code Line3} are available on them without creating objects.
+ * <p>
+ * This class is not thread-safe: it must not be modified while other threads access it.
+ * @author Kazó Csaba
+ */
+public final class Line3Buffer extends PackedBuffer {
+	private static final double EPS=1e-8;
+	private static final int STRIDE=6;
+
+	/**
+	 * Creates a new empty buffer.
+	 */
+	public Line3Buffer() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty buffer with room for the specified number of lines.
+	 * @param initialCapacity the number of lines the buffer can hold before growing
+	 * @throws IllegalArgumentException if the capacity is negative or too large
+	 */
+	public Line3Buffer(int initialCapacity) {
+		super(STRIDE, initialCapacity);
+	}
+
+	/**
+	 * Appends a line to this buffer.
+	 * @param line the line to add
+	 * @return the index of the line
+	 */
+	public int add(Line3 line) {
+		return put(append(), line.px, line.py, line.pz, line.dx, line.dy, line.dz);
+	}
+
+	/**
+	 * Appends a line to this buffer. The line is specified as {@code (px,py,pz)+t*(dx,dy,dz)}.
+	 * @param px the x coordinate of the point of the line
+	 * @param py the y coordinate of the point of the line
+	 * @param pz the z coordinate of the point of the line
+	 * @param dx the x coordinate of the direction of the line
+	 * @param dy the y coordinate of the direction of the line
+	 * @param dz the z coordinate of the direction of the line
+	 * @return the index of the line
+	 * @throws IllegalArgumentException if the length of the direction vector is too small
+	 */
+	public int add(double px, double py, double pz, double dx, double dy, double dz) {
+		if (dx*dx+dy*dy+dz*dz<EPS*EPS) throw new IllegalArgumentException("Badly specified line (direction vector too small)");
+		return put(append(), px, py, pz, dx, dy, dz);
+	}
+
+	private int put(int base, double px, double py, double pz, double dx, double dy, double dz) {
+		double[] d=data;
+		d[base  ]=px;
+		d[base+1]=py;
+		d[base+2]=pz;
+		d[base+3]=dx;
+		d[base+4]=dy;
+		d[base+5]=dz;
+		return base/STRIDE;
+	}
+
+	/**
+	 * Replaces a line of this buffer.
+	 * @param index the index of the line
+	 * @param line the new line
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public void set(int index, Line3 line) {
+		put(base(index), line.px, line.py, line.pz, line.dx, line.dy, line.dz);
+	}
+
+	/**
+	 * Returns a line of this buffer as a new object.
+	 * @param index the index of the line
+	 * @return the line with the specified index
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public Line3 get(int index) {
+		int base=base(index);
+		double[] d=data;
+		return new Line3(ImmutableMatrixFactory.createVector(d[base], d[base+1], d[base+2]),
+				ImmutableMatrixFactory.createVector(d[base+3], d[base+4], d[base+5]));
+	}
+
+	/**
+	 * Computes a point of a line and stores its coordinates in an array.
+	 * @param index the index of the line
+	 * @param t the parameter value
+	 * @param result the array to store the x, y and z coordinates in
+	 * @param offset the index of the x coordinate in the array
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Line3#getPointAt(double, double[], int)
+	 */
+	public void getPointAt(int index, double t, double[] result, int offset) {
+		int base=base(index);
+		double[] d=data;
+		result[offset  ]=d[base  ]+t*d[base+3];
+		result[offset+1]=d[base+1]+t*d[base+4];
+		result[offset+2]=d[base+2]+t*d[base+5];
+	}
+
+	/**
+	 * Returns the parameter value specifying the point of a line which is closest to the specified point.
+	 * @param index the index of the line
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the parameter value of the point of the line closest to {@code (x,y,z)}
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Line3#getClosestT(double, double, double)
+	 */
+	public double getClosestT(int index, double x, double y, double z) {
+		int base=base(index);
+		double[] d=data;
+		double dx=d[base+3], dy=d[base+4], dz=d[base+5];
+		return ((x-d[base])*dx+(y-d[base+1])*dy+(z-d[base+2])*dz)/(dx*dx+dy*dy+dz*dz);
+	}
+
+	/**
+	 * Returns the distance between a line and a point.
+	 * @param index the index of the line
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from the line
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Line3#distance(double, double, double)
+	 */
+	public double distance(int index, double x, double y, double z) {
+		return distanceAt(base(index), x, y, z);
+	}
+
+	private double distanceAt(int base, double x, double y, double z) {
+		double[] d=data;
+		double vx=x-d[base], vy=y-d[base+1], vz=z-d[base+2];
+		double dx=d[base+3], dy=d[base+4], dz=d[base+5];
+		// |(p-P) x D| / |D|
+		double cx=vy*dz-vz*dy;
+		double cy=vz*dx-vx*dz;
+		double cz=vx*dy-vy*dx;
+		return Math.sqrt((cx*cx+cy*cy+cz*cz)/(dx*dx+dy*dy+dz*dz));
+	}
+
+	/**
+	 * Computes the distances of a point from all the lines of this buffer. The distance from the line with
+	 * index {@code i} is stored in {@code result[offset+i]}.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @param result the array to store the distances in
+	 * @param offset the index in {@code result} where the distance from the first line is stored
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@link #size()} values from {@code offset}
+	 */
+	public void distances(double x, double y, double z, double[] result, int offset) {
+		checkOutput(result, offset);
+		int size=size();
+		for (int i=0; i<size; i++)
+			result[offset+i]=distanceAt(i*STRIDE, x, y, z);
+	}
+
+	/**
+	 * Returns the index of the line closest to a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the index of the closest line, or -1 if the buffer is empty
+	 */
+	public int findNearest(double x, double y, double z) {
+		int best=-1;
+		double bestDistance=Double.POSITIVE_INFINITY;
+		int size=size();
+		for (int i=0; i<size; i++) {
+			double distance=distanceAt(i*STRIDE, x, y, z);
+			if (distance<bestDistance) {
+				bestDistance=distance;
+				best=i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Transforms all the lines of this buffer in place.
+	 * @param transform the transformation to apply
+	 * @see Transform3#transform(Line3)
+	 */
+	public void transform(Transform3 transform) {
+		Transform3 t=transform;
+		double[] d=data;
+		int end=size()*STRIDE;
+		for (int base=0; base<end; base+=STRIDE) {
+			double px=d[base], py=d[base+1], pz=d[base+2], dx=d[base+3], dy=d[base+4], dz=d[base+5];
+			d[base  ]=t.m00*px+t.m01*py+t.m02*pz+t.tx;
+			d[base+1]=t.m10*px+t.m11*py+t.m12*pz+t.ty;
+			d[base+2]=t.m20*px+t.m21*py+t.m22*pz+t.tz;
+			d[base+3]=t.m00*dx+t.m01*dy+t.m02*dz;
+			d[base+4]=t.m10*dx+t.m11*dy+t.m12*dz;
+			d[base+5]=t.m20*dx+t.m21*dy+t.m22*dz;
+		}
+	}
+}
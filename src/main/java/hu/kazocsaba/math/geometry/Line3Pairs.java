@@ -0,0 +1,347 @@
+package hu.kazocsaba.math.geometry;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Distances and closest points between all the pairs of two sets of 3D lines. The per-line quantities (unit
+ * directions and their lengths) are computed only once, no objects are created for the pairs, and large problems
+ * are divided into tiles which are processed in parallel.
+ * <p>
+ * The pairs are addressed as {@code (i,j)}, {@code i} being the index of a line in the first buffer and {@code j}
+ * the index of a line in the second one. Two lines are handled as parallel only if they are parallel up to
+ * rounding errors, that is, the square of the sine of their angle is at most 1e-30; the closest points of parallel
+ * lines are then chosen at {@code t1=0}. Lines at a small angle, such as rays of a narrow baseline meeting far
+ * away, get their true closest points.
+ * @author Kazó Csaba
+ */
+public final class Line3Pairs {
+	private static final double PARALLEL_TOLERANCE=1e-30;
+	/**
+	 * The number of lines of the second set processed together. The seven arrays of a tile fit into the L1 cache.
+	 */
+	private static final int TILE=256;
+	/**
+	 * The number of pairs below which a task is not divided further.
+	 */
+	private static final int PARALLEL_THRESHOLD=1<<16;
+
+	/**
+	 * Receives the pairs of lines found by {@link Line3Pairs#findPairsWithin findPairsWithin}.
+	 */
+	public interface Listener {
+		/**
+		 * Called for each pair of lines closer than the threshold.
+		 * @param first the index of the line in the first buffer
+		 * @param second the index of the line in the second buffer
+		 * @param distance the distance between the lines
+		 * @param t1 the parameter value of the closest point of the first line
+		 * @param t2 the parameter value of the closest point of the second line
+		 */
+		void pair(int first, int second, double distance, double t1, double t2);
+	}
+
+	private Line3Pairs() {}
+
+	/**
+	 * Computes the distances between all pairs of lines. The distance between the lines {@code i} and {@code j}
+	 * is stored in {@code result[offset+i*second.size()+j]}.
+	 * @param first the first set of lines
+	 * @param second the second set of lines
+	 * @param result the array to store the distances in
+	 * @param offset the index in {@code result} where the first distance is stored
+	 * @throws IllegalArgumentException if the number of pairs does not fit into an array
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold all the distances from {@code offset}
+	 * @see Line#distance(Line)
+	 */
+	public static void distances(Line3Buffer first, Line3Buffer second, double[] result, int offset) {
+		Batch.checkRange("result", result.length, offset, pairCount(first, second));
+		run(new PairTask(new Lines(first), new Lines(second), result, null, null, offset, 0, first.size()));
+	}
+
+	/**
+	 * Computes the parameter values of the closest points of all pairs of lines. For the lines {@code i} and
+	 * {@code j}, {@code first.get(i).getPointAt(t1s[k])} and {@code second.get(j).getPointAt(t2s[k])} are the
+	 * closest points, where {@code k=offset+i*second.size()+j}.
+	 * @param first the first set of lines
+	 * @param second the second set of lines
+	 * @param t1s the array to store the parameter values of the points of the first lines in
+	 * @param t2s the array to store the parameter values of the points of the second lines in
+	 * @param offset the index in the arrays where the values of the first pair are stored
+	 * @throws IllegalArgumentException if the number of pairs does not fit into an array
+	 * @throws IndexOutOfBoundsException if the arrays cannot hold all the values from {@code offset}
+	 */
+	public static void closestParameters(Line3Buffer first, Line3Buffer second, double[] t1s, double[] t2s, int offset) {
+		int count=pairCount(first, second);
+		Batch.checkRange("t1s", t1s.length, offset, count);
+		Batch.checkRange("t2s", t2s.length, offset, count);
+		run(new PairTask(new Lines(first), new Lines(second), null, t1s, t2s, offset, 0, first.size()));
+	}
+
+	/**
+	 * Finds the pairs of lines whose distance is at most the specified threshold. Only the pairs found are stored,
+	 * so the number of pairs is not limited by the size of an array. The pairs are reported to the listener on the
+	 * calling thread, ordered by the index of the first line, then by the index of the second line.
+	 * @param first the first set of lines
+	 * @param second the second set of lines
+	 * @param threshold the largest distance of the reported pairs
+	 * @param listener the listener receiving the pairs
+	 * @throws IllegalArgumentException if the threshold is negative or NaN
+	 */
+	public static void findPairsWithin(Line3Buffer first, Line3Buffer second, double threshold, Listener listener) {
+		if (!(threshold>=0)) throw new IllegalArgumentException("Invalid threshold: "+threshold);
+		SearchTask task=new SearchTask(new Lines(first), new Lines(second), threshold, 0, first.size());
+		run(task);
+		task.report(listener);
+	}
+
+	private static int pairCount(Line3Buffer first, Line3Buffer second) {
+		long count=(long)first.size()*second.size();
+		if (count>Integer.MAX_VALUE) throw new IllegalArgumentException("Too many pairs: "+count);
+		return (int)count;
+	}
+
+	private static void run(RowTask task) {
+		if ((long)task.to*task.second.size<PARALLEL_THRESHOLD)
+			task.compute();
+		else
+			Parallel.invoke(task);
+	}
+
+	/**
+	 * The lines of a buffer with unit directions, in separate arrays.
+	 */
+	private static final class Lines {
+		final int size;
+		final double[] px, py, pz, ux, uy, uz;
+		/**
+		 * The reciprocals of the lengths of the original directions, converting unit parameters to the original ones.
+		 */
+		final double[] scale;
+
+		Lines(Line3Buffer buffer) {
+			size=buffer.size();
+			px=new double[size];
+			py=new double[size];
+			pz=new double[size];
+			ux=new double[size];
+			uy=new double[size];
+			uz=new double[size];
+			scale=new double[size];
+			double[] d=buffer.data;
+			for (int i=0; i<size; i++) {
+				int base=6*i;
+				px[i]=d[base];
+				py[i]=d[base+1];
+				pz[i]=d[base+2];
+				double dx=d[base+3], dy=d[base+4], dz=d[base+5];
+				double s=1/Math.sqrt(dx*dx+dy*dy+dz*dz);
+				ux[i]=dx*s;
+				uy[i]=dy*s;
+				uz[i]=dz*s;
+				scale[i]=s;
+			}
+		}
+	}
+
+	/**
+	 * Processes the pairs of a range of lines of the first set with all the lines of the second set. The range is
+	 * halved until the number of pairs falls below the threshold.
+	 */
+	private static abstract class RowTask extends RecursiveAction {
+		final Lines first, second;
+		final int from, to;
+
+		RowTask(Lines first, Lines second, int from, int to) {
+			this.first=first;
+			this.second=second;
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override
+		protected final void compute() {
+			if (to-from>1 && (long)(to-from)*second.size>=PARALLEL_THRESHOLD) {
+				int middle=(from+to)>>>1;
+				invokeAll(subtask(from, middle), subtask(middle, to));
+			} else {
+				for (int tile=0; tile<second.size; tile+=TILE) {
+					int tileEnd=Math.min(second.size, tile+TILE);
+					for (int i=from; i<to; i++)
+						process(i, tile, tileEnd);
+				}
+			}
+		}
+
+		abstract RowTask subtask(int from, int to);
+
+		/**
+		 * Processes the pairs of the line {@code i} of the first set with a tile of the second set.
+		 */
+		abstract void process(int i, int tile, int tileEnd);
+	}
+
+	private static final class PairTask extends RowTask {
+		private final double[] distances, t1s, t2s;
+		private final int offset;
+
+		PairTask(Lines first, Lines second, double[] distances, double[] t1s, double[] t2s, int offset, int from, int to) {
+			super(first, second, from, to);
+			this.distances=distances;
+			this.t1s=t1s;
+			this.t2s=t2s;
+			this.offset=offset;
+		}
+
+		@Override
+		RowTask subtask(int from, int to) {
+			return new PairTask(first, second, distances, t1s, t2s, offset, from, to);
+		}
+
+		@Override
+		void process(int i, int tile, int tileEnd) {
+			double px=first.px[i], py=first.py[i], pz=first.pz[i];
+			double ux=first.ux[i], uy=first.uy[i], uz=first.uz[i];
+			double[] qx=second.px, qy=second.py, qz=second.pz, vx=second.ux, vy=second.uy, vz=second.uz;
+			int row=offset+i*second.size;
+			if (distances!=null) {
+				for (int j=tile; j<tileEnd; j++) {
+					double wx=px-qx[j], wy=py-qy[j], wz=pz-qz[j];
+					// the normal of both lines, its squared length is the square of the sine of their angle
+					double nx=uy*vz[j]-uz*vy[j];
+					double ny=uz*vx[j]-ux*vz[j];
+					double nz=ux*vy[j]-uy*vx[j];
+					double nn=nx*nx+ny*ny+nz*nz;
+					distances[row+j]=nn<=PARALLEL_TOLERANCE ? parallelDistance(wx, wy, wz, ux, uy, uz) : Math.abs(wx*nx+wy*ny+wz*nz)/Math.sqrt(nn);
+				}
+			} else {
+				double s1=first.scale[i];
+				double[] scale=second.scale;
+				for (int j=tile; j<tileEnd; j++) {
+					double wx=px-qx[j], wy=py-qy[j], wz=pz-qz[j];
+					double b=ux*vx[j]+uy*vy[j]+uz*vz[j];
+					double d=ux*wx+uy*wy+uz*wz;
+					double e=vx[j]*wx+vy[j]*wy+vz[j]*wz;
+					// the same test for parallel lines as for the distances
+					double nx=uy*vz[j]-uz*vy[j];
+					double ny=uz*vx[j]-ux*vz[j];
+					double nz=ux*vy[j]-uy*vx[j];
+					double nn=nx*nx+ny*ny+nz*nz;
+					if (nn<=PARALLEL_TOLERANCE) {
+						t1s[row+j]=0;
+						t2s[row+j]=e*scale[j];
+					} else {
+						t1s[row+j]=(b*e-d)/nn*s1;
+						t2s[row+j]=(e-b*d)/nn*scale[j];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the distance of a point, given relative to a point of a line, from the line.
+	 */
+	private static double parallelDistance(double wx, double wy, double wz, double ux, double uy, double uz) {
+		double cx=wy*uz-wz*uy;
+		double cy=wz*ux-wx*uz;
+		double cz=wx*uy-wy*ux;
+		return Math.sqrt(cx*cx+cy*cy+cz*cz);
+	}
+
+	private static final class SearchTask extends RowTask {
+		private final double threshold;
+		private SearchTask left, right;
+		// the pairs found, in the order of the tiles
+		private int[] pairs=new int[0];
+		private double[] values=new double[0];
+		private int count;
+
+		SearchTask(Lines first, Lines second, double threshold, int from, int to) {
+			super(first, second, from, to);
+			this.threshold=threshold;
+		}
+
+		@Override
+		RowTask subtask(int from, int to) {
+			SearchTask task=new SearchTask(first, second, threshold, from, to);
+			if (left==null) left=task; else right=task;
+			return task;
+		}
+
+		@Override
+		void process(int i, int tile, int tileEnd) {
+			double px=first.px[i], py=first.py[i], pz=first.pz[i];
+			double ux=first.ux[i], uy=first.uy[i], uz=first.uz[i];
+			double[] qx=second.px, qy=second.py, qz=second.pz, vx=second.ux, vy=second.uy, vz=second.uz;
+			double limit=threshold*threshold;
+			for (int j=tile; j<tileEnd; j++) {
+				double wx=px-qx[j], wy=py-qy[j], wz=pz-qz[j];
+				double nx=uy*vz[j]-uz*vy[j];
+				double ny=uz*vx[j]-ux*vz[j];
+				double nz=ux*vy[j]-uy*vx[j];
+				double nn=nx*nx+ny*ny+nz*nz;
+				double distance;
+				if (nn<=PARALLEL_TOLERANCE) {
+					distance=parallelDistance(wx, wy, wz, ux, uy, uz);
+					if (distance>threshold) continue;
+				} else {
+					// compared without the division and the square root
+					double wn=wx*nx+wy*ny+wz*nz;
+					if (wn*wn>limit*nn) continue;
+					distance=Math.abs(wn)/Math.sqrt(nn);
+					if (distance>threshold) continue;
+				}
+				add(i, j, distance, wx, wy, wz, vx[j], vy[j], vz[j], ux, uy, uz, nn);
+			}
+		}
+
+		private void add(int i, int j, double distance, double wx, double wy, double wz,
+				double vx, double vy, double vz, double ux, double uy, double uz, double nn) {
+			double b=ux*vx+uy*vy+uz*vz;
+			double d=ux*wx+uy*wy+uz*wz;
+			double e=vx*wx+vy*wy+vz*wz;
+			double t1, t2;
+			if (nn<=PARALLEL_TOLERANCE) {
+				t1=0;
+				t2=e*second.scale[j];
+			} else {
+				t1=(b*e-d)/nn*first.scale[i];
+				t2=(e-b*d)/nn*second.scale[j];
+			}
+			if (count==pairs.length/2) {
+				int capacity=Math.max(16, 2*count);
+				pairs=Arrays.copyOf(pairs, 2*capacity);
+				values=Arrays.copyOf(values, 3*capacity);
+			}
+			pairs[2*count]=i;
+			pairs[2*count+1]=j;
+			values[3*count]=distance;
+			values[3*count+1]=t1;
+			values[3*count+2]=t2;
+			count++;
+		}
+
+		/**
+		 * Passes the pairs found by this task and its subtasks to the listener, in row-major order.
+		 */
+		void report(Listener listener) {
+			if (left!=null) {
+				left.report(listener);
+				right.report(listener);
+				return;
+			}
+			// stable counting sort by the first index: within a row, the tiles were processed in increasing order
+			int[] rowStart=new int[to-from+1];
+			for (int k=0; k<count; k++)
+				rowStart[pairs[2*k]-from+1]++;
+			for (int r=0; r<to-from; r++)
+				rowStart[r+1]+=rowStart[r];
+			int[] order=new int[count];
+			for (int k=0; k<count; k++)
+				order[rowStart[pairs[2*k]-from]++]=k;
+			for (int k: order)
+				listener.pair(pairs[2*k], pairs[2*k+1], values[3*k], values[3*k+1], values[3*k+2]);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package hu.kazocsaba.math.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Base class of the growable containers which store objects as consecutive groups of doubles in a single array.
+ * @author Kazó Csaba
+ */
+abstract class PackedBuffer {
+	/**
+	 * The number of doubles describing an object.
+	 */
+	private final int stride;
+	/**
+	 * The packed representation of the objects, the object with index {@code i} starts at {@code i*stride}.
+	 */
+	double[] data;
+	private int size;
+
+	PackedBuffer(int stride, int initialCapacity) {
+		if (initialCapacity<0) throw new IllegalArgumentException("Capacity must not be negative");
+		if (initialCapacity>Integer.MAX_VALUE/stride) throw new IllegalArgumentException("Capacity is too large");
+		this.stride=stride;
+		data=new double[initialCapacity*stride];
+	}
+
+	/**
+	 * Returns the number of objects in this buffer.
+	 * @return the number of objects
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all objects from this buffer. The storage is kept for reuse.
+	 */
+	public void clear() {
+		size=0;
+	}
+
+	/**
+	 * Reduces the storage of this buffer to the size required by its objects.
+	 */
+	public void trimToSize() {
+		if (data.length>size*stride) data=Arrays.copyOf(data, size*stride);
+	}
+
+	/**
+	 * Appends room for a new object and returns the index of its first double in the data array.
+	 */
+	int append() {
+		int base=size*stride;
+		if (base+stride>data.length) {
+			if (size>=Integer.MAX_VALUE/stride-1) throw new IllegalStateException("Buffer is full");
+			// grow by half, without overflowing
+			int capacity=(int)Math.min(Integer.MAX_VALUE/stride, Math.max(8, size+(long)size/2));
+			data=Arrays.copyOf(data, capacity*stride);
+		}
+		size++;
+		return base;
+	}
+
+	/**
+	 * Returns the index of the first double of an object in the data array.
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	int base(int index) {
+		if (index<0 || index>=size) throw new IndexOutOfBoundsException("Index: "+index+", size: "+size);
+		return index*stride;
+	}
+
+	/**
+	 * Checks that a range of {@code size()} elements fits into an output array.
+	 */
+	void checkOutput(double[] result, int offset) {
+		Batch.checkRange("result", result.length, offset, size);
+	}
+}
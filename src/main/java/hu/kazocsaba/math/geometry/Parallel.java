@@ -0,0 +1,54 @@
+package hu.kazocsaba.math.geometry;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Holder of the fork/join pool used by the parallel algorithms of the package.
+ * @author Kazó Csaba
+ */
+final class Parallel {
+	private Parallel() {}
+
+	private static class PoolHolder {
+		// the worker threads of a ForkJoinPool are daemon threads, so this pool does not prevent the JVM from exiting
+		static final ForkJoinPool POOL=new ForkJoinPool();
+	}
+
+	/**
+	 * Returns the shared fork/join pool. It is created on first use, with parallelism equal to the number of
+	 * available processors.
+	 * @return the shared pool
+	 */
+	static ForkJoinPool pool() {
+		return PoolHolder.POOL;
+	}
+
+	/**
+	 * Executes a task and returns its result. If called from a fork/join worker thread, the task is executed
+	 * in the current pool, otherwise it is submitted to the shared pool.
+	 * @param <T> the result type of the task
+	 * @param task the task to execute
+	 * @return the result of the task
+	 */
+	static <T> T invoke(ForkJoinTask<T> task) {
+		if (ForkJoinTask.inForkJoinPool())
+			return task.invoke();
+		else
+			return pool().invoke(task);
+	}
+
+	/**
+	 * Returns the 64-bit output of the SplitMix64 generator for the specified state. Successive states
+	 * ({@code seed}, {@code seed+1}, ...) give a well-mixed random sequence; it is used to give independent,
+	 * reproducible random streams to parallel tasks without sharing a generator between threads.
+	 * @param state the generator state
+	 * @return a pseudo-random number
+	 */
+	static long mix(long state) {
+		long z=state*0x9E3779B97F4A7C15L;
+		z=(z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z=(z^(z>>>27))*0x94D049BB133111EBL;
+		return z^(z>>>31);
+	}
+}
@@ -14,14 +14,19 @@ public class Plane {
 
 	private final ImmutableVector point;
 	private final ImmutableVector normal;
-	private final ImmutableVector unitNormal;
+	// the squared length of the normal vector
+	final double normalNormSquare;
+	// computed on first use; since the vector is immutable, a race can at worst compute it twice
+	private ImmutableVector unitNormal;
 	
+	/**
+	 * Creates a new plane. Immutable arguments are stored without copying.
+	 */
 	Plane(Vector point, Vector normal) {
 		this.point=ImmutableMatrixFactory.copy(point);
 		this.normal=ImmutableMatrixFactory.copy(normal);
-		double length=this.normal.norm();
-		if (length<EPS) throw new IllegalArgumentException("Badly specified plane (normal vector too small)");
-		this.unitNormal=ImmutableMatrixFactory.copy(this.normal.times(1/length));
+		normalNormSquare=this.normal.dot(this.normal);
+		if (normalNormSquare<EPS*EPS) throw new IllegalArgumentException("Badly specified plane (normal vector too small)");
 	}
 	
 	/**
@@ -38,13 +43,22 @@ public class Plane {
 	 * Returns the unit normal of the plane.
 	 * @return the unit normal vector
 	 */
-	public ImmutableVector getUnitNormal() {return unitNormal;}
+	public ImmutableVector getUnitNormal() {
+		ImmutableVector result=unitNormal;
+		if (result==null) unitNormal=result=ImmutableMatrixFactory.copy(normal.times(1/Math.sqrt(normalNormSquare)));
+		return result;
+	}
 	/**
 	 * Returns the distance between this line and a point.
 	 * @return the distance between this line and the point
 	 */
 	public double distance(Vector p) {
-		return Math.abs(unitNormal.dot(point.minus(p)));
+		int dim=point.getDimension();
+		if (p.getDimension()!=dim) throw new IllegalArgumentException("Dimension mismatch: "+dim+" != "+p.getDimension());
+		double dot=0;
+		for (int i=0; i<dim; i++)
+			dot+=normal.getCoord(i)*(point.getCoord(i)-p.getCoord(i));
+		return Math.abs(dot)/Math.sqrt(normalNormSquare);
 	}
 
 	@Override
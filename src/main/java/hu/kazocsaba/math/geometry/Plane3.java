@@ -1,5 +1,6 @@
 package hu.kazocsaba.math.geometry;
 
+import hu.kazocsaba.math.matrix.Vector;
 import hu.kazocsaba.math.matrix.Vector3;
 import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
 
@@ -9,8 +10,38 @@ import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
  * @author Kazó Csaba
  */
 public class Plane3 extends Plane {
+	// the plane is the set of points X for which n.X = offset, where n is the unit normal
+	final double nx, ny, nz;
+	final double offset;
+	// the normal vector as specified, for the exact predicates
+	final double normalX, normalY, normalZ;
+	
 	Plane3(Vector3 point, Vector3 normal) {
 		super(point, normal);
+		// computed from the stored copies, without creating the unit normal vector
+		ImmutableVector3 n=getNormal(), p=getPoint();
+		normalX=n.getX();
+		normalY=n.getY();
+		normalZ=n.getZ();
+		double length=Math.sqrt(normalNormSquare);
+		nx=n.getX()/length;
+		ny=n.getY()/length;
+		nz=n.getZ()/length;
+		offset=nx*p.getX()+ny*p.getY()+nz*p.getZ();
+	}
+
+	/**
+	 * Creates a new plane whose unit normal and offset are already known.
+	 */
+	Plane3(Vector3 point, Vector3 normal, double nx, double ny, double nz, double offset) {
+		super(point, normal);
+		normalX=normal.getX();
+		normalY=normal.getY();
+		normalZ=normal.getZ();
+		this.nx=nx;
+		this.ny=ny;
+		this.nz=nz;
+		this.offset=offset;
 	}
 
 	@Override
@@ -39,6 +70,109 @@ public class Plane3 extends Plane {
 		return new Plane3(point, normal);
 	}
 	
+	@Override
+	public double distance(Vector p) {
+		if (p.getDimension()!=3) return super.distance(p);
+		return distance(p.getCoord(0), p.getCoord(1), p.getCoord(2));
+	}
+	
+	/**
+	 * Returns the distance between this plane and a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from this plane
+	 */
+	public double distance(double x, double y, double z) {
+		return Math.abs(nx*x+ny*y+nz*z-offset);
+	}
+	
+	/**
+	 * Returns the signed distance between this plane and a point. The distance is positive if the point
+	 * is on the side of the plane that the normal vector points to, and negative if it is on the other side.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the signed distance of {@code (x,y,z)} from this plane
+	 */
+	public double signedDistance(double x, double y, double z) {
+		return nx*x+ny*y+nz*z-offset;
+	}
+	
+	/**
+	 * Computes the signed distances of a set of points from this plane. The coordinates of the points are taken from
+	 * the three coordinate arrays, the distance of the point with coordinates {@code (xs[offset+i], ys[offset+i],
+	 * zs[offset+i])} is stored in {@code result[resultOffset+i]}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see #signedDistance(double, double, double)
+	 */
+	public void signedDistances(double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		Batch.checkRange("result", result.length, resultOffset, length);
+		double a=nx, b=ny, c=nz, d=this.offset;
+		for (int i=0; i<length; i++)
+			result[resultOffset+i]=a*xs[offset+i]+b*ys[offset+i]+c*zs[offset+i]-d;
+	}
+	
+	/**
+	 * Computes the distances of a set of points from this plane. The coordinates of the points are taken from
+	 * the three coordinate arrays, the distance of the point with coordinates {@code (xs[offset+i], ys[offset+i],
+	 * zs[offset+i])} is stored in {@code result[resultOffset+i]}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 */
+	public void distances(double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		Batch.checkRange("result", result.length, resultOffset, length);
+		double a=nx, b=ny, c=nz, d=this.offset;
+		for (int i=0; i<length; i++)
+			result[resultOffset+i]=Math.abs(a*xs[offset+i]+b*ys[offset+i]+c*zs[offset+i]-d);
+	}
+	
+	/**
+	 * Returns the number of points whose distance from this plane is at most the specified tolerance. The
+	 * coordinates of the points are taken from the {@code [offset, offset+length)} range of the three coordinate
+	 * arrays.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param tolerance the maximal distance of the counted points
+	 * @return the number of points within {@code tolerance} of this plane
+	 * @throws IndexOutOfBoundsException if the specified range is not valid for the arrays
+	 */
+	public int countWithin(double[] xs, double[] ys, double[] zs, int offset, int length, double tolerance) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		double a=nx, b=ny, c=nz, d=this.offset;
+		int count=0;
+		for (int i=0; i<length; i++) {
+			// branch-free accumulation keeps the loop vectorizable
+			double dist=Math.abs(a*xs[offset+i]+b*ys[offset+i]+c*zs[offset+i]-d);
+			count+=dist<=tolerance ? 1 : 0;
+		}
+		return count;
+	}
+	
 	/**
 	 * Returns the intersection of this plane and a line.
 	 * @param line the line to intersect with
@@ -46,28 +180,179 @@ public class Plane3 extends Plane {
 	 * @throws DegenerateCaseException when this plane and the line are parallel
 	 */
 	public Vector3 intersect(Line3 line) {
-		double denom=line.getDir().dot(getNormal());
-		if (Math.abs(denom)<EPS) throw new DegenerateCaseException("Line and plane are parallel");
-		double t=getPoint().minus(line.getPoint()).dot(getNormal())/denom;
+		double t=intersectionParameter(line);
+		if (Double.isNaN(t)) throw new DegenerateCaseException("Line and plane are parallel");
 		return line.getPointAt(t);
 	}
 	
+	/**
+	 * Computes the intersection of this plane and a line without allocating memory. The intersection point is
+	 * stored in the {@link Workspace#getPoint3() point} of the workspace.
+	 * @param line the line to intersect with
+	 * @param workspace the workspace to store the result in
+	 * @return the intersection point, which is the point vector of {@code workspace}
+	 * @throws DegenerateCaseException when this plane and the line are parallel
+	 */
+	public Vector3 intersect(Line3 line, Workspace workspace) {
+		double t=intersectionParameter(line);
+		if (Double.isNaN(t)) throw new DegenerateCaseException("Line and plane are parallel");
+		return line.getPointAt(t, workspace.getPoint3());
+	}
+	
+	/**
+	 * Computes the intersection of this plane and a line without allocating memory or throwing exceptions.
+	 * If they intersect in a single point, it is stored in the {@link Workspace#getPoint3() point} of the
+	 * workspace. If the line lies in the plane, its point and direction are stored in the
+	 * {@link Workspace#getPoint3() point} and the {@link Workspace#getDir3() direction} of the workspace.
+	 * Whether the line is parallel with the plane, and whether it lies in it, is decided exactly.
+	 * @param line the line to intersect with
+	 * @param workspace the workspace to store the result in
+	 * @return {@link IntersectionType#POINT} if the line intersects the plane in a single point,
+	 * {@link IntersectionType#LINE} if it lies in the plane, and {@link IntersectionType#NONE} if it is
+	 * parallel with the plane but does not lie in it
+	 */
+	public IntersectionType findIntersection(Line3 line, Workspace workspace) {
+		double t=intersectionParameter(line);
+		if (!Double.isNaN(t)) {
+			line.getPointAt(t, workspace.getPoint3());
+			return IntersectionType.POINT;
+		}
+		if (Predicates.sideOfPlane(this, line.px, line.py, line.pz)!=0) return IntersectionType.NONE;
+		line.getPointAt(0, workspace.getPoint3());
+		Vector3 dir=workspace.getDir3();
+		dir.setX(line.dx);
+		dir.setY(line.dy);
+		dir.setZ(line.dz);
+		return IntersectionType.LINE;
+	}
+	
+	/**
+	 * Intersects a set of lines with this plane. The {@code i}th line is specified as
+	 * {@code (pxs[offset+i], pys[offset+i], pzs[offset+i]) + t*(dxs[offset+i], dys[offset+i], dzs[offset+i])}; the
+	 * parameter value {@code t} of its intersection with this plane is stored in {@code ts[resultOffset+i]}. For
+	 * lines parallel with this plane, as decided by {@link #intersect(Line3)}, the value is set to
+	 * {@link Double#NaN}.
+	 * @param pxs the x coordinates of the points of the lines
+	 * @param pys the y coordinates of the points of the lines
+	 * @param pzs the z coordinates of the points of the lines
+	 * @param dxs the x coordinates of the directions of the lines
+	 * @param dys the y coordinates of the directions of the lines
+	 * @param dzs the z coordinates of the directions of the lines
+	 * @param offset the index of the first line in the input arrays
+	 * @param length the number of lines
+	 * @param ts the array to store the parameter values in
+	 * @param resultOffset the index in {@code ts} where the value of the first line is stored
+	 * @return the number of lines which intersect this plane in a single point
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 */
+	public int intersect(double[] pxs, double[] pys, double[] pzs, double[] dxs, double[] dys, double[] dzs,
+			int offset, int length, double[] ts, int resultOffset) {
+		Batch.checkRange("pxs", pxs.length, offset, length);
+		Batch.checkRange("pys", pys.length, offset, length);
+		Batch.checkRange("pzs", pzs.length, offset, length);
+		Batch.checkRange("dxs", dxs.length, offset, length);
+		Batch.checkRange("dys", dys.length, offset, length);
+		Batch.checkRange("dzs", dzs.length, offset, length);
+		Batch.checkRange("ts", ts.length, resultOffset, length);
+		double a=nx, b=ny, c=nz, d=this.offset;
+		double rawX=normalX, rawY=normalY, rawZ=normalZ;
+		int hits=0;
+		for (int i=0; i<length; i++) {
+			double denom=dxs[offset+i]*a+dys[offset+i]*b+dzs[offset+i]*c;
+			if (Predicates.signOfDot(dxs[offset+i], dys[offset+i], dzs[offset+i], rawX, rawY, rawZ)==0) {
+				ts[resultOffset+i]=Double.NaN;
+			} else {
+				ts[resultOffset+i]=(d-(pxs[offset+i]*a+pys[offset+i]*b+pzs[offset+i]*c))/denom;
+				hits++;
+			}
+		}
+		return hits;
+	}
+	
+	/**
+	 * Returns the parameter value of the point where a line intersects this plane, or NaN if they are parallel.
+	 * Parallelism is decided exactly, so nearly parallel lines have large, but finite, parameter values.
+	 */
+	private double intersectionParameter(Line3 line) {
+		if (Predicates.signOfDot(line.dx, line.dy, line.dz, normalX, normalY, normalZ)==0) return Double.NaN;
+		// the unit normal differs from the normal only by a positive factor, so the ratio is the same
+		double denom=line.dx*nx+line.dy*ny+line.dz*nz;
+		return (offset-(line.px*nx+line.py*ny+line.pz*nz))/denom;
+	}
+	
 	/**
 	 * Returns the intersection of this plane and the argument.
 	 * @param plane the plane to intersect with
-	 * @return the intersection line
+	 * @return the intersection line, with a unit direction vector
 	 * @throws DegenerateCaseException when the planes are parallel
 	 */
 	public Line3 intersect(Plane3 plane) {
-		Vector3 normalCross=getUnitNormal().cross(plane.getUnitNormal());
-		if (normalCross.norm()<EPS) throw new DegenerateCaseException("Planes are parallel");
-		double normalDot=getUnitNormal().dot(plane.getUnitNormal());
-		double h1=getUnitNormal().dot(getPoint());
-		double h2=plane.getUnitNormal().dot(plane.getPoint());
+		Workspace workspace=new Workspace();
+		intersect(plane, workspace);
+		return Line3.createFromDir(workspace.getPoint3(), workspace.getDir3());
+	}
+	
+	/**
+	 * Computes the intersection of this plane and the argument without allocating memory. A point of the
+	 * intersection line is stored in the {@link Workspace#getPoint3() point}, its direction in the
+	 * {@link Workspace#getDir3() direction} of the workspace. They are the same as the point and the direction of
+	 * the line returned by {@link #intersect(Plane3)}.
+	 * @param plane the plane to intersect with
+	 * @param workspace the workspace to store the result in
+	 * @throws DegenerateCaseException when the planes are parallel
+	 */
+	public void intersect(Plane3 plane, Workspace workspace) {
+		if (findIntersection(plane, workspace)!=IntersectionType.LINE) throw new DegenerateCaseException("Planes are parallel");
+	}
+	
+	/**
+	 * Computes the intersection of this plane and the argument without allocating memory or throwing exceptions.
+	 * If the planes intersect in a line, a point of the line is stored in the {@link Workspace#getPoint3() point},
+	 * its unit direction in the {@link Workspace#getDir3() direction} of the workspace, as in
+	 * {@link #intersect(Plane3, Workspace)}. Whether the planes are parallel, and whether they coincide, is
+	 * decided exactly.
+	 * @param plane the plane to intersect with
+	 * @param workspace the workspace to store the result in
+	 * @return {@link IntersectionType#LINE} if the planes intersect in a line, {@link IntersectionType#PLANE} if
+	 * they coincide, and {@link IntersectionType#NONE} if they are parallel but distinct
+	 */
+	public IntersectionType findIntersection(Plane3 plane, Workspace workspace) {
+		double crossX=ny*plane.nz-nz*plane.ny;
+		double crossY=nz*plane.nx-nx*plane.nz;
+		double crossZ=nx*plane.ny-ny*plane.nx;
+		// |n1 x n2|^2 = 1-(n1.n2)^2, without its cancellation for nearly parallel planes
+		double crossNormSquare=crossX*crossX+crossY*crossY+crossZ*crossZ;
+		// the unit normals of parallel planes are equal up to a few ulps, so only nearly parallel planes need the
+		// exact test; and the rounded cross product can only vanish if they are parallel to the resolution of doubles
+		if (crossNormSquare==0 || crossNormSquare<1e-28 && parallel(normalX, normalY, normalZ, plane.normalX, plane.normalY, plane.normalZ)) {
+			ImmutableVector3 p=plane.getPoint();
+			return Predicates.sideOfPlane(this, p.getX(), p.getY(), p.getZ())==0 ? IntersectionType.PLANE : IntersectionType.NONE;
+		}
+		double normalDot=nx*plane.nx+ny*plane.ny+nz*plane.nz;
+		double h1=offset;
+		double h2=plane.offset;
 		
-		double denom=1-normalDot*normalDot;
-		double c1=(h1-h2*normalDot)/denom;
-		double c2=(h2-h1*normalDot)/denom;
-		return Line3.createFromDir(getUnitNormal().times(c1).plus(plane.getUnitNormal().times(c2)), normalCross);
+		double c1=(h1-h2*normalDot)/crossNormSquare;
+		double c2=(h2-h1*normalDot)/crossNormSquare;
+		Vector3 point=workspace.getPoint3();
+		point.setX(c1*nx+c2*plane.nx);
+		point.setY(c1*ny+c2*plane.ny);
+		point.setZ(c1*nz+c2*plane.nz);
+		// scaled to unit length, since the cross product of nearly parallel normals is too short for a line
+		double scale=1/Math.sqrt(crossNormSquare);
+		Vector3 dir=workspace.getDir3();
+		dir.setX(crossX*scale);
+		dir.setY(crossY*scale);
+		dir.setZ(crossZ*scale);
+		return IntersectionType.LINE;
+	}
+	
+	/**
+	 * Decides exactly whether two vectors are parallel, that is, their cross product is zero.
+	 */
+	private static boolean parallel(double ax, double ay, double az, double bx, double by, double bz) {
+		return Predicates.orient2d(ay, az, by, bz, 0, 0)==0
+				&& Predicates.orient2d(az, ax, bz, bx, 0, 0)==0
+				&& Predicates.orient2d(ax, ay, bx, by, 0, 0)==0;
 	}
 }
@@ -0,0 +1,190 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+
+/**
+ * A growable list of planes stored in packed form. Each plane takes four doubles (its unit normal and its signed
+ * distance from the origin) in a single array, instead of a {@link Plane3} object with its vectors. The planes are
+ * identified by their indices, and the queries of {@code Plane3} are available on them without creating objects.
+ * <p>
+ * Since only the unit normal is stored, the planes returned by {@link #get(int)} are equal to the added ones as
+ * sets of points, but are specified by their point closest to the origin and their unit normal.
+ * <p>
+ * This class is not thread-safe: it must not be modified while other threads access it.
+ * @author Kazó Csaba
+ */
+public final class Plane3Buffer extends PackedBuffer {
+	private static final double EPS=1e-8;
+	private static final int STRIDE=4;
+
+	/**
+	 * Creates a new empty buffer.
+	 */
+	public Plane3Buffer() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty buffer with room for the specified number of planes.
+	 * @param initialCapacity the number of planes the buffer can hold before growing
+	 * @throws IllegalArgumentException if the capacity is negative or too large
+	 */
+	public Plane3Buffer(int initialCapacity) {
+		super(STRIDE, initialCapacity);
+	}
+
+	/**
+	 * Appends a plane to this buffer.
+	 * @param plane the plane to add
+	 * @return the index of the plane
+	 */
+	public int add(Plane3 plane) {
+		return put(append(), plane.nx, plane.ny, plane.nz, plane.offset);
+	}
+
+	/**
+	 * Appends a plane to this buffer. The plane is specified by a point and a normal vector.
+	 * @param px the x coordinate of a point of the plane
+	 * @param py the y coordinate of a point of the plane
+	 * @param pz the z coordinate of a point of the plane
+	 * @param nx the x coordinate of the normal vector
+	 * @param ny the y coordinate of the normal vector
+	 * @param nz the z coordinate of the normal vector
+	 * @return the index of the plane
+	 * @throws IllegalArgumentException if the normal vector is too small
+	 */
+	public int add(double px, double py, double pz, double nx, double ny, double nz) {
+		double length=Math.sqrt(nx*nx+ny*ny+nz*nz);
+		if (length<EPS) throw new IllegalArgumentException("Badly specified plane (normal vector too small)");
+		nx/=length;
+		ny/=length;
+		nz/=length;
+		return put(append(), nx, ny, nz, nx*px+ny*py+nz*pz);
+	}
+
+	private int put(int base, double nx, double ny, double nz, double offset) {
+		double[] d=data;
+		d[base  ]=nx;
+		d[base+1]=ny;
+		d[base+2]=nz;
+		d[base+3]=offset;
+		return base/STRIDE;
+	}
+
+	/**
+	 * Replaces a plane of this buffer.
+	 * @param index the index of the plane
+	 * @param plane the new plane
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public void set(int index, Plane3 plane) {
+		put(base(index), plane.nx, plane.ny, plane.nz, plane.offset);
+	}
+
+	/**
+	 * Returns a plane of this buffer as a new object. The point of the returned plane is its point closest to the
+	 * origin, and its normal is of unit length.
+	 * @param index the index of the plane
+	 * @return the plane with the specified index
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public Plane3 get(int index) {
+		int base=base(index);
+		double[] d=data;
+		double nx=d[base], ny=d[base+1], nz=d[base+2], offset=d[base+3];
+		return new Plane3(ImmutableMatrixFactory.createVector(offset*nx, offset*ny, offset*nz),
+				ImmutableMatrixFactory.createVector(nx, ny, nz));
+	}
+
+	/**
+	 * Returns the signed distance between a plane and a point.
+	 * @param index the index of the plane
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the signed distance of {@code (x,y,z)} from the plane
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Plane3#signedDistance(double, double, double)
+	 */
+	public double signedDistance(int index, double x, double y, double z) {
+		int base=base(index);
+		double[] d=data;
+		return d[base]*x+d[base+1]*y+d[base+2]*z-d[base+3];
+	}
+
+	/**
+	 * Returns the distance between a plane and a point.
+	 * @param index the index of the plane
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from the plane
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Plane3#distance(double, double, double)
+	 */
+	public double distance(int index, double x, double y, double z) {
+		return Math.abs(signedDistance(index, x, y, z));
+	}
+
+	/**
+	 * Computes the signed distances of a point from all the planes of this buffer. The distance from the plane
+	 * with index {@code i} is stored in {@code result[offset+i]}.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @param result the array to store the distances in
+	 * @param offset the index in {@code result} where the distance from the first plane is stored
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@link #size()} values from {@code offset}
+	 */
+	public void signedDistances(double x, double y, double z, double[] result, int offset) {
+		checkOutput(result, offset);
+		double[] d=data;
+		int size=size();
+		for (int i=0; i<size; i++) {
+			int base=i*STRIDE;
+			result[offset+i]=d[base]*x+d[base+1]*y+d[base+2]*z-d[base+3];
+		}
+	}
+
+	/**
+	 * Returns the number of planes which have the specified point on the side their normal vector points to.
+	 * Points lying on a plane are not counted for that plane.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the number of planes the point is in front of
+	 */
+	public int countInFront(double x, double y, double z) {
+		double[] d=data;
+		int size=size();
+		int count=0;
+		for (int i=0; i<size; i++) {
+			int base=i*STRIDE;
+			count+=d[base]*x+d[base+1]*y+d[base+2]*z>d[base+3] ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * Transforms all the planes of this buffer in place. The normals are only normalized again if the
+	 * transformation is not rigid.
+	 * @param transform the transformation to apply
+	 * @see Transform3#transform(Plane3)
+	 */
+	public void transform(Transform3 transform) {
+		Transform3 t=transform;
+		double[] d=data;
+		int end=size()*STRIDE;
+		for (int base=0; base<end; base+=STRIDE) {
+			double x=d[base], y=d[base+1], z=d[base+2];
+			double nx=t.n00*x+t.n01*y+t.n02*z, ny=t.n10*x+t.n11*y+t.n12*z, nz=t.n20*x+t.n21*y+t.n22*z;
+			// the image of the point offset*N is on the plane with normal nx,ny,nz and this offset
+			double offset=d[base+3]+nx*t.tx+ny*t.ty+nz*t.tz;
+			double scale=t.rigid ? 1 : 1/Math.sqrt(nx*nx+ny*ny+nz*nz);
+			d[base  ]=nx*scale;
+			d[base+1]=ny*scale;
+			d[base+2]=nz*scale;
+			d[base+3]=offset*scale;
+		}
+	}
+}
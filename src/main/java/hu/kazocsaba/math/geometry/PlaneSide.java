@@ -0,0 +1,21 @@
+package hu.kazocsaba.math.geometry;
+
+/**
+ * The position of an object relative to a plane.
+ * @author Kazó Csaba
+ * @see Box3#classify(Plane3)
+ */
+public enum PlaneSide {
+	/**
+	 * The object is entirely on the side of the plane the normal vector points to.
+	 */
+	FRONT,
+	/**
+	 * The object is entirely on the side of the plane opposite to the normal vector.
+	 */
+	BACK,
+	/**
+	 * The object has points on both sides of the plane, or touches it.
+	 */
+	STRADDLING
+}
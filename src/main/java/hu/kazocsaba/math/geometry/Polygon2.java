@@ -0,0 +1,520 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A simple polygon in 2D space. The vertices are stored in a single array of coordinates, and the polygon has an
+ * edge from every vertex to the next one, and from the last vertex to the first. The vertices can be in either
+ * orientation; the sign of {@link #getSignedArea()} tells which. Instances are immutable.
+ * <p>
+ * The point-in-polygon test uses the even-odd rule and does not allocate memory. It checks every edge, so for
+ * polygons which are queried many times, {@link #indexed()} returns an equivalent polygon with a precomputed index
+ * of the edges which makes the test take time proportional to the number of edges near the point.
+ * @author Kazó Csaba
+ */
+public final class Polygon2 {
+	private static final double EPS=1e-8;
+	/**
+	 * The edge index has at most this many entries per edge.
+	 */
+	private static final int MAX_INDEX_ENTRIES=8;
+
+	// x0, y0, x1, y1, ...
+	private final double[] coords;
+	private final int vertexCount;
+	private final double signedArea, centroidX, centroidY;
+	private final double minX, minY, maxX, maxY;
+
+	/*
+	 * The edge index: the y extent of the polygon is divided into buckets of equal height, and bucket b lists
+	 * the edges whose y range overlaps it in bucketEdges[bucketStart[b]] ... bucketEdges[bucketStart[b+1]-1].
+	 * Horizontal edges are left out since they never cross a horizontal ray. There is a bucket per vertex, unless
+	 * the edges spanning many buckets would make the index too large; then the buckets are merged in pairs until it
+	 * has at most MAX_INDEX_ENTRIES entries per edge. Null if the polygon is not indexed.
+	 */
+	private final int[] bucketStart, bucketEdges;
+	private final double bucketHeight;
+
+	private Polygon2(double[] coords) {
+		this.coords=coords;
+		vertexCount=coords.length/2;
+		if (vertexCount<3) throw new IllegalArgumentException("A polygon must have at least three vertices");
+		double x0=coords[0], y0=coords[1];
+		double left=x0, bottom=y0, right=x0, top=y0;
+		double area2=0, cx=0, cy=0;
+		for (int i=0; i<vertexCount; i++) {
+			double x=coords[2*i], y=coords[2*i+1];
+			if (Double.isInfinite(x) || Double.isNaN(x) || Double.isInfinite(y) || Double.isNaN(y))
+				throw new IllegalArgumentException("Vertex with non-finite coordinates");
+			int j=i+1==vertexCount ? 0 : i+1;
+			double dx=coords[2*j]-x, dy=coords[2*j+1]-y;
+			if (dx*dx+dy*dy<EPS*EPS) throw new IllegalArgumentException("Consecutive vertices are too close to each other");
+			left=Math.min(left, x);
+			right=Math.max(right, x);
+			bottom=Math.min(bottom, y);
+			top=Math.max(top, y);
+			// relative to the first vertex, for precision far from the origin
+			double ax=x-x0, ay=y-y0, bx=coords[2*j]-x0, by=coords[2*j+1]-y0;
+			double cross=ax*by-bx*ay;
+			area2+=cross;
+			cx+=(ax+bx)*cross;
+			cy+=(ay+by)*cross;
+		}
+		signedArea=area2/2;
+		centroidX=area2==0 ? Double.NaN : x0+cx/(3*area2);
+		centroidY=area2==0 ? Double.NaN : y0+cy/(3*area2);
+		minX=left;
+		minY=bottom;
+		maxX=right;
+		maxY=top;
+		bucketStart=null;
+		bucketEdges=null;
+		bucketHeight=0;
+	}
+
+	/**
+	 * Creates an indexed copy of a polygon, sharing its vertices.
+	 */
+	private Polygon2(Polygon2 polygon) {
+		coords=polygon.coords;
+		vertexCount=polygon.vertexCount;
+		signedArea=polygon.signedArea;
+		centroidX=polygon.centroidX;
+		centroidY=polygon.centroidY;
+		minX=polygon.minX;
+		minY=polygon.minY;
+		maxX=polygon.maxX;
+		maxY=polygon.maxY;
+
+		int buckets=vertexCount;
+		double height;
+		while (true) {
+			height=(maxY-minY)/buckets;
+			long entries=0;
+			for (int i=0; i<vertexCount; i++) {
+				int j=i+1==vertexCount ? 0 : i+1;
+				double y1=coords[2*i+1], y2=coords[2*j+1];
+				if (y1!=y2)
+					entries+=bucket(Math.max(y1, y2), minY, height, buckets)-bucket(Math.min(y1, y2), minY, height, buckets)+1;
+			}
+			// this holds at the latest with a single bucket, which lists every edge at most once
+			if (entries<=(long)MAX_INDEX_ENTRIES*vertexCount) break;
+			buckets/=2;
+		}
+		bucketHeight=height;
+		// counting sort of the (bucket, edge) pairs
+		bucketStart=new int[buckets+1];
+		for (int i=0; i<vertexCount; i++) {
+			int j=i+1==vertexCount ? 0 : i+1;
+			double y1=coords[2*i+1], y2=coords[2*j+1];
+			if (y1==y2) continue;
+			int last=bucket(Math.max(y1, y2));
+			for (int b=bucket(Math.min(y1, y2)); b<=last; b++)
+				bucketStart[b+1]++;
+		}
+		for (int b=0; b<buckets; b++)
+			bucketStart[b+1]+=bucketStart[b];
+		bucketEdges=new int[bucketStart[buckets]];
+		int[] next=Arrays.copyOf(bucketStart, buckets);
+		for (int i=0; i<vertexCount; i++) {
+			int j=i+1==vertexCount ? 0 : i+1;
+			double y1=coords[2*i+1], y2=coords[2*j+1];
+			if (y1==y2) continue;
+			int last=bucket(Math.max(y1, y2));
+			for (int b=bucket(Math.min(y1, y2)); b<=last; b++)
+				bucketEdges[next[b]++]=i;
+		}
+	}
+
+	/**
+	 * Returns the bucket containing a y coordinate, clamped to the valid range.
+	 */
+	private int bucket(double y) {
+		return bucket(y, minY, bucketHeight, bucketStart.length-1);
+	}
+
+	private static int bucket(double y, double minY, double height, int buckets) {
+		int b=(int)((y-minY)/height);
+		return b<0 ? 0 : b>=buckets ? buckets-1 : b;
+	}
+
+	/**
+	 * Creates a new polygon.
+	 * @param vertices the vertices of the polygon, in order
+	 * @return the polygon with the specified vertices
+	 * @throws IllegalArgumentException if there are fewer than three vertices, a coordinate is infinite or NaN, or
+	 * two consecutive vertices (including the last and the first one) are closer than 1e-8
+	 */
+	public static Polygon2 create(List<? extends Vector2> vertices) {
+		double[] coords=new double[2*vertices.size()];
+		int i=0;
+		for (Vector2 v: vertices) {
+			coords[i++]=v.getX();
+			coords[i++]=v.getY();
+		}
+		return new Polygon2(coords);
+	}
+
+	/**
+	 * Creates a new polygon from packed coordinates. The coordinates of the {@code i}th vertex are
+	 * {@code coords[offset+2*i]} and {@code coords[offset+2*i+1]}. The coordinates are copied.
+	 * @param coords the array containing the coordinates
+	 * @param offset the index of the x coordinate of the first vertex
+	 * @param vertexCount the number of vertices
+	 * @return the polygon with the specified vertices
+	 * @throws IllegalArgumentException if there are fewer than three vertices, a coordinate is infinite or NaN, or
+	 * two consecutive vertices (including the last and the first one) are closer than 1e-8
+	 * @throws IndexOutOfBoundsException if the array does not contain the specified range
+	 */
+	public static Polygon2 create(double[] coords, int offset, int vertexCount) {
+		if (vertexCount<0) throw new IllegalArgumentException("Negative vertex count");
+		Batch.checkRange("coords", coords.length, offset, 2*vertexCount);
+		return new Polygon2(Arrays.copyOfRange(coords, offset, offset+2*vertexCount));
+	}
+
+	/**
+	 * Returns a polygon with the same vertices as this one and an index of its edges which speeds up
+	 * {@link #contains(double, double)}. The index takes memory proportional to the number of edges, and building
+	 * it takes time proportional to the number of edges times the logarithm of their count in the worst case; it
+	 * pays off for polygons tested against many points.
+	 * @return an indexed polygon equal to this one, or this polygon if it is already indexed
+	 */
+	public Polygon2 indexed() {
+		return bucketStart==null ? new Polygon2(this) : this;
+	}
+
+	/**
+	 * Returns whether this polygon has an index of its edges.
+	 * @return {@code true} if this polygon was returned by {@link #indexed()}
+	 */
+	public boolean isIndexed() {
+		return bucketStart!=null;
+	}
+
+	/**
+	 * Returns the number of vertices, which is also the number of edges.
+	 * @return the number of vertices
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns a vertex of this polygon.
+	 * @param index the index of the vertex
+	 * @return the vertex
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public ImmutableVector2 getVertex(int index) {
+		checkIndex(index);
+		return ImmutableMatrixFactory.createVector(coords[2*index], coords[2*index+1]);
+	}
+
+	/**
+	 * Returns the x coordinate of a vertex.
+	 * @param index the index of the vertex
+	 * @return the x coordinate of the vertex
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public double getX(int index) {
+		checkIndex(index);
+		return coords[2*index];
+	}
+
+	/**
+	 * Returns the y coordinate of a vertex.
+	 * @param index the index of the vertex
+	 * @return the y coordinate of the vertex
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public double getY(int index) {
+		checkIndex(index);
+		return coords[2*index+1];
+	}
+
+	/**
+	 * Copies the coordinates of the vertices into an array, x and y coordinates alternating.
+	 * @param result the array to store the coordinates in
+	 * @param offset the index of the x coordinate of the first vertex in {@code result}
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@code 2*getVertexCount()} values from
+	 * {@code offset}
+	 */
+	public void getCoords(double[] result, int offset) {
+		Batch.checkRange("result", result.length, offset, coords.length);
+		System.arraycopy(coords, 0, result, offset, coords.length);
+	}
+
+	private void checkIndex(int index) {
+		if (index<0 || index>=vertexCount) throw new IndexOutOfBoundsException("Invalid vertex index: "+index);
+	}
+
+	/**
+	 * Returns an edge of this polygon. Edge {@code i} goes from vertex {@code i} to the next vertex.
+	 * @param index the index of the edge
+	 * @return the edge as a new segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public Segment2 getEdge(int index) {
+		checkIndex(index);
+		int next=index+1==vertexCount ? 0 : index+1;
+		return new Segment2(ImmutableMatrixFactory.createVector(coords[2*index], coords[2*index+1]),
+				ImmutableMatrixFactory.createVector(coords[2*next], coords[2*next+1]));
+	}
+
+	/**
+	 * Returns the edges of this polygon. The list is a view: the coordinates are not copied, and the segments are
+	 * created when they are retrieved from the list.
+	 * @return an unmodifiable list of the edges
+	 * @see #getEdge(int)
+	 */
+	public List<Segment2> getEdges() {
+		return new EdgeList();
+	}
+
+	private final class EdgeList extends AbstractList<Segment2> implements RandomAccess {
+		@Override
+		public Segment2 get(int index) {
+			return getEdge(index);
+		}
+
+		@Override
+		public int size() {
+			return vertexCount;
+		}
+	}
+
+	/**
+	 * Returns the signed area of this polygon.
+	 * @return the area, positive if the vertices are in counterclockwise order and negative otherwise
+	 */
+	public double getSignedArea() {
+		return signedArea;
+	}
+
+	/**
+	 * Returns the area of this polygon.
+	 * @return the area
+	 */
+	public double getArea() {
+		return Math.abs(signedArea);
+	}
+
+	/**
+	 * Returns the centroid (center of mass) of this polygon.
+	 * @return the centroid of the area of the polygon
+	 * @throws DegenerateCaseException if the area of the polygon is zero
+	 */
+	public ImmutableVector2 getCentroid() {
+		if (Double.isNaN(centroidX)) throw new DegenerateCaseException("Polygon has zero area");
+		return ImmutableMatrixFactory.createVector(centroidX, centroidY);
+	}
+
+	/**
+	 * Decides whether a point is inside this polygon. Points on the boundary may be classified either way.
+	 * @param p the point
+	 * @return {@code true} if the point is inside the polygon
+	 */
+	public boolean contains(Vector2 p) {
+		return contains(p.getX(), p.getY());
+	}
+
+	/**
+	 * Decides whether a point is inside this polygon, using the even-odd rule: the point is inside if a ray
+	 * starting from it crosses the boundary an odd number of times. Points on the boundary may be classified
+	 * either way. This method does not allocate memory.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return {@code true} if the point is inside the polygon
+	 */
+	public boolean contains(double x, double y) {
+		if (!(x>=minX && x<=maxX && y>=minY && y<=maxY)) return false;
+		double[] c=coords;
+		boolean inside=false;
+		if (bucketStart==null) {
+			double xj=c[c.length-2], yj=c[c.length-1];
+			for (int i=0; i<c.length; i+=2) {
+				double xi=c[i], yi=c[i+1];
+				// the edge crosses the horizontal ray to the right of the point
+				if ((yi>y)!=(yj>y) && x<xi+(xj-xi)*(y-yi)/(yj-yi)) inside=!inside;
+				xj=xi;
+				yj=yi;
+			}
+		} else {
+			int b=bucket(y);
+			for (int k=bucketStart[b], end=bucketStart[b+1]; k<end; k++) {
+				int i=2*bucketEdges[k];
+				int j=i+2==c.length ? 0 : i+2;
+				double xi=c[i], yi=c[i+1], xj=c[j], yj=c[j+1];
+				if ((yi>y)!=(yj>y) && x<xi+(xj-xi)*(y-yi)/(yj-yi)) inside=!inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Decides for a set of points whether they are inside this polygon. The coordinates of the {@code i}th point
+	 * are {@code (xs[offset+i], ys[offset+i])}, and the result is stored in {@code result[resultOffset+i]}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the results in
+	 * @param resultOffset the index in {@code result} where the result for the first point is stored
+	 * @return the number of points inside the polygon
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see #contains(double, double)
+	 */
+	public int contains(double[] xs, double[] ys, int offset, int length, boolean[] result, int resultOffset) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("result", result.length, resultOffset, length);
+		int count=0;
+		for (int i=0; i<length; i++) {
+			boolean inside=contains(xs[offset+i], ys[offset+i]);
+			result[resultOffset+i]=inside;
+			if (inside) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Computes the parameter values where a line crosses the boundary of this polygon. The values are stored in
+	 * increasing order, so the line is inside the polygon between the first and the second value, between the
+	 * third and the fourth, and so on. The number of values is even, and at most the number of vertices. This
+	 * method does not allocate memory.
+	 * @param line the line
+	 * @param result the array to store the parameter values in
+	 * @param offset the index in {@code result} where the first value is stored
+	 * @return the number of values stored
+	 * @throws IndexOutOfBoundsException if the values do not fit into {@code result}
+	 * @see Line2#getPointAt(double)
+	 */
+	public int intersect(Line2 line, double[] result, int offset) {
+		double px=line.px, py=line.py, dx=line.dx, dy=line.dy;
+		double[] c=coords;
+		int count=0;
+		double xj=c[c.length-2], yj=c[c.length-1];
+		// the side of a vertex is whether it is strictly left of the line; zero counts as right, so that a line
+		// through a vertex is handled consistently by its two edges
+		double sj=dx*(yj-py)-dy*(xj-px);
+		for (int i=0; i<c.length; i+=2) {
+			double xi=c[i], yi=c[i+1];
+			double si=dx*(yi-py)-dy*(xi-px);
+			if ((si>0)!=(sj>0)) {
+				double u=sj/(sj-si);
+				double x=xj+u*(xi-xj), y=yj+u*(yi-yj);
+				result[offset+count++]=((x-px)*dx+(y-py)*dy)/line.dirNormSquare;
+			}
+			xj=xi;
+			yj=yi;
+			sj=si;
+		}
+		Arrays.sort(result, offset, offset+count);
+		return count;
+	}
+
+	/**
+	 * Returns the parts of a line which are inside this polygon. Parts shorter than 1e-8 are omitted.
+	 * @param line the line
+	 * @return the segments of the line inside the polygon, in the order of the line
+	 */
+	public List<Segment2> intersect(Line2 line) {
+		double[] t=new double[vertexCount];
+		int count=intersect(line, t, 0);
+		if (count==0) return Collections.emptyList();
+		double length=Math.sqrt(line.dirNormSquare);
+		List<Segment2> result=new ArrayList<Segment2>(count/2);
+		for (int i=0; i<count; i+=2)
+			if ((t[i+1]-t[i])*length>=EPS)
+				result.add(new Segment2(line.getPointAt(t[i]), line.getPointAt(t[i+1])));
+		return result;
+	}
+
+	/**
+	 * Clips this polygon against a box using the Sutherland-Hodgman algorithm. If this polygon is not convex and
+	 * the intersection has multiple parts, they are returned as a single polygon connected by edges along the
+	 * sides of the box.
+	 * @param box the box
+	 * @return the part of this polygon inside the box, or {@code null} if the intersection has no area
+	 */
+	public Polygon2 clip(Box2 box) {
+		double[] a=coords, b=null;
+		int n=vertexCount;
+		for (int plane=0; plane<4; plane++) {
+			// a clipping plane adds at most one vertex per two crossing edges
+			if (b==null || b.length<3*n+2) b=new double[3*n+2];
+			n=clip(a, n, b, plane/2, plane==0 ? box.minX : plane==1 ? box.maxX : plane==2 ? box.minY : box.maxY, plane%2==1);
+			double[] swap=a;
+			a=b;
+			b=swap==coords ? null : swap;
+		}
+		if (b==null || b.length<2*n) b=new double[2*n];
+
+		// drop the vertices which coincide with the previous one
+		int m=0;
+		for (int i=0; i<n; i++) {
+			double x=a[2*i], y=a[2*i+1];
+			if (m>0) {
+				double ex=x-b[2*m-2], ey=y-b[2*m-1];
+				if (ex*ex+ey*ey<EPS*EPS) continue;
+			}
+			b[2*m]=x;
+			b[2*m+1]=y;
+			m++;
+		}
+		while (m>1) {
+			double ex=b[0]-b[2*m-2], ey=b[1]-b[2*m-1];
+			if (ex*ex+ey*ey>=EPS*EPS) break;
+			m--;
+		}
+		if (m<3) return null;
+		Polygon2 result=new Polygon2(Arrays.copyOf(b, 2*m));
+		if (Math.abs(result.signedArea)<EPS*EPS) return null;
+		return result;
+	}
+
+	/**
+	 * Clips a polygon against the half-plane where the specified coordinate is at least (or at most) a bound.
+	 * @return the number of vertices of the clipped polygon
+	 */
+	private static int clip(double[] in, int n, double[] out, int axis, double bound, boolean below) {
+		int m=0;
+		if (n==0) return 0;
+		int other=1-axis;
+		double prevCoord=in[2*(n-1)+axis], prevOther=in[2*(n-1)+other];
+		boolean prevInside=below ? prevCoord<=bound : prevCoord>=bound;
+		for (int i=0; i<n; i++) {
+			double coord=in[2*i+axis], otherCoord=in[2*i+other];
+			boolean inside=below ? coord<=bound : coord>=bound;
+			if (inside!=prevInside) {
+				// the point where the edge crosses the boundary
+				double u=(bound-prevCoord)/(coord-prevCoord);
+				out[2*m+axis]=bound;
+				out[2*m+other]=prevOther+u*(otherCoord-prevOther);
+				m++;
+			}
+			if (inside) {
+				out[2*m+axis]=coord;
+				out[2*m+other]=otherCoord;
+				m++;
+			}
+			prevCoord=coord;
+			prevOther=otherCoord;
+			prevInside=inside;
+		}
+		return m;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Polygon[%d vertices, area %s]", vertexCount, getArea());
+	}
+}
@@ -0,0 +1,308 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+import java.math.BigDecimal;
+
+/**
+ * Exact geometric predicates. Each method returns the sign of a determinant or dot product of its arguments as
+ * if it were computed without rounding, so the answers are consistent with each other even for nearly degenerate
+ * inputs and large coordinates. The value is first computed with plain floating point arithmetic together with a
+ * bound on its rounding error; only if the bound does not decide the sign is it recomputed exactly, from the
+ * rounding errors of the individual operations (Shewchuk's floating point expansions). The 3D orientation test
+ * falls back to {@link BigDecimal} arithmetic instead, unless its floating point evaluation turns out to be free of
+ * rounding, which is typical of exactly degenerate inputs. The exact paths are slower, but they are only taken
+ * for inputs that are degenerate or very close to it.
+ * <p>
+ * The arguments must be finite; the results are guaranteed as long as no product of coordinates overflows or
+ * underflows.
+ * @author Kazó Csaba
+ */
+public final class Predicates {
+	/**
+	 * Half the distance between 1 and the next double: the relative error of a single operation.
+	 */
+	private static final double U=0x1p-53;
+	// the error bounds of the floating point evaluations relative to the sum of the absolute values of the terms
+	private static final double ORIENT2D_BOUND=(3+16*U)*U;
+	private static final double ORIENT3D_BOUND=(7+56*U)*U;
+	private static final double DOT3_BOUND=(4+32*U)*U;
+	/**
+	 * Multiplying by this splits a double into two halves whose products are exact.
+	 */
+	private static final double SPLITTER=0x1p27+1;
+
+	private Predicates() {}
+
+	/**
+	 * Returns the orientation of three points in the plane.
+	 * @param ax the x coordinate of {@code a}
+	 * @param ay the y coordinate of {@code a}
+	 * @param bx the x coordinate of {@code b}
+	 * @param by the y coordinate of {@code b}
+	 * @param cx the x coordinate of {@code c}
+	 * @param cy the y coordinate of {@code c}
+	 * @return 1 if {@code a}, {@code b} and {@code c} are in counterclockwise order, -1 if they are in clockwise
+	 * order, and 0 if they are collinear
+	 */
+	public static int orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+		double acx=ax-cx, bcy=by-cy, acy=ay-cy, bcx=bx-cx;
+		double left=acx*bcy;
+		double right=acy*bcx;
+		double det=left-right;
+		// strict comparisons leave a zero bound (all terms zero, or underflow) to the exact computation
+		double bound=ORIENT2D_BOUND*(Math.abs(left)+Math.abs(right));
+		if (det>bound) return 1;
+		if (-det>bound) return -1;
+		return orient2dExact(ax, ay, bx, by, cx, cy);
+	}
+
+	// the slow paths are separate methods, so that the filters are small enough to be inlined
+	private static int orient2dExact(double ax, double ay, double bx, double by, double cx, double cy) {
+		double acx=ax-cx, bcy=by-cy, acy=ay-cy, bcx=bx-cx;
+		double acxTail=differenceError(ax, cx, acx), bcyTail=differenceError(by, cy, bcy);
+		double acyTail=differenceError(ay, cy, acy), bcxTail=differenceError(bx, cx, bcx);
+		// (acx+acxTail)*(bcy+bcyTail)-(acy+acyTail)*(bcx+bcxTail), expanded into exact terms
+		double[] terms=new double[16];
+		int count=product(acx, bcy, terms, 0);
+		count=product(acx, bcyTail, terms, count);
+		count=product(acxTail, bcy, terms, count);
+		count=product(acxTail, bcyTail, terms, count);
+		count=product(-acy, bcx, terms, count);
+		count=product(-acy, bcxTail, terms, count);
+		count=product(-acyTail, bcx, terms, count);
+		count=product(-acyTail, bcxTail, terms, count);
+		return signOfSum(terms, count);
+	}
+
+	/**
+	 * Returns the position of a point relative to the plane through three other points.
+	 * @param ax the x coordinate of {@code a}
+	 * @param ay the y coordinate of {@code a}
+	 * @param az the z coordinate of {@code a}
+	 * @param bx the x coordinate of {@code b}
+	 * @param by the y coordinate of {@code b}
+	 * @param bz the z coordinate of {@code b}
+	 * @param cx the x coordinate of {@code c}
+	 * @param cy the y coordinate of {@code c}
+	 * @param cz the z coordinate of {@code c}
+	 * @param dx the x coordinate of {@code d}
+	 * @param dy the y coordinate of {@code d}
+	 * @param dz the z coordinate of {@code d}
+	 * @return 1 if {@code d} is on the side of the plane that {@code (b-a)x(c-a)} points to, -1 if it is on the
+	 * other side, and 0 if the four points are coplanar
+	 */
+	public static int orient3d(double ax, double ay, double az, double bx, double by, double bz,
+			double cx, double cy, double cz, double dx, double dy, double dz) {
+		double adx=ax-dx, ady=ay-dy, adz=az-dz;
+		double bdx=bx-dx, bdy=by-dy, bdz=bz-dz;
+		double cdx=cx-dx, cdy=cy-dy, cdz=cz-dz;
+		double bdxcdy=bdx*cdy, cdxbdy=cdx*bdy;
+		double cdxady=cdx*ady, adxcdy=adx*cdy;
+		double adxbdy=adx*bdy, bdxady=bdx*ady;
+		// (a-d).((b-d)x(c-d)), which is positive if d is on the other side
+		double det=adz*(bdxcdy-cdxbdy)+bdz*(cdxady-adxcdy)+cdz*(adxbdy-bdxady);
+		double bound=ORIENT3D_BOUND*((Math.abs(bdxcdy)+Math.abs(cdxbdy))*Math.abs(adz)
+				+(Math.abs(cdxady)+Math.abs(adxcdy))*Math.abs(bdz)
+				+(Math.abs(adxbdy)+Math.abs(bdxady))*Math.abs(cdz));
+		if (det>bound) return -1;
+		if (-det>bound) return 1;
+		return orient3dExact(ax, ay, az, bx, by, bz, cx, cy, cz, dx, dy, dz);
+	}
+
+	private static int orient3dExact(double ax, double ay, double az, double bx, double by, double bz,
+			double cx, double cy, double cz, double dx, double dy, double dz) {
+		double adx=ax-dx, ady=ay-dy, adz=az-dz;
+		double bdx=bx-dx, bdy=by-dy, bdz=bz-dz;
+		double cdx=cx-dx, cdy=cy-dy, cdz=cz-dz;
+		double bdxcdy=bdx*cdy, cdxbdy=cdx*bdy;
+		double cdxady=cdx*ady, adxcdy=adx*cdy;
+		double adxbdy=adx*bdy, bdxady=bdx*ady;
+		if (differenceError(ax, dx, adx)==0 && differenceError(ay, dy, ady)==0 && differenceError(az, dz, adz)==0
+				&& differenceError(bx, dx, bdx)==0 && differenceError(by, dy, bdy)==0 && differenceError(bz, dz, bdz)==0
+				&& differenceError(cx, dx, cdx)==0 && differenceError(cy, dy, cdy)==0 && differenceError(cz, dz, cdz)==0
+				&& productError(bdx, cdy, bdxcdy)==0 && productError(cdx, bdy, cdxbdy)==0
+				&& productError(cdx, ady, cdxady)==0 && productError(adx, cdy, adxcdy)==0
+				&& productError(adx, bdy, adxbdy)==0 && productError(bdx, ady, bdxady)==0) {
+			double minorA=bdxcdy-cdxbdy, minorB=cdxady-adxcdy, minorC=adxbdy-bdxady;
+			double termA=adz*minorA, termB=bdz*minorB, termC=cdz*minorC, sum=termA+termB, det=sum+termC;
+			if (differenceError(bdxcdy, cdxbdy, minorA)==0 && differenceError(cdxady, adxcdy, minorB)==0
+					&& differenceError(adxbdy, bdxady, minorC)==0
+					&& productError(adz, minorA, termA)==0 && productError(bdz, minorB, termB)==0
+					&& productError(cdz, minorC, termC)==0
+					&& sumError(termA, termB, sum)==0 && sumError(sum, termC, det)==0)
+				return -sign(det);
+		}
+		BigDecimal eadx=exact(ax).subtract(exact(dx)), eady=exact(ay).subtract(exact(dy)), eadz=exact(az).subtract(exact(dz));
+		BigDecimal ebdx=exact(bx).subtract(exact(dx)), ebdy=exact(by).subtract(exact(dy)), ebdz=exact(bz).subtract(exact(dz));
+		BigDecimal ecdx=exact(cx).subtract(exact(dx)), ecdy=exact(cy).subtract(exact(dy)), ecdz=exact(cz).subtract(exact(dz));
+		return -eadz.multiply(ebdx.multiply(ecdy).subtract(ecdx.multiply(ebdy)))
+				.add(ebdz.multiply(ecdx.multiply(eady).subtract(eadx.multiply(ecdy))))
+				.add(ecdz.multiply(eadx.multiply(ebdy).subtract(ebdx.multiply(eady)))).signum();
+	}
+
+	/**
+	 * Returns the side of a line that a point is on.
+	 * @param line the line
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return 1 if the point is on the left of the line when looking in the direction of the line, -1 if it is on
+	 * the right, and 0 if it lies on the line
+	 */
+	public static int sideOfLine(Line2 line, double x, double y) {
+		return sideOfLine(line.px, line.py, line.dx, line.dy, x, y);
+	}
+
+	/**
+	 * Returns the sign of {@code (dx,dy)x(x-px,y-py)}: the side of the line {@code (px,py)+t*(dx,dy)} that
+	 * the point {@code (x,y)} is on.
+	 */
+	static int sideOfLine(double px, double py, double dx, double dy, double x, double y) {
+		double ry=y-py, rx=x-px;
+		double left=dx*ry;
+		double right=dy*rx;
+		double det=left-right;
+		// a single subtraction in each product: the bound of orient2d holds
+		double bound=ORIENT2D_BOUND*(Math.abs(left)+Math.abs(right));
+		if (det>bound) return 1;
+		if (-det>bound) return -1;
+		return sideOfLineExact(px, py, dx, dy, x, y);
+	}
+
+	private static int sideOfLineExact(double px, double py, double dx, double dy, double x, double y) {
+		double ry=y-py, rx=x-px;
+		double ryTail=differenceError(y, py, ry), rxTail=differenceError(x, px, rx);
+		double[] terms=new double[8];
+		int count=product(dx, ry, terms, 0);
+		count=product(dx, ryTail, terms, count);
+		count=product(-dy, rx, terms, count);
+		count=product(-dy, rxTail, terms, count);
+		return signOfSum(terms, count);
+	}
+
+	/**
+	 * Returns the side of a plane that a point is on. The result is exact for the point and the normal vector
+	 * specifying the plane.
+	 * @param plane the plane
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return 1 if the point is on the side of the plane that its normal vector points to, -1 if it is on the
+	 * other side, and 0 if it lies in the plane
+	 */
+	public static int sideOfPlane(Plane3 plane, double x, double y, double z) {
+		ImmutableVector3 p=plane.getPoint();
+		return sideOfPlane(p.getX(), p.getY(), p.getZ(), plane.normalX, plane.normalY, plane.normalZ, x, y, z);
+	}
+
+	/**
+	 * Returns the sign of {@code (nx,ny,nz).((x,y,z)-(px,py,pz))}: the side of the plane through {@code (px,py,pz)}
+	 * with normal {@code (nx,ny,nz)} that the point {@code (x,y,z)} is on.
+	 */
+	static int sideOfPlane(double px, double py, double pz, double nx, double ny, double nz, double x, double y, double z) {
+		double rx=x-px, ry=y-py, rz=z-pz;
+		double tx=nx*rx, ty=ny*ry, tz=nz*rz;
+		double partial=tx+ty, sum=partial+tz;
+		double bound=DOT3_BOUND*(Math.abs(tx)+Math.abs(ty)+Math.abs(tz));
+		if (sum>bound) return 1;
+		if (-sum>bound) return -1;
+		return sideOfPlaneExact(px, py, pz, nx, ny, nz, x, y, z);
+	}
+
+	private static int sideOfPlaneExact(double px, double py, double pz, double nx, double ny, double nz, double x, double y, double z) {
+		double rx=x-px, ry=y-py, rz=z-pz;
+		double[] terms=new double[12];
+		int count=product(nx, rx, terms, 0);
+		count=product(nx, differenceError(x, px, rx), terms, count);
+		count=product(ny, ry, terms, count);
+		count=product(ny, differenceError(y, py, ry), terms, count);
+		count=product(nz, rz, terms, count);
+		count=product(nz, differenceError(z, pz, rz), terms, count);
+		return signOfSum(terms, count);
+	}
+
+	/**
+	 * Returns the sign of the dot product of two vectors. For example, a line is parallel with a plane if the dot
+	 * product of its direction and the normal of the plane is zero.
+	 * @param ax the x coordinate of the first vector
+	 * @param ay the y coordinate of the first vector
+	 * @param az the z coordinate of the first vector
+	 * @param bx the x coordinate of the second vector
+	 * @param by the y coordinate of the second vector
+	 * @param bz the z coordinate of the second vector
+	 * @return 1 if the vectors are at an acute angle, -1 if they are at an obtuse angle, and 0 if they are
+	 * perpendicular
+	 */
+	public static int signOfDot(double ax, double ay, double az, double bx, double by, double bz) {
+		return sideOfPlane(0, 0, 0, ax, ay, az, bx, by, bz);
+	}
+
+	private static int sign(double value) {
+		return value>0 ? 1 : value<0 ? -1 : 0;
+	}
+
+	/**
+	 * Stores {@code a*b} exactly, as its rounded value and rounding error, in {@code terms}.
+	 * @return the index after the stored values
+	 */
+	private static int product(double a, double b, double[] terms, int index) {
+		double product=a*b;
+		terms[index]=product;
+		terms[index+1]=productError(a, b, product);
+		return index+2;
+	}
+
+	/**
+	 * Returns the sign of the exact sum of some values. The sum is accumulated as an expansion: a sequence of
+	 * non-overlapping values of increasing magnitude whose sum is exact, so its sign is the sign of its last
+	 * element (Shewchuk's Grow-Expansion with zero elimination).
+	 */
+	private static int signOfSum(double[] terms, int count) {
+		double[] expansion=new double[count];
+		int length=0;
+		for (int i=0; i<count; i++) {
+			double q=terms[i];
+			int k=0;
+			for (int j=0; j<length; j++) {
+				double e=expansion[j], sum=q+e, error=sumError(q, e, sum);
+				q=sum;
+				if (error!=0) expansion[k++]=error;
+			}
+			if (q!=0) expansion[k++]=q;
+			length=k;
+		}
+		return length==0 ? 0 : sign(expansion[length-1]);
+	}
+
+	/**
+	 * Returns the rounding error of {@code a+b}, given its computed value {@code sum}: the exact sum is
+	 * {@code sum} plus the returned value.
+	 */
+	private static double sumError(double a, double b, double sum) {
+		double bVirtual=sum-a, aVirtual=sum-bVirtual;
+		return (a-aVirtual)+(b-bVirtual);
+	}
+
+	/**
+	 * Returns the rounding error of {@code a-b}, given its computed value {@code difference}.
+	 */
+	private static double differenceError(double a, double b, double difference) {
+		double bVirtual=a-difference, aVirtual=difference+bVirtual;
+		return (a-aVirtual)+(bVirtual-b);
+	}
+
+	/**
+	 * Returns the rounding error of {@code a*b}, given its computed value {@code product}. The factors are split
+	 * into halves of 26 bits (Dekker's algorithm); the result is not exact if the product overflows.
+	 */
+	private static double productError(double a, double b, double product) {
+		double c=SPLITTER*a, aHigh=c-(c-a), aLow=a-aHigh;
+		c=SPLITTER*b;
+		double bHigh=c-(c-b), bLow=b-bHigh;
+		return aLow*bLow-(((product-aHigh*bHigh)-aLow*bHigh)-aHigh*bLow);
+	}
+
+	private static BigDecimal exact(double value) {
+		// the conversion is exact, and so are the sums and products of such values
+		return new BigDecimal(value);
+	}
+}
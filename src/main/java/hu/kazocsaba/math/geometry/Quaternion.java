@@ -0,0 +1,246 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+
+/**
+ * A rotation around an axis through the origin, represented by a unit quaternion {@code w+xi+yj+zk}. The
+ * quaternion of the rotation by angle {@code a} around the unit vector {@code u} is
+ * {@code cos(a/2)+sin(a/2)*u}; the rotation is counterclockwise when viewed from the direction {@code u} points to,
+ * as in {@link Line3#getRotation(double)}. Instances are immutable.
+ * <p>
+ * A quaternion stores the sine and cosine of the angle, so rotating with it does not evaluate trigonometric
+ * functions, and it can be reused for any number of points.
+ * @author Kazó Csaba
+ */
+public final class Quaternion {
+	private static final double EPS=1e-8;
+	private static final Quaternion IDENTITY=new Quaternion(1, 0, 0, 0);
+
+	private final double w, x, y, z;
+
+	private Quaternion(double w, double x, double y, double z) {
+		this.w=w;
+		this.x=x;
+		this.y=y;
+		this.z=z;
+	}
+
+	/**
+	 * Creates a quaternion from its components, normalizing it to unit length.
+	 * @param w the real part
+	 * @param x the coefficient of {@code i}
+	 * @param y the coefficient of {@code j}
+	 * @param z the coefficient of {@code k}
+	 * @return the unit quaternion with the same direction as {@code w+xi+yj+zk}
+	 * @throws IllegalArgumentException if the length of the quaternion is too small
+	 */
+	public static Quaternion create(double w, double x, double y, double z) {
+		double length=Math.sqrt(w*w+x*x+y*y+z*z);
+		if (!(length>=EPS)) throw new IllegalArgumentException("Quaternion is too small");
+		return new Quaternion(w/length, x/length, y/length, z/length);
+	}
+
+	/**
+	 * Returns the quaternion of the identity rotation.
+	 * @return the quaternion {@code 1}
+	 */
+	public static Quaternion identity() {
+		return IDENTITY;
+	}
+
+	/**
+	 * Creates the quaternion of a rotation around an axis through the origin.
+	 * @param axis the direction of the axis; need not be unit length
+	 * @param angle the angle in radians
+	 * @return the rotation around {@code axis} by {@code angle}
+	 * @throws IllegalArgumentException if the axis vector is too small
+	 */
+	public static Quaternion createRotation(Vector3 axis, double angle) {
+		double ax=axis.getX(), ay=axis.getY(), az=axis.getZ();
+		double length=Math.sqrt(ax*ax+ay*ay+az*az);
+		if (length<EPS) throw new IllegalArgumentException("Axis vector is too small");
+		double s=Math.sin(angle/2)/length;
+		return new Quaternion(Math.cos(angle/2), ax*s, ay*s, az*s);
+	}
+
+	/**
+	 * Creates the quaternion of a rotation around the direction of a line. The rotation is the same as
+	 * {@link Line3#getRotation(double)}; like that matrix, it rotates around the parallel axis through the origin.
+	 * To rotate around the line itself, use {@link #toTransform(Line3)}.
+	 * @param axis the line whose direction is the axis
+	 * @param angle the angle in radians
+	 * @return the rotation around the direction of {@code axis} by {@code angle}
+	 */
+	public static Quaternion createRotation(Line3 axis, double angle) {
+		double s=Math.sin(angle/2)/Math.sqrt(axis.dirNormSquare);
+		return new Quaternion(Math.cos(angle/2), axis.dx*s, axis.dy*s, axis.dz*s);
+	}
+
+	/**
+	 * Returns the real part of this quaternion.
+	 * @return {@code w}
+	 */
+	public double getW() {return w;}
+	/**
+	 * Returns the coefficient of {@code i}.
+	 * @return {@code x}
+	 */
+	public double getX() {return x;}
+	/**
+	 * Returns the coefficient of {@code j}.
+	 * @return {@code y}
+	 */
+	public double getY() {return y;}
+	/**
+	 * Returns the coefficient of {@code k}.
+	 * @return {@code z}
+	 */
+	public double getZ() {return z;}
+
+	/**
+	 * Returns the angle of this rotation.
+	 * @return the angle in radians, between 0 and {@code 2*PI}
+	 */
+	public double getAngle() {
+		return 2*Math.atan2(Math.sqrt(x*x+y*y+z*z), w);
+	}
+
+	/**
+	 * Returns the axis of this rotation. For the identity, the axis is arbitrary.
+	 * @return the unit vector around which this quaternion rotates by {@link #getAngle()}
+	 */
+	public ImmutableVector3 getAxis() {
+		double length=Math.sqrt(x*x+y*y+z*z);
+		if (length==0) return ImmutableMatrixFactory.createVector(1, 0, 0);
+		return ImmutableMatrixFactory.createVector(x/length, y/length, z/length);
+	}
+
+	/**
+	 * Returns the rotation which applies this rotation first, and then the argument.
+	 * @param next the rotation to apply after this one
+	 * @return the quaternion product {@code next*this}
+	 */
+	public Quaternion then(Quaternion next) {
+		double a=next.w, b=next.x, c=next.y, d=next.z;
+		// renormalized so that rounding errors do not accumulate in long products
+		return create(
+				a*w-b*x-c*y-d*z,
+				a*x+b*w+c*z-d*y,
+				a*y-b*z+c*w+d*x,
+				a*z+b*y-c*x+d*w);
+	}
+
+	/**
+	 * Returns the inverse of this rotation.
+	 * @return the conjugate of this quaternion
+	 */
+	public Quaternion inverse() {
+		return new Quaternion(w, -x, -y, -z);
+	}
+
+	/**
+	 * Interpolates between this rotation and another one along the shortest arc (spherical linear interpolation).
+	 * The angular velocity of the interpolation is constant.
+	 * @param to the rotation at {@code t=1}
+	 * @param t the interpolation parameter; 0 gives this rotation, 1 gives {@code to}
+	 * @return the interpolated rotation
+	 */
+	public Quaternion slerp(Quaternion to, double t) {
+		double tw=to.w, tx=to.x, ty=to.y, tz=to.z;
+		double dot=w*tw+x*tx+y*ty+z*tz;
+		// q and -q are the same rotation; the shorter arc is the one with a positive dot product
+		if (dot<0) {
+			dot=-dot;
+			tw=-tw;
+			tx=-tx;
+			ty=-ty;
+			tz=-tz;
+		}
+		double a, b;
+		if (dot>1-EPS) {
+			// nearly the same rotation: linear interpolation, normalized by create
+			a=1-t;
+			b=t;
+		} else {
+			double theta=Math.acos(dot);
+			double sin=Math.sin(theta);
+			a=Math.sin((1-t)*theta)/sin;
+			b=Math.sin(t*theta)/sin;
+		}
+		return create(a*w+b*tw, a*x+b*tx, a*y+b*ty, a*z+b*tz);
+	}
+
+	/**
+	 * Returns the rotation matrix of this quaternion.
+	 * @return the matrix {@code R} for which {@code R*v} is the rotated {@code v}
+	 */
+	public Matrix3 getMatrix() {
+		double[][] m=new double[3][3];
+		m[0][0]=1-2*(y*y+z*z); m[0][1]=2*(x*y-w*z);   m[0][2]=2*(x*z+w*y);
+		m[1][0]=2*(x*y+w*z);   m[1][1]=1-2*(x*x+z*z); m[1][2]=2*(y*z-w*x);
+		m[2][0]=2*(x*z-w*y);   m[2][1]=2*(y*z+w*x);   m[2][2]=1-2*(x*x+y*y);
+		return MatrixFactory.createMatrix3(m);
+	}
+
+	/**
+	 * Returns the rigid transformation rotating around a line by this rotation. The direction of the line is
+	 * ignored, only its point is used as the center of the rotation.
+	 * @param center a line through the center of the rotation
+	 * @return the transformation mapping {@code X} to {@code R*(X-P)+P}, where {@code P} is the point of the line
+	 */
+	public Transform3 toTransform(Line3 center) {
+		Matrix3 r=getMatrix();
+		Vector3 p=center.getPoint();
+		return Transform3.createRigid(r, p.minus(r.mul(p)));
+	}
+
+	/**
+	 * Rotates a vector.
+	 * @param v the vector to rotate
+	 * @return the rotated vector
+	 */
+	public Vector3 rotate(Vector3 v) {
+		double vx=v.getX(), vy=v.getY(), vz=v.getZ();
+		// v + 2*w*(q x v) + 2*q x (q x v), with q the vector part
+		double cx=2*(y*vz-z*vy), cy=2*(z*vx-x*vz), cz=2*(x*vy-y*vx);
+		return MatrixFactory.createVector(
+				vx+w*cx+y*cz-z*cy,
+				vy+w*cy+z*cx-x*cz,
+				vz+w*cz+x*cy-y*cx);
+	}
+
+	/**
+	 * Rotates a set of points around the origin in place. The coordinates of the {@code i}th point are
+	 * {@code (xs[offset+i], ys[offset+i], zs[offset+i])}. The rotation matrix is computed once, so each point
+	 * takes nine multiplications.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @throws IndexOutOfBoundsException if the specified range is not valid for the arrays
+	 */
+	public void rotate(double[] xs, double[] ys, double[] zs, int offset, int length) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		double m00=1-2*(y*y+z*z), m01=2*(x*y-w*z),   m02=2*(x*z+w*y);
+		double m10=2*(x*y+w*z),   m11=1-2*(x*x+z*z), m12=2*(y*z-w*x);
+		double m20=2*(x*z-w*y),   m21=2*(y*z+w*x),   m22=1-2*(x*x+y*y);
+		for (int i=offset; i<offset+length; i++) {
+			double px=xs[i], py=ys[i], pz=zs[i];
+			xs[i]=m00*px+m01*py+m02*pz;
+			ys[i]=m10*px+m11*py+m12*pz;
+			zs[i]=m20*px+m21*py+m22*pz;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Quaternion[%s + %si + %sj + %sk]", w, x, y, z);
+	}
+}
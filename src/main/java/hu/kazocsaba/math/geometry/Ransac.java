@@ -0,0 +1,647 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.EigenDecomposition;
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.SingularityException;
+import hu.kazocsaba.math.matrix.Vector;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Robust model fitting with the RANSAC (random sample consensus) algorithm. Model hypotheses are constructed from
+ * random minimal samples of the points, and the one which has the most points within the threshold distance is
+ * selected; finally the model is refined with a least-squares fit to its inliers.
+ * <p>
+ * The points are given as coordinate arrays. The hypotheses are evaluated in parallel on a shared fork/join pool,
+ * and the number of iterations is adapted to the inlier ratio of the best model found so far: the search stops when
+ * the probability of having missed a better model falls below {@code 1-confidence}. Each hypothesis draws its sample
+ * from its own random stream derived from the seed, so the result only depends on the seed and not on the number of
+ * threads.
+ * <p>
+ * Instances of this class are immutable and can be used from multiple threads.
+ * @author Kazó Csaba
+ */
+public final class Ransac {
+	private static final double EPS=1e-8;
+
+	/**
+	 * The number of point-model distance evaluations performed by a single task at least.
+	 */
+	private static final int LEAF_WORK=1<<16;
+	/**
+	 * The minimal number of hypotheses evaluated between two updates of the required iteration count.
+	 */
+	private static final int MIN_ROUND_SIZE=64;
+
+	private final double threshold;
+	private final double confidence;
+	private final int maxIterations;
+	private final long seed;
+
+	/**
+	 * Creates a new instance with 0.99 confidence and at most 10000 iterations.
+	 * @param threshold the maximal distance of an inlier from the model
+	 * @throws IllegalArgumentException if the threshold is not positive
+	 */
+	public Ransac(double threshold) {
+		this(threshold, .99, 10000);
+	}
+
+	/**
+	 * Creates a new instance. The random seed is chosen randomly; use {@link #withSeed(long)} for reproducible
+	 * results.
+	 * @param threshold the maximal distance of an inlier from the model
+	 * @param confidence the required probability of finding the best model, used to determine the number of iterations
+	 * @param maxIterations the maximal number of hypotheses to evaluate
+	 * @throws IllegalArgumentException if the threshold or the maximal number of iterations is not positive, or
+	 * the confidence is not in the (0,1) interval
+	 */
+	public Ransac(double threshold, double confidence, int maxIterations) {
+		this(threshold, confidence, maxIterations, new Random().nextLong());
+	}
+
+	private Ransac(double threshold, double confidence, int maxIterations, long seed) {
+		if (!(threshold>0)) throw new IllegalArgumentException("Threshold must be positive");
+		if (!(confidence>0 && confidence<1)) throw new IllegalArgumentException("Confidence must be between 0 and 1");
+		if (maxIterations<=0) throw new IllegalArgumentException("The number of iterations must be positive");
+		this.threshold = threshold;
+		this.confidence = confidence;
+		this.maxIterations = maxIterations;
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns an instance with the same parameters as this one, but using the specified random seed.
+	 * @param seed the random seed
+	 * @return the new instance
+	 */
+	public Ransac withSeed(long seed) {
+		return new Ransac(threshold, confidence, maxIterations, seed);
+	}
+
+	/**
+	 * Returns the inlier threshold.
+	 * @return the maximal distance of an inlier from the model
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Returns the confidence level used to determine the number of iterations.
+	 * @return the required probability of finding the best model
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * Returns the maximal number of iterations.
+	 * @return the maximal number of hypotheses to evaluate
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Fits a plane to a set of 3D points.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @return the fitted plane and its inliers
+	 * @throws IllegalArgumentException if the arrays have different lengths or there are fewer than 3 points
+	 * @throws DegenerateCaseException if no plane could be constructed from the samples, e.g. because all the points
+	 * are collinear
+	 */
+	public RansacResult<Plane3> fitPlane(double[] xs, double[] ys, double[] zs) {
+		checkLengths(xs, ys, zs);
+		return run(new PlaneEstimator(xs, ys, zs));
+	}
+
+	/**
+	 * Fits a line to a set of 3D points.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @return the fitted line and its inliers
+	 * @throws IllegalArgumentException if the arrays have different lengths or there are fewer than 2 points
+	 * @throws DegenerateCaseException if no line could be constructed from the samples, e.g. because all the points
+	 * coincide
+	 */
+	public RansacResult<Line3> fitLine(double[] xs, double[] ys, double[] zs) {
+		checkLengths(xs, ys, zs);
+		return run(new Line3Estimator(xs, ys, zs));
+	}
+
+	/**
+	 * Fits a line to a set of 2D points.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @return the fitted line and its inliers
+	 * @throws IllegalArgumentException if the arrays have different lengths or there are fewer than 2 points
+	 * @throws DegenerateCaseException if no line could be constructed from the samples, e.g. because all the points
+	 * coincide
+	 */
+	public RansacResult<Line2> fitLine(double[] xs, double[] ys) {
+		checkLengths(xs, ys, ys);
+		return run(new Line2Estimator(xs, ys));
+	}
+
+	/**
+	 * Fits a circle to a set of 3D points.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @return the fitted circle and its inliers
+	 * @throws IllegalArgumentException if the arrays have different lengths or there are fewer than 3 points
+	 * @throws DegenerateCaseException if no circle could be constructed from the samples, e.g. because all the points
+	 * are collinear
+	 */
+	public RansacResult<Circle3> fitCircle(double[] xs, double[] ys, double[] zs) {
+		checkLengths(xs, ys, zs);
+		return run(new CircleEstimator(xs, ys, zs));
+	}
+
+	private static void checkLengths(double[] xs, double[] ys, double[] zs) {
+		if (xs.length!=ys.length || xs.length!=zs.length)
+			throw new IllegalArgumentException("Coordinate arrays have different lengths");
+	}
+
+	private <M> RansacResult<M> run(Estimator<M> estimator) {
+		int n=estimator.size();
+		int sampleSize=estimator.sampleSize;
+		if (n<sampleSize) throw new IllegalArgumentException("At least "+sampleSize+" points are required");
+
+		int leafSize=Math.max(1, LEAF_WORK/n);
+		int roundSize=Math.max(MIN_ROUND_SIZE, 4*leafSize);
+
+		Candidate<M> best=null;
+		int done=0;
+		int required=maxIterations;
+		while (done<required) {
+			int count=Math.min(roundSize, required-done);
+			Candidate<M> candidate=Parallel.invoke(new HypothesisTask<M>(estimator, threshold, seed, done, done+count, leafSize));
+			if (candidate!=null && (best==null || candidate.inliers>best.inliers)) {
+				best=candidate;
+				required=Math.min(required, requiredIterations(best.inliers, n, sampleSize));
+			}
+			done+=count;
+		}
+		if (best==null) throw new DegenerateCaseException("All samples were degenerate");
+
+		M model=best.model;
+		M refined=estimator.refine(model, threshold);
+		if (refined!=null && estimator.count(refined, threshold)>=best.inliers)
+			model=refined;
+
+		boolean[] inliers=new boolean[n];
+		int inlierCount=estimator.mark(model, threshold, inliers);
+		return new RansacResult<M>(model, inlierCount, inliers, done);
+	}
+
+	/**
+	 * Returns the number of iterations needed to find an all-inlier sample with the required confidence.
+	 */
+	private int requiredIterations(int inliers, int n, int sampleSize) {
+		double allInlierProbability=Math.pow((double)inliers/n, sampleSize);
+		if (allInlierProbability>=1) return 0;
+		double iterations=Math.log(1-confidence)/Math.log1p(-allInlierProbability);
+		return iterations<Integer.MAX_VALUE ? (int)Math.ceil(iterations) : Integer.MAX_VALUE;
+	}
+
+	private static final class Candidate<M> {
+		final M model;
+		final int inliers;
+
+		Candidate(M model, int inliers) {
+			this.model = model;
+			this.inliers = inliers;
+		}
+	}
+
+	/**
+	 * Evaluates the hypotheses with indices in the range {@code [start, end)}, and returns the best of them.
+	 */
+	private static final class HypothesisTask<M> extends RecursiveTask<Candidate<M>> {
+		private final Estimator<M> estimator;
+		private final double threshold;
+		private final long seed;
+		private final int start, end;
+		private final int leafSize;
+
+		HypothesisTask(Estimator<M> estimator, double threshold, long seed, int start, int end, int leafSize) {
+			this.estimator = estimator;
+			this.threshold = threshold;
+			this.seed = seed;
+			this.start = start;
+			this.end = end;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected Candidate<M> compute() {
+			if (end-start<=leafSize) {
+				int[] sample=new int[estimator.sampleSize];
+				M bestModel=null;
+				int bestInliers=-1;
+				for (int hypothesis=start; hypothesis<end; hypothesis++) {
+					drawSample(hypothesis, sample);
+					M model=estimator.fromSample(sample);
+					if (model==null) continue;
+					int inliers=estimator.count(model, threshold);
+					if (inliers>bestInliers) {
+						bestModel=model;
+						bestInliers=inliers;
+					}
+				}
+				return bestModel==null ? null : new Candidate<M>(bestModel, bestInliers);
+			}
+			int mid=(start+end)>>>1;
+			HypothesisTask<M> left=new HypothesisTask<M>(estimator, threshold, seed, start, mid, leafSize);
+			HypothesisTask<M> right=new HypothesisTask<M>(estimator, threshold, seed, mid, end, leafSize);
+			left.fork();
+			Candidate<M> rightResult=right.compute();
+			Candidate<M> leftResult=left.join();
+			// on ties prefer the lower hypothesis index so that the result does not depend on the scheduling
+			if (leftResult==null) return rightResult;
+			if (rightResult==null || leftResult.inliers>=rightResult.inliers) return leftResult;
+			return rightResult;
+		}
+
+		private void drawSample(int hypothesis, int[] sample) {
+			int n=estimator.size();
+			long state=Parallel.mix(seed^Parallel.mix(hypothesis));
+			for (int i=0; i<sample.length; i++) {
+				int index;
+				boolean duplicate;
+				do {
+					index=(int)((Parallel.mix(state++)>>>1)%n);
+					duplicate=false;
+					for (int j=0; j<i; j++)
+						if (sample[j]==index) duplicate=true;
+				} while (duplicate);
+				sample[i]=index;
+			}
+		}
+	}
+
+	/**
+	 * Model-specific part of the algorithm.
+	 */
+	private static abstract class Estimator<M> {
+		final int sampleSize;
+
+		Estimator(int sampleSize) {
+			this.sampleSize = sampleSize;
+		}
+
+		/**
+		 * Returns the number of points.
+		 */
+		abstract int size();
+
+		/**
+		 * Constructs a model from a minimal sample, or returns {@code null} if the sample is degenerate.
+		 */
+		abstract M fromSample(int[] sample);
+
+		/**
+		 * Returns the number of inliers of a model. It must not allocate memory, as it is the inner loop of the algorithm.
+		 */
+		abstract int count(M model, double threshold);
+
+		/**
+		 * Sets the inlier flags of the points and returns the number of inliers.
+		 */
+		abstract int mark(M model, double threshold, boolean[] inliers);
+
+		/**
+		 * Returns the least-squares fit to the inliers of a model, or {@code null} if it cannot be computed.
+		 */
+		abstract M refine(M model, double threshold);
+	}
+
+	private static final class PlaneEstimator extends Estimator<Plane3> {
+		private final double[] xs, ys, zs;
+
+		PlaneEstimator(double[] xs, double[] ys, double[] zs) {
+			super(3);
+			this.xs = xs;
+			this.ys = ys;
+			this.zs = zs;
+		}
+
+		@Override
+		int size() {
+			return xs.length;
+		}
+
+		@Override
+		Plane3 fromSample(int[] sample) {
+			int a=sample[0], b=sample[1], c=sample[2];
+			double ux=xs[b]-xs[a], uy=ys[b]-ys[a], uz=zs[b]-zs[a];
+			double vx=xs[c]-xs[a], vy=ys[c]-ys[a], vz=zs[c]-zs[a];
+			Vector3 normal=MatrixFactory.createVector(uy*vz-uz*vy, uz*vx-ux*vz, ux*vy-uy*vx);
+			if (normal.norm()<EPS) return null;
+			return Plane3.create(MatrixFactory.createVector(xs[a], ys[a], zs[a]), normal);
+		}
+
+		@Override
+		int count(Plane3 model, double threshold) {
+			return model.countWithin(xs, ys, zs, 0, xs.length, threshold);
+		}
+
+		@Override
+		int mark(Plane3 model, double threshold, boolean[] inliers) {
+			int count=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]=model.distance(xs[i], ys[i], zs[i])<=threshold) count++;
+			return count;
+		}
+
+		@Override
+		Plane3 refine(Plane3 model, double threshold) {
+			boolean[] inliers=new boolean[xs.length];
+			if (mark(model, threshold, inliers)<3) return null;
+			PrincipalAxes axes=PrincipalAxes.compute(xs, ys, zs, inliers);
+			if (axes==null) return null;
+			return Plane3.create(axes.centroid, axes.axes[0]);
+		}
+	}
+
+	private static final class Line3Estimator extends Estimator<Line3> {
+		private final double[] xs, ys, zs;
+
+		Line3Estimator(double[] xs, double[] ys, double[] zs) {
+			super(2);
+			this.xs = xs;
+			this.ys = ys;
+			this.zs = zs;
+		}
+
+		@Override
+		int size() {
+			return xs.length;
+		}
+
+		@Override
+		Line3 fromSample(int[] sample) {
+			int a=sample[0], b=sample[1];
+			Vector3 dir=MatrixFactory.createVector(xs[b]-xs[a], ys[b]-ys[a], zs[b]-zs[a]);
+			if (dir.norm()<EPS) return null;
+			return Line3.createFromDir(MatrixFactory.createVector(xs[a], ys[a], zs[a]), dir);
+		}
+
+		@Override
+		int count(Line3 model, double threshold) {
+			return model.countWithin(xs, ys, zs, 0, xs.length, threshold);
+		}
+
+		@Override
+		int mark(Line3 model, double threshold, boolean[] inliers) {
+			int count=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]=model.distance(xs[i], ys[i], zs[i])<=threshold) count++;
+			return count;
+		}
+
+		@Override
+		Line3 refine(Line3 model, double threshold) {
+			boolean[] inliers=new boolean[xs.length];
+			if (mark(model, threshold, inliers)<2) return null;
+			PrincipalAxes axes=PrincipalAxes.compute(xs, ys, zs, inliers);
+			if (axes==null) return null;
+			return Line3.createFromDir(axes.centroid, axes.axes[2]);
+		}
+	}
+
+	private static final class Line2Estimator extends Estimator<Line2> {
+		private final double[] xs, ys;
+
+		Line2Estimator(double[] xs, double[] ys) {
+			super(2);
+			this.xs = xs;
+			this.ys = ys;
+		}
+
+		@Override
+		int size() {
+			return xs.length;
+		}
+
+		@Override
+		Line2 fromSample(int[] sample) {
+			int a=sample[0], b=sample[1];
+			double dx=xs[b]-xs[a], dy=ys[b]-ys[a];
+			if (Math.hypot(dx, dy)<EPS) return null;
+			return Line2.createFromDir(MatrixFactory.createVector(xs[a], ys[a]), MatrixFactory.createVector(dx, dy));
+		}
+
+		@Override
+		int count(Line2 model, double threshold) {
+			return model.countWithin(xs, ys, 0, xs.length, threshold);
+		}
+
+		@Override
+		int mark(Line2 model, double threshold, boolean[] inliers) {
+			int count=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]=model.distance(xs[i], ys[i])<=threshold) count++;
+			return count;
+		}
+
+		@Override
+		Line2 refine(Line2 model, double threshold) {
+			boolean[] inliers=new boolean[xs.length];
+			int n=mark(model, threshold, inliers);
+			if (n<2) return null;
+			double mx=0, my=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]) {
+					mx+=xs[i];
+					my+=ys[i];
+				}
+			mx/=n;
+			my/=n;
+			double sxx=0, sxy=0, syy=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]) {
+					double dx=xs[i]-mx, dy=ys[i]-my;
+					sxx+=dx*dx;
+					sxy+=dx*dy;
+					syy+=dy*dy;
+				}
+			// direction of the major axis of the 2x2 covariance matrix
+			double angle=.5*Math.atan2(2*sxy, sxx-syy);
+			return Line2.createFromDir(MatrixFactory.createVector(mx, my), MatrixFactory.createVector(Math.cos(angle), Math.sin(angle)));
+		}
+	}
+
+	private static final class CircleEstimator extends Estimator<Circle3> {
+		private final double[] xs, ys, zs;
+
+		CircleEstimator(double[] xs, double[] ys, double[] zs) {
+			super(3);
+			this.xs = xs;
+			this.ys = ys;
+			this.zs = zs;
+		}
+
+		@Override
+		int size() {
+			return xs.length;
+		}
+
+		@Override
+		Circle3 fromSample(int[] sample) {
+			int a=sample[0], b=sample[1], c=sample[2];
+			Vector3 p=MatrixFactory.createVector(xs[a], ys[a], zs[a]);
+			Vector3 u=MatrixFactory.createVector(xs[b]-xs[a], ys[b]-ys[a], zs[b]-zs[a]);
+			Vector3 v=MatrixFactory.createVector(xs[c]-xs[a], ys[c]-ys[a], zs[c]-zs[a]);
+			Vector3 w=u.cross(v);
+			double ww=w.dot(w);
+			if (Math.sqrt(ww)<EPS) return null;
+			// circumcenter: p + (|u|^2 v - |v|^2 u) x w / (2 |w|^2)
+			Vector3 offset=v.times(u.dot(u)).minus(u.times(v.dot(v))).cross(w);
+			offset.scale(1/(2*ww));
+			double radius=offset.norm();
+			if (radius<EPS) return null;
+			return Circle3.create(p.plus(offset), w, radius);
+		}
+
+		@Override
+		int count(Circle3 model, double threshold) {
+			int count=0;
+			for (int i=0; i<xs.length; i++)
+				count+=model.distance(xs[i], ys[i], zs[i])<=threshold ? 1 : 0;
+			return count;
+		}
+
+		@Override
+		int mark(Circle3 model, double threshold, boolean[] inliers) {
+			int count=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]=model.distance(xs[i], ys[i], zs[i])<=threshold) count++;
+			return count;
+		}
+
+		@Override
+		Circle3 refine(Circle3 model, double threshold) {
+			boolean[] inliers=new boolean[xs.length];
+			if (mark(model, threshold, inliers)<3) return null;
+			PrincipalAxes axes=PrincipalAxes.compute(xs, ys, zs, inliers);
+			if (axes==null) return null;
+
+			// algebraic (Kasa) circle fit in the plane spanned by the two major axes:
+			// minimize sum (a^2 + b^2 + D a + E b + F)^2
+			Vector3 e1=axes.axes[2], e2=axes.axes[1];
+			double saa=0, sab=0, sbb=0, sa=0, sb=0, sr=0, sar=0, sbr=0;
+			int n=0;
+			for (int i=0; i<xs.length; i++)
+				if (inliers[i]) {
+					double dx=xs[i]-axes.centroid.getX(), dy=ys[i]-axes.centroid.getY(), dz=zs[i]-axes.centroid.getZ();
+					double a=dx*e1.getX()+dy*e1.getY()+dz*e1.getZ();
+					double b=dx*e2.getX()+dy*e2.getY()+dz*e2.getZ();
+					double r=a*a+b*b;
+					saa+=a*a;
+					sab+=a*b;
+					sbb+=b*b;
+					sa+=a;
+					sb+=b;
+					sr+=r;
+					sar+=a*r;
+					sbr+=b*r;
+					n++;
+				}
+			Matrix3 normal=MatrixFactory.createMatrix3(new double[][] {
+				{saa, sab, sa},
+				{sab, sbb, sb},
+				{sa, sb, n}});
+			Vector3 solution;
+			try {
+				solution=normal.inverse().mul(MatrixFactory.createVector(-sar, -sbr, -sr));
+			} catch (SingularityException e) {
+				return null;
+			}
+			double ca=-solution.getX()/2, cb=-solution.getY()/2;
+			double radiusSquared=ca*ca+cb*cb-solution.getZ();
+			if (!(radiusSquared>0)) return null;
+			Vector3 center=axes.centroid.plus(e1.times(ca)).plus(e2.times(cb));
+			return Circle3.create(center, axes.axes[0], Math.sqrt(radiusSquared));
+		}
+	}
+
+	/**
+	 * The centroid and principal axes of a set of 3D points.
+	 */
+	private static final class PrincipalAxes {
+		final Vector3 centroid;
+		/**
+		 * The unit principal axes, in increasing order of variance.
+		 */
+		final Vector3[] axes;
+
+		private PrincipalAxes(Vector3 centroid, Vector3[] axes) {
+			this.centroid = centroid;
+			this.axes = axes;
+		}
+
+		/**
+		 * Computes the principal axes of the selected points, or returns {@code null} if the eigendecomposition fails.
+		 */
+		static PrincipalAxes compute(double[] xs, double[] ys, double[] zs, boolean[] selected) {
+			double mx=0, my=0, mz=0;
+			int n=0;
+			for (int i=0; i<xs.length; i++)
+				if (selected[i]) {
+					mx+=xs[i];
+					my+=ys[i];
+					mz+=zs[i];
+					n++;
+				}
+			mx/=n;
+			my/=n;
+			mz/=n;
+			double sxx=0, sxy=0, sxz=0, syy=0, syz=0, szz=0;
+			for (int i=0; i<xs.length; i++)
+				if (selected[i]) {
+					double dx=xs[i]-mx, dy=ys[i]-my, dz=zs[i]-mz;
+					sxx+=dx*dx;
+					sxy+=dx*dy;
+					sxz+=dx*dz;
+					syy+=dy*dy;
+					syz+=dy*dz;
+					szz+=dz*dz;
+				}
+			Matrix3 covariance=MatrixFactory.createMatrix3(new double[][] {
+				{sxx, sxy, sxz},
+				{sxy, syy, syz},
+				{sxz, syz, szz}});
+			EigenDecomposition eig=covariance.eig();
+			int[] order={0, 1, 2};
+			Vector3[] axes=new Vector3[3];
+			double[] values=new double[3];
+			for (int i=0; i<3; i++) {
+				if (eig.getEigenvalueIm(i)!=0) return null;
+				values[i]=eig.getEigenvalue(i);
+			}
+			// sort the three eigenvalues
+			for (int i=0; i<3; i++)
+				for (int j=i+1; j<3; j++)
+					if (values[order[j]]<values[order[i]]) {
+						int tmp=order[i];
+						order[i]=order[j];
+						order[j]=tmp;
+					}
+			for (int i=0; i<3; i++) {
+				Vector v=eig.getEigenvector(order[i]);
+				double norm=v.norm();
+				if (!(norm>EPS)) return null;
+				axes[i]=MatrixFactory.createVector(v.getCoord(0)/norm, v.getCoord(1)/norm, v.getCoord(2)/norm);
+			}
+			return new PrincipalAxes(MatrixFactory.createVector(mx, my, mz), axes);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package hu.kazocsaba.math.geometry;
+
+/**
+ * The outcome of a RANSAC model fit: the best model found and the points supporting it.
+ * @param <M> the type of the fitted model
+ * @author Kazó Csaba
+ * @see Ransac
+ */
+public final class RansacResult<M> {
+	private final M model;
+	private final int inlierCount;
+	private final boolean[] inliers;
+	private final int iterations;
+
+	RansacResult(M model, int inlierCount, boolean[] inliers, int iterations) {
+		this.model = model;
+		this.inlierCount = inlierCount;
+		this.inliers = inliers;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Returns the fitted model.
+	 * @return the model with the largest support
+	 */
+	public M getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the number of points which are within the threshold distance of the model.
+	 * @return the number of inliers
+	 */
+	public int getInlierCount() {
+		return inlierCount;
+	}
+
+	/**
+	 * Returns whether a point is an inlier of the fitted model.
+	 * @param index the index of the point in the input arrays
+	 * @return {@code true} if the point is within the threshold distance of the model
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public boolean isInlier(int index) {
+		return inliers[index];
+	}
+
+	/**
+	 * Returns the inlier flags of all the points.
+	 * @return a new array containing {@code true} for the inliers and {@code false} for the outliers
+	 */
+	public boolean[] getInliers() {
+		return inliers.clone();
+	}
+
+	/**
+	 * Returns the number of hypotheses that were evaluated.
+	 * @return the number of iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RansacResult[%s; inliers=%d/%d; iterations=%d]", model, inlierCount, inliers.length, iterations);
+	}
+}
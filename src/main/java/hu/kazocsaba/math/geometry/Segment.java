@@ -12,13 +12,21 @@ public class Segment {
 	protected static final double EPS=1e-8;
 	
 	private final ImmutableVector p1, p2;
-	private final ImmutableVector dir;
+	// p2-p1, computed on first use; since the vector is immutable, a race can at worst compute it twice
+	private ImmutableVector dir;
 
+	/**
+	 * Creates a new segment. Immutable arguments are stored without copying.
+	 */
 	Segment(Vector p1, Vector p2) {
 		this.p1 = ImmutableMatrixFactory.copy(p1);
 		this.p2 = ImmutableMatrixFactory.copy(p2);
-		dir = ImmutableMatrixFactory.copy(this.p2.minus(this.p1));
-		if (dir.norm()<EPS) throw new IllegalArgumentException("The points are too close to each other");
+		double lengthSquare=0;
+		for (int i=0; i<this.p1.getDimension(); i++) {
+			double d=this.p2.getCoord(i)-this.p1.getCoord(i);
+			lengthSquare+=d*d;
+		}
+		if (lengthSquare<EPS*EPS) throw new IllegalArgumentException("The points are too close to each other");
 	}
 
 	/**
@@ -41,7 +49,9 @@ public class Segment {
 	 * @return {@code p1+(p2-p1)*t}
 	 */
 	public Vector getPointAt(double t) {
-		return p1.plus(dir.times(t));
+		ImmutableVector d=dir;
+		if (d==null) dir=d=ImmutableMatrixFactory.copy(p2.minus(p1));
+		return p1.plus(d.times(t));
 	}
 
 	@Override
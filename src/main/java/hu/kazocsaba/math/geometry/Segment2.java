@@ -1,6 +1,7 @@
 package hu.kazocsaba.math.geometry;
 
 import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
 import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
 
 /**
@@ -8,6 +9,13 @@ import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
  * @author Kazó Csaba
  */
 public final class Segment2 extends Segment {
+	/**
+	 * Return values of {@link #intersect(double, double, double, double, double, double, double, double, double[])}.
+	 */
+	static final int NO_INTERSECTION=0, TOUCHING=1, CROSSING=2;
+
+	// primitive copies of the end points for the allocation-free queries
+	final double x1, y1, x2, y2;
 
 	/**
 	 * Creates a new line segment between two points.
@@ -17,6 +25,10 @@ public final class Segment2 extends Segment {
 	 */
 	public Segment2(Vector2 p1, Vector2 p2) {
 		super(p1, p2);
+		x1=p1.getX();
+		y1=p1.getY();
+		x2=p2.getX();
+		y2=p2.getY();
 	}
 
 	@Override
@@ -41,4 +53,168 @@ public final class Segment2 extends Segment {
 	public Line2 getPerpendicularBisector() {
 		return Line2.createFromNormal(getP1().plus(getP2()).times(.5), getP2().minus(getP1()));
 	}
+
+	/**
+	 * Returns the parameter value specifying the point of this segment which is closest to the argument.
+	 * @param p an arbitrary point
+	 * @return the parameter value {@code t} between 0 and 1 for which {@link #getPointAt(double) getPointAt(t)} is
+	 * the point of this segment closest to {@code p}
+	 */
+	public double getClosestT(Vector2 p) {
+		return getClosestT(p.getX(), p.getY());
+	}
+
+	/**
+	 * Returns the parameter value specifying the point of this segment which is closest to the specified point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the parameter value between 0 and 1 of the point of this segment closest to {@code (x,y)}
+	 * @see #getClosestT(Vector2)
+	 */
+	public double getClosestT(double x, double y) {
+		return closestT(x, y, x1, y1, x2, y2);
+	}
+
+	/**
+	 * Returns the point of this segment which is closest to the argument.
+	 * @param p an arbitrary point
+	 * @return the closest point of this segment
+	 */
+	public Vector2 getClosestPoint(Vector2 p) {
+		return getPointAt(getClosestT(p));
+	}
+
+	/**
+	 * Returns the distance between this segment and a point.
+	 * @param p a point
+	 * @return the distance of {@code p} from the closest point of this segment
+	 */
+	public double distance(Vector2 p) {
+		return distance(p.getX(), p.getY());
+	}
+
+	/**
+	 * Returns the distance between this segment and a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the distance of {@code (x,y)} from the closest point of this segment
+	 */
+	public double distance(double x, double y) {
+		return Math.sqrt(distanceSquare(x, y, x1, y1, x2, y2));
+	}
+
+	/**
+	 * Returns the distance between this segment and another one. It is zero if the segments cross each other,
+	 * otherwise it is the distance of the end point closest to the other segment. This method does not allocate
+	 * memory.
+	 * @param segment the other segment
+	 * @return the distance between the closest points of the segments
+	 */
+	public double distance(Segment2 segment) {
+		return distance(x1, y1, x2, y2, segment.x1, segment.y1, segment.x2, segment.y2);
+	}
+
+	static double distance(double ax1, double ay1, double ax2, double ay2, double bx1, double by1, double bx2, double by2) {
+		if (Predicates.orient2d(ax1, ay1, ax2, ay2, bx1, by1)*Predicates.orient2d(ax1, ay1, ax2, ay2, bx2, by2)<0 &&
+				Predicates.orient2d(bx1, by1, bx2, by2, ax1, ay1)*Predicates.orient2d(bx1, by1, bx2, by2, ax2, ay2)<0)
+			return 0;
+		// otherwise one of the closest points is an end point
+		return Math.sqrt(Math.min(
+				Math.min(distanceSquare(ax1, ay1, bx1, by1, bx2, by2), distanceSquare(ax2, ay2, bx1, by1, bx2, by2)),
+				Math.min(distanceSquare(bx1, by1, ax1, ay1, ax2, ay2), distanceSquare(bx2, by2, ax1, ay1, ax2, ay2))));
+	}
+
+	/**
+	 * Returns a common point of this segment and another one. The segments intersect if they cross each other, or
+	 * if an end point of one of them is closer than 1e-8 to the other segment; in the latter case the returned point
+	 * is such an end point. Collinear, overlapping segments also intersect.
+	 * @param segment the other segment
+	 * @return a common point of the segments, or {@code null} if they do not intersect
+	 */
+	public Vector2 intersect(Segment2 segment) {
+		double[] point=new double[2];
+		if (intersect(this, segment, point)==NO_INTERSECTION) return null;
+		return ImmutableMatrixFactory.createVector(point[0], point[1]);
+	}
+
+	/**
+	 * Decides whether this segment intersects another one. This method agrees with {@link #intersect(Segment2)},
+	 * but does not compute the intersection point, and does not allocate memory.
+	 * @param segment the other segment
+	 * @return {@code true} if the segments intersect
+	 */
+	public boolean intersects(Segment2 segment) {
+		return intersect(this, segment, null)!=NO_INTERSECTION;
+	}
+
+	private static int intersect(Segment2 a, Segment2 b, double[] result) {
+		ImmutableVector2 a1=a.getP1(), a2=a.getP2(), b1=b.getP1(), b2=b.getP2();
+		return intersect(a1.getX(), a1.getY(), a2.getX(), a2.getY(), b1.getX(), b1.getY(), b2.getX(), b2.getY(), result);
+	}
+
+	/**
+	 * Computes the relation of two segments specified by their end points. If an end point of either segment is
+	 * within EPS of the other segment, then the segments are touching, and the lexicographically smallest such end
+	 * point is stored in the first two elements of {@code result}. Otherwise, if the segments cross each other,
+	 * then the crossing point is stored. Whether they cross is decided with exact orientation tests.
+	 * @param result the array to store the point in, or null if only the relation is needed
+	 * @return {@code NO_INTERSECTION}, {@code TOUCHING} or {@code CROSSING}
+	 */
+	static int intersect(double ax1, double ay1, double ax2, double ay2, double bx1, double by1, double bx2, double by2, double[] result) {
+		boolean touching=false;
+		if (distanceSquare(ax1, ay1, bx1, by1, bx2, by2)<=EPS*EPS) touching=touch(ax1, ay1, touching, result);
+		if (distanceSquare(ax2, ay2, bx1, by1, bx2, by2)<=EPS*EPS) touching=touch(ax2, ay2, touching, result);
+		if (distanceSquare(bx1, by1, ax1, ay1, ax2, ay2)<=EPS*EPS) touching=touch(bx1, by1, touching, result);
+		if (distanceSquare(bx2, by2, ax1, ay1, ax2, ay2)<=EPS*EPS) touching=touch(bx2, by2, touching, result);
+		if (touching) return TOUCHING;
+		// segments with disjoint bounding boxes cannot cross
+		if (Math.max(ax1, ax2)<Math.min(bx1, bx2) || Math.max(bx1, bx2)<Math.min(ax1, ax2) ||
+				Math.max(ay1, ay2)<Math.min(by1, by2) || Math.max(by1, by2)<Math.min(ay1, ay2))
+			return NO_INTERSECTION;
+
+		// orientation of the end points of each segment relative to the other one
+		int o1=Predicates.orient2d(ax1, ay1, ax2, ay2, bx1, by1);
+		int o2=Predicates.orient2d(ax1, ay1, ax2, ay2, bx2, by2);
+		int o3=Predicates.orient2d(bx1, by1, bx2, by2, ax1, ay1);
+		int o4=Predicates.orient2d(bx1, by1, bx2, by2, ax2, ay2);
+		if (o1*o2>=0 || o3*o4>=0) return NO_INTERSECTION;
+		if (result!=null) {
+			double c3=cross(bx1, by1, bx2, by2, ax1, ay1), c4=cross(bx1, by1, bx2, by2, ax2, ay2);
+			// the rounded values may have the wrong signs, but the point stays on the first segment
+			double t=c3/(c3-c4);
+			if (!(t>=0)) t=0; else if (t>1) t=1;
+			result[0]=ax1+t*(ax2-ax1);
+			result[1]=ay1+t*(ay2-ay1);
+		}
+		return CROSSING;
+	}
+
+	private static boolean touch(double x, double y, boolean touching, double[] result) {
+		if (result!=null && (!touching || x<result[0] || x==result[0] && y<result[1])) {
+			result[0]=x;
+			result[1]=y;
+		}
+		return true;
+	}
+
+	private static double cross(double x1, double y1, double x2, double y2, double x, double y) {
+		return (x2-x1)*(y-y1)-(y2-y1)*(x-x1);
+	}
+
+	/**
+	 * Returns the parameter of the point of a segment closest to a point, clamped to [0,1].
+	 */
+	static double closestT(double x, double y, double x1, double y1, double x2, double y2) {
+		double dx=x2-x1, dy=y2-y1;
+		double lengthSquare=dx*dx+dy*dy;
+		double t=lengthSquare==0 ? 0 : ((x-x1)*dx+(y-y1)*dy)/lengthSquare;
+		if (t<0) t=0; else if (t>1) t=1;
+		return t;
+	}
+
+	static double distanceSquare(double x, double y, double x1, double y1, double x2, double y2) {
+		double t=closestT(x, y, x1, y1, x2, y2);
+		double ex=x1+t*(x2-x1)-x, ey=y1+t*(y2-y1)-y;
+		return ex*ex+ey*ey;
+	}
 }
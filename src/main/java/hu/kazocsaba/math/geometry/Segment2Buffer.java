@@ -0,0 +1,205 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+
+/**
+ * A growable list of 2D line segments stored in packed form. Each segment takes four doubles (the coordinates of its
+ * end points) in a single array, instead of a {@link Segment2} object with its vectors. The segments are identified
+ * by their indices, and the queries of {@code Segment2} are available on them without creating objects. A typical
+ * use is snapping points to polylines: {@link #findNearest(double, double)} finds the closest edge, and
+ * {@link #getClosestT(int, double, double)} the closest point on it.
+ * <p>
+ * This class is not thread-safe: it must not be modified while other threads access it.
+ * @author Kazó Csaba
+ */
+public final class Segment2Buffer extends PackedBuffer {
+	private static final double EPS=1e-8;
+	private static final int STRIDE=4;
+
+	/**
+	 * Creates a new empty buffer.
+	 */
+	public Segment2Buffer() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty buffer with room for the specified number of segments.
+	 * @param initialCapacity the number of segments the buffer can hold before growing
+	 * @throws IllegalArgumentException if the capacity is negative or too large
+	 */
+	public Segment2Buffer(int initialCapacity) {
+		super(STRIDE, initialCapacity);
+	}
+
+	/**
+	 * Appends a segment to this buffer.
+	 * @param segment the segment to add
+	 * @return the index of the segment
+	 */
+	public int add(Segment2 segment) {
+		return put(append(), segment.x1, segment.y1, segment.x2, segment.y2);
+	}
+
+	/**
+	 * Appends a segment to this buffer.
+	 * @param x1 the x coordinate of the starting point
+	 * @param y1 the y coordinate of the starting point
+	 * @param x2 the x coordinate of the end point
+	 * @param y2 the y coordinate of the end point
+	 * @return the index of the segment
+	 * @throws IllegalArgumentException if the points are too close to each other
+	 */
+	public int add(double x1, double y1, double x2, double y2) {
+		double dx=x2-x1, dy=y2-y1;
+		if (dx*dx+dy*dy<EPS*EPS) throw new IllegalArgumentException("The points are too close to each other");
+		return put(append(), x1, y1, x2, y2);
+	}
+
+	private int put(int base, double x1, double y1, double x2, double y2) {
+		double[] d=data;
+		d[base  ]=x1;
+		d[base+1]=y1;
+		d[base+2]=x2;
+		d[base+3]=y2;
+		return base/STRIDE;
+	}
+
+	/**
+	 * Replaces a segment of this buffer.
+	 * @param index the index of the segment
+	 * @param segment the new segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public void set(int index, Segment2 segment) {
+		put(base(index), segment.x1, segment.y1, segment.x2, segment.y2);
+	}
+
+	/**
+	 * Returns a segment of this buffer as a new object.
+	 * @param index the index of the segment
+	 * @return the segment with the specified index
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public Segment2 get(int index) {
+		int base=base(index);
+		double[] d=data;
+		return new Segment2(ImmutableMatrixFactory.createVector(d[base], d[base+1]),
+				ImmutableMatrixFactory.createVector(d[base+2], d[base+3]));
+	}
+
+	/**
+	 * Computes a point of a segment and stores its coordinates in an array.
+	 * @param index the index of the segment
+	 * @param t the parameter value, 0 at the starting point and 1 at the end point
+	 * @param result the array to store the x and y coordinates in
+	 * @param offset the index of the x coordinate in the array
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Segment2#getPointAt(double)
+	 */
+	public void getPointAt(int index, double t, double[] result, int offset) {
+		int base=base(index);
+		double[] d=data;
+		result[offset  ]=d[base  ]+t*(d[base+2]-d[base  ]);
+		result[offset+1]=d[base+1]+t*(d[base+3]-d[base+1]);
+	}
+
+	/**
+	 * Returns the length of a segment.
+	 * @param index the index of the segment
+	 * @return the distance between the end points of the segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public double length(int index) {
+		int base=base(index);
+		double[] d=data;
+		double dx=d[base+2]-d[base], dy=d[base+3]-d[base+1];
+		return Math.sqrt(dx*dx+dy*dy);
+	}
+
+	/**
+	 * Returns the parameter value specifying the point of a segment which is closest to the specified point.
+	 * @param index the index of the segment
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the parameter value between 0 and 1 of the point of the segment closest to {@code (x,y)}
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Segment2#getClosestT(double, double)
+	 */
+	public double getClosestT(int index, double x, double y) {
+		int base=base(index);
+		double[] d=data;
+		return Segment2.closestT(x, y, d[base], d[base+1], d[base+2], d[base+3]);
+	}
+
+	/**
+	 * Returns the distance between a segment and a point.
+	 * @param index the index of the segment
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the distance of {@code (x,y)} from the closest point of the segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public double distance(int index, double x, double y) {
+		return Math.sqrt(distanceSquareAt(base(index), x, y));
+	}
+
+	private double distanceSquareAt(int base, double x, double y) {
+		double[] d=data;
+		return Segment2.distanceSquare(x, y, d[base], d[base+1], d[base+2], d[base+3]);
+	}
+
+	/**
+	 * Computes the distances of a point from all the segments of this buffer. The distance from the segment with
+	 * index {@code i} is stored in {@code result[offset+i]}.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param result the array to store the distances in
+	 * @param offset the index in {@code result} where the distance from the first segment is stored
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@link #size()} values from {@code offset}
+	 */
+	public void distances(double x, double y, double[] result, int offset) {
+		checkOutput(result, offset);
+		int size=size();
+		for (int i=0; i<size; i++)
+			result[offset+i]=Math.sqrt(distanceSquareAt(i*STRIDE, x, y));
+	}
+
+	/**
+	 * Returns the index of the segment closest to a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the index of the closest segment, or -1 if the buffer is empty
+	 */
+	public int findNearest(double x, double y) {
+		int best=-1;
+		// squared distances are compared, so no square root is computed
+		double bestDistance=Double.POSITIVE_INFINITY;
+		int size=size();
+		for (int i=0; i<size; i++) {
+			double distance=distanceSquareAt(i*STRIDE, x, y);
+			if (distance<bestDistance) {
+				bestDistance=distance;
+				best=i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Transforms all the segments of this buffer in place.
+	 * @param transform the transformation to apply
+	 * @see Transform2#transform(Segment2)
+	 */
+	public void transform(Transform2 transform) {
+		Transform2 t=transform;
+		double[] d=data;
+		// both end points are transformed the same way
+		int end=size()*STRIDE;
+		for (int base=0; base<end; base+=2) {
+			double x=d[base], y=d[base+1];
+			d[base  ]=t.m00*x+t.m01*y+t.tx;
+			d[base+1]=t.m10*x+t.m11*y+t.ty;
+		}
+	}
+}
@@ -8,6 +8,8 @@ import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
  * @author Kazó Csaba
  */
 public final class Segment3 extends Segment {
+	// primitive copies of the end points for the allocation-free queries
+	final double x1, y1, z1, x2, y2, z2;
 
 	/**
 	 * Creates a new line segment between two points.
@@ -17,6 +19,12 @@ public final class Segment3 extends Segment {
 	 */
 	public Segment3(Vector3 p1, Vector3 p2) {
 		super(p1, p2);
+		x1=p1.getX();
+		y1=p1.getY();
+		z1=p1.getZ();
+		x2=p2.getX();
+		y2=p2.getY();
+		z2=p2.getZ();
 	}
 
 	@Override
@@ -33,5 +41,112 @@ public final class Segment3 extends Segment {
 	public Vector3 getPointAt(double t) {
 		return (Vector3) super.getPointAt(t);
 	}
+
+	/**
+	 * Returns the parameter value specifying the point of this segment which is closest to the argument.
+	 * @param p an arbitrary point
+	 * @return the parameter value {@code t} between 0 and 1 for which {@link #getPointAt(double) getPointAt(t)} is
+	 * the point of this segment closest to {@code p}
+	 */
+	public double getClosestT(Vector3 p) {
+		return getClosestT(p.getX(), p.getY(), p.getZ());
+	}
+
+	/**
+	 * Returns the parameter value specifying the point of this segment which is closest to the specified point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the parameter value between 0 and 1 of the point of this segment closest to {@code (x,y,z)}
+	 * @see #getClosestT(Vector3)
+	 */
+	public double getClosestT(double x, double y, double z) {
+		return closestT(x, y, z, x1, y1, z1, x2, y2, z2);
+	}
+
+	/**
+	 * Returns the point of this segment which is closest to the argument.
+	 * @param p an arbitrary point
+	 * @return the closest point of this segment
+	 */
+	public Vector3 getClosestPoint(Vector3 p) {
+		return getPointAt(getClosestT(p));
+	}
+
+	/**
+	 * Returns the distance between this segment and a point.
+	 * @param p a point
+	 * @return the distance of {@code p} from the closest point of this segment
+	 */
+	public double distance(Vector3 p) {
+		return distance(p.getX(), p.getY(), p.getZ());
+	}
+
+	/**
+	 * Returns the distance between this segment and a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from the closest point of this segment
+	 */
+	public double distance(double x, double y, double z) {
+		return Math.sqrt(distanceSquare(x, y, z, x1, y1, z1, x2, y2, z2));
+	}
+
+	/**
+	 * Returns the distance between this segment and another one. This method does not allocate memory.
+	 * @param segment the other segment
+	 * @return the distance between the closest points of the segments
+	 */
+	public double distance(Segment3 segment) {
+		return distance(x1, y1, z1, x2, y2, z2, segment.x1, segment.y1, segment.z1, segment.x2, segment.y2, segment.z2);
+	}
+
+	/**
+	 * Returns the distance between two segments specified by their end points.
+	 */
+	static double distance(double ax1, double ay1, double az1, double ax2, double ay2, double az2,
+			double bx1, double by1, double bz1, double bx2, double by2, double bz2) {
+		double d1x=ax2-ax1, d1y=ay2-ay1, d1z=az2-az1;
+		double d2x=bx2-bx1, d2y=by2-by1, d2z=bz2-bz1;
+		double rx=ax1-bx1, ry=ay1-by1, rz=az1-bz1;
+		double a=d1x*d1x+d1y*d1y+d1z*d1z, e=d2x*d2x+d2y*d2y+d2z*d2z;
+		double b=d1x*d2x+d1y*d2y+d1z*d2z, c=d1x*rx+d1y*ry+d1z*rz, f=d2x*rx+d2y*ry+d2z*rz;
+		double denom=a*e-b*b;
+		// the parameter s of the first segment at the closest point of the supporting lines; for parallel
+		// segments any value works, the clamping below finds the closest points
+		double s=denom<EPS*a*e ? 0 : clamp((b*f-c*e)/denom);
+		double t=(b*s+f)/e;
+		if (t<0) {
+			t=0;
+			s=clamp(-c/a);
+		} else if (t>1) {
+			t=1;
+			s=clamp((b-c)/a);
+		}
+		double ex=rx+s*d1x-t*d2x, ey=ry+s*d1y-t*d2y, ez=rz+s*d1z-t*d2z;
+		return Math.sqrt(ex*ex+ey*ey+ez*ez);
+	}
+
+	private static double clamp(double t) {
+		return t<0 ? 0 : t>1 ? 1 : t;
+	}
+
+	/**
+	 * Returns the parameter of the point of a segment closest to a point, clamped to [0,1].
+	 */
+	static double closestT(double x, double y, double z, double x1, double y1, double z1, double x2, double y2, double z2) {
+		double dx=x2-x1, dy=y2-y1, dz=z2-z1;
+		double lengthSquare=dx*dx+dy*dy+dz*dz;
+		double t=lengthSquare==0 ? 0 : ((x-x1)*dx+(y-y1)*dy+(z-z1)*dz)/lengthSquare;
+		if (t<0) t=0; else if (t>1) t=1;
+		return t;
+	}
+
+	static double distanceSquare(double x, double y, double z, double x1, double y1, double z1, double x2, double y2, double z2) {
+		double t=closestT(x, y, z, x1, y1, z1, x2, y2, z2);
+		double ex=x1+t*(x2-x1)-x, ey=y1+t*(y2-y1)-y, ez=z1+t*(z2-z1)-z;
+		return ex*ex+ey*ey+ez*ez;
+	}
 	
 }
@@ -0,0 +1,212 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+
+/**
+ * A growable list of 3D line segments stored in packed form. Each segment takes six doubles (the coordinates of its
+ * end points) in a single array, instead of a {@link Segment3} object with its vectors. The segments are identified
+ * by their indices, and the queries of {@code Segment3} are available on them without creating objects.
+ * <p>
+ * This class is not thread-safe: it must not be modified while other threads access it.
+ * @author Kazó Csaba
+ */
+public final class Segment3Buffer extends PackedBuffer {
+	private static final double EPS=1e-8;
+	private static final int STRIDE=6;
+
+	/**
+	 * Creates a new empty buffer.
+	 */
+	public Segment3Buffer() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty buffer with room for the specified number of segments.
+	 * @param initialCapacity the number of segments the buffer can hold before growing
+	 * @throws IllegalArgumentException if the capacity is negative or too large
+	 */
+	public Segment3Buffer(int initialCapacity) {
+		super(STRIDE, initialCapacity);
+	}
+
+	/**
+	 * Appends a segment to this buffer.
+	 * @param segment the segment to add
+	 * @return the index of the segment
+	 */
+	public int add(Segment3 segment) {
+		return put(append(), segment.x1, segment.y1, segment.z1, segment.x2, segment.y2, segment.z2);
+	}
+
+	/**
+	 * Appends a segment to this buffer.
+	 * @param x1 the x coordinate of the starting point
+	 * @param y1 the y coordinate of the starting point
+	 * @param z1 the z coordinate of the starting point
+	 * @param x2 the x coordinate of the end point
+	 * @param y2 the y coordinate of the end point
+	 * @param z2 the z coordinate of the end point
+	 * @return the index of the segment
+	 * @throws IllegalArgumentException if the points are too close to each other
+	 */
+	public int add(double x1, double y1, double z1, double x2, double y2, double z2) {
+		double dx=x2-x1, dy=y2-y1, dz=z2-z1;
+		if (dx*dx+dy*dy+dz*dz<EPS*EPS) throw new IllegalArgumentException("The points are too close to each other");
+		return put(append(), x1, y1, z1, x2, y2, z2);
+	}
+
+	private int put(int base, double x1, double y1, double z1, double x2, double y2, double z2) {
+		double[] d=data;
+		d[base  ]=x1;
+		d[base+1]=y1;
+		d[base+2]=z1;
+		d[base+3]=x2;
+		d[base+4]=y2;
+		d[base+5]=z2;
+		return base/STRIDE;
+	}
+
+	/**
+	 * Replaces a segment of this buffer.
+	 * @param index the index of the segment
+	 * @param segment the new segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public void set(int index, Segment3 segment) {
+		put(base(index), segment.x1, segment.y1, segment.z1, segment.x2, segment.y2, segment.z2);
+	}
+
+	/**
+	 * Returns a segment of this buffer as a new object.
+	 * @param index the index of the segment
+	 * @return the segment with the specified index
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public Segment3 get(int index) {
+		int base=base(index);
+		double[] d=data;
+		return new Segment3(ImmutableMatrixFactory.createVector(d[base], d[base+1], d[base+2]),
+				ImmutableMatrixFactory.createVector(d[base+3], d[base+4], d[base+5]));
+	}
+
+	/**
+	 * Computes a point of a segment and stores its coordinates in an array.
+	 * @param index the index of the segment
+	 * @param t the parameter value, 0 at the starting point and 1 at the end point
+	 * @param result the array to store the x, y and z coordinates in
+	 * @param offset the index of the x coordinate in the array
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Segment3#getPointAt(double)
+	 */
+	public void getPointAt(int index, double t, double[] result, int offset) {
+		int base=base(index);
+		double[] d=data;
+		result[offset  ]=d[base  ]+t*(d[base+3]-d[base  ]);
+		result[offset+1]=d[base+1]+t*(d[base+4]-d[base+1]);
+		result[offset+2]=d[base+2]+t*(d[base+5]-d[base+2]);
+	}
+
+	/**
+	 * Returns the length of a segment.
+	 * @param index the index of the segment
+	 * @return the distance between the end points of the segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public double length(int index) {
+		int base=base(index);
+		double[] d=data;
+		double dx=d[base+3]-d[base], dy=d[base+4]-d[base+1], dz=d[base+5]-d[base+2];
+		return Math.sqrt(dx*dx+dy*dy+dz*dz);
+	}
+
+	/**
+	 * Returns the parameter value specifying the point of a segment which is closest to the specified point.
+	 * @param index the index of the segment
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the parameter value between 0 and 1 of the point of the segment closest to {@code (x,y,z)}
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Segment3#getClosestT(double, double, double)
+	 */
+	public double getClosestT(int index, double x, double y, double z) {
+		int base=base(index);
+		double[] d=data;
+		return Segment3.closestT(x, y, z, d[base], d[base+1], d[base+2], d[base+3], d[base+4], d[base+5]);
+	}
+
+	/**
+	 * Returns the distance between a segment and a point.
+	 * @param index the index of the segment
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the distance of {@code (x,y,z)} from the closest point of the segment
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public double distance(int index, double x, double y, double z) {
+		return distanceAt(base(index), x, y, z);
+	}
+
+	private double distanceAt(int base, double x, double y, double z) {
+		double[] d=data;
+		return Math.sqrt(Segment3.distanceSquare(x, y, z, d[base], d[base+1], d[base+2], d[base+3], d[base+4], d[base+5]));
+	}
+
+	/**
+	 * Computes the distances of a point from all the segments of this buffer. The distance from the segment with
+	 * index {@code i} is stored in {@code result[offset+i]}.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @param result the array to store the distances in
+	 * @param offset the index in {@code result} where the distance from the first segment is stored
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold {@link #size()} values from {@code offset}
+	 */
+	public void distances(double x, double y, double z, double[] result, int offset) {
+		checkOutput(result, offset);
+		int size=size();
+		for (int i=0; i<size; i++)
+			result[offset+i]=distanceAt(i*STRIDE, x, y, z);
+	}
+
+	/**
+	 * Returns the index of the segment closest to a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the index of the closest segment, or -1 if the buffer is empty
+	 */
+	public int findNearest(double x, double y, double z) {
+		int best=-1;
+		double bestDistance=Double.POSITIVE_INFINITY;
+		int size=size();
+		for (int i=0; i<size; i++) {
+			double distance=distanceAt(i*STRIDE, x, y, z);
+			if (distance<bestDistance) {
+				bestDistance=distance;
+				best=i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Transforms all the segments of this buffer in place.
+	 * @param transform the transformation to apply
+	 * @see Transform3#transform(Segment3)
+	 */
+	public void transform(Transform3 transform) {
+		Transform3 t=transform;
+		double[] d=data;
+		// both end points are transformed the same way
+		int end=size()*STRIDE;
+		for (int base=0; base<end; base+=3) {
+			double x=d[base], y=d[base+1], z=d[base+2];
+			d[base  ]=t.m00*x+t.m01*y+t.m02*z+t.tx;
+			d[base+1]=t.m10*x+t.m11*y+t.m12*z+t.ty;
+			d[base+2]=t.m20*x+t.m21*y+t.m22*z+t.tz;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A uniform grid of 2D line segments: a spatial index for dense, evenly distributed data. The extent of the grid
+ * is divided into equal cells, and every segment is stored in the cells it passes through. Segments outside the
+ * extent are stored in the cells at its border, so they are found by the queries as well, but only efficiently
+ * if the extent covers most of the data.
+ * <p>
+ * The contents of the cells are stored in a single array of indices, so the grid is compact and fast to query.
+ * The grid is built at once from a collection; large collections are processed in parallel on a shared
+ * fork/join pool. Instances of this class are immutable and can be queried from multiple threads.
+ * @param <T> the type of the indexed objects: {@link Segment2} or {@link Line2}
+ * @author Kazó Csaba
+ * @see Bvh2
+ */
+public final class SegmentGrid2<T> {
+	private static final double EPS=1e-8;
+	/**
+	 * The number of segments processed by a single task when building the grid.
+	 */
+	private static final int CHUNK_SIZE=4096;
+
+	private final Box2 extent;
+	private final int columns, rows;
+	private final double cellWidth, cellHeight;
+	private final List<T> items;
+	// the end points of the segments
+	private final double[] coords;
+	// the segments in cell c are cellItems[cellStart[c]] ... cellItems[cellStart[c+1]-1], in increasing order
+	private final int[] cellStart, cellItems;
+
+	private SegmentGrid2(Box2 extent, int columns, int rows, List<T> items, double[] coords) {
+		if (columns<1 || rows<1) throw new IllegalArgumentException("The grid must have at least one cell");
+		if ((long)columns*rows>=Integer.MAX_VALUE) throw new IllegalArgumentException("Too many cells");
+		for (double coord: coords)
+			if (Double.isInfinite(coord) || Double.isNaN(coord)) throw new IllegalArgumentException("Segment with non-finite coordinates");
+		this.extent=extent;
+		this.columns=columns;
+		this.rows=rows;
+		this.items=items;
+		this.coords=coords;
+		cellWidth=extent.getWidth()/columns;
+		cellHeight=extent.getHeight()/rows;
+
+		// collect the (cell, segment) pairs in chunks, then sort them by cell
+		int n=items.size();
+		final CellTask[] tasks=new CellTask[(n+CHUNK_SIZE-1)/CHUNK_SIZE];
+		for (int i=0; i<tasks.length; i++)
+			tasks[i]=new CellTask(this, i*CHUNK_SIZE, Math.min(n, (i+1)*CHUNK_SIZE));
+		if (tasks.length>1)
+			Parallel.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					ForkJoinTask.invokeAll(tasks);
+				}
+			});
+		else if (tasks.length==1)
+			tasks[0].compute();
+
+		cellStart=new int[columns*rows+1];
+		for (CellTask task: tasks)
+			for (int i=0; i<task.size; i+=2)
+				cellStart[task.pairs[i]+1]++;
+		for (int c=0; c<columns*rows; c++)
+			cellStart[c+1]+=cellStart[c];
+		cellItems=new int[cellStart[columns*rows]];
+		int[] next=Arrays.copyOf(cellStart, columns*rows);
+		// the chunks are in increasing order of the segments, and so are the pairs within each chunk
+		for (CellTask task: tasks)
+			for (int i=0; i<task.size; i+=2)
+				cellItems[next[task.pairs[i]]++]=task.pairs[i+1];
+	}
+
+	/**
+	 * Builds a grid of line segments.
+	 * @param extent the area covered by the cells
+	 * @param columns the number of cells along the x axis
+	 * @param rows the number of cells along the y axis
+	 * @param segments the segments to index
+	 * @return the new grid
+	 * @throws IllegalArgumentException if {@code columns} or {@code rows} is not positive, or the number of cells
+	 * is too large
+	 * @throws NullPointerException if the collection contains {@code null}
+	 */
+	public static SegmentGrid2<Segment2> createFromSegments(Box2 extent, int columns, int rows, Collection<Segment2> segments) {
+		List<Segment2> items=new ArrayList<Segment2>(segments);
+		double[] coords=new double[4*items.size()];
+		for (int i=0; i<items.size(); i++)
+			store(items.get(i), coords, i);
+		return new SegmentGrid2<Segment2>(extent, columns, rows, Collections.unmodifiableList(items), coords);
+	}
+
+	/**
+	 * Builds a grid of lines. Only the part of the lines inside the extent is indexed, as computed by
+	 * {@link Box2#intersect(Line2)}: the lines missing the extent are left out, and the distance of the lines is
+	 * measured from the indexed part.
+	 * @param extent the area covered by the cells
+	 * @param columns the number of cells along the x axis
+	 * @param rows the number of cells along the y axis
+	 * @param lines the lines to index
+	 * @return the new grid
+	 * @throws IllegalArgumentException if {@code columns} or {@code rows} is not positive, or the number of cells
+	 * is too large
+	 * @throws NullPointerException if the collection contains {@code null}
+	 */
+	public static SegmentGrid2<Line2> createFromLines(Box2 extent, int columns, int rows, Collection<Line2> lines) {
+		List<Line2> items=new ArrayList<Line2>(lines.size());
+		List<Segment2> segments=new ArrayList<Segment2>(lines.size());
+		for (Line2 line: lines) {
+			Segment2 segment=extent.intersect(line);
+			if (segment!=null) {
+				items.add(line);
+				segments.add(segment);
+			}
+		}
+		double[] coords=new double[4*items.size()];
+		for (int i=0; i<segments.size(); i++)
+			store(segments.get(i), coords, i);
+		return new SegmentGrid2<Line2>(extent, columns, rows, Collections.unmodifiableList(items), coords);
+	}
+
+	private static void store(Segment2 segment, double[] coords, int index) {
+		ImmutableVector2 p1=segment.getP1(), p2=segment.getP2();
+		coords[4*index  ]=p1.getX();
+		coords[4*index+1]=p1.getY();
+		coords[4*index+2]=p2.getX();
+		coords[4*index+3]=p2.getY();
+	}
+
+	/**
+	 * Returns the area covered by the cells of this grid.
+	 * @return the extent of the grid
+	 */
+	public Box2 getExtent() {
+		return extent;
+	}
+
+	/**
+	 * Returns the number of cells along the x axis.
+	 * @return the number of columns
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of cells along the y axis.
+	 * @return the number of rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of objects in this grid.
+	 * @return the number of objects
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Returns the objects in this grid.
+	 * @return an unmodifiable list of the objects, in the order they were specified
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the objects which have a common point with a box.
+	 * @param box the box
+	 * @return the objects overlapping the box, in the order they were specified
+	 */
+	public List<T> findOverlapping(Box2 box) {
+		int c1=column(box.minX), c2=column(box.maxX), r1=row(box.minY), r2=row(box.maxY);
+		// segments spanning several cells are collected more than once
+		int[] found=new int[16];
+		int count=0;
+		for (int r=r1; r<=r2; r++)
+			for (int c=c1; c<=c2; c++) {
+				int cell=r*columns+c, size=cellStart[cell+1]-cellStart[cell];
+				if (count+size>found.length) found=Arrays.copyOf(found, Math.max(2*found.length, count+size));
+				System.arraycopy(cellItems, cellStart[cell], found, count, size);
+				count+=size;
+			}
+		Arrays.sort(found, 0, count);
+		List<T> result=new ArrayList<T>();
+		for (int i=0; i<count; i++) {
+			int item=found[i];
+			if (i>0 && item==found[i-1]) continue;
+			if (segmentOverlaps(item, box.minX, box.minY, box.maxX, box.maxY)) result.add(items.get(item));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the object closest to a point.
+	 * @param point the point
+	 * @return the closest object, or {@code null} if the grid is empty
+	 */
+	public T findNearest(Vector2 point) {
+		List<T> nearest=findNearest(point, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/**
+	 * Returns the objects closest to a point.
+	 * @param point the point
+	 * @param k the number of objects to return
+	 * @return the {@code k} objects closest to the point in increasing order of distance, or all the objects if
+	 * there are fewer
+	 * @throws IllegalArgumentException if {@code k} is not positive
+	 */
+	public List<T> findNearest(Vector2 point, int k) {
+		if (k<1) throw new IllegalArgumentException("The number of objects must be positive");
+		double px=point.getX(), py=point.getY();
+		k=Math.min(k, items.size());
+		if (k==0) return Collections.emptyList();
+		// the best objects found so far, in increasing order of distance
+		int[] best=new int[k];
+		double[] bestDistanceSq=new double[k];
+		int count=0;
+
+		// the cells are visited in growing rings around the cell of the point
+		int c1=column(px), c2=c1, r1=row(py), r2=r1;
+		// the previously visited block, initially empty
+		int visitedC1=0, visitedC2=-1, visitedR1=0, visitedR2=-1;
+		while (true) {
+			// visit the cells of the current block which were not visited before
+			for (int row=r1; row<=r2; row++)
+				for (int column=c1; column<=c2; column++) {
+					if (row>=visitedR1 && row<=visitedR2 && column>=visitedC1 && column<=visitedC2) {
+						column=visitedC2;
+						continue;
+					}
+					int cell=row*columns+column;
+					for (int i=cellStart[cell], end=cellStart[cell+1]; i<end; i++) {
+						int item=cellItems[i];
+						double distanceSq=pointSegmentDistanceSq(px, py, item);
+						if (count==k && distanceSq>=bestDistanceSq[k-1]) continue;
+						if (contains(best, count, item)) continue;
+						// insert into the sorted list of the best objects
+						int position=count==k ? k-1 : count++;
+						while (position>0 && bestDistanceSq[position-1]>distanceSq) {
+							best[position]=best[position-1];
+							bestDistanceSq[position]=bestDistanceSq[position-1];
+							position--;
+						}
+						best[position]=item;
+						bestDistanceSq[position]=distanceSq;
+					}
+				}
+
+			// the cells outside the block are farther than its closest inner side; the outermost cells extend to
+			// infinity, so the sides at the border of the grid do not bound the distance
+			if (c1==0 && c2==columns-1 && r1==0 && r2==rows-1) break;
+			double bound=Double.POSITIVE_INFINITY;
+			if (c1>0) bound=Math.min(bound, px-(extent.minX+c1*cellWidth));
+			if (c2<columns-1) bound=Math.min(bound, extent.minX+(c2+1)*cellWidth-px);
+			if (r1>0) bound=Math.min(bound, py-(extent.minY+r1*cellHeight));
+			if (r2<rows-1) bound=Math.min(bound, extent.minY+(r2+1)*cellHeight-py);
+			if (count==k && bestDistanceSq[k-1]<=bound*bound) break;
+			visitedC1=c1;
+			visitedC2=c2;
+			visitedR1=r1;
+			visitedR2=r2;
+			if (c1>0) c1--;
+			if (c2<columns-1) c2++;
+			if (r1>0) r1--;
+			if (r2<rows-1) r2++;
+		}
+
+		List<T> result=new ArrayList<T>(count);
+		for (int i=0; i<count; i++)
+			result.add(items.get(best[i]));
+		return result;
+	}
+
+	private static boolean contains(int[] array, int length, int value) {
+		for (int i=0; i<length; i++)
+			if (array[i]==value) return true;
+		return false;
+	}
+
+	private int column(double x) {
+		double column=Math.floor((x-extent.minX)/cellWidth);
+		return column<0 ? 0 : column>=columns ? columns-1 : (int)column;
+	}
+
+	private int row(double y) {
+		double row=Math.floor((y-extent.minY)/cellHeight);
+		return row<0 ? 0 : row>=rows ? rows-1 : (int)row;
+	}
+
+	private boolean segmentOverlaps(int item, double minX, double minY, double maxX, double maxY) {
+		// clip the parameter range [0,1] of the segment with the slabs of the box
+		double x=coords[4*item], y=coords[4*item+1], dx=coords[4*item+2]-x, dy=coords[4*item+3]-y;
+		double tEnter=0, tExit=1;
+		if (dx!=0) {
+			double t1=(minX-x)/dx, t2=(maxX-x)/dx;
+			tEnter=Math.max(tEnter, Math.min(t1, t2));
+			tExit=Math.min(tExit, Math.max(t1, t2));
+		} else if (x<minX || x>maxX)
+			return false;
+		if (dy!=0) {
+			double t1=(minY-y)/dy, t2=(maxY-y)/dy;
+			tEnter=Math.max(tEnter, Math.min(t1, t2));
+			tExit=Math.min(tExit, Math.max(t1, t2));
+		} else if (y<minY || y>maxY)
+			return false;
+		return tEnter<=tExit;
+	}
+
+	private double pointSegmentDistanceSq(double px, double py, int item) {
+		double x=coords[4*item], y=coords[4*item+1], dx=coords[4*item+2]-x, dy=coords[4*item+3]-y;
+		double t=Math.max(0, Math.min(1, ((px-x)*dx+(py-y)*dy)/(dx*dx+dy*dy)));
+		double rx=x+t*dx-px, ry=y+t*dy-py;
+		return rx*rx+ry*ry;
+	}
+
+	/**
+	 * Computes the cells of a range of segments.
+	 */
+	private static final class CellTask extends RecursiveAction {
+		private final SegmentGrid2<?> grid;
+		private final int start, end;
+		// the cell and segment indices of the pairs
+		int[] pairs=new int[64];
+		int size;
+
+		CellTask(SegmentGrid2<?> grid, int start, int end) {
+			this.grid=grid;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected void compute() {
+			double[] coords=grid.coords;
+			int columns=grid.columns;
+			double minX=grid.extent.minX, cellWidth=grid.cellWidth;
+			for (int item=start; item<end; item++) {
+				double x1=coords[4*item], y1=coords[4*item+1], x2=coords[4*item+2], y2=coords[4*item+3];
+				if (x1>x2) {
+					double swap=x1; x1=x2; x2=swap;
+					swap=y1; y1=y2; y2=swap;
+				}
+				int columnMin=grid.column(x1), columnMax=grid.column(x2);
+				for (int column=columnMin; column<=columnMax; column++) {
+					// the y range of the part of the segment inside the column
+					double ya=y1, yb=y2;
+					if (columnMin<columnMax) {
+						double xa=column==columnMin ? x1 : minX+column*cellWidth;
+						double xb=column==columnMax ? x2 : minX+(column+1)*cellWidth;
+						ya=y1+(xa-x1)/(x2-x1)*(y2-y1);
+						yb=y1+(xb-x1)/(x2-x1)*(y2-y1);
+					}
+					// the tolerance covers the rounding errors at the boundaries of the rows
+					int rowMin=grid.row(Math.min(ya, yb)-EPS), rowMax=grid.row(Math.max(ya, yb)+EPS);
+					for (int row=rowMin; row<=rowMax; row++) {
+						if (size+2>pairs.length) pairs=Arrays.copyOf(pairs, 2*pairs.length);
+						pairs[size++]=row*columns+column;
+						pairs[size++]=item;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the intersecting pairs in a set of 2D segments with a sweep line. The segments are swept by increasing
+ * minimal x coordinate; the segments crossing the sweep line are kept in an interval tree ordered by their y
+ * range, so each segment is only tested against the active segments whose bounding box overlaps its own. The pairs
+ * are passed to a listener as they are found, so they are never stored: the memory use is proportional to the
+ * number of segments.
+ * <p>
+ * Two segments intersect under the same conditions as in {@link Segment2#intersect(Segment2)}, and the reported
+ * point is the one returned by that method; the bounding boxes are enlarged by the tolerance, so the result is
+ * exactly the set of pairs for which {@link Segment2#intersects(Segment2)} returns {@code true}. Every pair is
+ * reported once, including segments with common end points and collinear, overlapping segments.
+ * <p>
+ * The running time is O((n+m) log n) for n segments with m pairs of overlapping bounding boxes. For short segments,
+ * such as the edges of maps or drawings, m is proportional to the number of intersecting pairs; long segments
+ * crossing the bounding boxes of many others make it larger.
+ * @author Kazó Csaba
+ */
+public final class SegmentSweep {
+	/**
+	 * Receives the intersections found by the sweep.
+	 * @param <T> the class of the segments
+	 */
+	public interface Listener<T> {
+		/**
+		 * Called for each pair of intersecting segments. The segments are passed in the order they were returned
+		 * by the input.
+		 * @param first the segment which comes first in the input
+		 * @param second the segment which comes second in the input
+		 * @param x the x coordinate of the intersection point
+		 * @param y the y coordinate of the intersection point
+		 */
+		void intersection(T first, T second, double x, double y);
+	}
+
+	private SegmentSweep() {}
+
+	/**
+	 * Finds all the intersecting pairs in a set of segments. The segments are read once; the pairs are reported
+	 * to the listener in the order of the sweep, that is, by increasing minimal x coordinate of the segment which
+	 * comes later in the sweep.
+	 * @param <T> the class of the segments
+	 * @param segments the segments to process
+	 * @param listener the listener receiving the intersecting pairs
+	 * @throws IllegalArgumentException if a segment has an infinite or NaN coordinate
+	 */
+	public static <T extends Segment2> void findIntersections(Iterable<? extends T> segments, Listener<? super T> listener) {
+		List<T> list=new ArrayList<T>();
+		for (T segment: segments)
+			list.add(segment);
+		int n=list.size();
+
+		// the end points as passed to Segment2.intersect, and the bounding boxes
+		double[] coords=new double[4*n];
+		double[] xMin=new double[n], xMax=new double[n], yMin=new double[n], yMax=new double[n];
+		double magnitude=0;
+		for (int i=0; i<n; i++) {
+			Segment2 segment=list.get(i);
+			ImmutableVector2 p1=segment.getP1(), p2=segment.getP2();
+			double x1=p1.getX(), y1=p1.getY(), x2=p2.getX(), y2=p2.getY();
+			if (!isFinite(x1) || !isFinite(y1) || !isFinite(x2) || !isFinite(y2))
+				throw new IllegalArgumentException("Segment with non-finite coordinates: "+segment);
+			coords[4*i]=x1;
+			coords[4*i+1]=y1;
+			coords[4*i+2]=x2;
+			coords[4*i+3]=y2;
+			xMin[i]=Math.min(x1, x2);
+			xMax[i]=Math.max(x1, x2);
+			yMin[i]=Math.min(y1, y2);
+			yMax[i]=Math.max(y1, y2);
+			magnitude=Math.max(magnitude, Math.max(Math.max(Math.abs(x1), Math.abs(y1)), Math.max(Math.abs(x2), Math.abs(y2))));
+		}
+		// touching segments are within the tolerance of each other, up to the rounding errors of the distance
+		double margin=2*Segment.EPS+8*Math.ulp(magnitude);
+
+		int[] starts=sortedOrder(xMin), ends=sortedOrder(xMax);
+		IntervalTree active=new IntervalTree(yMin, yMax);
+		double[] point=new double[2];
+		int end=0;
+		for (int next: starts) {
+			// the segments ending before the sweep line cannot intersect the remaining ones
+			while (xMax[ends[end]]<xMin[next]-margin)
+				active.remove(ends[end++]);
+			active.query(yMin[next]-margin, yMax[next]+margin);
+			for (int k=0; k<active.foundCount; k++) {
+				int other=active.found[k];
+				int first=Math.min(next, other), second=Math.max(next, other);
+				if (Segment2.intersect(
+						coords[4*first], coords[4*first+1], coords[4*first+2], coords[4*first+3],
+						coords[4*second], coords[4*second+1], coords[4*second+2], coords[4*second+3],
+						point)!=Segment2.NO_INTERSECTION)
+					listener.intersection(list.get(first), list.get(second), point[0], point[1]);
+			}
+			active.insert(next);
+		}
+	}
+
+	private static boolean isFinite(double value) {
+		return !Double.isInfinite(value) && !Double.isNaN(value);
+	}
+
+	/**
+	 * Returns the indices of an array in increasing order of the values, keeping the order of equal values.
+	 */
+	private static int[] sortedOrder(double[] values) {
+		int n=values.length;
+		int[] order=new int[n], buffer=new int[n];
+		for (int i=0; i<n; i++) order[i]=i;
+		// bottom-up merge sort
+		for (int width=1; width<n; width*=2) {
+			for (int from=0; from<n; from+=2*width) {
+				int middle=Math.min(from+width, n), to=Math.min(from+2*width, n);
+				int i=from, j=middle, k=from;
+				while (i<middle && j<to)
+					buffer[k++]=values[order[j]]<values[order[i]] ? order[j++] : order[i++];
+				while (i<middle) buffer[k++]=order[i++];
+				while (j<to) buffer[k++]=order[j++];
+			}
+			int[] swap=order;
+			order=buffer;
+			buffer=swap;
+		}
+		return order;
+	}
+
+	/**
+	 * A set of intervals supporting overlap queries: a treap ordered by the lower ends, in which every node stores
+	 * the largest upper end in its subtree. The nodes are the indices of the segments.
+	 */
+	private static final class IntervalTree {
+		private final double[] low, high;
+		private final double[] maxHigh;
+		private final int[] left, right, priority;
+		private int root=-1;
+		// the result of the last query
+		int[] found=new int[16];
+		int foundCount;
+
+		IntervalTree(double[] low, double[] high) {
+			this.low=low;
+			this.high=high;
+			int n=low.length;
+			maxHigh=new double[n];
+			left=new int[n];
+			right=new int[n];
+			priority=new int[n];
+			for (int i=0; i<n; i++) {
+				// a fixed pseudo-random permutation, so that the result does not depend on a random seed
+				int h=i*0x9E3779B9;
+				priority[i]=h^(h>>>16);
+			}
+		}
+
+		void insert(int node) {
+			left[node]=right[node]=-1;
+			maxHigh[node]=high[node];
+			root=insert(root, node);
+		}
+
+		private int insert(int tree, int node) {
+			if (tree==-1) return node;
+			if (before(node, tree)) {
+				left[tree]=insert(left[tree], node);
+				update(tree);
+				if (priority[left[tree]]>priority[tree]) tree=rotateRight(tree);
+			} else {
+				right[tree]=insert(right[tree], node);
+				update(tree);
+				if (priority[right[tree]]>priority[tree]) tree=rotateLeft(tree);
+			}
+			return tree;
+		}
+
+		void remove(int node) {
+			root=remove(root, node);
+		}
+
+		private int remove(int tree, int node) {
+			if (tree==node) return merge(left[tree], right[tree]);
+			if (before(node, tree))
+				left[tree]=remove(left[tree], node);
+			else
+				right[tree]=remove(right[tree], node);
+			update(tree);
+			return tree;
+		}
+
+		/**
+		 * Merges two trees, all nodes of the first one coming before the nodes of the second one.
+		 */
+		private int merge(int a, int b) {
+			if (a==-1) return b;
+			if (b==-1) return a;
+			if (priority[a]>priority[b]) {
+				right[a]=merge(right[a], b);
+				update(a);
+				return a;
+			} else {
+				left[b]=merge(a, left[b]);
+				update(b);
+				return b;
+			}
+		}
+
+		/**
+		 * Collects the intervals overlapping the specified range into {@code found}.
+		 */
+		void query(double from, double to) {
+			foundCount=0;
+			query(root, from, to);
+		}
+
+		private void query(int tree, double from, double to) {
+			while (tree!=-1 && maxHigh[tree]>=from) {
+				query(left[tree], from, to);
+				// the lower ends in the right subtree are even larger
+				if (low[tree]>to) return;
+				if (high[tree]>=from) {
+					if (foundCount==found.length) found=Arrays.copyOf(found, 2*found.length);
+					found[foundCount++]=tree;
+				}
+				tree=right[tree];
+			}
+		}
+
+		private boolean before(int a, int b) {
+			return low[a]<low[b] || low[a]==low[b] && a<b;
+		}
+
+		private int rotateRight(int tree) {
+			int top=left[tree];
+			left[tree]=right[top];
+			right[top]=tree;
+			update(tree);
+			update(top);
+			return top;
+		}
+
+		private int rotateLeft(int tree) {
+			int top=right[tree];
+			right[tree]=left[top];
+			left[top]=tree;
+			update(tree);
+			update(top);
+			return top;
+		}
+
+		private void update(int tree) {
+			double max=high[tree];
+			if (left[tree]!=-1) max=Math.max(max, maxHigh[left[tree]]);
+			if (right[tree]!=-1) max=Math.max(max, maxHigh[right[tree]]);
+			maxHigh[tree]=max;
+		}
+	}
+}
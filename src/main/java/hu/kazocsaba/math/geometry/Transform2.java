@@ -0,0 +1,206 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Matrix2;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
+
+/**
+ * An invertible affine transformation of the plane, mapping a point {@code X} to {@code M*X+T}, where M is a 2x2
+ * matrix and T is the translation vector. Instances are immutable.
+ * <p>
+ * A transformation is <em>rigid</em> if M is orthogonal (within a tolerance of 1e-10), that is, it is a rotation,
+ * possibly combined with a reflection.
+ * @author Kazó Csaba
+ * @see Transform3
+ */
+public final class Transform2 {
+	private static final double EPS=1e-8;
+	private static final double ORTHOGONALITY_TOLERANCE=1e-10;
+	private static final Transform2 IDENTITY=new Transform2(1, 0, 0, 1, 0, 0);
+
+	// the matrix, row by row, and the translation
+	final double m00, m01, m10, m11;
+	final double tx, ty;
+	private final double determinant;
+	private final boolean rigid;
+
+	private Transform2(double m00, double m01, double m10, double m11, double tx, double ty) {
+		this.m00=m00; this.m01=m01;
+		this.m10=m10; this.m11=m11;
+		this.tx=tx; this.ty=ty;
+		determinant=m00*m11-m01*m10;
+		double squaredNorm=m00*m00+m01*m01+m10*m10+m11*m11;
+		if (!(Math.abs(determinant)>=EPS*squaredNorm/2)) throw new IllegalArgumentException("Singular transformation");
+		rigid=Math.abs(m00*m00+m10*m10-1)<=ORTHOGONALITY_TOLERANCE && Math.abs(m01*m01+m11*m11-1)<=ORTHOGONALITY_TOLERANCE &&
+				Math.abs(m00*m01+m10*m11)<=ORTHOGONALITY_TOLERANCE;
+	}
+
+	/**
+	 * Creates a new affine transformation.
+	 * @param matrix the matrix M
+	 * @param translation the translation T
+	 * @return the transformation mapping {@code X} to {@code M*X+T}
+	 * @throws IllegalArgumentException if the matrix is singular
+	 */
+	public static Transform2 create(Matrix2 matrix, Vector2 translation) {
+		return new Transform2(matrix.get(0, 0), matrix.get(0, 1), matrix.get(1, 0), matrix.get(1, 1),
+				translation.getX(), translation.getY());
+	}
+
+	/**
+	 * Creates a new rigid transformation.
+	 * @param rotation the orthogonal matrix M
+	 * @param translation the translation T
+	 * @return the transformation mapping {@code X} to {@code M*X+T}
+	 * @throws IllegalArgumentException if the matrix is not orthogonal
+	 */
+	public static Transform2 createRigid(Matrix2 rotation, Vector2 translation) {
+		Transform2 result=create(rotation, translation);
+		if (!result.rigid) throw new IllegalArgumentException("The matrix is not orthogonal");
+		return result;
+	}
+
+	/**
+	 * Returns the identity transformation.
+	 * @return the transformation mapping every point to itself
+	 */
+	public static Transform2 identity() {
+		return IDENTITY;
+	}
+
+	/**
+	 * Creates a translation.
+	 * @param translation the translation vector
+	 * @return the transformation mapping {@code X} to {@code X+translation}
+	 */
+	public static Transform2 createTranslation(Vector2 translation) {
+		return new Transform2(1, 0, 0, 1, translation.getX(), translation.getY());
+	}
+
+	/**
+	 * Creates a counterclockwise rotation around a point.
+	 * @param center the center of the rotation
+	 * @param angle the angle in radians
+	 * @return the rotation around {@code center} by {@code angle}
+	 */
+	public static Transform2 createRotation(Vector2 center, double angle) {
+		double c=Math.cos(angle), s=Math.sin(angle);
+		double x=center.getX(), y=center.getY();
+		// X -> R*(X-C)+C
+		return new Transform2(c, -s, s, c, x-(c*x-s*y), y-(s*x+c*y));
+	}
+
+	/**
+	 * Returns the matrix of this transformation.
+	 * @return a new matrix containing {@code M}
+	 */
+	public Matrix2 getMatrix() {
+		return MatrixFactory.createMatrix2(new double[][] {{m00, m01}, {m10, m11}});
+	}
+
+	/**
+	 * Returns the translation of this transformation.
+	 * @return {@code T}
+	 */
+	public ImmutableVector2 getTranslation() {
+		return ImmutableMatrixFactory.createVector(tx, ty);
+	}
+
+	/**
+	 * Returns whether this transformation is rigid, that is, its matrix is orthogonal.
+	 * @return {@code true} if this transformation preserves distances
+	 */
+	public boolean isRigid() {
+		return rigid;
+	}
+
+	/**
+	 * Returns the transformation which applies this transformation first, and then the argument.
+	 * @param next the transformation to apply after this one
+	 * @return the composition of the transformations
+	 */
+	public Transform2 then(Transform2 next) {
+		return new Transform2(
+				next.m00*m00+next.m01*m10, next.m00*m01+next.m01*m11,
+				next.m10*m00+next.m11*m10, next.m10*m01+next.m11*m11,
+				next.m00*tx+next.m01*ty+next.tx,
+				next.m10*tx+next.m11*ty+next.ty);
+	}
+
+	/**
+	 * Returns the inverse of this transformation.
+	 * @return the transformation which maps {@code M*X+T} to {@code X}
+	 */
+	public Transform2 inverse() {
+		double i00=m11/determinant, i01=-m01/determinant, i10=-m10/determinant, i11=m00/determinant;
+		return new Transform2(i00, i01, i10, i11, -(i00*tx+i01*ty), -(i10*tx+i11*ty));
+	}
+
+	/**
+	 * Transforms a point.
+	 * @param point the point to transform
+	 * @return {@code M*point+T}
+	 */
+	public Vector2 transformPoint(Vector2 point) {
+		double x=point.getX(), y=point.getY();
+		return MatrixFactory.createVector(m00*x+m01*y+tx, m10*x+m11*y+ty);
+	}
+
+	/**
+	 * Transforms a direction vector. The translation does not affect directions.
+	 * @param dir the vector to transform
+	 * @return {@code M*dir}
+	 */
+	public Vector2 transformDir(Vector2 dir) {
+		double x=dir.getX(), y=dir.getY();
+		return MatrixFactory.createVector(m00*x+m01*y, m10*x+m11*y);
+	}
+
+	/**
+	 * Transforms a set of points in place. The coordinates of the {@code i}th point are
+	 * {@code (xs[offset+i], ys[offset+i])}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @throws IndexOutOfBoundsException if the specified range is not valid for the arrays
+	 */
+	public void transformPoints(double[] xs, double[] ys, int offset, int length) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		for (int i=offset; i<offset+length; i++) {
+			double x=xs[i], y=ys[i];
+			xs[i]=m00*x+m01*y+tx;
+			ys[i]=m10*x+m11*y+ty;
+		}
+	}
+
+	/**
+	 * Transforms a line. The point and the direction of the line are transformed, so the point with parameter
+	 * {@code t} of the result is the image of the point with parameter {@code t} of the original line.
+	 * @param line the line to transform
+	 * @return the image of the line
+	 */
+	public Line2 transform(Line2 line) {
+		double px=line.px, py=line.py, dx=line.dx, dy=line.dy;
+		return new Line2(ImmutableMatrixFactory.createVector(m00*px+m01*py+tx, m10*px+m11*py+ty),
+				ImmutableMatrixFactory.createVector(m00*dx+m01*dy, m10*dx+m11*dy));
+	}
+
+	/**
+	 * Transforms a segment.
+	 * @param segment the segment to transform
+	 * @return the image of the segment
+	 * @throws IllegalArgumentException if the transformed end points are too close to each other
+	 */
+	public Segment2 transform(Segment2 segment) {
+		return new Segment2(transformPoint(segment.getP1()), transformPoint(segment.getP2()));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Transform2[[%s, %s; %s, %s] + (%s, %s)]", m00, m01, m10, m11, tx, ty);
+	}
+}
@@ -0,0 +1,307 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+
+/**
+ * An invertible affine transformation of 3D space, mapping a point {@code X} to {@code M*X+T}, where M is a 3x3
+ * matrix and T is the translation vector. Instances are immutable.
+ * <p>
+ * A transformation is <em>rigid</em> if M is orthogonal (within a tolerance of 1e-10), that is, it is a rotation,
+ * possibly combined with a reflection. Rigid transformations preserve lengths, so the unit normals of planes and
+ * the bases of circles are transformed without normalizing them again. Circles can only be transformed by
+ * <em>similarities</em>, transformations whose matrix is a multiple of an orthogonal one.
+ * @author Kazó Csaba
+ */
+public final class Transform3 {
+	private static final double EPS=1e-8;
+	private static final double ORTHOGONALITY_TOLERANCE=1e-10;
+	private static final Transform3 IDENTITY=new Transform3(1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0);
+
+	// the matrix, row by row, and the translation
+	final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+	final double tx, ty, tz;
+	// the inverse transpose of the matrix, which transforms normal vectors
+	final double n00, n01, n02, n10, n11, n12, n20, n21, n22;
+	private final double determinant;
+	// the scale factor if the matrix is a multiple of an orthogonal matrix, NaN otherwise
+	private final double scale;
+	final boolean rigid;
+
+	private Transform3(double m00, double m01, double m02, double m10, double m11, double m12,
+			double m20, double m21, double m22, double tx, double ty, double tz) {
+		this.m00=m00; this.m01=m01; this.m02=m02;
+		this.m10=m10; this.m11=m11; this.m12=m12;
+		this.m20=m20; this.m21=m21; this.m22=m22;
+		this.tx=tx; this.ty=ty; this.tz=tz;
+		// the cofactors
+		double c00=m11*m22-m12*m21, c01=m12*m20-m10*m22, c02=m10*m21-m11*m20;
+		double c10=m02*m21-m01*m22, c11=m00*m22-m02*m20, c12=m01*m20-m00*m21;
+		double c20=m01*m12-m02*m11, c21=m02*m10-m00*m12, c22=m00*m11-m01*m10;
+		determinant=m00*c00+m01*c01+m02*c02;
+		double squaredNorm=m00*m00+m01*m01+m02*m02+m10*m10+m11*m11+m12*m12+m20*m20+m21*m21+m22*m22;
+		double typicalScale=Math.sqrt(squaredNorm/3);
+		if (!(Math.abs(determinant)>=EPS*typicalScale*typicalScale*typicalScale))
+			throw new IllegalArgumentException("Singular transformation");
+		n00=c00/determinant; n01=c01/determinant; n02=c02/determinant;
+		n10=c10/determinant; n11=c11/determinant; n12=c12/determinant;
+		n20=c20/determinant; n21=c21/determinant; n22=c22/determinant;
+
+		// M^T*M=s^2*I for a similarity
+		double s2=squaredNorm/3;
+		double maxError=Math.max(Math.max(
+				Math.abs(m00*m00+m10*m10+m20*m20-s2),
+				Math.abs(m01*m01+m11*m11+m21*m21-s2)),
+				Math.abs(m02*m02+m12*m12+m22*m22-s2));
+		maxError=Math.max(maxError, Math.max(Math.max(
+				Math.abs(m00*m01+m10*m11+m20*m21),
+				Math.abs(m00*m02+m10*m12+m20*m22)),
+				Math.abs(m01*m02+m11*m12+m21*m22)));
+		scale=maxError<=ORTHOGONALITY_TOLERANCE*s2 ? typicalScale : Double.NaN;
+		rigid=Math.abs(s2-1)<=ORTHOGONALITY_TOLERANCE && maxError<=ORTHOGONALITY_TOLERANCE;
+	}
+
+	/**
+	 * Creates a new affine transformation.
+	 * @param matrix the matrix M
+	 * @param translation the translation T
+	 * @return the transformation mapping {@code X} to {@code M*X+T}
+	 * @throws IllegalArgumentException if the matrix is singular
+	 */
+	public static Transform3 create(Matrix3 matrix, Vector3 translation) {
+		return new Transform3(matrix.get(0, 0), matrix.get(0, 1), matrix.get(0, 2),
+				matrix.get(1, 0), matrix.get(1, 1), matrix.get(1, 2),
+				matrix.get(2, 0), matrix.get(2, 1), matrix.get(2, 2),
+				translation.getX(), translation.getY(), translation.getZ());
+	}
+
+	/**
+	 * Creates a new rigid transformation.
+	 * @param rotation the orthogonal matrix M
+	 * @param translation the translation T
+	 * @return the transformation mapping {@code X} to {@code M*X+T}
+	 * @throws IllegalArgumentException if the matrix is not orthogonal
+	 */
+	public static Transform3 createRigid(Matrix3 rotation, Vector3 translation) {
+		Transform3 result=create(rotation, translation);
+		if (!result.rigid) throw new IllegalArgumentException("The matrix is not orthogonal");
+		return result;
+	}
+
+	/**
+	 * Returns the identity transformation.
+	 * @return the transformation mapping every point to itself
+	 */
+	public static Transform3 identity() {
+		return IDENTITY;
+	}
+
+	/**
+	 * Creates a translation.
+	 * @param translation the translation vector
+	 * @return the transformation mapping {@code X} to {@code X+translation}
+	 */
+	public static Transform3 createTranslation(Vector3 translation) {
+		return new Transform3(1, 0, 0, 0, 1, 0, 0, 0, 1, translation.getX(), translation.getY(), translation.getZ());
+	}
+
+	/**
+	 * Creates a rotation around a line. The direction of the rotation is as in {@link Line3#getRotation(double)}.
+	 * @param axis the axis of the rotation
+	 * @param angle the angle in radians
+	 * @return the rotation around {@code axis} by {@code angle}
+	 */
+	public static Transform3 createRotation(Line3 axis, double angle) {
+		Matrix3 r=axis.getRotation(angle);
+		// X -> R*(X-P)+P
+		double px=axis.px, py=axis.py, pz=axis.pz;
+		return new Transform3(r.get(0, 0), r.get(0, 1), r.get(0, 2),
+				r.get(1, 0), r.get(1, 1), r.get(1, 2),
+				r.get(2, 0), r.get(2, 1), r.get(2, 2),
+				px-(r.get(0, 0)*px+r.get(0, 1)*py+r.get(0, 2)*pz),
+				py-(r.get(1, 0)*px+r.get(1, 1)*py+r.get(1, 2)*pz),
+				pz-(r.get(2, 0)*px+r.get(2, 1)*py+r.get(2, 2)*pz));
+	}
+
+	/**
+	 * Returns the matrix of this transformation.
+	 * @return a new matrix containing {@code M}
+	 */
+	public Matrix3 getMatrix() {
+		return MatrixFactory.createMatrix3(new double[][] {{m00, m01, m02}, {m10, m11, m12}, {m20, m21, m22}});
+	}
+
+	/**
+	 * Returns the translation of this transformation.
+	 * @return {@code T}
+	 */
+	public ImmutableVector3 getTranslation() {
+		return ImmutableMatrixFactory.createVector(tx, ty, tz);
+	}
+
+	/**
+	 * Returns whether this transformation is rigid, that is, its matrix is orthogonal.
+	 * @return {@code true} if this transformation preserves distances
+	 */
+	public boolean isRigid() {
+		return rigid;
+	}
+
+	/**
+	 * Returns whether this transformation is a similarity, that is, its matrix is a multiple of an orthogonal matrix.
+	 * @return {@code true} if this transformation preserves angles
+	 */
+	public boolean isSimilarity() {
+		return !Double.isNaN(scale);
+	}
+
+	/**
+	 * Returns the transformation which applies this transformation first, and then the argument.
+	 * @param next the transformation to apply after this one
+	 * @return the composition of the transformations
+	 */
+	public Transform3 then(Transform3 next) {
+		return new Transform3(
+				next.m00*m00+next.m01*m10+next.m02*m20, next.m00*m01+next.m01*m11+next.m02*m21, next.m00*m02+next.m01*m12+next.m02*m22,
+				next.m10*m00+next.m11*m10+next.m12*m20, next.m10*m01+next.m11*m11+next.m12*m21, next.m10*m02+next.m11*m12+next.m12*m22,
+				next.m20*m00+next.m21*m10+next.m22*m20, next.m20*m01+next.m21*m11+next.m22*m21, next.m20*m02+next.m21*m12+next.m22*m22,
+				next.m00*tx+next.m01*ty+next.m02*tz+next.tx,
+				next.m10*tx+next.m11*ty+next.m12*tz+next.ty,
+				next.m20*tx+next.m21*ty+next.m22*tz+next.tz);
+	}
+
+	/**
+	 * Returns the inverse of this transformation.
+	 * @return the transformation which maps {@code M*X+T} to {@code X}
+	 */
+	public Transform3 inverse() {
+		// the inverse matrix is the transpose of the normal matrix
+		return new Transform3(n00, n10, n20, n01, n11, n21, n02, n12, n22,
+				-(n00*tx+n10*ty+n20*tz),
+				-(n01*tx+n11*ty+n21*tz),
+				-(n02*tx+n12*ty+n22*tz));
+	}
+
+	/**
+	 * Transforms a point.
+	 * @param point the point to transform
+	 * @return {@code M*point+T}
+	 */
+	public Vector3 transformPoint(Vector3 point) {
+		double x=point.getX(), y=point.getY(), z=point.getZ();
+		return MatrixFactory.createVector(m00*x+m01*y+m02*z+tx, m10*x+m11*y+m12*z+ty, m20*x+m21*y+m22*z+tz);
+	}
+
+	/**
+	 * Transforms a direction vector. The translation does not affect directions.
+	 * @param dir the vector to transform
+	 * @return {@code M*dir}
+	 */
+	public Vector3 transformDir(Vector3 dir) {
+		double x=dir.getX(), y=dir.getY(), z=dir.getZ();
+		return MatrixFactory.createVector(m00*x+m01*y+m02*z, m10*x+m11*y+m12*z, m20*x+m21*y+m22*z);
+	}
+
+	/**
+	 * Transforms a set of points in place. The coordinates of the {@code i}th point are
+	 * {@code (xs[offset+i], ys[offset+i], zs[offset+i])}.
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @throws IndexOutOfBoundsException if the specified range is not valid for the arrays
+	 */
+	public void transformPoints(double[] xs, double[] ys, double[] zs, int offset, int length) {
+		Batch.checkRange("xs", xs.length, offset, length);
+		Batch.checkRange("ys", ys.length, offset, length);
+		Batch.checkRange("zs", zs.length, offset, length);
+		for (int i=offset; i<offset+length; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			xs[i]=m00*x+m01*y+m02*z+tx;
+			ys[i]=m10*x+m11*y+m12*z+ty;
+			zs[i]=m20*x+m21*y+m22*z+tz;
+		}
+	}
+
+	/**
+	 * Transforms a line. The point and the direction of the line are transformed, so the point with parameter
+	 * {@code t} of the result is the image of the point with parameter {@code t} of the original line.
+	 * @param line the line to transform
+	 * @return the image of the line
+	 */
+	public Line3 transform(Line3 line) {
+		double px=line.px, py=line.py, pz=line.pz, dx=line.dx, dy=line.dy, dz=line.dz;
+		return new Line3(
+				ImmutableMatrixFactory.createVector(m00*px+m01*py+m02*pz+tx, m10*px+m11*py+m12*pz+ty, m20*px+m21*py+m22*pz+tz),
+				ImmutableMatrixFactory.createVector(m00*dx+m01*dy+m02*dz, m10*dx+m11*dy+m12*dz, m20*dx+m21*dy+m22*dz));
+	}
+
+	/**
+	 * Transforms a segment.
+	 * @param segment the segment to transform
+	 * @return the image of the segment
+	 * @throws IllegalArgumentException if the transformed end points are too close to each other
+	 */
+	public Segment3 transform(Segment3 segment) {
+		return new Segment3(transformPoint(segment.getP1()), transformPoint(segment.getP2()));
+	}
+
+	/**
+	 * Transforms a triangle.
+	 * @param triangle the triangle to transform
+	 * @return the image of the triangle
+	 * @throws IllegalArgumentException if the transformed vertices are collinear
+	 */
+	public Triangle3 transform(Triangle3 triangle) {
+		return new Triangle3(transformPoint(triangle.getA()), transformPoint(triangle.getB()), transformPoint(triangle.getC()));
+	}
+
+	/**
+	 * Transforms a plane. The point of the plane is transformed as a point, its normal with the inverse transpose of
+	 * the matrix, which keeps it perpendicular to the plane.
+	 * @param plane the plane to transform
+	 * @return the image of the plane
+	 */
+	public Plane3 transform(Plane3 plane) {
+		Vector3 point=transformPoint(plane.getPoint());
+		ImmutableVector3 normal=plane.getNormal();
+		double x=normal.getX(), y=normal.getY(), z=normal.getZ();
+		ImmutableVector3 transformedNormal=ImmutableMatrixFactory.createVector(
+				n00*x+n01*y+n02*z, n10*x+n11*y+n12*z, n20*x+n21*y+n22*z);
+		if (!rigid) return new Plane3(point, transformedNormal);
+		// the unit normal stays unit length
+		double ux=plane.nx, uy=plane.ny, uz=plane.nz;
+		double nx=n00*ux+n01*uy+n02*uz, ny=n10*ux+n11*uy+n12*uz, nz=n20*ux+n21*uy+n22*uz;
+		return new Plane3(point, transformedNormal, nx, ny, nz, plane.offset+nx*tx+ny*ty+nz*tz);
+	}
+
+	/**
+	 * Transforms a circle. The point at every angle of the result is the image of the point at the same angle of the
+	 * original circle.
+	 * @param circle the circle to transform
+	 * @return the image of the circle
+	 * @throws IllegalArgumentException if this transformation is not a similarity
+	 */
+	public Circle3 transform(Circle3 circle) {
+		if (!isSimilarity()) throw new IllegalArgumentException("The image of a circle is not a circle");
+		double cx=circle.cx, cy=circle.cy, cz=circle.cz;
+		double ux=circle.ux, uy=circle.uy, uz=circle.uz, vx=circle.vx, vy=circle.vy, vz=circle.vz;
+		// the images of the basis vectors, scaled back to unit length
+		double s=1/scale;
+		double ax=(m00*ux+m01*uy+m02*uz)*s, ay=(m10*ux+m11*uy+m12*uz)*s, az=(m20*ux+m21*uy+m22*uz)*s;
+		double bx=(m00*vx+m01*vy+m02*vz)*s, by=(m10*vx+m11*vy+m12*vz)*s, bz=(m20*vx+m21*vy+m22*vz)*s;
+		// the new normal keeps the basis right-handed, so the angles are preserved also by reflections
+		return new Circle3(m00*cx+m01*cy+m02*cz+tx, m10*cx+m11*cy+m12*cz+ty, m20*cx+m21*cy+m22*cz+tz,
+				ay*bz-az*by, az*bx-ax*bz, ax*by-ay*bx, ax, ay, az, circle.radius*scale);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Transform3[[%s, %s, %s; %s, %s, %s; %s, %s, %s] + (%s, %s, %s)]",
+				m00, m01, m02, m10, m11, m12, m20, m21, m22, tx, ty, tz);
+	}
+}
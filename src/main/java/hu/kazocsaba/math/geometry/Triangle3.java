@@ -0,0 +1,169 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+
+/**
+ * A triangle in 3D space, specified by its vertices A, B and C. The points of the triangle are
+ * {@code A + u*(B-A) + v*(C-A)} with {@code u>=0}, {@code v>=0} and {@code u+v<=1}; {@code (u,v)} are the
+ * barycentric coordinates of the point. Instances are immutable.
+ * @author Kazó Csaba
+ * @see Triangle3Buffer
+ */
+public final class Triangle3 {
+	private static final double EPS=1e-8;
+	/**
+	 * The square of the smallest sine of the angle between a line and a triangle (times the sine of the angle of
+	 * the triangle at A) for which an intersection is computed.
+	 */
+	private static final double PARALLEL_TOLERANCE=1e-24;
+
+	private final ImmutableVector3 a, b, c;
+	// primitive copies of the vertices for the allocation-free queries
+	final double ax, ay, az, bx, by, bz, cx, cy, cz;
+
+	/**
+	 * Creates a new triangle.
+	 * @param a the first vertex
+	 * @param b the second vertex
+	 * @param c the third vertex
+	 * @throws IllegalArgumentException if the vertices are collinear, that is, the area of the triangle is too small
+	 */
+	public Triangle3(Vector3 a, Vector3 b, Vector3 c) {
+		this.a=ImmutableMatrixFactory.copy(a);
+		this.b=ImmutableMatrixFactory.copy(b);
+		this.c=ImmutableMatrixFactory.copy(c);
+		ax=a.getX(); ay=a.getY(); az=a.getZ();
+		bx=b.getX(); by=b.getY(); bz=b.getZ();
+		cx=c.getX(); cy=c.getY(); cz=c.getZ();
+		if (!(doubleArea()>=EPS*EPS)) throw new IllegalArgumentException("The vertices are collinear");
+	}
+
+	private double doubleArea() {
+		double e1x=bx-ax, e1y=by-ay, e1z=bz-az;
+		double e2x=cx-ax, e2y=cy-ay, e2z=cz-az;
+		double nx=e1y*e2z-e1z*e2y, ny=e1z*e2x-e1x*e2z, nz=e1x*e2y-e1y*e2x;
+		return Math.sqrt(nx*nx+ny*ny+nz*nz);
+	}
+
+	/**
+	 * Returns the first vertex of this triangle.
+	 * @return A
+	 */
+	public ImmutableVector3 getA() {return a;}
+	/**
+	 * Returns the second vertex of this triangle.
+	 * @return B
+	 */
+	public ImmutableVector3 getB() {return b;}
+	/**
+	 * Returns the third vertex of this triangle.
+	 * @return C
+	 */
+	public ImmutableVector3 getC() {return c;}
+
+	/**
+	 * Returns the unit normal vector of this triangle. The vertices are in counterclockwise order when viewed from
+	 * the direction the normal points to.
+	 * @return the unit vector in the direction of {@code (B-A)x(C-A)}
+	 */
+	public ImmutableVector3 getNormal() {
+		double e1x=bx-ax, e1y=by-ay, e1z=bz-az;
+		double e2x=cx-ax, e2y=cy-ay, e2z=cz-az;
+		double nx=e1y*e2z-e1z*e2y, ny=e1z*e2x-e1x*e2z, nz=e1x*e2y-e1y*e2x;
+		double length=Math.sqrt(nx*nx+ny*ny+nz*nz);
+		return ImmutableMatrixFactory.createVector(nx/length, ny/length, nz/length);
+	}
+
+	/**
+	 * Returns the area of this triangle.
+	 * @return the area
+	 */
+	public double getArea() {
+		return doubleArea()/2;
+	}
+
+	/**
+	 * Returns the point of this triangle with the specified barycentric coordinates. If the coordinates are not in
+	 * the valid range, the returned point is in the plane of the triangle, but outside it.
+	 * @param u the weight of B
+	 * @param v the weight of C
+	 * @return {@code A + u*(B-A) + v*(C-A)}
+	 */
+	public Vector3 getPointAt(double u, double v) {
+		return MatrixFactory.createVector(
+				ax+u*(bx-ax)+v*(cx-ax),
+				ay+u*(by-ay)+v*(cy-ay),
+				az+u*(bz-az)+v*(cz-az));
+	}
+
+	/**
+	 * Returns the plane of this triangle.
+	 * @return the plane through the vertices, with the normal returned by {@link #getNormal()}
+	 */
+	public Plane3 getPlane() {
+		return Plane3.create(a, getNormal());
+	}
+
+	/**
+	 * Returns the intersection of this triangle and a line.
+	 * @param line the line
+	 * @return the common point of the line and this triangle, or {@code null} if the line misses the triangle or
+	 * is parallel with it
+	 */
+	public Vector3 intersect(Line3 line) {
+		double[] result=new double[3];
+		if (!intersect(line, result, 0)) return null;
+		return getPointAt(result[1], result[2]);
+	}
+
+	/**
+	 * Computes the intersection of this triangle and a line without allocating memory. The parameter {@code t}
+	 * of the intersection point along the line and its barycentric coordinates {@code u} and {@code v} are
+	 * stored in the result array. Points on the edges of the triangle are considered part of it.
+	 * @param line the line
+	 * @param result the array to store {@code t}, {@code u} and {@code v} in
+	 * @param offset the index of {@code t} in {@code result}
+	 * @return {@code true} if the line intersects this triangle; otherwise the contents of {@code result} are
+	 * unspecified
+	 * @see Line3#getPointAt(double)
+	 * @see #getPointAt(double, double)
+	 */
+	public boolean intersect(Line3 line, double[] result, int offset) {
+		return intersect(ax, ay, az, bx, by, bz, cx, cy, cz, line.px, line.py, line.pz, line.dx, line.dy, line.dz, result, offset);
+	}
+
+	/**
+	 * The Möller-Trumbore test of a triangle and a line: solves {@code P+t*D = A+u*(B-A)+v*(C-A)} with Cramer's
+	 * rule, rejecting the line as soon as {@code u} or {@code v} is out of range. Lines nearly parallel with the
+	 * triangle, and degenerate triangles, are reported as misses.
+	 */
+	static boolean intersect(double ax, double ay, double az, double bx, double by, double bz, double cx, double cy, double cz,
+			double px, double py, double pz, double dx, double dy, double dz, double[] result, int offset) {
+		double e1x=bx-ax, e1y=by-ay, e1z=bz-az;
+		double e2x=cx-ax, e2y=cy-ay, e2z=cz-az;
+		// h = D x E2, det = E1.h
+		double hx=dy*e2z-dz*e2y, hy=dz*e2x-dx*e2z, hz=dx*e2y-dy*e2x;
+		double det=e1x*hx+e1y*hy+e1z*hz;
+		// det is the product of |E1xE2|, |D| and the cosine of their angle
+		if (!(det*det>PARALLEL_TOLERANCE*(e1x*e1x+e1y*e1y+e1z*e1z)*(e2x*e2x+e2y*e2y+e2z*e2z)*(dx*dx+dy*dy+dz*dz))) return false;
+		double inv=1/det;
+		double sx=px-ax, sy=py-ay, sz=pz-az;
+		double u=(sx*hx+sy*hy+sz*hz)*inv;
+		if (u<0 || u>1) return false;
+		double qx=sy*e1z-sz*e1y, qy=sz*e1x-sx*e1z, qz=sx*e1y-sy*e1x;
+		double v=(dx*qx+dy*qy+dz*qz)*inv;
+		if (v<0 || u+v>1) return false;
+		result[offset  ]=(e2x*qx+e2y*qy+e2z*qz)*inv;
+		result[offset+1]=u;
+		result[offset+2]=v;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Triangle[%s, %s, %s]", a, b, c);
+	}
+}
@@ -0,0 +1,335 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A growable list of 3D triangles stored in packed form, such as the faces of a triangle mesh. Each triangle takes
+ * nine doubles (the coordinates of its vertices) in a single array, instead of a {@link Triangle3} object with its
+ * vectors. The triangles are identified by their indices.
+ * <p>
+ * The buffer keeps the bounding box of each block of 32 consecutive triangles, and ray casting skips the blocks the
+ * ray misses. This culling is effective if triangles which are close in the buffer are also close in space, which
+ * is usually the case for meshes read from files. Degenerate triangles can be stored, but rays never hit them.
+ * <p>
+ * This class is not thread-safe: it must not be modified while other threads access it.
+ * @author Kazó Csaba
+ */
+public final class Triangle3Buffer extends PackedBuffer {
+	private static final int STRIDE=9;
+	/**
+	 * The number of triangles sharing a bounding box.
+	 */
+	private static final int BLOCK=32;
+	/**
+	 * Batches of rays are split into parallel tasks until the number of ray-block tests of a task is below this.
+	 */
+	private static final long PARALLEL_THRESHOLD=1<<16;
+
+	// the minimal and maximal coordinates of the triangles of each block
+	private double[] bounds;
+
+	/**
+	 * Creates a new empty buffer.
+	 */
+	public Triangle3Buffer() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty buffer with room for the specified number of triangles.
+	 * @param initialCapacity the number of triangles the buffer can hold before growing
+	 * @throws IllegalArgumentException if the capacity is negative or too large
+	 */
+	public Triangle3Buffer(int initialCapacity) {
+		super(STRIDE, initialCapacity);
+		bounds=new double[6*((initialCapacity+BLOCK-1)/BLOCK)];
+	}
+
+	/**
+	 * Appends a triangle to this buffer.
+	 * @param triangle the triangle to add
+	 * @return the index of the triangle
+	 */
+	public int add(Triangle3 triangle) {
+		return add(triangle.ax, triangle.ay, triangle.az, triangle.bx, triangle.by, triangle.bz, triangle.cx, triangle.cy, triangle.cz);
+	}
+
+	/**
+	 * Appends a triangle to this buffer.
+	 * @param ax the x coordinate of the first vertex
+	 * @param ay the y coordinate of the first vertex
+	 * @param az the z coordinate of the first vertex
+	 * @param bx the x coordinate of the second vertex
+	 * @param by the y coordinate of the second vertex
+	 * @param bz the z coordinate of the second vertex
+	 * @param cx the x coordinate of the third vertex
+	 * @param cy the y coordinate of the third vertex
+	 * @param cz the z coordinate of the third vertex
+	 * @return the index of the triangle
+	 */
+	public int add(double ax, double ay, double az, double bx, double by, double bz, double cx, double cy, double cz) {
+		int base=append();
+		put(base, ax, ay, az, bx, by, bz, cx, cy, cz);
+		int index=base/STRIDE, block=index/BLOCK;
+		if (6*block+6>bounds.length) bounds=Arrays.copyOf(bounds, Math.max(6*block+6, bounds.length*3/2));
+		if (index%BLOCK==0) {
+			// the first triangle of a new block; the bounds may contain stale values after clear()
+			for (int k=0; k<3; k++) {
+				bounds[6*block+k]=Double.POSITIVE_INFINITY;
+				bounds[6*block+3+k]=Double.NEGATIVE_INFINITY;
+			}
+		}
+		include(block, base);
+		return index;
+	}
+
+	private void put(int base, double ax, double ay, double az, double bx, double by, double bz, double cx, double cy, double cz) {
+		double[] d=data;
+		d[base  ]=ax;
+		d[base+1]=ay;
+		d[base+2]=az;
+		d[base+3]=bx;
+		d[base+4]=by;
+		d[base+5]=bz;
+		d[base+6]=cx;
+		d[base+7]=cy;
+		d[base+8]=cz;
+	}
+
+	/**
+	 * Extends the bounds of a block with a triangle.
+	 */
+	private void include(int block, int base) {
+		double[] d=data, box=bounds;
+		int b=6*block;
+		for (int vertex=base; vertex<base+STRIDE; vertex+=3)
+			for (int k=0; k<3; k++) {
+				double coord=d[vertex+k];
+				if (coord<box[b+k]) box[b+k]=coord;
+				if (coord>box[b+3+k]) box[b+3+k]=coord;
+			}
+	}
+
+	/**
+	 * Recomputes the bounds of a block from its triangles.
+	 */
+	private void updateBounds(int block) {
+		for (int k=0; k<3; k++) {
+			bounds[6*block+k]=Double.POSITIVE_INFINITY;
+			bounds[6*block+3+k]=Double.NEGATIVE_INFINITY;
+		}
+		int end=Math.min(size(), (block+1)*BLOCK);
+		for (int i=block*BLOCK; i<end; i++)
+			include(block, i*STRIDE);
+	}
+
+	/**
+	 * Replaces a triangle of this buffer.
+	 * @param index the index of the triangle
+	 * @param triangle the new triangle
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 */
+	public void set(int index, Triangle3 triangle) {
+		put(base(index), triangle.ax, triangle.ay, triangle.az, triangle.bx, triangle.by, triangle.bz, triangle.cx, triangle.cy, triangle.cz);
+		updateBounds(index/BLOCK);
+	}
+
+	/**
+	 * Returns a triangle of this buffer as a new object.
+	 * @param index the index of the triangle
+	 * @return the triangle with the specified index
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @throws IllegalArgumentException if the triangle is degenerate
+	 */
+	public Triangle3 get(int index) {
+		int base=base(index);
+		double[] d=data;
+		return new Triangle3(ImmutableMatrixFactory.createVector(d[base  ], d[base+1], d[base+2]),
+				ImmutableMatrixFactory.createVector(d[base+3], d[base+4], d[base+5]),
+				ImmutableMatrixFactory.createVector(d[base+6], d[base+7], d[base+8]));
+	}
+
+	/**
+	 * Computes the intersection of a triangle and a line without allocating memory.
+	 * @param index the index of the triangle
+	 * @param line the line
+	 * @param result the array to store the parameter {@code t} of the intersection point along the line and its
+	 * barycentric coordinates {@code u} and {@code v} in
+	 * @param offset the index of {@code t} in {@code result}
+	 * @return {@code true} if the line intersects the triangle
+	 * @throws IndexOutOfBoundsException if the index is invalid
+	 * @see Triangle3#intersect(Line3, double[], int)
+	 */
+	public boolean intersect(int index, Line3 line, double[] result, int offset) {
+		int base=base(index);
+		double[] d=data;
+		return Triangle3.intersect(d[base], d[base+1], d[base+2], d[base+3], d[base+4], d[base+5], d[base+6], d[base+7], d[base+8],
+				line.px, line.py, line.pz, line.dx, line.dy, line.dz, result, offset);
+	}
+
+	/**
+	 * Finds the first triangle hit by a ray. The ray starts at the point of the line and goes in the direction of
+	 * the line, so only intersections with non-negative parameters are considered. This method does not allocate
+	 * memory.
+	 * @param ray the ray
+	 * @param result the array to store the parameter {@code t} of the hit along the line and its barycentric
+	 * coordinates {@code u} and {@code v} in; it is not modified if the ray hits nothing
+	 * @param offset the index of {@code t} in {@code result}
+	 * @return the index of the triangle with the smallest hit parameter, or -1 if the ray hits no triangle
+	 * @throws IndexOutOfBoundsException if {@code result} cannot hold three values from {@code offset}
+	 */
+	public int raycast(Line3 ray, double[] result, int offset) {
+		Batch.checkRange("result", result.length, offset, 3);
+		return raycast(ray.px, ray.py, ray.pz, ray.dx, ray.dy, ray.dz, result, offset);
+	}
+
+	/**
+	 * Casts a set of rays against the triangles of this buffer. For the ray with index {@code i}, the index of the
+	 * first triangle it hits is stored in {@code triangles[offset+i]}, or -1 if it hits none; the parameter of
+	 * the hit and its barycentric coordinates are stored in {@code hits[hitOffset+3*i]},
+	 * {@code hits[hitOffset+3*i+1]} and {@code hits[hitOffset+3*i+2]}, and are unspecified for rays which hit
+	 * nothing. Large batches are processed in parallel on a shared fork/join pool.
+	 * @param rays the rays
+	 * @param triangles the array to store the indices of the hit triangles in
+	 * @param offset the index in {@code triangles} where the result of the first ray is stored
+	 * @param hits the array to store the parameters and barycentric coordinates of the hits in
+	 * @param hitOffset the index in {@code hits} where the parameter of the hit of the first ray is stored
+	 * @return the number of rays which hit a triangle
+	 * @throws IndexOutOfBoundsException if the results do not fit into the arrays
+	 * @see #raycast(Line3, double[], int)
+	 */
+	public int raycast(Line3Buffer rays, int[] triangles, int offset, double[] hits, int hitOffset) {
+		int count=rays.size();
+		Batch.checkRange("triangles", triangles.length, offset, count);
+		Batch.checkRange("hits", hits.length, hitOffset, 3*count);
+		RaycastTask task=new RaycastTask(this, rays.data, 0, count, triangles, offset, hits, hitOffset);
+		if (count>1 && (long)count*((size()+BLOCK-1)/BLOCK)>=PARALLEL_THRESHOLD)
+			return Parallel.invoke(task);
+		else
+			return task.compute();
+	}
+
+	private static final class RaycastTask extends RecursiveTask<Integer> {
+		private final Triangle3Buffer buffer;
+		private final double[] rays;
+		private final int start, end;
+		private final int[] triangles;
+		private final int offset;
+		private final double[] hits;
+		private final int hitOffset;
+
+		RaycastTask(Triangle3Buffer buffer, double[] rays, int start, int end, int[] triangles, int offset, double[] hits, int hitOffset) {
+			this.buffer=buffer;
+			this.rays=rays;
+			this.start=start;
+			this.end=end;
+			this.triangles=triangles;
+			this.offset=offset;
+			this.hits=hits;
+			this.hitOffset=hitOffset;
+		}
+
+		@Override
+		protected Integer compute() {
+			long blocks=(buffer.size()+BLOCK-1)/BLOCK;
+			if (end-start>1 && (end-start)*blocks>=PARALLEL_THRESHOLD) {
+				int middle=(start+end)>>>1;
+				RaycastTask left=new RaycastTask(buffer, rays, start, middle, triangles, offset, hits, hitOffset);
+				RaycastTask right=new RaycastTask(buffer, rays, middle, end, triangles, offset, hits, hitOffset);
+				left.fork();
+				int count=right.compute();
+				return count+left.join();
+			}
+			int count=0;
+			for (int i=start; i<end; i++) {
+				int r=6*i;
+				int hit=buffer.raycast(rays[r], rays[r+1], rays[r+2], rays[r+3], rays[r+4], rays[r+5], hits, hitOffset+3*i);
+				triangles[offset+i]=hit;
+				if (hit>=0) count++;
+			}
+			return count;
+		}
+	}
+
+	private int raycast(double px, double py, double pz, double dx, double dy, double dz, double[] result, int offset) {
+		double[] d=data, box=bounds;
+		int size=size();
+		int best=-1;
+		double bestT=Double.POSITIVE_INFINITY, bestU=0, bestV=0;
+		// the triangle tests use the result as scratch space, so the original values are restored on a miss
+		double originalT=result[offset], originalU=result[offset+1], originalV=result[offset+2];
+		for (int block=0, first=0; first<size; block++, first+=BLOCK) {
+			if (!hitsBox(box, 6*block, px, py, pz, dx, dy, dz, bestT)) continue;
+			int last=Math.min(size, first+BLOCK);
+			for (int i=first; i<last; i++) {
+				int base=i*STRIDE;
+				if (Triangle3.intersect(d[base], d[base+1], d[base+2], d[base+3], d[base+4], d[base+5], d[base+6], d[base+7], d[base+8],
+						px, py, pz, dx, dy, dz, result, offset) && result[offset]>=0 && result[offset]<bestT) {
+					bestT=result[offset];
+					bestU=result[offset+1];
+					bestV=result[offset+2];
+					best=i;
+				}
+			}
+		}
+		if (best>=0) {
+			result[offset  ]=bestT;
+			result[offset+1]=bestU;
+			result[offset+2]=bestV;
+		} else {
+			result[offset  ]=originalT;
+			result[offset+1]=originalU;
+			result[offset+2]=originalV;
+		}
+		return best;
+	}
+
+	/**
+	 * Decides whether the part of a ray with parameters between 0 and {@code maxT} meets a box, using the slab
+	 * method.
+	 */
+	private static boolean hitsBox(double[] box, int b, double px, double py, double pz, double dx, double dy, double dz, double maxT) {
+		double enter=0, exit=maxT;
+		if (dx!=0) {
+			double t1=(box[b  ]-px)/dx, t2=(box[b+3]-px)/dx;
+			enter=Math.max(enter, Math.min(t1, t2));
+			exit=Math.min(exit, Math.max(t1, t2));
+		} else if (px<box[b] || px>box[b+3])
+			return false;
+		if (dy!=0) {
+			double t1=(box[b+1]-py)/dy, t2=(box[b+4]-py)/dy;
+			enter=Math.max(enter, Math.min(t1, t2));
+			exit=Math.min(exit, Math.max(t1, t2));
+		} else if (py<box[b+1] || py>box[b+4])
+			return false;
+		if (dz!=0) {
+			double t1=(box[b+2]-pz)/dz, t2=(box[b+5]-pz)/dz;
+			enter=Math.max(enter, Math.min(t1, t2));
+			exit=Math.min(exit, Math.max(t1, t2));
+		} else if (pz<box[b+2] || pz>box[b+5])
+			return false;
+		return enter<=exit;
+	}
+
+	/**
+	 * Transforms all the triangles of this buffer in place.
+	 * @param transform the transformation to apply
+	 * @see Transform3#transform(Triangle3)
+	 */
+	public void transform(Transform3 transform) {
+		Transform3 t=transform;
+		double[] d=data;
+		// all three vertices are transformed the same way
+		int end=size()*STRIDE;
+		for (int base=0; base<end; base+=3) {
+			double x=d[base], y=d[base+1], z=d[base+2];
+			d[base  ]=t.m00*x+t.m01*y+t.m02*z+t.tx;
+			d[base+1]=t.m10*x+t.m11*y+t.m12*z+t.ty;
+			d[base+2]=t.m20*x+t.m21*y+t.m22*z+t.tz;
+		}
+		for (int block=0; block*BLOCK<size(); block++)
+			updateBounds(block);
+	}
+}
@@ -0,0 +1,265 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Triangulation of points from bundles of 3D lines, such as the viewing rays of a point in several cameras. The
+ * triangulated point is the one minimizing the weighted sum of the squared distances from the lines:
+ * <blockquote>{@code sum(w_i * line_i.distance(X)^2)}.</blockquote>
+ * The lines are infinite, so the solution may lie behind the origins of the rays.
+ * <p>
+ * The point is not unique if all the lines (with nonzero weight) are parallel. Lines are only handled as parallel
+ * if the equations are ill-conditioned at the level of rounding errors: two lines of equal weight are parallel if
+ * the square of the sine of their angle is less than 4e-14, that is, their angle is below about 2e-7 radians. The
+ * rays of a narrow baseline meeting far away are triangulated.
+ * @author Kazó Csaba
+ */
+public final class Triangulation {
+	/**
+	 * The lower bound of det(A)/total^3 for the equations to be solved; smaller values are within a few hundred
+	 * times the rounding error of the accumulated matrix.
+	 */
+	private static final double CONDITION_LIMIT=1e-14;
+	/**
+	 * The number of lines below which a batch task is not divided further.
+	 */
+	private static final int PARALLEL_THRESHOLD=1<<14;
+
+	private Triangulation() {}
+
+	/**
+	 * Returns the point closest to a set of lines in the least-squares sense.
+	 * @param lines the lines
+	 * @return the point minimizing the sum of the squared distances from the lines
+	 * @throws DegenerateCaseException if the lines are all parallel, or there are less than two lines
+	 */
+	public static Vector3 triangulate(List<? extends Line3> lines) {
+		return triangulate(lines, null, null);
+	}
+
+	/**
+	 * Returns the point closest to a set of weighted lines in the least-squares sense, and optionally its distances
+	 * from the lines.
+	 * @param lines the lines
+	 * @param weights the weights of the lines, or {@code null} to use the same weight for all of them
+	 * @param residuals the array to store the distances of the result from the lines in, or {@code null}
+	 * @return the point minimizing the weighted sum of the squared distances from the lines
+	 * @throws IllegalArgumentException if an array is shorter than the number of lines, or a weight is negative,
+	 * infinite or NaN
+	 * @throws DegenerateCaseException if the lines with nonzero weight are all parallel, or there are less than two
+	 * of them
+	 */
+	public static Vector3 triangulate(List<? extends Line3> lines, double[] weights, double[] residuals) {
+		int n=lines.size();
+		if (weights!=null) checkWeights(weights, n);
+		if (residuals!=null && residuals.length<n) throw new IllegalArgumentException("Residual array is too short");
+		if (n==0) throw new DegenerateCaseException("No lines");
+		double[] data=new double[6*n];
+		for (int i=0; i<n; i++) {
+			Line3 line=lines.get(i);
+			data[6*i  ]=line.px;
+			data[6*i+1]=line.py;
+			data[6*i+2]=line.pz;
+			data[6*i+3]=line.dx;
+			data[6*i+4]=line.dy;
+			data[6*i+5]=line.dz;
+		}
+		double[] point=new double[3];
+		if (!triangulate(data, 0, n, weights, point, 0))
+			throw new DegenerateCaseException("Lines are parallel");
+		double x=point[0], y=point[1], z=point[2];
+		if (residuals!=null)
+			for (int i=0; i<n; i++)
+				residuals[i]=lines.get(i).distance(x, y, z);
+		return MatrixFactory.createVector(x, y, z);
+	}
+
+	/**
+	 * Triangulates a batch of independent line bundles. The bundles are consecutive ranges of the lines of a
+	 * buffer: bundle {@code k} consists of the lines with indices from {@code bundleStarts[k]} (inclusive) to
+	 * {@code bundleStarts[k+1]} (exclusive). The coordinates of its point are stored in {@code points}, the x
+	 * coordinate at index {@code pointOffset+3*k}; if the point is not unique (as described in
+	 * {@link #triangulate(List, double[], double[])}), all three coordinates are set to NaN.
+	 * <p>
+	 * Large batches are processed in parallel. No memory is allocated apart from the parallel tasks.
+	 * @param lines the lines of all the bundles
+	 * @param bundleStarts the index of the first line of each bundle, followed by the end of the last bundle
+	 * @param bundleCount the number of bundles
+	 * @param weights the weights of the lines, indexed like the lines of the buffer, or {@code null} to use the
+	 * same weight for all lines
+	 * @param points the array to store the coordinates of the points in
+	 * @param pointOffset the index of the x coordinate of the first point in {@code points}
+	 * @param residuals the array to store the distances of each line from the point of its bundle in, indexed like
+	 * the lines of the buffer, or {@code null}; the distances are NaN for bundles without a point
+	 * @return the number of bundles with a unique point
+	 * @throws IllegalArgumentException if the bundle starts are not increasing or do not address lines of the buffer,
+	 * if {@code weights} or {@code residuals} is shorter than the number of lines, or a weight is negative, infinite
+	 * or NaN
+	 * @throws IndexOutOfBoundsException if {@code points} cannot hold the points from {@code pointOffset}, or
+	 * {@code bundleStarts} has less than {@code bundleCount+1} elements
+	 */
+	public static int triangulate(Line3Buffer lines, int[] bundleStarts, int bundleCount, double[] weights,
+			double[] points, int pointOffset, double[] residuals) {
+		Batch.checkRange("bundleStarts", bundleStarts.length, 0, bundleCount+1);
+		Batch.checkRange("points", points.length, pointOffset, 3*bundleCount);
+		int size=lines.size();
+		for (int k=0; k<bundleCount; k++)
+			if (bundleStarts[k]<0 || bundleStarts[k]>bundleStarts[k+1] || bundleStarts[k+1]>size)
+				throw new IllegalArgumentException("Invalid bundle: "+k);
+		if (weights!=null) checkWeights(weights, size);
+		if (residuals!=null && residuals.length<size) throw new IllegalArgumentException("Residual array is too short");
+		BundleTask task=new BundleTask(lines.data, bundleStarts, weights, points, pointOffset, residuals, 0, bundleCount);
+		if (bundleStarts[bundleCount]-bundleStarts[0]<PARALLEL_THRESHOLD)
+			return task.compute();
+		else
+			return Parallel.invoke(task);
+	}
+
+	/**
+	 * Triangulates a range of lines packed like in a {@link Line3Buffer}, storing the point in an array.
+	 * @return false if the lines are parallel
+	 */
+	private static boolean triangulate(double[] d, int start, int end, double[] weights, double[] result, int offset) {
+		// the coordinates are relative to the first line, for better accuracy with distant points, and reflected so
+		// that its direction is a coordinate axis: for nearly parallel lines, the equations in the direction of the
+		// lines then come from the small components of the directions rather than from cancellation
+		int first=6*start;
+		double ox=d[first], oy=d[first+1], oz=d[first+2];
+		// the Householder vector H=D+sign(D_k)*|D|*e_k for the largest coordinate k of the first direction D
+		double hx=d[first+3], hy=d[first+4], hz=d[first+5];
+		double length=Math.sqrt(hx*hx+hy*hy+hz*hz);
+		if (Math.abs(hx)>=Math.abs(hy) && Math.abs(hx)>=Math.abs(hz)) hx+=Math.copySign(length, hx);
+		else if (Math.abs(hy)>=Math.abs(hz)) hy+=Math.copySign(length, hy);
+		else hz+=Math.copySign(length, hz);
+		double f=2/(hx*hx+hy*hy+hz*hz);
+		double a00=0, a01=0, a02=0, a11=0, a12=0, a22=0, b0=0, b1=0, b2=0, total=0;
+		for (int i=start; i<end; i++) {
+			int base=6*i;
+			double w=weights==null ? 1 : weights[i];
+			double px=d[base]-ox, py=d[base+1]-oy, pz=d[base+2]-oz;
+			double k=f*(hx*px+hy*py+hz*pz);
+			px-=k*hx;
+			py-=k*hy;
+			pz-=k*hz;
+			double dx=d[base+3], dy=d[base+4], dz=d[base+5];
+			k=f*(hx*dx+hy*dy+hz*dz);
+			dx-=k*hx;
+			dy-=k*hy;
+			dz-=k*hz;
+			// w*(I-D*D^T/|D|^2)=s*(|D|^2*I-D*D^T) and its product with the point, s*(D x (P x D))
+			double s=w/(dx*dx+dy*dy+dz*dz);
+			a00+=s*(dy*dy+dz*dz);
+			a01-=s*dx*dy;
+			a02-=s*dx*dz;
+			a11+=s*(dx*dx+dz*dz);
+			a12-=s*dy*dz;
+			a22+=s*(dx*dx+dy*dy);
+			double cx=py*dz-pz*dy, cy=pz*dx-px*dz, cz=px*dy-py*dx;
+			b0+=s*(dy*cz-dz*cy);
+			b1+=s*(dz*cx-dx*cz);
+			b2+=s*(dx*cy-dy*cx);
+			total+=w;
+		}
+		if (!solve(a00, a01, a02, a11, a12, a22, b0, b1, b2, total, result, offset)) return false;
+		// reflected back
+		double x=result[offset], y=result[offset+1], z=result[offset+2];
+		double k=f*(hx*x+hy*y+hz*z);
+		result[offset  ]=x-k*hx+ox;
+		result[offset+1]=y-k*hy+oy;
+		result[offset+2]=z-k*hz+oz;
+		return true;
+	}
+
+	private static void checkWeights(double[] weights, int count) {
+		if (weights.length<count) throw new IllegalArgumentException("Weight array is too short");
+		for (int i=0; i<count; i++)
+			if (!(weights[i]>=0) || Double.isInfinite(weights[i])) throw new IllegalArgumentException("Invalid weight: "+weights[i]);
+	}
+
+	/**
+	 * Solves the normal equations {@code A*X=b} with the symmetric matrix A, and stores X in an array.
+	 * @param total the sum of the weights, an upper bound of the eigenvalues of A
+	 * @return false if the equations are ill-conditioned
+	 */
+	private static boolean solve(double a00, double a01, double a02, double a11, double a12, double a22,
+			double b0, double b1, double b2, double total, double[] result, int offset) {
+		// the cofactors
+		double c00=a11*a22-a12*a12;
+		double c01=a02*a12-a01*a22;
+		double c02=a01*a12-a02*a11;
+		double det=a00*c00+a01*c01+a02*c02;
+		// for two lines of equal weight, det/total^3 is a quarter of the squared sine of their angle
+		if (!(det>=CONDITION_LIMIT*total*total*total) || total==0) return false;
+		double c11=a00*a22-a02*a02;
+		double c12=a01*a02-a00*a12;
+		double c22=a00*a11-a01*a01;
+		result[offset  ]=(c00*b0+c01*b1+c02*b2)/det;
+		result[offset+1]=(c01*b0+c11*b1+c12*b2)/det;
+		result[offset+2]=(c02*b0+c12*b1+c22*b2)/det;
+		return true;
+	}
+
+	private static final class BundleTask extends RecursiveTask<Integer> {
+		private final double[] data;
+		private final int[] bundleStarts;
+		private final double[] weights, points, residuals;
+		private final int pointOffset;
+		private final int from, to;
+
+		BundleTask(double[] data, int[] bundleStarts, double[] weights, double[] points, int pointOffset,
+				double[] residuals, int from, int to) {
+			this.data=data;
+			this.bundleStarts=bundleStarts;
+			this.weights=weights;
+			this.points=points;
+			this.pointOffset=pointOffset;
+			this.residuals=residuals;
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (to-from>1 && bundleStarts[to]-bundleStarts[from]>=PARALLEL_THRESHOLD) {
+				int middle=(from+to)>>>1;
+				BundleTask left=new BundleTask(data, bundleStarts, weights, points, pointOffset, residuals, from, middle);
+				BundleTask right=new BundleTask(data, bundleStarts, weights, points, pointOffset, residuals, middle, to);
+				left.fork();
+				int count=right.compute();
+				return count+left.join();
+			}
+			int count=0;
+			for (int k=from; k<to; k++)
+				if (triangulate(k)) count++;
+			return count;
+		}
+
+		private boolean triangulate(int k) {
+			int start=bundleStarts[k], end=bundleStarts[k+1];
+			int result=pointOffset+3*k;
+			if (start==end) {
+				points[result]=points[result+1]=points[result+2]=Double.NaN;
+				return false;
+			}
+			double[] d=data;
+			boolean solved=Triangulation.triangulate(d, start, end, weights, points, result);
+			if (!solved) points[result]=points[result+1]=points[result+2]=Double.NaN;
+			if (residuals!=null) {
+				double x=points[result], y=points[result+1], z=points[result+2];
+				for (int i=start; i<end; i++) {
+					int base=6*i;
+					double vx=x-d[base], vy=y-d[base+1], vz=z-d[base+2];
+					double dx=d[base+3], dy=d[base+4], dz=d[base+5];
+					double cx=vy*dz-vz*dy;
+					double cy=vz*dx-vx*dz;
+					double cz=vx*dy-vy*dx;
+					residuals[i]=Math.sqrt((cx*cx+cy*cy+cz*cz)/(dx*dx+dy*dy+dz*dz));
+				}
+			}
+			return solved;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+
+/**
+ * Reusable storage for the results of geometric computations. The methods taking a workspace argument store their
+ * results in the vectors of the workspace instead of allocating new ones, so their results are only valid until
+ * the next computation using the same workspace.
+ * <p>
+ * A workspace must not be shared between threads. Each thread can either create its own instances, or use the
+ * one returned by {@link #get()}.
+ * @author Kazó Csaba
+ */
+public final class Workspace {
+	private static final ThreadLocal<Workspace> CURRENT=new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	private final Vector3 point3=MatrixFactory.createVector3();
+	private final Vector3 dir3=MatrixFactory.createVector3();
+
+	/**
+	 * Creates a new workspace.
+	 */
+	public Workspace() {}
+
+	/**
+	 * Returns the workspace of the current thread. Repeated calls from the same thread return the same instance.
+	 * @return the workspace belonging to the calling thread
+	 */
+	public static Workspace get() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Returns the vector holding the point computed by the last 3D computation using this workspace.
+	 * @return the point of the last result
+	 */
+	public Vector3 getPoint3() {
+		return point3;
+	}
+
+	/**
+	 * Returns the vector holding the direction computed by the last 3D computation using this workspace which
+	 * resulted in a line.
+	 * @return the direction of the last result
+	 */
+	public Vector3 getDir3() {
+		return dir3;
+	}
+}
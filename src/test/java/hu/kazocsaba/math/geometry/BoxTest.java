@@ -28,6 +28,116 @@ public class BoxTest {
 		assertTrue((isection.getP1().error(box.getTopLeft())<EPS && isection.getP2().error(box.getTopRight())<EPS) || ((isection.getP2().error(box.getTopLeft())<EPS && isection.getP1().error(box.getTopRight())<EPS)));
 	}
 	
+	@Test
+	public void testIntersectOrientation() {
+		Box2 box=new Box2(MatrixFactory.createVector(0, 0), 2, 1);
+		Line2 line=Line2.createFromDir(MatrixFactory.createVector(3, 1.5), MatrixFactory.createVector(-2, -1));
+		Segment2 isection=box.intersect(line);
+		assertEquals(0, isection.getP1().error(MatrixFactory.createVector(2, 1)), EPS);
+		assertEquals(0, isection.getP2().error(MatrixFactory.createVector(0, 0)), EPS);
+		
+		// touching a corner only
+		line=Line2.createFromDir(MatrixFactory.createVector(3, 0), MatrixFactory.createVector(1, 1));
+		assertNull(box.intersect(line));
+	}
+	
+	@Test
+	public void testClip() {
+		Box2 box=new Box2(MatrixFactory.createVector(1, 1), 2, 1);
+		double[] t=new double[3];
+		
+		assertTrue(box.clip(Line2.createFromDir(MatrixFactory.createVector(0, 1.5), MatrixFactory.createVector(2, 0)), t));
+		assertEquals(.5, t[0], EPS);
+		assertEquals(1.5, t[1], EPS);
+		
+		assertTrue(box.clip(0, 0, 1, 1, t, 1));
+		assertEquals(1, t[1], EPS);
+		assertEquals(2, t[2], EPS);
+		
+		// axis-parallel, along a side and outside
+		assertTrue(box.clip(2, 1, 0, 1, t, 0));
+		assertEquals(0, t[0], EPS);
+		assertEquals(1, t[1], EPS);
+		assertTrue(box.clip(3, 0, 0, -1, t, 0));
+		assertFalse(box.clip(3.5, 0, 0, 1, t, 0));
+		assertFalse(box.clip(0, 0, 1, -1, t, 0));
+	}
+	
+	@Test
+	public void testBatchClip() {
+		Box2 box=new Box2(MatrixFactory.createVector(1, 1), 2, 1);
+		double[] pxs={9, 0, 2, 3.5, 0, 1};
+		double[] pys={9, 1.5, 1, 0, 0, 0};
+		double[] dxs={9, 2, 0, 0, 1, 0};
+		double[] dys={9, 0, 1, 1, -1, 1};
+		double[] tEnter=new double[6], tExit=new double[6];
+		assertEquals(3, box.clip(pxs, pys, dxs, dys, 1, 5, tEnter, tExit, 0));
+		double[] expectedEnter={.5, 0, Double.NaN, Double.NaN, 1};
+		double[] expectedExit={1.5, 1, Double.NaN, Double.NaN, 2};
+		for (int i=0; i<5; i++) {
+			double[] single=new double[2];
+			assertEquals(!Double.isNaN(expectedEnter[i]), box.clip(pxs[i+1], pys[i+1], dxs[i+1], dys[i+1], single, 0));
+			assertEquals(expectedEnter[i], tEnter[i], EPS);
+			assertEquals(expectedExit[i], tExit[i], EPS);
+		}
+	}
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testBatchClipRangeCheck() {
+		Box2 box=new Box2(MatrixFactory.createVector(1, 1), 2, 1);
+		double[] a=new double[4];
+		box.clip(a, a, a, a, 0, 4, a, new double[3], 0);
+	}
+	
+	@Test
+	public void testBox3Clip() {
+		Box3 box=new Box3(MatrixFactory.createVector(0, 0, 0), 2, 1, 1);
+		Line3 line=Line3.createFromDir(MatrixFactory.createVector(-1, .5, .5), MatrixFactory.createVector(2, 0, 0));
+		double[] t=new double[2];
+		assertTrue(box.clip(line, t));
+		assertEquals(.5, t[0], EPS);
+		assertEquals(1.5, t[1], EPS);
+		Segment3 isection=box.intersect(line);
+		assertEquals(0, isection.getP1().error(MatrixFactory.createVector(0, .5, .5)), EPS);
+		assertEquals(0, isection.getP2().error(MatrixFactory.createVector(2, .5, .5)), EPS);
+		
+		// along an edge, touching a corner, and missing
+		assertTrue(box.clip(0, 0, 5, 0, 0, -1, t, 0));
+		assertEquals(4, t[0], EPS);
+		assertEquals(5, t[1], EPS);
+		assertNull(box.intersect(Line3.createFromDir(MatrixFactory.createVector(2, 1, 1), MatrixFactory.createVector(1, 1, -1))));
+		assertFalse(box.clip(0, 2, 0, 1, 0, 1, t, 0));
+		assertNull(box.intersect(Line3.createFromDir(MatrixFactory.createVector(0, 2, 0), MatrixFactory.createVector(1, -1, 1))));
+	}
+	
+	@Test
+	public void testBox3Classify() {
+		Box3 box=new Box3(MatrixFactory.createVector(0, 0, 0), 1, 1, 1);
+		assertEquals(PlaneSide.FRONT, box.classify(Plane3.create(MatrixFactory.createVector(0, 0, -1), MatrixFactory.createVector(0, 0, 2))));
+		assertEquals(PlaneSide.BACK, box.classify(Plane3.create(MatrixFactory.createVector(0, 0, -1), MatrixFactory.createVector(0, 0, -2))));
+		assertEquals(PlaneSide.STRADDLING, box.classify(Plane3.create(MatrixFactory.createVector(.5, .5, .5), MatrixFactory.createVector(1, 2, 3))));
+		// the plane x+y+z=3.01 only misses the corner (1,1,1)
+		assertEquals(PlaneSide.BACK, box.classify(Plane3.create(MatrixFactory.createVector(1.01, 1, 1), MatrixFactory.createVector(1, 1, 1))));
+		assertEquals(PlaneSide.STRADDLING, box.classify(Plane3.create(MatrixFactory.createVector(.99, 1, 1), MatrixFactory.createVector(1, 1, 1))));
+		assertEquals(PlaneSide.FRONT, box.classify(Plane3.create(MatrixFactory.createVector(-.01, 0, 0), MatrixFactory.createVector(1, 1, 1))));
+	}
+	
+	@Test
+	public void testBox3OverlapAndUnion() {
+		Box3 a=new Box3(MatrixFactory.createVector(0, 0, 0), 1, 1, 1);
+		Box3 b=new Box3(MatrixFactory.createVector(1, .5, -2), 3, 1, 2.5);
+		Box3 c=new Box3(MatrixFactory.createVector(.5, 1.6, .5), 1, 1, 1);
+		assertTrue(a.overlaps(b));
+		assertTrue(b.overlaps(a));
+		assertFalse(a.overlaps(c));
+		assertFalse(b.overlaps(c));
+		
+		Box3 union=a.union(c);
+		assertEquals(0, union.getPoint().error(MatrixFactory.createVector(0, 0, 0)), EPS);
+		assertEquals(0, union.getMaxPoint().error(MatrixFactory.createVector(1.5, 2.6, 1.5)), EPS);
+		assertTrue(union.overlaps(b));
+	}
+	
 	@Test
 	public void testToStringWorks() {
 		Box2 box=new Box2(MatrixFactory.createVector(0, 0), 1, 1);
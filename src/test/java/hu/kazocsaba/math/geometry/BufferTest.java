@@ -0,0 +1,233 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class BufferTest {
+	@Test
+	public void testLines() {
+		Random random=new Random(1);
+		List<Line3> lines=new ArrayList<Line3>();
+		Line3Buffer buffer=new Line3Buffer(0);
+		for (int i=0; i<100; i++) {
+			Line3 line=Line3.createFromDir(Fixtures.random3(random), Fixtures.random3(random));
+			lines.add(line);
+			assertEquals(i, buffer.add(line));
+		}
+		assertEquals(100, buffer.size());
+		
+		Vector3 p=Fixtures.random3(random);
+		double[] distances=new double[101];
+		buffer.distances(p.getX(), p.getY(), p.getZ(), distances, 1);
+		double[] point=new double[3];
+		int nearest=0;
+		for (int i=0; i<100; i++) {
+			Line3 line=lines.get(i);
+			assertEquals(line.distance(p), distances[i+1], 1e-10);
+			assertEquals(line.distance(p), buffer.distance(i, p.getX(), p.getY(), p.getZ()), 1e-10);
+			assertEquals(line.getClosestT(p), buffer.getClosestT(i, p.getX(), p.getY(), p.getZ()), 1e-10);
+			buffer.getPointAt(i, 2.5, point, 0);
+			assertEquals(0, line.getPointAt(2.5).error(MatrixFactory.createVector(point[0], point[1], point[2])), 1e-10);
+			assertEquals(0, buffer.get(i).getDir().error(line.getDir()), 0);
+			if (distances[i+1]<distances[nearest+1]) nearest=i;
+		}
+		assertEquals(nearest, buffer.findNearest(p.getX(), p.getY(), p.getZ()));
+		
+		buffer.set(5, lines.get(0));
+		assertEquals(0, buffer.get(5).getPoint().error(lines.get(0).getPoint()), 0);
+		buffer.clear();
+		assertEquals(0, buffer.size());
+		assertEquals(-1, buffer.findNearest(0, 0, 0));
+	}
+
+	@Test
+	public void testSegments() {
+		Random random=new Random(2);
+		Segment3Buffer buffer=new Segment3Buffer();
+		List<Segment3> segments=new ArrayList<Segment3>();
+		for (int i=0; i<100; i++) {
+			Segment3 segment=new Segment3(Fixtures.random3(random), Fixtures.random3(random));
+			segments.add(segment);
+			buffer.add(segment);
+		}
+		buffer.trimToSize();
+		
+		Vector3 p=Fixtures.random3(random);
+		double[] distances=new double[100];
+		buffer.distances(p.getX(), p.getY(), p.getZ(), distances, 0);
+		double[] point=new double[3];
+		for (int i=0; i<100; i++) {
+			Segment3 segment=segments.get(i);
+			// the closest point of the segment, found by sampling
+			double expected=Double.POSITIVE_INFINITY;
+			for (int k=0; k<=10000; k++)
+				expected=Math.min(expected, segment.getPointAt(k/10000.0).error(p));
+			assertEquals(expected, distances[i], 1e-2);
+			assertTrue(distances[i]<=expected+1e-10);
+			assertEquals(segment.distance(p), distances[i], 1e-10);
+			assertEquals(segment.getClosestT(p), buffer.getClosestT(i, p.getX(), p.getY(), p.getZ()), 1e-12);
+			assertEquals(segment.getP1().error(segment.getP2()), buffer.length(i), 1e-10);
+			buffer.getPointAt(i, .3, point, 0);
+			assertEquals(0, segment.getPointAt(.3).error(MatrixFactory.createVector(point[0], point[1], point[2])), 1e-10);
+			assertEquals(0, buffer.get(i).getP2().error(segment.getP2()), 0);
+		}
+	}
+
+	@Test
+	public void testSegments2() {
+		Random random=new Random(4);
+		Segment2Buffer buffer=new Segment2Buffer(0);
+		List<Segment2> segments=new ArrayList<Segment2>();
+		for (int i=0; i<100; i++) {
+			Segment2 segment=new Segment2(MatrixFactory.createVector(random.nextGaussian()*10, random.nextGaussian()*10),
+					MatrixFactory.createVector(random.nextGaussian()*10, random.nextGaussian()*10));
+			segments.add(segment);
+			assertEquals(i, buffer.add(segment));
+		}
+
+		Vector2 p=MatrixFactory.createVector(random.nextGaussian()*10, random.nextGaussian()*10);
+		double[] distances=new double[100];
+		buffer.distances(p.getX(), p.getY(), distances, 0);
+		double[] point=new double[2];
+		int nearest=0;
+		for (int i=0; i<100; i++) {
+			Segment2 segment=segments.get(i);
+			assertEquals(segment.distance(p), distances[i], 1e-10);
+			assertEquals(segment.distance(p), buffer.distance(i, p.getX(), p.getY()), 1e-10);
+			assertEquals(segment.getClosestT(p), buffer.getClosestT(i, p.getX(), p.getY()), 1e-12);
+			assertEquals(segment.getP1().error(segment.getP2()), buffer.length(i), 1e-10);
+			buffer.getPointAt(i, .3, point, 0);
+			assertEquals(0, segment.getPointAt(.3).error(MatrixFactory.createVector(point[0], point[1])), 1e-10);
+			assertEquals(0, buffer.get(i).getP1().error(segment.getP1()), 0);
+			if (distances[i]<distances[nearest]) nearest=i;
+		}
+		assertEquals(nearest, buffer.findNearest(p.getX(), p.getY()));
+		assertEquals(-1, new Segment2Buffer().findNearest(0, 0));
+
+		Transform2 transform=Transform2.createRotation(p, 1);
+		buffer.transform(transform);
+		for (int i=0; i<100; i++) {
+			Segment2 segment=transform.transform(segments.get(i));
+			assertEquals(0, segment.getP1().error(buffer.get(i).getP1()), 1e-10);
+			assertEquals(0, segment.getP2().error(buffer.get(i).getP2()), 1e-10);
+		}
+	}
+
+	@Test
+	public void testTriangles() {
+		Random random=new Random(5);
+		Triangle3Buffer buffer=new Triangle3Buffer(0);
+		List<Triangle3> triangles=new ArrayList<Triangle3>();
+		for (int i=0; i<300; i++) {
+			Vector3 center=Fixtures.random3(random);
+			Triangle3 triangle=new Triangle3(center.plus(Fixtures.random3(random).times(.2)), center.plus(Fixtures.random3(random).times(.2)),
+					center.plus(Fixtures.random3(random).times(.2)));
+			triangles.add(triangle);
+			assertEquals(i, buffer.add(triangle));
+		}
+		// replacing a triangle updates the bounds of its block
+		Triangle3 far=new Triangle3(MatrixFactory.createVector(100, 0, 0), MatrixFactory.createVector(100, 1, 0), MatrixFactory.createVector(100, 0, 1));
+		triangles.set(37, far);
+		buffer.set(37, far);
+
+		Line3Buffer rays=new Line3Buffer();
+		double[] hit=new double[3], result=new double[3];
+		for (int i=0; i<200; i++) {
+			// aim at a random triangle so that most rays hit something
+			Line3 ray=Line3.createFromTwoPoints(Fixtures.random3(random).times(3), triangles.get(random.nextInt(300)).getPointAt(.3, .3));
+			rays.add(ray);
+			int expected=-1;
+			double expectedT=Double.POSITIVE_INFINITY;
+			for (int k=0; k<300; k++)
+				if (triangles.get(k).intersect(ray, hit, 0) && hit[0]>=0 && hit[0]<expectedT) {
+					expected=k;
+					expectedT=hit[0];
+				}
+			assertEquals(expected, buffer.raycast(ray, result, 0));
+			if (expected>=0) {
+				assertEquals(expectedT, result[0], 1e-12);
+				assertTrue(buffer.intersect(expected, ray, hit, 0));
+				assertEquals(hit[1], result[1], 1e-12);
+			}
+		}
+		rays.add(Line3.createFromDir(MatrixFactory.createVector(99, .2, .2), MatrixFactory.createVector(1, 0, 0)));
+		int[] indices=new int[rays.size()+1];
+		double[] hits=new double[3*rays.size()];
+		int count=buffer.raycast(rays, indices, 1, hits, 0);
+		int expectedCount=0;
+		for (int i=0; i<rays.size(); i++) {
+			assertEquals(buffer.raycast(rays.get(i), result, 0), indices[i+1]);
+			if (indices[i+1]>=0) {
+				expectedCount++;
+				assertEquals(result[0], hits[3*i], 0);
+				assertEquals(result[2], hits[3*i+2], 0);
+			}
+		}
+		assertEquals(37, indices[rays.size()]);
+		assertEquals(expectedCount, count);
+
+		Transform3 transform=Transform3.createTranslation(MatrixFactory.createVector(0, 0, 50));
+		buffer.transform(transform);
+		assertEquals(-1, buffer.raycast(rays.get(200), result, 0));
+		assertEquals(37, buffer.raycast(Line3.createFromDir(MatrixFactory.createVector(99, .2, 50.2), MatrixFactory.createVector(1, 0, 0)), result, 0));
+		// the line meets the triangle behind the start of the ray, which leaves the result untouched
+		Arrays.fill(result, 7);
+		assertEquals(-1, buffer.raycast(Line3.createFromDir(MatrixFactory.createVector(101, .2, 50.2), MatrixFactory.createVector(1, 0, 0)), result, 0));
+		for (double value: result)
+			assertEquals(7, value, 0);
+		assertEquals(0, buffer.get(5).getA().minus(transform.transform(triangles.get(5)).getA()).norm(), 1e-12);
+	}
+
+	@Test
+	public void testPlanes() {
+		Random random=new Random(3);
+		Plane3Buffer buffer=new Plane3Buffer(3);
+		List<Plane3> planes=new ArrayList<Plane3>();
+		for (int i=0; i<100; i++) {
+			Plane3 plane=Plane3.create(Fixtures.random3(random), Fixtures.random3(random));
+			planes.add(plane);
+			if (i%2==0)
+				buffer.add(plane);
+			else
+				buffer.add(plane.getPoint().getX(), plane.getPoint().getY(), plane.getPoint().getZ(),
+						plane.getNormal().getX(), plane.getNormal().getY(), plane.getNormal().getZ());
+		}
+		
+		Vector3 p=Fixtures.random3(random);
+		double[] distances=new double[100];
+		buffer.signedDistances(p.getX(), p.getY(), p.getZ(), distances, 0);
+		int front=0;
+		for (int i=0; i<100; i++) {
+			Plane3 plane=planes.get(i);
+			double expected=plane.signedDistance(p.getX(), p.getY(), p.getZ());
+			assertEquals(expected, distances[i], 1e-10);
+			assertEquals(Math.abs(expected), buffer.distance(i, p.getX(), p.getY(), p.getZ()), 1e-10);
+			assertEquals(expected, buffer.get(i).signedDistance(p.getX(), p.getY(), p.getZ()), 1e-10);
+			if (expected>0) front++;
+		}
+		assertEquals(front, buffer.countInFront(p.getX(), p.getY(), p.getZ()));
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testIndexCheck() {
+		Line3Buffer buffer=new Line3Buffer();
+		buffer.add(0, 0, 0, 1, 0, 0);
+		buffer.distance(1, 0, 0, 0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDegenerateSegment() {
+		new Segment3Buffer().add(1, 2, 3, 1, 2, 3);
+	}
+}
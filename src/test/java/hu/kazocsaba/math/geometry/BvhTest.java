@@ -0,0 +1,278 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class BvhTest {
+	private static final double EPS=1e-6;
+	private static final int QUERIES=30;
+
+	private static double coord(Random random) {
+		return random.nextDouble()*200-100;
+	}
+
+	private static Vector2 point2(Random random) {
+		return MatrixFactory.createVector(coord(random), coord(random));
+	}
+
+	private static Vector3 point3(Random random) {
+		return MatrixFactory.createVector(coord(random), coord(random), coord(random));
+	}
+
+	private static Vector2 offset2(Random random, double size) {
+		return MatrixFactory.createVector((random.nextDouble()*2-1)*size, (random.nextDouble()*2-1)*size);
+	}
+
+	private static Vector3 offset3(Random random, double size) {
+		return MatrixFactory.createVector((random.nextDouble()*2-1)*size, (random.nextDouble()*2-1)*size, (random.nextDouble()*2-1)*size);
+	}
+
+	/**
+	 * Returns the distance of the point {@code segment.getPointAt(s)} from the line, minimized over s in [0,1].
+	 */
+	private static double distance(Segment segment, Line line) {
+		// the squared distance of the points from the line is a convex quadratic function of s
+		Vector u=line.getUnitDir();
+		Vector a=segment.getP1().minus(line.getPoint());
+		Vector b=segment.getP2().minus(segment.getP1());
+		Vector perpA=a.minus(u.times(a.dot(u)));
+		Vector perpB=b.minus(u.times(b.dot(u)));
+		double bb=perpB.dot(perpB);
+		double s=bb<1e-20 ? 0 : Math.max(0, Math.min(1, -perpA.dot(perpB)/bb));
+		return line.distance(segment.getPointAt(s));
+	}
+
+	private static double distance(Segment segment, Vector point) {
+		Vector dir=segment.getP2().minus(segment.getP1());
+		double t=Math.max(0, Math.min(1, point.minus(segment.getP1()).dot(dir)/dir.dot(dir)));
+		return point.minus(segment.getPointAt(t)).norm();
+	}
+
+	private static double distance(Box2 box, Vector2 point) {
+		double dx=Math.max(0, Math.max(box.minX-point.getX(), point.getX()-box.maxX));
+		double dy=Math.max(0, Math.max(box.minY-point.getY(), point.getY()-box.maxY));
+		return Math.hypot(dx, dy);
+	}
+
+	private static double distance(Box3 box, Vector3 point) {
+		double dx=Math.max(0, Math.max(box.minX-point.getX(), point.getX()-box.maxX));
+		double dy=Math.max(0, Math.max(box.minY-point.getY(), point.getY()-box.maxY));
+		double dz=Math.max(0, Math.max(box.minZ-point.getZ(), point.getZ()-box.maxZ));
+		return Math.sqrt(dx*dx+dy*dy+dz*dz);
+	}
+
+	private static double distance(Box2 box, Line2 line) {
+		if (box.clip(line, new double[2])) return 0;
+		return Math.min(Math.min(line.distance(box.getBottomLeft()), line.distance(box.getBottomRight())),
+				Math.min(line.distance(box.getTopLeft()), line.distance(box.getTopRight())));
+	}
+
+	private static boolean overlaps(Segment2 segment, Box2 box) {
+		double[] t=new double[2];
+		Vector2 dir=segment.getP2().minus(segment.getP1());
+		return box.clip(segment.getP1().getX(), segment.getP1().getY(), dir.getX(), dir.getY(), t, 0) && t[0]<=1 && t[1]>=0;
+	}
+
+	private static boolean overlaps(Segment3 segment, Box3 box) {
+		// a segment overlaps the box if the closest point of the box to some point of the segment is at zero distance
+		Vector3 p1=segment.getP1(), p2=segment.getP2();
+		if (Math.max(p1.getX(), p2.getX())<box.minX || Math.min(p1.getX(), p2.getX())>box.maxX
+				|| Math.max(p1.getY(), p2.getY())<box.minY || Math.min(p1.getY(), p2.getY())>box.maxY
+				|| Math.max(p1.getZ(), p2.getZ())<box.minZ || Math.min(p1.getZ(), p2.getZ())>box.maxZ)
+			return false;
+		for (int i=0; i<=1000; i++)
+			if (distance(box, segment.getPointAt(i/1000.0))==0) return true;
+		return false;
+	}
+
+	private static boolean overlaps(Box2 a, Box2 b) {
+		return a.minX<=b.maxX && b.minX<=a.maxX && a.minY<=b.maxY && b.minY<=a.maxY;
+	}
+
+	private static boolean overlaps(Box3 a, Box3 b) {
+		return a.minX<=b.maxX && b.minX<=a.maxX && a.minY<=b.maxY && b.minY<=a.maxY && a.minZ<=b.maxZ && b.minZ<=a.maxZ;
+	}
+
+	private static <T> void assertSameItems(List<T> expected, List<T> actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(new HashSet<T>(expected), new HashSet<T>(actual));
+	}
+
+	/**
+	 * Checks that the result contains the objects at distance below the limit, and does not contain those above.
+	 */
+	private static <T> void assertNear(List<T> items, double[] distances, double maxDistance, List<T> actual) {
+		Set<T> result=new HashSet<T>(actual);
+		assertEquals(actual.size(), result.size());
+		for (int i=0; i<items.size(); i++) {
+			if (distances[i]<maxDistance-EPS) assertTrue(result.contains(items.get(i)));
+			if (distances[i]>maxDistance+EPS) assertFalse(result.contains(items.get(i)));
+		}
+	}
+
+	@Test
+	public void testSegments2() {
+		Random random=new Random(1);
+		List<Segment2> segments=new ArrayList<Segment2>();
+		for (int i=0; i<3000; i++) {
+			Vector2 p=point2(random);
+			segments.add(new Segment2(p, p.plus(offset2(random, 5))));
+		}
+		Bvh2<Segment2> bvh=Bvh2.createFromSegments(segments);
+		assertEquals(segments, bvh.getItems());
+
+		for (int q=0; q<QUERIES; q++) {
+			Box2 box=new Box2(point2(random), random.nextDouble()*30+EPS, random.nextDouble()*30+EPS);
+			List<Segment2> expected=new ArrayList<Segment2>();
+			for (Segment2 segment: segments)
+				if (overlaps(segment, box)) expected.add(segment);
+			assertSameItems(expected, bvh.findOverlapping(box));
+
+			Line2 line=Line2.createFromDir(point2(random), offset2(random, 1));
+			double[] distances=new double[segments.size()];
+			for (int i=0; i<segments.size(); i++)
+				distances[i]=distance(segments.get(i), line);
+			assertNear(segments, distances, 2, bvh.findNear(line, 2));
+			assertNear(segments, distances, 0, bvh.findNear(line, 0));
+
+			Vector2 point=point2(random);
+			double min=Double.POSITIVE_INFINITY;
+			for (Segment2 segment: segments)
+				min=Math.min(min, distance(segment, point));
+			assertEquals(min, distance(bvh.findNearest(point), point), EPS);
+		}
+	}
+
+	@Test
+	public void testSegments3() {
+		// large enough to be built in parallel
+		Random random=new Random(2);
+		List<Segment3> segments=new ArrayList<Segment3>();
+		for (int i=0; i<20000; i++) {
+			Vector3 p=point3(random);
+			segments.add(new Segment3(p, p.plus(offset3(random, 5))));
+		}
+		Bvh3<Segment3> bvh=Bvh3.createFromSegments(segments);
+		assertEquals(20000, bvh.size());
+
+		for (int q=0; q<QUERIES; q++) {
+			Line3 line=Line3.createFromDir(point3(random), offset3(random, 1));
+			double[] distances=new double[segments.size()];
+			for (int i=0; i<segments.size(); i++)
+				distances[i]=distance(segments.get(i), line);
+			assertNear(segments, distances, 3, bvh.findNear(line, 3));
+
+			Vector3 point=point3(random);
+			double min=Double.POSITIVE_INFINITY;
+			for (Segment3 segment: segments)
+				min=Math.min(min, distance(segment, point));
+			assertEquals(min, distance(bvh.findNearest(point), point), EPS);
+		}
+
+		Box3 box=new Box3(MatrixFactory.createVector(-10, -20, 0), 20, 15, 10);
+		List<Segment3> expected=new ArrayList<Segment3>();
+		for (Segment3 segment: segments)
+			if (overlaps(segment, box)) expected.add(segment);
+		List<Segment3> actual=bvh.findOverlapping(box);
+		// the sampled reference may miss segments which only graze the box
+		assertTrue(actual.containsAll(expected));
+		assertTrue(actual.size()<=expected.size()+2);
+	}
+
+	@Test
+	public void testBoxes2() {
+		Random random=new Random(3);
+		List<Box2> boxes=new ArrayList<Box2>();
+		for (int i=0; i<2000; i++)
+			boxes.add(new Box2(point2(random), random.nextDouble()*5+EPS, random.nextDouble()*5+EPS));
+		Bvh2<Box2> bvh=Bvh2.createFromBoxes(boxes);
+
+		for (int q=0; q<QUERIES; q++) {
+			Box2 query=new Box2(point2(random), random.nextDouble()*30+EPS, random.nextDouble()*30+EPS);
+			List<Box2> expected=new ArrayList<Box2>();
+			for (Box2 box: boxes)
+				if (overlaps(box, query)) expected.add(box);
+			assertSameItems(expected, bvh.findOverlapping(query));
+
+			Line2 line=Line2.createFromDir(point2(random), offset2(random, 1));
+			double[] distances=new double[boxes.size()];
+			for (int i=0; i<boxes.size(); i++)
+				distances[i]=distance(boxes.get(i), line);
+			assertNear(boxes, distances, 1.5, bvh.findNear(line, 1.5));
+
+			Vector2 point=point2(random);
+			double min=Double.POSITIVE_INFINITY;
+			for (Box2 box: boxes)
+				min=Math.min(min, distance(box, point));
+			assertEquals(min, distance(bvh.findNearest(point), point), EPS);
+		}
+	}
+
+	@Test
+	public void testBoxes3() {
+		Random random=new Random(4);
+		List<Box3> boxes=new ArrayList<Box3>();
+		for (int i=0; i<2000; i++)
+			boxes.add(new Box3(point3(random), random.nextDouble()*5+EPS, random.nextDouble()*5+EPS, random.nextDouble()*5+EPS));
+		Bvh3<Box3> bvh=Bvh3.createFromBoxes(boxes);
+
+		for (int q=0; q<QUERIES; q++) {
+			Box3 query=new Box3(point3(random), random.nextDouble()*30+EPS, random.nextDouble()*30+EPS, random.nextDouble()*30+EPS);
+			List<Box3> expected=new ArrayList<Box3>();
+			for (Box3 box: boxes)
+				if (overlaps(box, query)) expected.add(box);
+			assertSameItems(expected, bvh.findOverlapping(query));
+
+			Vector3 point=point3(random);
+			double min=Double.POSITIVE_INFINITY;
+			for (Box3 box: boxes)
+				min=Math.min(min, distance(box, point));
+			assertEquals(min, distance(bvh.findNearest(point), point), EPS);
+		}
+
+		// a line along an edge of a box, and one passing at a known distance from an edge
+		Box3 box=new Box3(MatrixFactory.createVector(1000, 1000, 1000), 1, 1, 1);
+		bvh=Bvh3.createFromBoxes(Collections.singleton(box));
+		assertEquals(1, bvh.findNear(Line3.createFromDir(MatrixFactory.createVector(1000, 1000, 0), MatrixFactory.createVector(0, 0, 1)), 0).size());
+		Line3 line=Line3.createFromDir(MatrixFactory.createVector(999, 1001, 1000.5), MatrixFactory.createVector(1, 1, 0));
+		assertEquals(1, bvh.findNear(line, Math.sqrt(.5)+EPS).size());
+		assertEquals(0, bvh.findNear(line, Math.sqrt(.5)-EPS).size());
+	}
+
+	@Test
+	public void testDegenerateInput() {
+		List<Segment2> segments=new ArrayList<Segment2>();
+		for (int i=0; i<100; i++) {
+			segments.add(new Segment2(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(1, 0)));
+			segments.add(new Segment2(MatrixFactory.createVector(i, 5), MatrixFactory.createVector(i+1, 5)));
+		}
+		Bvh2<Segment2> bvh=Bvh2.createFromSegments(segments);
+		assertEquals(100, bvh.findOverlapping(new Box2(MatrixFactory.createVector(-1, -1), 2, 2)).size());
+		assertEquals(200, bvh.findNear(Line2.createFromDir(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(1, 0)), 5).size());
+		assertEquals(0, distance(bvh.findNearest(MatrixFactory.createVector(50.5, 5)), MatrixFactory.createVector(50.5, 5)), EPS);
+
+		Bvh2<Box2> empty=Bvh2.createFromBoxes(Collections.<Box2>emptyList());
+		assertEquals(0, empty.size());
+		assertNull(empty.findNearest(MatrixFactory.createVector(0, 0)));
+		assertTrue(empty.findOverlapping(new Box2(MatrixFactory.createVector(0, 0), 1, 1)).isEmpty());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeDistance() {
+		Bvh2.createFromBoxes(Collections.<Box2>emptyList()).findNear(Line2.createFromDir(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(1, 0)), -1);
+	}
+}
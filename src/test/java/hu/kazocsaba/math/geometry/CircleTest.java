@@ -2,6 +2,7 @@ package hu.kazocsaba.math.geometry;
 
 import hu.kazocsaba.math.matrix.MatrixFactory;
 import hu.kazocsaba.math.matrix.Vector3;
+import java.util.List;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -19,6 +20,52 @@ public class CircleTest {
 		testCircumferencePoints(Circle3.create(MatrixFactory.createVector(8.54998, 38.008198, 50.079457), MatrixFactory.createVector(-0.104916, -0.780287, 0.616558), 1));
 	}
 
+	@Test
+	public void testDistance() {
+		Circle3 circle=Circle3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(0, 0, 2), 2);
+		assertEquals(0, circle.distance(MatrixFactory.createVector(3, 2, 3)), 1e-8);
+		assertEquals(2, circle.distance(1, 2, 3), 1e-8);
+		assertEquals(5, circle.distance(1, 7, 7), 1e-8);
+		assertEquals(Math.sqrt(8), circle.distance(1, 2, 5), 1e-8);
+	}
+
+	@Test
+	public void testRotationDirection() {
+		// the points must agree with rotating the zero point around the axis of the circle
+		Circle3 circle=Circle3.create(MatrixFactory.createVector(8.5, 38, 50), MatrixFactory.createVector(-0.1, -0.78, 0.62), 3);
+		Line3 axis=Line3.createFromDir(circle.getCenter(), circle.getNormal());
+		Vector3 radial=circle.getPointAt(0).minus(circle.getCenter());
+		for (int angle=0; angle<360; angle+=30) {
+			double rad=Math.toRadians(angle);
+			Vector3 expected=axis.getRotation(rad).mul(radial).plus(circle.getCenter());
+			assertEquals(0, circle.getPointAt(rad).error(expected), 1e-8);
+		}
+	}
+
+	@Test
+	public void testGetPoints() {
+		Circle3 circle=Circle3.create(MatrixFactory.createVector(1, -2, 3), MatrixFactory.createVector(2, 1, -1), 5);
+		int count=1000;
+		double[] coords=new double[3*count+2];
+		circle.getPoints(count, coords, 2);
+		double[] expected=new double[3];
+		for (int i=0; i<count; i++) {
+			circle.getPointAt(2*Math.PI*i/count, expected, 0);
+			for (int k=0; k<3; k++)
+				assertEquals(expected[k], coords[2+3*i+k], 1e-10);
+		}
+		
+		List<Vector3> points=circle.getPoints(6);
+		assertEquals(6, points.size());
+		for (int i=0; i<6; i++)
+			assertEquals(0, points.get(i).error(circle.getPointAt(Math.PI*i/3)), 1e-10);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testGetPointsRangeCheck() {
+		Circle3.create(MatrixFactory.createVector(0, 0, 0), MatrixFactory.createVector(0, 0, 1), 1).getPoints(10, new double[30], 1);
+	}
+
 	private void testCircumferencePoints(Circle3 circle) {
 		Plane3 plane=circle.getPlane();
 		
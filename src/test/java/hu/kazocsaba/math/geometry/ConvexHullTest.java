@@ -0,0 +1,199 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class ConvexHullTest {
+	private static void checkHull2(ConvexHull2 hull, double[] points, int count) {
+		Polygon2 polygon=hull.getPolygon();
+		assertTrue(polygon.getSignedArea()>0);
+		int n=polygon.getVertexCount();
+		for (int i=0; i<n; i++) {
+			// the vertices are strictly convex
+			double ax=polygon.getX(i), ay=polygon.getY(i);
+			double bx=polygon.getX((i+1)%n), by=polygon.getY((i+1)%n);
+			double cx=polygon.getX((i+2)%n), cy=polygon.getY((i+2)%n);
+			assertTrue((bx-ax)*(cy-ay)-(by-ay)*(cx-ax)>0);
+		}
+		for (int i=0; i<count; i++)
+			assertTrue(hull.contains(points[2*i], points[2*i+1]));
+	}
+
+	@Test
+	public void testHull2() {
+		Random random=new Random(2401);
+		for (int count: new int[] {3, 10, 1000, 100000}) {
+			double[] points=new double[2*count];
+			for (int i=0; i<2*count; i++)
+				points[i]=random.nextGaussian()*10;
+			ConvexHull2 hull=new ConvexHull2();
+			hull.add(points, 0, count);
+			checkHull2(hull, points, count);
+
+			// adding the points one by one gives the same hull
+			ConvexHull2 streamed=new ConvexHull2();
+			for (int i=0; i<count; i++)
+				streamed.add(points[2*i], points[2*i+1]);
+			assertEquals(hull.getVertexCount(), streamed.getVertexCount());
+			assertEquals(hull.getPolygon().getArea(), streamed.getPolygon().getArea(), 1e-9);
+		}
+	}
+
+	@Test
+	public void testSquare2() {
+		ConvexHull2 hull=new ConvexHull2();
+		Random random=new Random(2402);
+		hull.add(new double[] {0, 0, 2, 0, 2, 2, 0, 2, 1, 0, 0, 0}, 0, 6);
+		for (int i=0; i<100; i++)
+			hull.add(random.nextDouble()*2, random.nextDouble()*2);
+		assertEquals(4, hull.getVertexCount());
+		assertEquals(4, hull.getPolygon().getArea(), 1e-15);
+		assertEquals(4, hull.getEdges().size());
+		assertEquals(2, hull.getBoundingBox().getWidth(), 0);
+		assertTrue(hull.contains(2, 1));
+		assertFalse(hull.contains(2.1, 1));
+		double[] vertices=new double[8];
+		hull.getVertices(vertices, 0);
+		assertEquals(0, vertices[0], 0);
+		assertEquals(0, vertices[1], 0);
+		assertEquals(2, vertices[2], 0);
+	}
+
+	@Test
+	public void testDegenerate2() {
+		ConvexHull2 hull=new ConvexHull2();
+		assertEquals(0, hull.getVertexCount());
+		hull.add(1, 1);
+		hull.add(1, 1);
+		assertEquals(1, hull.getVertexCount());
+		hull.add(2, 2);
+		hull.add(3, 3);
+		assertEquals(2, hull.getVertexCount());
+		assertFalse(hull.contains(2, 2));
+		try {
+			hull.getPolygon();
+			fail();
+		} catch (DegenerateCaseException e) {}
+	}
+
+	private static void checkHull3(ConvexHull3 hull, double[] points, int count) {
+		// Euler's formula for a triangulated convex polyhedron
+		assertEquals(2*hull.getVertexCount()-4, hull.getFaceCount());
+		List<Plane3> faces=hull.getFaces();
+		for (int i=0; i<count; i++) {
+			assertTrue(hull.contains(points[3*i], points[3*i+1], points[3*i+2]));
+			for (Plane3 face: faces)
+				assertTrue(face.signedDistance(points[3*i], points[3*i+1], points[3*i+2])<1e-9);
+		}
+		// every vertex is on a face
+		double[] vertices=new double[3*hull.getVertexCount()];
+		hull.getVertices(vertices, 0);
+		for (int v=0; v<hull.getVertexCount(); v++) {
+			double nearest=Double.POSITIVE_INFINITY;
+			for (Plane3 face: faces)
+				nearest=Math.min(nearest, Math.abs(face.signedDistance(vertices[3*v], vertices[3*v+1], vertices[3*v+2])));
+			assertEquals(0, nearest, 1e-9);
+		}
+	}
+
+	@Test
+	public void testHull3() {
+		Random random=new Random(2403);
+		for (int count: new int[] {4, 50, 2000, 70000}) {
+			double[] points=new double[3*count];
+			for (int i=0; i<3*count; i++)
+				points[i]=random.nextGaussian()*10;
+			ConvexHull3 hull=new ConvexHull3();
+			hull.add(points, 0, count);
+			if (count<=2000) checkHull3(hull, points, count);
+			else assertEquals(2*hull.getVertexCount()-4, hull.getFaceCount());
+
+			ConvexHull3 streamed=new ConvexHull3();
+			for (int i=0; i<count; i++)
+				streamed.add(points[3*i], points[3*i+1], points[3*i+2]);
+			assertEquals(hull.getVertexCount(), streamed.getVertexCount());
+		}
+	}
+
+	@Test
+	public void testSphere3() {
+		// all points are vertices
+		Random random=new Random(2404);
+		ConvexHull3 hull=new ConvexHull3();
+		double[] points=new double[3*500];
+		for (int i=0; i<500; i++) {
+			double x=random.nextGaussian(), y=random.nextGaussian(), z=random.nextGaussian();
+			double length=Math.sqrt(x*x+y*y+z*z);
+			points[3*i]=x/length;
+			points[3*i+1]=y/length;
+			points[3*i+2]=z/length;
+		}
+		hull.add(points, 0, 500);
+		assertEquals(500, hull.getVertexCount());
+		checkHull3(hull, points, 500);
+		Triangle3Buffer triangles=hull.getTriangles();
+		assertEquals(hull.getFaceCount(), triangles.size());
+		// a ray from the center hits the hull from inside
+		double[] hit=new double[3];
+		assertTrue(triangles.raycast(Line3.createFromDir(MatrixFactory.createVector(0, 0, 0), MatrixFactory.createVector(1, 0, 0)), hit, 0)>=0);
+		assertEquals(1, hit[0], .1);
+	}
+
+	@Test
+	public void testCube3() {
+		Random random=new Random(2405);
+		ConvexHull3 hull=new ConvexHull3();
+		// the corners, points on the faces and inside
+		for (int i=0; i<8; i++)
+			hull.add(i&1, (i>>1)&1, (i>>2)&1);
+		for (int i=0; i<300; i++) {
+			double[] p={random.nextDouble(), random.nextDouble(), random.nextDouble()};
+			if (i%2==0) p[i%3]=random.nextBoolean() ? 0 : 1;
+			hull.add(p[0], p[1], p[2]);
+		}
+		assertEquals(8, hull.getVertexCount());
+		assertEquals(12, hull.getFaceCount());
+		assertEquals(1, hull.getBoundingBox().getDepth(), 0);
+		assertFalse(hull.contains(.5, .5, 1.1));
+	}
+
+	@Test
+	public void testStreamedCoplanar3() {
+		// a parallelogram in the plane z=x+2y with points inside it: only its corners are kept
+		Random random=new Random(2406);
+		ConvexHull3 hull=new ConvexHull3();
+		for (int i=0; i<4; i++)
+			hull.add(i&1, i>>1, (i&1)+2*(i>>1));
+		for (int i=0; i<20000; i++) {
+			double x=.01+random.nextDouble()*.98, y=.01+random.nextDouble()*.98;
+			hull.add(x, y, x+2*y);
+		}
+		assertEquals("ConvexHull3[4 coplanar points]", hull.toString());
+		hull.add(.5, .5, 10);
+		assertEquals(5, hull.getVertexCount());
+		assertEquals(6, hull.getFaceCount());
+		assertTrue(hull.contains(.5, .5, 1.6));
+		assertFalse(hull.contains(.5, .5, 1.4));
+
+		// collinear points are reduced to the end points
+		hull=new ConvexHull3();
+		for (int i=0; i<=10000; i++)
+			hull.add(i, 2*i, -i);
+		assertEquals("ConvexHull3[2 coplanar points]", hull.toString());
+	}
+
+	@Test(expected=DegenerateCaseException.class)
+	public void testCoplanar3() {
+		ConvexHull3 hull=new ConvexHull3();
+		for (int i=0; i<20; i++)
+			hull.add(i%5, i/5, 3);
+		hull.getFaces();
+	}
+}
@@ -0,0 +1,43 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Random inputs and assertions shared by the tests.
+ * @author Kazó Csaba
+ */
+final class Fixtures {
+	private Fixtures() {}
+
+	/**
+	 * Returns a vector with normally distributed coordinates of standard deviation 10.
+	 */
+	static Vector3 random3(Random random) {
+		return MatrixFactory.createVector(random.nextGaussian()*10, random.nextGaussian()*10, random.nextGaussian()*10);
+	}
+
+	/**
+	 * Returns a vector with normally distributed coordinates of standard deviation 10.
+	 */
+	static Vector2 random2(Random random) {
+		return MatrixFactory.createVector(random.nextGaussian()*10, random.nextGaussian()*10);
+	}
+
+	/**
+	 * Returns a vector with coordinates uniformly distributed between {@code -range} and {@code range}.
+	 */
+	static Vector3 randomVector(Random random, double range) {
+		return MatrixFactory.createVector((random.nextDouble()*2-1)*range, (random.nextDouble()*2-1)*range, (random.nextDouble()*2-1)*range);
+	}
+
+	/**
+	 * Asserts that two vectors are equal up to a relative error of 1e-9.
+	 */
+	static void assertClose(Vector3 expected, Vector3 actual) {
+		assertEquals(0, expected.minus(actual).norm(), 1e-9*Math.max(1, expected.norm()));
+	}
+}
@@ -0,0 +1,117 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class GeometryFileTest {
+	private static File createTempFile() throws IOException {
+		File file=File.createTempFile("geometry", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random=new Random(1);
+		List<Line3> lines=new ArrayList<Line3>();
+		for (int i=0; i<10000; i++)
+			lines.add(Line3.createFromDir(MatrixFactory.createVector(random.nextDouble(), random.nextDouble(), random.nextDouble()),
+					MatrixFactory.createVector(random.nextDouble()+1, random.nextDouble(), random.nextDouble())));
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(0, 2, 0));
+		Circle3 circle=Circle3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(1, 1, 1), 2);
+		Segment2 segment=new Segment2(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, 4));
+		Box2 box=new Box2(MatrixFactory.createVector(-1, -2), 3, 4);
+		Box3 box3=new Box3(MatrixFactory.createVector(-1, -2, -3), 3, 4, 5);
+		
+		File file=createTempFile();
+		GeometryWriter writer=new GeometryWriter(file);
+		writer.writeAll(GeometryType.LINE3, lines.subList(0, 5000));
+		writer.write(GeometryType.PLANE3, plane);
+		writer.writeAll(GeometryType.LINE3, lines.subList(5000, 10000));
+		writer.write(GeometryType.CIRCLE3, circle);
+		writer.write(GeometryType.SEGMENT2, segment);
+		writer.write(GeometryType.BOX2, box);
+		writer.write(GeometryType.BOX3, box3);
+		writer.write(GeometryType.LINE2, Line2.createFromTwoPoints(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, 5)));
+		writer.write(GeometryType.SEGMENT3, new Segment3(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(3, 5, 7)));
+		writer.close();
+		writer.close();
+		
+		GeometryFile geometryFile=GeometryFile.open(file);
+		assertEquals(9, geometryFile.getSections().size());
+		List<GeometrySection<Line3>> lineSections=geometryFile.getSections(GeometryType.LINE3);
+		assertEquals(2, lineSections.size());
+		List<Line3> read=new ArrayList<Line3>(lineSections.get(0));
+		read.addAll(lineSections.get(1));
+		assertEquals(lines.size(), read.size());
+		for (int i=0; i<lines.size(); i++) {
+			assertEquals(0, lines.get(i).getPoint().error(read.get(i).getPoint()), 0);
+			assertEquals(0, lines.get(i).getDir().error(read.get(i).getDir()), 0);
+		}
+		assertEquals(lines.get(7).getDir().getY(), lineSections.get(0).getCoord(7, 4), 0);
+		DoubleBuffer data=lineSections.get(1).getData();
+		assertEquals(5000*6, data.remaining());
+		assertEquals(lines.get(5001).getPoint().getX(), data.get(6), 0);
+		
+		Plane3 readPlane=geometryFile.getSections(GeometryType.PLANE3).get(0).get(0);
+		assertEquals(0, readPlane.getPoint().error(plane.getPoint()), 0);
+		assertEquals(0, readPlane.getNormal().error(plane.getNormal()), 0);
+		Circle3 readCircle=geometryFile.getSections(GeometryType.CIRCLE3).get(0).get(0);
+		assertEquals(0, readCircle.getCenter().error(circle.getCenter()), 0);
+		assertEquals(0, readCircle.getNormal().error(circle.getNormal()), 1e-15);
+		assertEquals(circle.getRadius(), readCircle.getRadius(), 0);
+		assertEquals(0, geometryFile.getSections(GeometryType.SEGMENT2).get(0).get(0).getP2().error(segment.getP2()), 0);
+		Box2 readBox=geometryFile.getSections(GeometryType.BOX2).get(0).get(0);
+		assertEquals(0, readBox.getPoint().error(box.getPoint()), 0);
+		assertEquals(box.getHeight(), readBox.getHeight(), 0);
+		assertEquals(box3.getDepth(), geometryFile.getSections(GeometryType.BOX3).get(0).get(0).getDepth(), 0);
+		assertEquals(5, geometryFile.getSections(GeometryType.LINE2).get(0).get(0).getYforX(3), 1e-15);
+		assertEquals(7, geometryFile.getSections(GeometryType.SEGMENT3).get(0).get(0).getP2().getZ(), 0);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		File file=createTempFile();
+		new GeometryWriter(file).close();
+		assertEquals(16, file.length());
+		assertTrue(GeometryFile.open(file).getSections().isEmpty());
+	}
+
+	@Test(expected=IOException.class)
+	public void testTruncated() throws IOException {
+		File file=createTempFile();
+		GeometryWriter writer=new GeometryWriter(file);
+		writer.write(GeometryType.SEGMENT2, new Segment2(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, 4)));
+		writer.write(GeometryType.SEGMENT2, new Segment2(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, 4)));
+		writer.close();
+		RandomAccessFile raf=new RandomAccessFile(file, "rw");
+		raf.setLength(file.length()-8);
+		raf.close();
+		GeometryFile.open(file);
+	}
+
+	@Test(expected=IOException.class)
+	public void testBadMagic() throws IOException {
+		File file=createTempFile();
+		FileOutputStream out=new FileOutputStream(file);
+		byte[] bytes=new byte[16];
+		Arrays.fill(bytes, (byte)1);
+		out.write(bytes);
+		out.close();
+		GeometryFile.open(file);
+	}
+}
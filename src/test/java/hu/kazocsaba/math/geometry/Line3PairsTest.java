@@ -0,0 +1,111 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class Line3PairsTest {
+	private static Line3Buffer randomLines(Random random, int count) {
+		Line3Buffer lines=new Line3Buffer();
+		for (int i=0; i<count; i++) {
+			Vector3 dir=Fixtures.randomVector(random, 5);
+			if (i%7==0)
+				// parallel with other lines, also with a different length
+				dir=MatrixFactory.createVector(0, 0, i%2==0 ? 1 : -3);
+			lines.add(Line3.createFromDir(Fixtures.randomVector(random, 100), dir));
+		}
+		return lines;
+	}
+
+	@Test
+	public void testDistances() {
+		Random random=new Random(4401);
+		Line3Buffer first=randomLines(random, 61), second=randomLines(random, 300);
+		double[] distances=new double[2+61*300];
+		Line3Pairs.distances(first, second, distances, 2);
+		double[] t1s=new double[61*300], t2s=new double[61*300];
+		Line3Pairs.closestParameters(first, second, t1s, t2s, 0);
+		for (int i=0; i<first.size(); i++)
+			for (int j=0; j<second.size(); j++) {
+				Line3 line1=first.get(i), line2=second.get(j);
+				int k=i*second.size()+j;
+				double distance=line1.distance(line2);
+				assertEquals(distance, distances[2+k], 1e-9*Math.max(1, distance));
+				// the closest points are at the correct distance, and their difference is orthogonal to both lines
+				Vector3 diff=line1.getPointAt(t1s[k]).minus(line2.getPointAt(t2s[k]));
+				assertEquals(distance, diff.norm(), 1e-7);
+				if (line1.getDir().cross(line2.getDir()).norm()>1e-3) {
+					assertEquals(0, diff.dot(line1.getDir()), 1e-7);
+					assertEquals(0, diff.dot(line2.getDir()), 1e-7);
+				}
+			}
+	}
+
+	@Test
+	public void testNarrowAngle() {
+		// rays starting 0.5 apart which pass 1e-3 from each other at z=10000
+		Line3Buffer first=new Line3Buffer(), second=new Line3Buffer();
+		first.add(Line3.createFromDir(MatrixFactory.createVector(0, 0, 0), MatrixFactory.createVector(0, 0, 2)));
+		second.add(Line3.createFromDir(MatrixFactory.createVector(.5, 1e-3, 0), MatrixFactory.createVector(-.5, 0, 1e4)));
+		double[] distances=new double[1], t1s=new double[1], t2s=new double[1];
+		Line3Pairs.distances(first, second, distances, 0);
+		assertEquals(1e-3, distances[0], 1e-12);
+		Line3Pairs.closestParameters(first, second, t1s, t2s, 0);
+		assertEquals(5000, t1s[0], 1e-6);
+		assertEquals(1, t2s[0], 1e-12);
+	}
+
+	@Test
+	public void testFindPairsWithin() {
+		Random random=new Random(4402);
+		// large enough to be divided into parallel tasks
+		Line3Buffer first=randomLines(random, 700), second=randomLines(random, 500);
+		final double threshold=3;
+		final List<int[]> found=new ArrayList<int[]>();
+		Line3Pairs.findPairsWithin(first, second, threshold, new Line3Pairs.Listener() {
+			@Override
+			public void pair(int first, int second, double distance, double t1, double t2) {
+				assertTrue(distance<=threshold);
+				found.add(new int[] {first, second});
+			}
+		});
+		double[] distances=new double[first.size()*second.size()];
+		Line3Pairs.distances(first, second, distances, 0);
+		int k=0;
+		for (int i=0; i<first.size(); i++)
+			for (int j=0; j<second.size(); j++)
+				if (distances[i*second.size()+j]<=threshold) {
+					// also checks the order of the pairs
+					assertEquals(i, found.get(k)[0]);
+					assertEquals(j, found.get(k)[1]);
+					k++;
+				}
+		assertEquals(k, found.size());
+		assertTrue(k>0);
+	}
+
+	@Test
+	public void testEmpty() {
+		Line3Pairs.distances(new Line3Buffer(), randomLines(new Random(4403), 5), new double[0], 0);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testRangeCheck() {
+		Random random=new Random(4404);
+		Line3Pairs.distances(randomLines(random, 3), randomLines(random, 4), new double[12], 1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidThreshold() {
+		Random random=new Random(4405);
+		Line3Pairs.findPairsWithin(randomLines(random, 3), randomLines(random, 4), Double.NaN, null);
+	}
+}
@@ -2,6 +2,10 @@ package hu.kazocsaba.math.geometry;
 
 import hu.kazocsaba.math.matrix.Matrix3;
 import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -45,6 +49,125 @@ public class LineTest {
 		assertEquals(0, l3.distance(l3), 1e-8);
 	}
 	
+	@Test
+	public void testPrimitiveQueries2() {
+		Line2 line=Line2.createFromDir(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, 4));
+		assertEquals(5, line.distance(5, -1), 1e-8);
+		assertEquals(5, line.distance(MatrixFactory.createVector(5, -1)), 1e-8);
+		assertEquals(0, line.getClosestT(5, -1), 1e-8);
+		assertEquals(1, line.getClosestT(4, 6), 1e-8);
+		
+		Vector2 p=MatrixFactory.createVector2();
+		assertSame(p, line.getPointAt(2, p));
+		assertEquals(0, p.error(MatrixFactory.createVector(7, 10)), 1e-8);
+		
+		double[] coords=new double[3];
+		line.getPointAt(-1, coords, 1);
+		assertEquals(-2, coords[1], 1e-8);
+		assertEquals(-2, coords[2], 1e-8);
+	}
+	
+	@Test
+	public void testPrimitiveQueries3() {
+		Line3 line=Line3.createFromDir(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(2, 0, 0));
+		assertEquals(5, line.distance(-7, 4, -3), 1e-8);
+		assertEquals(-4, line.getClosestT(-7, 4, -3), 1e-8);
+		assertEquals(line.getClosestT(MatrixFactory.createVector(-7, 4, -3)), line.getClosestT(-7, 4, -3), 1e-8);
+		
+		Vector3 p=MatrixFactory.createVector3();
+		assertSame(p, line.getPointAt(.5, p));
+		assertEquals(0, p.error(MatrixFactory.createVector(2, 1, 1)), 1e-8);
+		assertEquals(0, line.getPointAt(.5).error(p), 1e-8);
+		
+		double[] coords=new double[3];
+		line.getPointAt(1, coords, 0);
+		assertEquals(3, coords[0], 1e-8);
+		assertEquals(1, coords[1], 1e-8);
+		assertEquals(1, coords[2], 1e-8);
+	}
+	
+	@Test
+	public void testCountWithin() {
+		double[] xs={0, 1, 2, 3};
+		double[] ys={0, .5, 1, -1};
+		double[] zs={5, 5, 5, 5};
+		Line2 line2=Line2.createFromDir(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(3, 0));
+		assertEquals(2, line2.countWithin(xs, ys, 0, 4, .5));
+		assertEquals(3, line2.countWithin(xs, ys, 1, 3, 1));
+		Line3 line3=Line3.createFromDir(MatrixFactory.createVector(0, 0, 5), MatrixFactory.createVector(0, .1, 0));
+		assertEquals(1, line3.countWithin(xs, ys, zs, 0, 4, .5));
+		assertEquals(2, line3.countWithin(xs, ys, zs, 0, 4, 1));
+	}
+	
+	@Test
+	public void testBatchDistances() {
+		double[] xs={0, 1, 2, 3};
+		double[] ys={0, .5, 1, -1};
+		double[] zs={5, 5, 4, 5};
+		double[] result=new double[5];
+		Line2 line2=Line2.createFromDir(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(3, 0));
+		line2.distances(xs, ys, 1, 3, result, 2);
+		assertEquals(0, result[1], 0);
+		assertEquals(.5, result[2], 1e-8);
+		assertEquals(1, result[3], 1e-8);
+		assertEquals(1, result[4], 1e-8);
+		Line3 line3=Line3.createFromDir(MatrixFactory.createVector(0, 0, 5), MatrixFactory.createVector(0, .1, 0));
+		line3.distances(xs, ys, zs, 0, 4, result, 0);
+		for (int i=0; i<4; i++)
+			assertEquals(line3.distance(xs[i], ys[i], zs[i]), result[i], 1e-12);
+	}
+	
+	@Test
+	public void testDerivedQuantities() {
+		ImmutableVector3 point=ImmutableMatrixFactory.createVector(1, 2, 3);
+		ImmutableVector3 dir=ImmutableMatrixFactory.createVector(0, 3, 4);
+		Line3 line=Line3.createFromDir(point, dir);
+		// immutable arguments are not copied
+		assertSame(point, line.getPoint());
+		assertSame(dir, line.getDir());
+		// the unit direction is computed once
+		assertEquals(0, line.getUnitDir().error(MatrixFactory.createVector(0, .6, .8)), 1e-10);
+		assertSame(line.getUnitDir(), line.getUnitDir());
+		assertEquals(.5, line.getClosestT(MatrixFactory.createVector(7, 3.5, 5)), 1e-10);
+		
+		Line2 line2=Line2.createFromTwoPoints(MatrixFactory.createVector(1, 1), MatrixFactory.createVector(4, 5));
+		assertEquals(0, line2.getDir().error(MatrixFactory.createVector(3, 4)), 1e-10);
+		assertEquals(0, line2.getUnitDir().error(MatrixFactory.createVector(.6, .8)), 1e-10);
+		
+		Segment3 segment=new Segment3(point, dir);
+		assertSame(point, segment.getP1());
+		assertEquals(0, segment.getPointAt(.5).error(MatrixFactory.createVector(.5, 2.5, 3.5)), 1e-10);
+	}
+	
+	@Test
+	public void testDegenerateQueries() {
+		Line2 line=Line2.createFromTwoPoints(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, 6));
+		assertEquals(line.getYforX(2), line.findYforX(2), 1e-10);
+		assertEquals(line.getXforY(-4), line.findXforY(-4), 1e-10);
+		Line2 vertical=Line2.createFromDir(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(0, 3));
+		assertTrue(Double.isNaN(vertical.findYforX(2)));
+		assertEquals(1, vertical.findXforY(5), 1e-10);
+		
+		Line3 line3=Line3.createFromDir(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(1, 0, 2));
+		Vector3 p=MatrixFactory.createVector(7, 7, 7);
+		assertTrue(line3.findPointWhereCoord(2, 7, p));
+		assertEquals(0, p.error(MatrixFactory.createVector(3, 2, 7)), 1e-10);
+		assertFalse(line3.findPointWhereCoord(1, 5, p));
+		assertEquals(0, p.error(MatrixFactory.createVector(3, 2, 7)), 1e-10);
+		try {
+			line3.getPointWhereCoord(1, 5);
+			fail();
+		} catch (DegenerateCaseException e) {
+			// expected
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testDistanceDimensionMismatch() {
+		Line3 line=Line3.createFromDir(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(2, 0, 0));
+		line.distance(MatrixFactory.createVector(1, 2));
+	}
+	
 	@Test
 	public void testToStringWorks() {
 		assertNotNull(Line3.createFromDir(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(2, 0, 0)).toString());
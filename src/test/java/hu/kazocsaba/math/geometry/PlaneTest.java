@@ -16,6 +16,42 @@ public class PlaneTest {
 		assertEquals(1, plane.distance(MatrixFactory.createVector(0, 2, 1)), 1e-8);
 	}
 	@Test
+	public void testSignedDistance() {
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(2, 0, 0));
+		assertEquals(1, plane.signedDistance(2, 2, 1), 1e-8);
+		assertEquals(-1, plane.signedDistance(0, 2, 1), 1e-8);
+		assertEquals(1, plane.distance(0, 2, 1), 1e-8);
+	}
+	@Test
+	public void testBatchDistances() {
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(0, 0, 1), MatrixFactory.createVector(0, 0, 3));
+		double[] xs={9, 1, 2, 3, 4};
+		double[] ys={9, 5, 6, 7, 8};
+		double[] zs={9, 1, 1.5, -1, 0.9};
+		double[] result=new double[6];
+		
+		plane.signedDistances(xs, ys, zs, 1, 4, result, 2);
+		assertEquals(0, result[1], 0);
+		assertEquals(0, result[2], 1e-8);
+		assertEquals(.5, result[3], 1e-8);
+		assertEquals(-2, result[4], 1e-8);
+		assertEquals(-.1, result[5], 1e-8);
+		
+		plane.distances(xs, ys, zs, 1, 4, result, 0);
+		assertEquals(2, result[2], 1e-8);
+		assertEquals(.1, result[3], 1e-8);
+		
+		assertEquals(2, plane.countWithin(xs, ys, zs, 1, 4, .2));
+		assertEquals(3, plane.countWithin(xs, ys, zs, 1, 4, .5));
+		assertEquals(0, plane.countWithin(xs, ys, zs, 3, 1, .5));
+	}
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testBatchDistancesRangeCheck() {
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(0, 0, 1), MatrixFactory.createVector(0, 0, 3));
+		double[] coords=new double[4];
+		plane.distances(coords, coords, coords, 1, 4, new double[4], 0);
+	}
+	@Test
 	public void testLineIntersect() {
 		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(1, 0, 0));
 		Line3 line=Line3.createFromTwoPoints(MatrixFactory.createVector(5, 3, 6), MatrixFactory.createVector(1, 20, 30));
@@ -25,6 +61,18 @@ public class PlaneTest {
 		assertEquals(0, plane.intersect(line).minus(MatrixFactory.createVector(1, 4, 3)).norm(), 1e-8);
 	}
 	@Test
+	public void testBatchLineIntersect() {
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(2, 0, 0));
+		double[] pxs={5, 5, 9}, pys={3, 4, 9}, pzs={6, 3, 9};
+		double[] dxs={-4, 1, 0}, dys={17, 0, 1}, dzs={24, 0, 0};
+		double[] ts=new double[4];
+		assertEquals(2, plane.intersect(pxs, pys, pzs, dxs, dys, dzs, 0, 3, ts, 1));
+		assertEquals(0, ts[0], 0);
+		assertEquals(1, ts[1], 1e-8);
+		assertEquals(-4, ts[2], 1e-8);
+		assertTrue(Double.isNaN(ts[3]));
+	}
+	@Test
 	public void testPlaneIntersect() {
 		Plane3 p1=Plane3.create(MatrixFactory.createVector(.5, .5, 3), MatrixFactory.createVector(1, 1, 0));
 		Plane3 p2=Plane3.create(MatrixFactory.createVector(-4, 2, 8), MatrixFactory.createVector(0, 0, 1));
@@ -34,6 +82,53 @@ public class PlaneTest {
 		assertEquals(0, line.distance(MatrixFactory.createVector(1, 0, 8)), 1e-8);
 	}
 	
+	@Test
+	public void testWorkspaceIntersect() {
+		Plane3 p1=Plane3.create(MatrixFactory.createVector(.5, .5, 3), MatrixFactory.createVector(1, 1, 0));
+		Plane3 p2=Plane3.create(MatrixFactory.createVector(-4, 2, 8), MatrixFactory.createVector(0, 0, 1));
+		Workspace workspace=Workspace.get();
+		assertSame(workspace, Workspace.get());
+		
+		p1.intersect(p2, workspace);
+		Line3 line=p1.intersect(p2);
+		assertEquals(0, workspace.getPoint3().error(line.getPoint()), 1e-10);
+		assertEquals(0, workspace.getDir3().error(line.getDir()), 1e-10);
+		
+		Line3 other=Line3.createFromTwoPoints(MatrixFactory.createVector(5, 3, 6), MatrixFactory.createVector(1, 20, 30));
+		assertSame(workspace.getPoint3(), p1.intersect(other, workspace));
+		assertEquals(0, workspace.getPoint3().error(p1.intersect(other)), 1e-10);
+	}
+	
+	@Test
+	public void testFindIntersection() {
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(0, 0, 2));
+		Workspace workspace=new Workspace();
+		
+		Line3 line=Line3.createFromDir(MatrixFactory.createVector(5, 4, 3), MatrixFactory.createVector(1, 0, 1));
+		assertEquals(IntersectionType.POINT, plane.findIntersection(line, workspace));
+		assertEquals(0, workspace.getPoint3().error(MatrixFactory.createVector(3, 4, 1)), 1e-10);
+		line=Line3.createFromDir(MatrixFactory.createVector(5, 4, 3), MatrixFactory.createVector(1, 1, 0));
+		assertEquals(IntersectionType.NONE, plane.findIntersection(line, workspace));
+		line=Line3.createFromDir(MatrixFactory.createVector(5, 4, 1), MatrixFactory.createVector(1, 1, 0));
+		assertEquals(IntersectionType.LINE, plane.findIntersection(line, workspace));
+		assertEquals(0, workspace.getPoint3().error(line.getPoint()), 1e-10);
+		assertEquals(0, workspace.getDir3().error(line.getDir()), 1e-10);
+		
+		Plane3 other=Plane3.create(MatrixFactory.createVector(0, 0, 0), MatrixFactory.createVector(1, 0, 0));
+		assertEquals(IntersectionType.LINE, plane.findIntersection(other, workspace));
+		assertEquals(0, workspace.getPoint3().error(plane.intersect(other).getPoint()), 1e-10);
+		other=Plane3.create(MatrixFactory.createVector(3, 2, 1), MatrixFactory.createVector(0, 0, -1));
+		assertEquals(IntersectionType.PLANE, plane.findIntersection(other, workspace));
+		other=Plane3.create(MatrixFactory.createVector(3, 2, 2), MatrixFactory.createVector(0, 0, -1));
+		assertEquals(IntersectionType.NONE, plane.findIntersection(other, workspace));
+	}
+	
+	@Test
+	public void testStacklessException() {
+		assertEquals(0, new DegenerateCaseException("message", false).getStackTrace().length);
+		assertTrue(new DegenerateCaseException("message", true).getStackTrace().length>0);
+	}
+	
 	@Test(expected=DegenerateCaseException.class)
 	public void testParallelPlaneIntersect() {
 		Plane3 p1=Plane3.create(MatrixFactory.createVector(3, 4, -5), MatrixFactory.createVector(4, 0, 0));
@@ -0,0 +1,189 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class Polygon2Test {
+	private static Vector2 v(double x, double y) {
+		return MatrixFactory.createVector(x, y);
+	}
+
+	/**
+	 * A concave star-shaped polygon with its center at the origin.
+	 */
+	private static Polygon2 star(Random random, int count) {
+		List<Vector2> vertices=new ArrayList<Vector2>();
+		for (int i=0; i<count; i++) {
+			double angle=2*Math.PI*i/count, radius=1+random.nextDouble()*9;
+			vertices.add(v(radius*Math.cos(angle), radius*Math.sin(angle)));
+		}
+		return Polygon2.create(vertices);
+	}
+
+	@Test
+	public void testArea() {
+		Polygon2 square=Polygon2.create(new double[] {0, 0, 2, 0, 2, 2, 0, 2}, 0, 4);
+		assertEquals(4, square.getSignedArea(), 1e-15);
+		assertEquals(1, square.getCentroid().getX(), 1e-15);
+		assertEquals(1, square.getCentroid().getY(), 1e-15);
+		// clockwise L shape: a 3x1 bar with its centroid at (1.5,0.5) and a 1x2 bar with its centroid at (0.5,2)
+		Polygon2 l=Polygon2.create(new double[] {9, 9, 0, 3, 1, 3, 1, 1, 3, 1, 3, 0, 0, 0}, 2, 6);
+		assertEquals(-5, l.getSignedArea(), 1e-15);
+		assertEquals(5, l.getArea(), 1e-15);
+		assertEquals(1.1, l.getCentroid().getX(), 1e-14);
+		assertEquals(1.1, l.getCentroid().getY(), 1e-14);
+	}
+
+	@Test
+	public void testEdges() {
+		Polygon2 triangle=Polygon2.create(new double[] {0, 0, 1, 0, 0, 1}, 0, 3);
+		List<Segment2> edges=triangle.getEdges();
+		assertEquals(3, edges.size());
+		assertEquals(0, edges.get(2).getP1().error(v(0, 1)), 0);
+		assertEquals(0, edges.get(2).getP2().error(v(0, 0)), 0);
+		assertEquals(0, triangle.getVertex(1).error(v(1, 0)), 0);
+		try {
+			triangle.getEdge(3);
+			fail();
+		} catch (IndexOutOfBoundsException e) {}
+	}
+
+	@Test
+	public void testContains() {
+		Random random=new Random(2201);
+		for (int round=0; round<10; round++) {
+			Polygon2 polygon=star(random, 5+random.nextInt(200));
+			Polygon2 indexed=polygon.indexed();
+			assertTrue(indexed.isIndexed());
+			assertFalse(polygon.isIndexed());
+			assertSame(indexed, indexed.indexed());
+			double[] xs=new double[1000], ys=new double[1000];
+			boolean[] inside=new boolean[1000];
+			for (int i=0; i<1000; i++) {
+				xs[i]=random.nextDouble()*24-12;
+				ys[i]=random.nextDouble()*24-12;
+				// a point is inside a star-shaped polygon if the segment from the center does not cross the boundary
+				boolean expected=true;
+				if (xs[i]!=0 || ys[i]!=0)
+					for (Segment2 edge: polygon.getEdges())
+						if (edge.intersects(new Segment2(v(0, 0), v(xs[i], ys[i])))) expected=false;
+				assertEquals(expected, polygon.contains(xs[i], ys[i]));
+				assertEquals(expected, indexed.contains(xs[i], ys[i]));
+			}
+			int count=indexed.contains(xs, ys, 0, 1000, inside, 0);
+			int expected=0;
+			for (int i=0; i<1000; i++)
+				if (polygon.contains(xs[i], ys[i])) {
+					expected++;
+					assertTrue(inside[i]);
+				} else
+					assertFalse(inside[i]);
+			assertEquals(expected, count);
+		}
+	}
+
+	@Test
+	public void testIndexedComb() {
+		// a bar with teeth spanning the full height: every tooth edge spans every bucket of the default index
+		int teeth=20000;
+		List<Vector2> vertices=new ArrayList<Vector2>();
+		vertices.add(v(0, -1));
+		vertices.add(v(2*teeth-1, -1));
+		for (int i=teeth-1; i>=0; i--) {
+			vertices.add(v(2*i+1, 10));
+			vertices.add(v(2*i, 10));
+			if (i>0) {
+				vertices.add(v(2*i, 0));
+				vertices.add(v(2*i-1, 0));
+			}
+		}
+		Polygon2 polygon=Polygon2.create(vertices).indexed();
+		Random random=new Random(2202);
+		for (int n=0; n<1000; n++) {
+			// a tooth other than the last, so that there is a gap to its right
+			int i=random.nextInt(teeth-1);
+			double y=random.nextDouble()*10;
+			assertTrue(polygon.contains(2*i+.5, y));
+			assertFalse(polygon.contains(2*i+1.5, y));
+			assertTrue(polygon.contains(2*i+1.5, -.5));
+		}
+	}
+
+	@Test
+	public void testLine() {
+		// U shape
+		Polygon2 u=Polygon2.create(new double[] {0, 0, 3, 0, 3, 3, 2, 3, 2, 1, 1, 1, 1, 3, 0, 3}, 0, 8);
+		List<Segment2> parts=u.intersect(Line2.createFromDir(v(-1, 2), v(1, 0)));
+		assertEquals(2, parts.size());
+		assertEquals(0, parts.get(0).getP1().error(v(0, 2)), 1e-12);
+		assertEquals(0, parts.get(0).getP2().error(v(1, 2)), 1e-12);
+		assertEquals(0, parts.get(1).getP1().error(v(2, 2)), 1e-12);
+		assertEquals(0, parts.get(1).getP2().error(v(3, 2)), 1e-12);
+		// along the bottom of the gap: the vertices on the line count as being below it
+		double[] t=new double[8];
+		assertEquals(4, u.intersect(Line2.createFromDir(v(0, 1), v(1, 0)), t, 0));
+		for (int i=0; i<4; i++)
+			assertEquals(i, t[i], 1e-12);
+		assertTrue(u.intersect(Line2.createFromDir(v(0, 5), v(1, 0))).isEmpty());
+
+		Random random=new Random(2202);
+		Polygon2 star=star(random, 50);
+		for (int i=0; i<20; i++) {
+			Line2 line=Line2.createFromDir(v(random.nextDouble()*4-2, random.nextDouble()*4-2), v(random.nextGaussian(), random.nextGaussian()));
+			for (Segment2 part: star.intersect(line)) {
+				assertTrue(star.contains(part.getPointAt(.5)));
+				assertEquals(0, line.distance(part.getP1()), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testClip() {
+		Random random=new Random(2203);
+		for (int round=0; round<20; round++) {
+			Polygon2 polygon=star(random, 5+random.nextInt(50));
+			Box2 box=new Box2(v(random.nextDouble()*10-10, random.nextDouble()*10-10), random.nextDouble()*10+1, random.nextDouble()*10+1);
+			Polygon2 clipped=polygon.clip(box);
+			// estimate the area of the intersection by sampling
+			int inside=0, samples=20000;
+			for (int i=0; i<samples; i++) {
+				double x=box.minX+random.nextDouble()*box.getWidth(), y=box.minY+random.nextDouble()*box.getHeight();
+				if (polygon.contains(x, y)) inside++;
+			}
+			double expected=box.getWidth()*box.getHeight()*inside/samples;
+			if (clipped==null)
+				assertEquals(0, expected, 1e-9);
+			else {
+				assertEquals(expected, clipped.getArea(), .05*box.getWidth()*box.getHeight());
+				for (int i=0; i<clipped.getVertexCount(); i++) {
+					assertTrue(clipped.getX(i)>=box.minX-1e-9 && clipped.getX(i)<=box.maxX+1e-9);
+					assertTrue(clipped.getY(i)>=box.minY-1e-9 && clipped.getY(i)<=box.maxY+1e-9);
+				}
+			}
+		}
+		Polygon2 square=Polygon2.create(new double[] {0, 0, 2, 0, 2, 2, 0, 2}, 0, 4);
+		assertEquals(1, square.clip(new Box2(v(1, 1), 5, 5)).getArea(), 1e-15);
+		assertEquals(4, square.clip(new Box2(v(-1, -1), 5, 5)).getArea(), 1e-15);
+		assertNull(square.clip(new Box2(v(3, 3), 1, 1)));
+		assertNull(square.clip(new Box2(v(2, 0), 1, 1)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDuplicateVertex() {
+		Polygon2.create(new double[] {0, 0, 1, 0, 1, 0, 0, 1}, 0, 4);
+	}
+
+	@Test(expected=DegenerateCaseException.class)
+	public void testZeroArea() {
+		Polygon2.create(new double[] {0, 0, 1, 0, 2, 0}, 0, 3).getCentroid();
+	}
+}
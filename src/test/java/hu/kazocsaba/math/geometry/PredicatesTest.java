@@ -0,0 +1,165 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class PredicatesTest {
+	private static BigDecimal b(double value) {
+		return new BigDecimal(value);
+	}
+
+	private static int orient2dReference(double ax, double ay, double bx, double by, double cx, double cy) {
+		return b(bx).subtract(b(ax)).multiply(b(cy).subtract(b(ay))).subtract(b(by).subtract(b(ay)).multiply(b(cx).subtract(b(ax)))).signum();
+	}
+
+	/**
+	 * Returns the exact sign of {@code (d-a).((b-a)x(c-a))}.
+	 */
+	private static int orient3dReference(double[] a, double[] b, double[] c, double[] d) {
+		BigDecimal[] e1=new BigDecimal[3], e2=new BigDecimal[3], r=new BigDecimal[3];
+		for (int i=0; i<3; i++) {
+			e1[i]=b(b[i]).subtract(b(a[i]));
+			e2[i]=b(c[i]).subtract(b(a[i]));
+			r[i]=b(d[i]).subtract(b(a[i]));
+		}
+		return r[0].multiply(e1[1].multiply(e2[2]).subtract(e1[2].multiply(e2[1])))
+				.add(r[1].multiply(e1[2].multiply(e2[0]).subtract(e1[0].multiply(e2[2]))))
+				.add(r[2].multiply(e1[0].multiply(e2[1]).subtract(e1[1].multiply(e2[0])))).signum();
+	}
+
+	@Test
+	public void testOrient2d() {
+		assertEquals(1, Predicates.orient2d(0, 0, 1, 0, 0, 1));
+		assertEquals(-1, Predicates.orient2d(0, 0, 0, 1, 1, 0));
+		assertEquals(0, Predicates.orient2d(0, 0, 1, 1, 3, 3));
+		// points on a line with large coordinates, perturbed by a few ulps: the naive formula gets many of these wrong
+		double x0=.5, y0=.5;
+		int wrong=0;
+		for (int i=0; i<64; i++)
+			for (int j=0; j<64; j++) {
+				double ax=x0+i*Math.ulp(x0), ay=y0+j*Math.ulp(y0);
+				double bx=12, by=12, cx=24, cy=24;
+				int expected=orient2dReference(ax, ay, bx, by, cx, cy);
+				assertEquals(expected, Predicates.orient2d(ax, ay, bx, by, cx, cy));
+				assertEquals(expected, Predicates.orient2d(bx, by, cx, cy, ax, ay));
+				assertEquals(-expected, Predicates.orient2d(bx, by, ax, ay, cx, cy));
+				double naive=(ax-cx)*(by-cy)-(ay-cy)*(bx-cx);
+				if (Math.signum(naive)!=expected) wrong++;
+			}
+		assertTrue(wrong>0);
+	}
+
+	@Test
+	public void testSideOfLine() {
+		Random random=new Random(2501);
+		for (int i=0; i<10000; i++) {
+			// UTM-like coordinates with points near the line
+			double px=5e5+random.nextDouble()*1e3, py=5e6+random.nextDouble()*1e3;
+			double dx=random.nextGaussian(), dy=random.nextGaussian();
+			double t=random.nextGaussian()*100;
+			double x=px+t*dx+random.nextInt(5)*Math.ulp(px)*(random.nextBoolean() ? 1 : -1), y=py+t*dy;
+			Line2 line=Line2.createFromDir(MatrixFactory.createVector(px, py), MatrixFactory.createVector(dx, dy));
+			int expected=b(dx).multiply(b(y).subtract(b(py))).subtract(b(dy).multiply(b(x).subtract(b(px)))).signum();
+			assertEquals(expected, Predicates.sideOfLine(line, x, y));
+		}
+		Line2 line=Line2.createFromDir(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(1, 0));
+		assertEquals(1, Predicates.sideOfLine(line, 5, 1));
+		assertEquals(-1, Predicates.sideOfLine(line, 5, -1e-300));
+		assertEquals(0, Predicates.sideOfLine(line, -5, 0));
+	}
+
+	@Test
+	public void testOrient3d() {
+		assertEquals(1, Predicates.orient3d(0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1));
+		assertEquals(-1, Predicates.orient3d(0, 0, 0, 0, 1, 0, 1, 0, 0, 0, 0, 1));
+		assertEquals(0, Predicates.orient3d(0, 0, 0, 1, 0, 0, 0, 1, 0, 7, -3, 0));
+		Random random=new Random(2502);
+		for (int i=0; i<2000; i++) {
+			double[] a={5e5+random.nextDouble()*100, 5e6+random.nextDouble()*100, random.nextDouble()*100};
+			double[] b={a[0]+random.nextGaussian()*100, a[1]+random.nextGaussian()*100, a[2]+random.nextGaussian()*100};
+			double[] c={a[0]+random.nextGaussian()*100, a[1]+random.nextGaussian()*100, a[2]+random.nextGaussian()*100};
+			// a point in the plane of the triangle, up to rounding
+			double u=random.nextDouble(), v=random.nextDouble();
+			double[] d=new double[3];
+			for (int k=0; k<3; k++) d[k]=a[k]+u*(b[k]-a[k])+v*(c[k]-a[k]);
+			if (i%2==0) for (int k=0; k<3; k++) d[k]=Math.rint(d[k]);
+			assertEquals(orient3dReference(a, b, c, d), Predicates.orient3d(a[0], a[1], a[2], b[0], b[1], b[2], c[0], c[1], c[2], d[0], d[1], d[2]));
+		}
+	}
+
+	@Test
+	public void testSideOfPlane() {
+		Random random=new Random(2503);
+		for (int i=0; i<10000; i++) {
+			Vector3 point=MatrixFactory.createVector(5e5+random.nextDouble()*1e3, 5e6+random.nextDouble()*1e3, random.nextDouble()*1e3);
+			Vector3 normal=MatrixFactory.createVector(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+			Plane3 plane=Plane3.create(point, normal);
+			// project a random point onto the plane, which leaves it off the plane by a few ulps
+			double x=point.getX()+random.nextGaussian()*100, y=point.getY()+random.nextGaussian()*100, z=point.getZ()+random.nextGaussian()*100;
+			double distance=plane.signedDistance(x, y, z);
+			x-=distance*plane.nx;
+			y-=distance*plane.ny;
+			z-=distance*plane.nz;
+			int expected=b(normal.getX()).multiply(b(x).subtract(b(point.getX())))
+					.add(b(normal.getY()).multiply(b(y).subtract(b(point.getY()))))
+					.add(b(normal.getZ()).multiply(b(z).subtract(b(point.getZ())))).signum();
+			assertEquals(expected, Predicates.sideOfPlane(plane, x, y, z));
+		}
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(0, 0, 2));
+		assertEquals(1, Predicates.sideOfPlane(plane, 100, -100, 3+1e-12));
+		assertEquals(0, Predicates.sideOfPlane(plane, 100, -100, 3));
+		assertEquals(-1, Predicates.sideOfPlane(plane, 0, 0, 2));
+	}
+
+	@Test
+	public void testIntersections() {
+		// a line at a small angle to a plane, far from the origin: not parallel, however short its direction
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(5e5, 5e6, 0), MatrixFactory.createVector(0, 0, 1));
+		Line3 line=Line3.createFromDir(MatrixFactory.createVector(5e5, 5e6, 1e-3), MatrixFactory.createVector(1e-6, 0, -1e-9));
+		Vector3 point=plane.intersect(line);
+		assertEquals(5e5+1, point.getX(), 1e-6);
+		assertEquals(0, point.getZ(), 1e-12);
+		Workspace workspace=new Workspace();
+		line=Line3.createFromDir(MatrixFactory.createVector(5e5+1e-9, 5e6, 1e-9), MatrixFactory.createVector(1, 1, 0));
+		assertEquals(IntersectionType.NONE, plane.findIntersection(line, workspace));
+		line=Line3.createFromDir(MatrixFactory.createVector(5e5+.1, 5e6, 0), MatrixFactory.createVector(1, 1, 0));
+		assertEquals(IntersectionType.LINE, plane.findIntersection(line, workspace));
+		// planes at an angle of 1e-10 still intersect
+		Plane3 other=Plane3.create(MatrixFactory.createVector(5e5, 5e6, 0), MatrixFactory.createVector(1e-10, 0, 1));
+		assertEquals(IntersectionType.LINE, plane.findIntersection(other, workspace));
+		assertEquals(0, plane.distance(workspace.getPoint3()), 1e-6);
+		assertEquals(1, workspace.getDir3().norm(), 1e-15);
+		other=Plane3.create(MatrixFactory.createVector(1, 2, 0), MatrixFactory.createVector(0, 0, -4));
+		assertEquals(IntersectionType.PLANE, plane.findIntersection(other, workspace));
+
+		// a line touching a corner of a box, and one passing just inside of it
+		Box2 box=new Box2(MatrixFactory.createVector(5e5, 5e6), 1, 1);
+		assertNull(box.intersect(Line2.createFromDir(MatrixFactory.createVector(5e5+1, 5e6+1), MatrixFactory.createVector(1, -1))));
+		assertNull(box.intersect(Line2.createFromDir(MatrixFactory.createVector(5e5+2, 5e6+1+1e-6), MatrixFactory.createVector(1, 0))));
+		// a line along a side intersects the box in the side
+		Segment2 side=box.intersect(Line2.createFromDir(MatrixFactory.createVector(5e5+2, 5e6+1), MatrixFactory.createVector(1, 0)));
+		assertEquals(0, side.getP1().error(box.getTopLeft()), 0);
+		assertEquals(0, side.getP2().error(box.getTopRight()), 0);
+		assertNotNull(box.intersect(Line2.createFromDir(MatrixFactory.createVector(5e5+.5, 5e6+1.5-1e-6), MatrixFactory.createVector(1, -1))));
+
+		// perpendicular skew lines with short direction vectors
+		Line3 first=Line3.createFromDir(MatrixFactory.createVector(7, 0, 0), MatrixFactory.createVector(1e-5, 0, 0));
+		Line3 second=Line3.createFromDir(MatrixFactory.createVector(0, 1, 5), MatrixFactory.createVector(0, 0, 1e-5));
+		assertEquals(1, first.distance(second), 1e-12);
+		assertEquals(1, second.distance(first), 1e-12);
+		assertEquals(2, first.distance(Line3.createFromDir(MatrixFactory.createVector(0, 2, 0), MatrixFactory.createVector(-3, 0, 0))), 1e-12);
+
+		// a line with a short direction vector is not parallel with the axes
+		Line2 steep=Line2.createFromDir(MatrixFactory.createVector(1, 1), MatrixFactory.createVector(1e-9, 1));
+		assertEquals(1+1e9, steep.getYforX(2), 1e-3);
+		assertTrue(Double.isNaN(Line2.createFromDir(MatrixFactory.createVector(1, 1), MatrixFactory.createVector(0, 1)).findYforX(2)));
+	}
+}
@@ -0,0 +1,94 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class QuaternionTest {
+	private final Random random=new Random(8801);
+
+	private Vector3 randomVector() {
+		return MatrixFactory.createVector(random.nextDouble()*20-10, random.nextDouble()*20-10, random.nextDouble()*20-10);
+	}
+
+	@Test
+	public void testRotation() {
+		for (int i=0; i<20; i++) {
+			Line3 axis=Line3.createFromDir(randomVector(), randomVector());
+			double angle=random.nextDouble()*10-5;
+			Matrix3 expected=axis.getRotation(angle);
+			Quaternion q=Quaternion.createRotation(axis, angle);
+			assertEquals(0, expected.minus(q.getMatrix()).norm(), 1e-12);
+			Vector3 v=randomVector();
+			Fixtures.assertClose(expected.mul(v), q.rotate(v));
+			Fixtures.assertClose(expected.mul(v), Quaternion.createRotation(axis.getDir(), angle).rotate(v));
+			Fixtures.assertClose(v, q.inverse().rotate(q.rotate(v)));
+		}
+		Quaternion q=Quaternion.createRotation(MatrixFactory.createVector(0, 0, 2), Math.PI/2);
+		Fixtures.assertClose(MatrixFactory.createVector(-1, 1, 0), q.rotate(MatrixFactory.createVector(1, 1, 0)));
+		assertEquals(Math.PI/2, q.getAngle(), 1e-12);
+		Fixtures.assertClose(MatrixFactory.createVector(0, 0, 1), q.getAxis());
+	}
+
+	@Test
+	public void testComposition() {
+		Quaternion a=Quaternion.createRotation(randomVector(), 1), b=Quaternion.createRotation(randomVector(), 2);
+		Vector3 v=randomVector();
+		Fixtures.assertClose(b.rotate(a.rotate(v)), a.then(b).rotate(v));
+		Fixtures.assertClose(v, a.then(a.inverse()).rotate(v));
+		Fixtures.assertClose(v, Quaternion.identity().rotate(v));
+	}
+
+	@Test
+	public void testSlerp() {
+		Vector3 axis=randomVector();
+		Quaternion from=Quaternion.createRotation(axis, .5), to=Quaternion.createRotation(axis, 2.5);
+		Vector3 v=randomVector();
+		Fixtures.assertClose(from.rotate(v), from.slerp(to, 0).rotate(v));
+		Fixtures.assertClose(to.rotate(v), from.slerp(to, 1).rotate(v));
+		// constant angular velocity around the common axis
+		Fixtures.assertClose(Quaternion.createRotation(axis, 1).rotate(v), from.slerp(to, .25).rotate(v));
+		// the sign of the quaternion does not matter
+		Quaternion negated=Quaternion.create(-to.getW(), -to.getX(), -to.getY(), -to.getZ());
+		Fixtures.assertClose(Quaternion.createRotation(axis, 1).rotate(v), from.slerp(negated, .25).rotate(v));
+		// nearly identical rotations
+		Fixtures.assertClose(from.rotate(v), from.slerp(from, .5).rotate(v));
+	}
+
+	@Test
+	public void testBatch() {
+		Quaternion q=Quaternion.createRotation(randomVector(), 2);
+		double[] xs=new double[6], ys=new double[6], zs=new double[6];
+		for (int i=0; i<6; i++) {
+			xs[i]=i;
+			ys[i]=-i;
+			zs[i]=2*i+1;
+		}
+		q.rotate(xs, ys, zs, 1, 4);
+		assertEquals(0, xs[0], 0);
+		assertEquals(5, xs[5], 0);
+		for (int i=1; i<5; i++)
+			Fixtures.assertClose(q.rotate(MatrixFactory.createVector(i, -i, 2*i+1)), MatrixFactory.createVector(xs[i], ys[i], zs[i]));
+	}
+
+	@Test
+	public void testTransform() {
+		Line3 axis=Line3.createFromDir(randomVector(), randomVector());
+		Transform3 transform=Quaternion.createRotation(axis, 1.2).toTransform(axis);
+		assertTrue(transform.isRigid());
+		Vector3 v=randomVector();
+		Fixtures.assertClose(Transform3.createRotation(axis, 1.2).transformPoint(v), transform.transformPoint(v));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testZero() {
+		Quaternion.create(0, 0, 0, 0);
+	}
+}
@@ -0,0 +1,131 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class RansacTest {
+	private static final int POINTS=2000;
+	private static final int INLIERS=1200;
+	private static final double NOISE=.01;
+
+	@Test
+	public void testFitPlane() {
+		Plane3 truth=Plane3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(1, -2, .5));
+		Random random=new Random(1);
+		double[] xs=new double[POINTS], ys=new double[POINTS], zs=new double[POINTS];
+		for (int i=0; i<POINTS; i++) {
+			xs[i]=random.nextDouble()*20-10;
+			ys[i]=random.nextDouble()*20-10;
+			zs[i]=random.nextDouble()*20-10;
+			if (i<INLIERS) {
+				// move the point onto the plane, then add noise
+				double d=truth.signedDistance(xs[i], ys[i], zs[i])-(random.nextDouble()*2-1)*NOISE;
+				xs[i]-=d*truth.getUnitNormal().getX();
+				ys[i]-=d*truth.getUnitNormal().getY();
+				zs[i]-=d*truth.getUnitNormal().getZ();
+			}
+		}
+
+		RansacResult<Plane3> result=new Ransac(.05).withSeed(7).fitPlane(xs, ys, zs);
+		Plane3 plane=result.getModel();
+		assertEquals(1, Math.abs(plane.getUnitNormal().dot(truth.getUnitNormal())), 1e-4);
+		assertEquals(0, plane.distance(truth.getPoint()), 3*NOISE);
+		for (int i=0; i<INLIERS; i++)
+			assertTrue(result.isInlier(i));
+		assertTrue(result.getInlierCount()>=INLIERS);
+		// a few random outliers lie close to the plane by chance
+		assertTrue(result.getInlierCount()<INLIERS+50);
+		assertTrue(result.getIterations()<1000);
+
+		RansacResult<Plane3> again=new Ransac(.05).withSeed(7).fitPlane(xs, ys, zs);
+		assertEquals(result.getInlierCount(), again.getInlierCount());
+		assertEquals(result.getIterations(), again.getIterations());
+	}
+
+	@Test
+	public void testFitLine3() {
+		Line3 truth=Line3.createFromDir(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(1, -2, .5));
+		Random random=new Random(2);
+		double[] xs=new double[POINTS], ys=new double[POINTS], zs=new double[POINTS];
+		for (int i=0; i<POINTS; i++) {
+			Vector3 p;
+			if (i<INLIERS)
+				p=truth.getPointAt(random.nextDouble()*10-5).plus(MatrixFactory.createVector(
+						random.nextDouble()*NOISE, random.nextDouble()*NOISE, random.nextDouble()*NOISE));
+			else
+				p=MatrixFactory.createVector(random.nextDouble()*20-10, random.nextDouble()*20-10, random.nextDouble()*20-10);
+			xs[i]=p.getX();
+			ys[i]=p.getY();
+			zs[i]=p.getZ();
+		}
+
+		RansacResult<Line3> result=new Ransac(.05).withSeed(7).fitLine(xs, ys, zs);
+		Line3 line=result.getModel();
+		assertEquals(1, Math.abs(line.getUnitDir().dot(truth.getUnitDir())), 1e-4);
+		assertEquals(0, line.distance(truth.getPoint()), 1e-2);
+		assertTrue(result.getInlierCount()>=INLIERS);
+		assertTrue(result.getInlierCount()<INLIERS+10);
+	}
+
+	@Test
+	public void testFitLine2() {
+		Random random=new Random(3);
+		double[] xs=new double[POINTS], ys=new double[POINTS];
+		for (int i=0; i<POINTS; i++) {
+			xs[i]=random.nextDouble()*20-10;
+			if (i<INLIERS)
+				ys[i]=.5*xs[i]-1+(random.nextDouble()*2-1)*NOISE;
+			else
+				ys[i]=random.nextDouble()*20-10;
+		}
+
+		RansacResult<Line2> result=new Ransac(.05).withSeed(7).fitLine(xs, ys);
+		Line2 line=result.getModel();
+		assertEquals(-1, line.getYforX(0), 1e-2);
+		assertEquals(4, line.getYforX(10), 1e-2);
+		assertTrue(result.getInlierCount()>=INLIERS);
+	}
+
+	@Test
+	public void testFitCircle() {
+		Circle3 truth=Circle3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(1, 1, 1), 4);
+		Random random=new Random(4);
+		double[] xs=new double[POINTS], ys=new double[POINTS], zs=new double[POINTS];
+		for (int i=0; i<POINTS; i++) {
+			Vector3 p;
+			if (i<INLIERS)
+				p=truth.getPointAt(random.nextDouble()*2*Math.PI).plus(MatrixFactory.createVector(
+						random.nextDouble()*NOISE, random.nextDouble()*NOISE, random.nextDouble()*NOISE));
+			else
+				p=MatrixFactory.createVector(random.nextDouble()*20-10, random.nextDouble()*20-10, random.nextDouble()*20-10);
+			xs[i]=p.getX();
+			ys[i]=p.getY();
+			zs[i]=p.getZ();
+		}
+
+		RansacResult<Circle3> result=new Ransac(.05).withSeed(7).fitCircle(xs, ys, zs);
+		Circle3 circle=result.getModel();
+		assertEquals(0, circle.getCenter().error(truth.getCenter()), 1e-2);
+		assertEquals(4, circle.getRadius(), 1e-2);
+		assertEquals(1, Math.abs(circle.getNormal().dot(truth.getNormal())), 1e-4);
+		assertTrue(result.getInlierCount()>=INLIERS);
+	}
+
+	@Test(expected=DegenerateCaseException.class)
+	public void testDegenerateInput() {
+		double[] coords=new double[10];
+		new Ransac(.05, .99, 100).fitPlane(coords, coords, coords);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNotEnoughPoints() {
+		new Ransac(.05).fitPlane(new double[2], new double[2], new double[2]);
+	}
+}
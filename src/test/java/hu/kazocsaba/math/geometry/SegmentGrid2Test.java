@@ -0,0 +1,108 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class SegmentGrid2Test {
+	private static final Box2 EXTENT=new Box2(MatrixFactory.createVector(0, 0), 100, 50);
+
+	private static List<Segment2> randomSegments(Random random, int count) {
+		List<Segment2> segments=new ArrayList<Segment2>();
+		for (int i=0; i<count; i++) {
+			// some of the segments reach outside the extent
+			double x=random.nextDouble()*120-10, y=random.nextDouble()*70-10;
+			double length=i%10==0 ? 60 : 5;
+			segments.add(new Segment2(MatrixFactory.createVector(x, y),
+					MatrixFactory.createVector(x+random.nextGaussian()*length, y+random.nextGaussian()*length)));
+		}
+		return segments;
+	}
+
+	private static Box2 randomBox(Random random) {
+		return new Box2(MatrixFactory.createVector(random.nextDouble()*120-10, random.nextDouble()*70-10),
+				random.nextDouble()*15+.01, random.nextDouble()*15+.01);
+	}
+
+	private static double distance(Segment2 segment, final Vector2 point) {
+		Vector2 p1=segment.getP1(), d=segment.getP2().minus(p1);
+		double t=Math.max(0, Math.min(1, point.minus(p1).dot(d)/d.dot(d)));
+		return p1.plus(d.times(t)).minus(point).norm();
+	}
+
+	@Test
+	public void testFindOverlapping() {
+		Random random=new Random(3301);
+		List<Segment2> segments=randomSegments(random, 2000);
+		SegmentGrid2<Segment2> grid=SegmentGrid2.createFromSegments(EXTENT, 40, 20, segments);
+		Bvh2<Segment2> bvh=Bvh2.createFromSegments(segments);
+		for (int i=0; i<200; i++) {
+			Box2 box=randomBox(random);
+			List<Segment2> expected=bvh.findOverlapping(box);
+			List<Segment2> found=grid.findOverlapping(box);
+			assertEquals(expected.size(), found.size());
+			assertTrue(found.containsAll(expected));
+		}
+	}
+
+	@Test
+	public void testFindNearest() {
+		Random random=new Random(3302);
+		List<Segment2> segments=randomSegments(random, 2000);
+		// parallel build
+		segments.addAll(randomSegments(random, 8000));
+		SegmentGrid2<Segment2> grid=SegmentGrid2.createFromSegments(EXTENT, 64, 32, segments);
+		for (int i=0; i<100; i++) {
+			final Vector2 point=MatrixFactory.createVector(random.nextDouble()*160-30, random.nextDouble()*110-30);
+			List<Segment2> sorted=new ArrayList<Segment2>(segments);
+			Collections.sort(sorted, new Comparator<Segment2>() {
+				@Override
+				public int compare(Segment2 a, Segment2 b) {
+					return Double.compare(distance(a, point), distance(b, point));
+				}
+			});
+			List<Segment2> nearest=grid.findNearest(point, 5);
+			assertEquals(5, nearest.size());
+			for (int j=0; j<5; j++)
+				assertEquals(distance(sorted.get(j), point), distance(nearest.get(j), point), 1e-9);
+			assertEquals(distance(sorted.get(0), point), distance(grid.findNearest(point), point), 1e-9);
+		}
+	}
+
+	@Test
+	public void testLines() {
+		List<Line2> lines=new ArrayList<Line2>();
+		lines.add(Line2.createFromTwoPoints(MatrixFactory.createVector(0, 10), MatrixFactory.createVector(1, 10)));
+		lines.add(Line2.createFromTwoPoints(MatrixFactory.createVector(50, 0), MatrixFactory.createVector(50, 1)));
+		// misses the extent
+		lines.add(Line2.createFromTwoPoints(MatrixFactory.createVector(0, 60), MatrixFactory.createVector(1, 60)));
+		SegmentGrid2<Line2> grid=SegmentGrid2.createFromLines(EXTENT, 10, 10, lines);
+		assertEquals(2, grid.size());
+		assertSame(lines.get(0), grid.findNearest(MatrixFactory.createVector(90, 12)));
+		assertSame(lines.get(1), grid.findNearest(MatrixFactory.createVector(51, 40)));
+		assertEquals(2, grid.findNearest(MatrixFactory.createVector(51, 40), 3).size());
+		assertEquals(1, grid.findOverlapping(new Box2(MatrixFactory.createVector(20, 5), 10, 10)).size());
+	}
+
+	@Test
+	public void testEmpty() {
+		SegmentGrid2<Segment2> grid=SegmentGrid2.createFromSegments(EXTENT, 4, 4, Collections.<Segment2>emptyList());
+		assertNull(grid.findNearest(MatrixFactory.createVector(1, 1)));
+		assertTrue(grid.findOverlapping(EXTENT).isEmpty());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSize() {
+		SegmentGrid2.createFromSegments(EXTENT, 0, 4, Collections.<Segment2>emptyList());
+	}
+}
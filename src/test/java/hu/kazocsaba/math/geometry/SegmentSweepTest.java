@@ -0,0 +1,167 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class SegmentSweepTest {
+	private static final double EPS=1e-6;
+
+	private static Segment2 segment(double x1, double y1, double x2, double y2) {
+		return new Segment2(MatrixFactory.createVector(x1, y1), MatrixFactory.createVector(x2, y2));
+	}
+
+	/**
+	 * Runs the sweep and checks that it reports the same pairs and points as the pairwise test, each pair once.
+	 */
+	private static void check(final List<Segment2> segments) {
+		final Map<Segment2, Integer> indices=new IdentityHashMap<Segment2, Integer>();
+		for (int i=0; i<segments.size(); i++)
+			indices.put(segments.get(i), i);
+		final Set<Long> found=new HashSet<Long>();
+		SegmentSweep.findIntersections(segments, new SegmentSweep.Listener<Segment2>() {
+			@Override
+			public void intersection(Segment2 first, Segment2 second, double x, double y) {
+				int i=indices.get(first), j=indices.get(second);
+				assertTrue(i<j);
+				assertTrue("Pair reported twice: "+first+", "+second, found.add((long)i*segments.size()+j));
+				Vector2 expected=first.intersect(second);
+				assertNotNull(expected);
+				assertEquals(expected.getX(), x, EPS);
+				assertEquals(expected.getY(), y, EPS);
+			}
+		});
+		for (int i=0; i<segments.size(); i++)
+			for (int j=i+1; j<segments.size(); j++)
+				assertEquals(segments.get(i)+", "+segments.get(j), segments.get(i).intersects(segments.get(j)), found.contains((long)i*segments.size()+j));
+	}
+
+	@Test
+	public void testIntersect() {
+		Segment2 s=segment(0, 0, 2, 2);
+		Vector2 p=s.intersect(segment(0, 2, 2, 0));
+		assertEquals(1, p.getX(), EPS);
+		assertEquals(1, p.getY(), EPS);
+		// touching at an end point
+		p=s.intersect(segment(1, 1, 3, 0));
+		assertEquals(1, p.getX(), 0);
+		assertEquals(1, p.getY(), 0);
+		assertNotNull(s.intersect(segment(1, 1+1e-9, 3, 0)));
+		assertNull(s.intersect(segment(1, 1+1e-6, 3, 4)));
+		// collinear segments
+		p=s.intersect(segment(3, 3, 1, 1));
+		assertEquals(1, p.getX(), 0);
+		assertEquals(1, p.getY(), 0);
+		assertNull(s.intersect(segment(3, 3, 4, 4)));
+		assertNull(s.intersect(segment(0, 1, 2, 3)));
+		assertTrue(s.intersects(segment(2, 2, 5, -1)));
+		assertFalse(s.intersects(segment(1, 0, 3, 1)));
+	}
+
+	@Test
+	public void testRandom() {
+		Random random=new Random(8123);
+		for (int round=0; round<5; round++) {
+			List<Segment2> segments=new ArrayList<Segment2>();
+			for (int i=0; i<300; i++) {
+				double x=random.nextDouble()*100, y=random.nextDouble()*100;
+				segments.add(segment(x, y, x+random.nextDouble()*40-20, y+random.nextDouble()*40-20));
+			}
+			check(segments);
+		}
+	}
+
+	@Test
+	public void testDegenerate() {
+		// integer coordinates produce shared end points, vertical, horizontal and overlapping collinear segments
+		Random random=new Random(2207);
+		for (int round=0; round<200; round++) {
+			List<Segment2> segments=new ArrayList<Segment2>();
+			int count=5+random.nextInt(40);
+			while (segments.size()<count) {
+				int x1=random.nextInt(8), y1=random.nextInt(8), x2=random.nextInt(8), y2=random.nextInt(8);
+				if (x1!=x2 || y1!=y2) segments.add(segment(x1, y1, x2, y2));
+			}
+			// duplicates
+			Segment2 first=segments.get(0);
+			segments.add(new Segment2(first.getP1(), first.getP2()));
+			check(segments);
+		}
+	}
+
+	@Test
+	public void testNearlyCoincident() {
+		// end points closer to each other and to other segments than a few times the tolerance
+		Random random=new Random(5113);
+		for (int round=0; round<100; round++) {
+			List<Segment2> segments=new ArrayList<Segment2>();
+			int count=5+random.nextInt(60);
+			while (segments.size()<count) {
+				double x1=random.nextInt(6)+(random.nextDouble()-.5)*4e-8, y1=random.nextInt(6)+(random.nextDouble()-.5)*4e-8;
+				double x2=random.nextInt(6)+(random.nextDouble()-.5)*4e-8, y2=random.nextInt(6)+(random.nextDouble()-.5)*4e-8;
+				if (Math.abs(x2-x1)+Math.abs(y2-y1)>.5) segments.add(segment(x1, y1, x2, y2));
+			}
+			check(segments);
+		}
+	}
+
+	private static int orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+		BigDecimal x1=new BigDecimal(bx).subtract(new BigDecimal(ax)), y1=new BigDecimal(by).subtract(new BigDecimal(ay));
+		BigDecimal x2=new BigDecimal(cx).subtract(new BigDecimal(ax)), y2=new BigDecimal(cy).subtract(new BigDecimal(ay));
+		return x1.multiply(y2).subtract(y1.multiply(x2)).signum();
+	}
+
+	@Test
+	public void testFarFromOrigin() {
+		// UTM-like coordinates, with an end point just beyond the touching tolerance from the other segment
+		Random random=new Random(1409);
+		for (int i=0; i<5000; i++) {
+			double ax1=5e5+random.nextDouble()*1e3, ay1=5e6+random.nextDouble()*1e3;
+			double ax2=ax1+random.nextGaussian()*1e3, ay2=ay1+random.nextGaussian()*1e3;
+			double length=Math.hypot(ax2-ax1, ay2-ay1), t=random.nextDouble(), offset=(random.nextBoolean() ? 1 : -1)*(2e-8+random.nextDouble()*1e-7);
+			double bx1=ax1+t*(ax2-ax1)-offset*(ay2-ay1)/length, by1=ay1+t*(ay2-ay1)+offset*(ax2-ax1)/length;
+			double bx2=bx1+random.nextGaussian()*1e3, by2=by1+random.nextGaussian()*1e3;
+			Segment2 a=segment(ax1, ay1, ax2, ay2), b=segment(bx1, by1, bx2, by2);
+			if (a.distance(b)<=1e-8) continue;
+			boolean expected=orientation(ax1, ay1, ax2, ay2, bx1, by1)*orientation(ax1, ay1, ax2, ay2, bx2, by2)<0 &&
+					orientation(bx1, by1, bx2, by2, ax1, ay1)*orientation(bx1, by1, bx2, by2, ax2, ay2)<0;
+			assertEquals(expected, a.intersects(b));
+			assertEquals(expected, b.intersects(a));
+			assertEquals(expected, a.intersect(b)!=null);
+		}
+	}
+
+	@Test
+	public void testStar() {
+		List<Segment2> segments=new ArrayList<Segment2>();
+		for (int i=0; i<24; i++) {
+			double angle=i*Math.PI/24;
+			segments.add(segment(-Math.cos(angle), -Math.sin(angle), Math.cos(angle), Math.sin(angle)));
+		}
+		segments.add(segment(-1, 0.5, 1, 0.5));
+		check(segments);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInfinite() {
+		List<Segment2> segments=new ArrayList<Segment2>();
+		segments.add(segment(0, 0, Double.POSITIVE_INFINITY, 1));
+		SegmentSweep.findIntersections(segments, new SegmentSweep.Listener<Segment2>() {
+			@Override
+			public void intersection(Segment2 first, Segment2 second, double x, double y) {}
+		});
+	}
+}
@@ -0,0 +1,84 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class SegmentTest {
+	private static final int SAMPLES=400;
+
+	@Test
+	public void testClosestPoint() {
+		Random random=new Random(9901);
+		for (int i=0; i<50; i++) {
+			Segment3 segment=new Segment3(Fixtures.random3(random), Fixtures.random3(random));
+			Vector3 p=Fixtures.random3(random);
+			double t=segment.getClosestT(p);
+			assertTrue(t>=0 && t<=1);
+			assertEquals(segment.getClosestPoint(p).error(p), segment.distance(p), 1e-10);
+			// no point of the segment is closer
+			for (int k=0; k<=SAMPLES; k++)
+				assertTrue(segment.distance(p)<=segment.getPointAt(k/(double)SAMPLES).error(p)+1e-10);
+
+			Segment2 segment2=new Segment2(Fixtures.random2(random), Fixtures.random2(random));
+			Vector2 p2=Fixtures.random2(random);
+			assertEquals(segment2.getClosestPoint(p2).error(p2), segment2.distance(p2), 1e-10);
+			for (int k=0; k<=SAMPLES; k++)
+				assertTrue(segment2.distance(p2)<=segment2.getPointAt(k/(double)SAMPLES).error(p2)+1e-10);
+		}
+		// the closest point is an end point
+		Segment2 segment=new Segment2(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(1, 0));
+		assertEquals(0, segment.getClosestT(-3, 1), 0);
+		assertEquals(1, segment.getClosestT(5, 1), 0);
+		assertEquals(Math.sqrt(2), segment.distance(2, 1), 1e-15);
+	}
+
+	@Test
+	public void testSegmentDistance3() {
+		Random random=new Random(9902);
+		for (int i=0; i<50; i++) {
+			Segment3 a=new Segment3(Fixtures.random3(random), Fixtures.random3(random));
+			Segment3 b;
+			if (i%5==0) {
+				// parallel segments
+				Vector3 shift=Fixtures.random3(random);
+				b=new Segment3(a.getPointAt(random.nextDouble()*3-1).plus(shift), a.getPointAt(random.nextDouble()*3-1).plus(shift));
+			} else
+				b=new Segment3(Fixtures.random3(random), Fixtures.random3(random));
+			// the minimum over the points of one segment of their distances from the other
+			double expected=Double.POSITIVE_INFINITY;
+			for (int k=0; k<=SAMPLES; k++)
+				expected=Math.min(expected, b.distance(a.getPointAt(k/(double)SAMPLES)));
+			double distance=a.distance(b);
+			assertTrue(distance<=expected+1e-10);
+			assertEquals(expected, distance, 1e-1);
+			assertEquals(distance, b.distance(a), 1e-10);
+		}
+	}
+
+	@Test
+	public void testSegmentDistance2() {
+		Random random=new Random(9903);
+		for (int i=0; i<200; i++) {
+			Segment2 a=new Segment2(Fixtures.random2(random), Fixtures.random2(random)), b=new Segment2(Fixtures.random2(random), Fixtures.random2(random));
+			double distance=a.distance(b);
+			assertEquals(distance==0, a.intersects(b));
+			double expected=Double.POSITIVE_INFINITY;
+			for (int k=0; k<=SAMPLES; k++)
+				expected=Math.min(expected, b.distance(a.getPointAt(k/(double)SAMPLES)));
+			assertTrue(distance<=expected+1e-10);
+			assertEquals(expected, distance, 1e-1);
+		}
+		// collinear, overlapping
+		Segment2 a=new Segment2(MatrixFactory.createVector(0, 0), MatrixFactory.createVector(2, 0));
+		assertEquals(0, a.distance(new Segment2(MatrixFactory.createVector(1, 0), MatrixFactory.createVector(3, 0))), 0);
+		assertEquals(1, a.distance(new Segment2(MatrixFactory.createVector(3, 0), MatrixFactory.createVector(4, 0))), 1e-15);
+	}
+}
@@ -0,0 +1,185 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.Matrix2;
+import hu.kazocsaba.math.matrix.Matrix3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector2;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class TransformTest {
+	private final Random random=new Random(7701);
+
+	private Vector3 randomVector() {
+		return MatrixFactory.createVector(random.nextDouble()*20-10, random.nextDouble()*20-10, random.nextDouble()*20-10);
+	}
+
+	private Transform3 randomRigid() {
+		Line3 axis=Line3.createFromDir(randomVector(), randomVector());
+		return Transform3.createRotation(axis, random.nextDouble()*7).then(Transform3.createTranslation(randomVector()));
+	}
+
+	private Transform3 randomAffine() {
+		Matrix3 m=MatrixFactory.createMatrix3();
+		for (int i=0; i<3; i++)
+			for (int j=0; j<3; j++)
+				m.set(i, j, random.nextDouble()*2-1+(i==j ? 2 : 0));
+		return Transform3.create(m, randomVector());
+	}
+
+	@Test
+	public void testComposition() {
+		Transform3 rigid=randomRigid(), affine=randomAffine();
+		assertTrue(rigid.isRigid());
+		assertFalse(affine.isRigid());
+		assertFalse(affine.isSimilarity());
+		Vector3 p=randomVector();
+		Fixtures.assertClose(affine.transformPoint(rigid.transformPoint(p)), rigid.then(affine).transformPoint(p));
+		Fixtures.assertClose(p, affine.inverse().transformPoint(affine.transformPoint(p)));
+		Fixtures.assertClose(p, rigid.then(rigid.inverse()).transformPoint(p));
+		// a rotation around a line keeps the line fixed
+		Line3 axis=Line3.createFromDir(randomVector(), randomVector());
+		Fixtures.assertClose(axis.getPointAt(3), Transform3.createRotation(axis, 1).transformPoint(axis.getPointAt(3)));
+		Fixtures.assertClose(p, Transform3.identity().transformPoint(p));
+	}
+
+	@Test
+	public void testObjects() {
+		for (Transform3 transform: new Transform3[] {randomRigid(), randomAffine()}) {
+			Line3 line=Line3.createFromDir(randomVector(), randomVector());
+			Line3 transformedLine=transform.transform(line);
+			Fixtures.assertClose(transform.transformPoint(line.getPointAt(2.5)), transformedLine.getPointAt(2.5));
+
+			Segment3 segment=new Segment3(randomVector(), randomVector());
+			Segment3 transformedSegment=transform.transform(segment);
+			Fixtures.assertClose(transform.transformPoint(segment.getPointAt(.3)), transformedSegment.getPointAt(.3));
+
+			Plane3 plane=Plane3.create(randomVector(), randomVector());
+			Plane3 transformedPlane=transform.transform(plane);
+			Vector3 normal=plane.getNormal();
+			for (int i=0; i<5; i++) {
+				// a point of the original plane
+				Vector3 point=plane.getPoint().plus(normal.cross(randomVector()));
+				assertEquals(0, transformedPlane.distance(transform.transformPoint(point)), 1e-9);
+			}
+			// the unit normal and the offset are consistent
+			assertEquals(1, transformedPlane.getUnitNormal().norm(), 1e-12);
+			assertEquals(0, transformedPlane.signedDistance(transformedPlane.getPoint().getX(), transformedPlane.getPoint().getY(),
+					transformedPlane.getPoint().getZ()), 1e-9);
+			Vector3 outside=plane.getPoint().plus(normal);
+			assertTrue(transformedPlane.signedDistance(transform.transformPoint(outside).getX(),
+					transform.transformPoint(outside).getY(), transform.transformPoint(outside).getZ())>0);
+		}
+	}
+
+	@Test
+	public void testCircle() {
+		Circle3 circle=Circle3.create(randomVector(), randomVector(), 2);
+		Matrix3 reflection=MatrixFactory.createMatrix3(new double[][] {{-3, 0, 0}, {0, 3, 0}, {0, 0, 3}});
+		for (Transform3 transform: new Transform3[] {randomRigid(), randomRigid().then(Transform3.create(reflection, randomVector()))}) {
+			assertTrue(transform.isSimilarity());
+			Circle3 transformed=transform.transform(circle);
+			for (int i=0; i<8; i++)
+				Fixtures.assertClose(transform.transformPoint(circle.getPointAt(i)), transformed.getPointAt(i));
+			assertEquals(1, transformed.getNormal().norm(), 1e-12);
+		}
+		assertEquals(6, Transform3.create(reflection, randomVector()).transform(circle).getRadius(), 1e-12);
+		try {
+			randomAffine().transform(circle);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testBuffers() {
+		for (Transform3 transform: new Transform3[] {randomRigid(), randomAffine()}) {
+			Line3Buffer lines=new Line3Buffer();
+			Segment3Buffer segments=new Segment3Buffer();
+			Plane3Buffer planes=new Plane3Buffer();
+			for (int i=0; i<10; i++) {
+				lines.add(Line3.createFromDir(randomVector(), randomVector()));
+				segments.add(new Segment3(randomVector(), randomVector()));
+				planes.add(Plane3.create(randomVector(), randomVector()));
+			}
+			Line3[] originalLines=new Line3[10];
+			Segment3[] originalSegments=new Segment3[10];
+			Plane3[] originalPlanes=new Plane3[10];
+			for (int i=0; i<10; i++) {
+				originalLines[i]=lines.get(i);
+				originalSegments[i]=segments.get(i);
+				originalPlanes[i]=planes.get(i);
+			}
+			lines.transform(transform);
+			segments.transform(transform);
+			planes.transform(transform);
+			for (int i=0; i<10; i++) {
+				Line3 line=transform.transform(originalLines[i]);
+				Fixtures.assertClose(line.getPoint(), lines.get(i).getPoint());
+				Fixtures.assertClose(line.getDir(), lines.get(i).getDir());
+				Segment3 segment=transform.transform(originalSegments[i]);
+				Fixtures.assertClose(segment.getP1(), segments.get(i).getP1());
+				Fixtures.assertClose(segment.getP2(), segments.get(i).getP2());
+				Plane3 plane=transform.transform(originalPlanes[i]);
+				Fixtures.assertClose(plane.getUnitNormal(), planes.get(i).getUnitNormal());
+				assertEquals(0, plane.distance(planes.get(i).getPoint()), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testPoints() {
+		Transform3 transform=randomAffine();
+		double[] xs=new double[5], ys=new double[5], zs=new double[5];
+		for (int i=0; i<5; i++) {
+			xs[i]=i;
+			ys[i]=2*i;
+			zs[i]=-i;
+		}
+		transform.transformPoints(xs, ys, zs, 1, 3);
+		assertEquals(0, xs[0], 0);
+		assertEquals(4, xs[4], 0);
+		for (int i=1; i<4; i++)
+			Fixtures.assertClose(transform.transformPoint(MatrixFactory.createVector(i, 2*i, -i)), MatrixFactory.createVector(xs[i], ys[i], zs[i]));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSingular() {
+		Transform3.create(MatrixFactory.createMatrix3(new double[][] {{1, 2, 3}, {2, 4, 6}, {0, 0, 1}}), randomVector());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNotRigid() {
+		Transform3.createRigid(MatrixFactory.createMatrix3(new double[][] {{1, 0, 0}, {0, 2, 0}, {0, 0, 1}}), randomVector());
+	}
+
+	@Test
+	public void test2D() {
+		Vector2 center=MatrixFactory.createVector(1, 2);
+		Transform2 rotation=Transform2.createRotation(center, Math.PI/2);
+		assertTrue(rotation.isRigid());
+		Vector2 p=rotation.transformPoint(MatrixFactory.createVector(2, 2));
+		assertEquals(1, p.getX(), 1e-12);
+		assertEquals(3, p.getY(), 1e-12);
+
+		Matrix2 m=MatrixFactory.createMatrix2(new double[][] {{2, 1}, {-1, 3}});
+		Transform2 affine=Transform2.create(m, MatrixFactory.createVector(5, -1)).then(rotation);
+		assertFalse(affine.isRigid());
+		Vector2 q=MatrixFactory.createVector(-3, 7);
+		assertEquals(0, affine.inverse().transformPoint(affine.transformPoint(q)).minus(q).norm(), 1e-12);
+
+		Line2 line=Line2.createFromDir(MatrixFactory.createVector(1, 1), MatrixFactory.createVector(2, -1));
+		assertEquals(0, affine.transform(line).getPointAt(3).minus(affine.transformPoint(line.getPointAt(3))).norm(), 1e-12);
+		Segment2 segment=new Segment2(MatrixFactory.createVector(1, 1), MatrixFactory.createVector(2, -1));
+		assertEquals(0, affine.transform(segment).getPointAt(.5).minus(affine.transformPoint(segment.getPointAt(.5))).norm(), 1e-12);
+
+		double[] xs={1, 2}, ys={3, 4};
+		affine.transformPoints(xs, ys, 0, 2);
+		assertEquals(0, affine.transformPoint(MatrixFactory.createVector(2, 4)).minus(MatrixFactory.createVector(xs[1], ys[1])).norm(), 1e-12);
+	}
+}
@@ -0,0 +1,63 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class Triangle3Test {
+	@Test
+	public void testIntersect() {
+		Random random=new Random(2301);
+		double[] result=new double[4];
+		int hits=0;
+		for (int i=0; i<200; i++) {
+			Triangle3 triangle=new Triangle3(Fixtures.random3(random), Fixtures.random3(random), Fixtures.random3(random));
+			Line3 line=Line3.createFromDir(Fixtures.random3(random), Fixtures.random3(random));
+			// the intersection with the plane, and its barycentric coordinates
+			Vector3 p=triangle.getPlane().intersect(line);
+			Vector3 e1=triangle.getB().minus(triangle.getA()), e2=triangle.getC().minus(triangle.getA()), q=p.minus(triangle.getA());
+			double d11=e1.dot(e1), d12=e1.dot(e2), d22=e2.dot(e2), q1=q.dot(e1), q2=q.dot(e2);
+			double det=d11*d22-d12*d12;
+			double u=(d22*q1-d12*q2)/det, v=(d11*q2-d12*q1)/det;
+			boolean inside=u>=0 && v>=0 && u+v<=1;
+			assertEquals(inside, triangle.intersect(line, result, 1));
+			if (inside) {
+				hits++;
+				assertEquals(u, result[2], 1e-9);
+				assertEquals(v, result[3], 1e-9);
+				assertEquals(0, line.getPointAt(result[1]).minus(p).norm(), 1e-9);
+				assertEquals(0, triangle.intersect(line).minus(p).norm(), 1e-9);
+			} else
+				assertNull(triangle.intersect(line));
+		}
+		assertTrue(hits>10);
+	}
+
+	@Test
+	public void testSpecialCases() {
+		Triangle3 triangle=new Triangle3(MatrixFactory.createVector(0, 0, 0), MatrixFactory.createVector(2, 0, 0), MatrixFactory.createVector(0, 2, 0));
+		assertEquals(2, triangle.getArea(), 1e-15);
+		assertEquals(0, triangle.getNormal().minus(MatrixFactory.createVector(0, 0, 1)).norm(), 1e-15);
+		double[] result=new double[3];
+		// through a vertex and an edge
+		assertTrue(triangle.intersect(Line3.createFromDir(MatrixFactory.createVector(2, 0, 1), MatrixFactory.createVector(0, 0, -1)), result, 0));
+		assertEquals(1, result[0], 1e-15);
+		assertEquals(1, result[1], 1e-15);
+		assertTrue(triangle.intersect(Line3.createFromDir(MatrixFactory.createVector(1, 1, -3), MatrixFactory.createVector(0, 0, 1)), result, 0));
+		assertEquals(3, result[0], 1e-15);
+		// parallel with the triangle
+		assertFalse(triangle.intersect(Line3.createFromDir(MatrixFactory.createVector(-1, .5, 0), MatrixFactory.createVector(1, 0, 0)), result, 0));
+		assertFalse(triangle.intersect(Line3.createFromDir(MatrixFactory.createVector(2, 2, 1), MatrixFactory.createVector(0, 0, 1)), result, 0));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCollinear() {
+		new Triangle3(MatrixFactory.createVector(0, 0, 0), MatrixFactory.createVector(1, 1, 1), MatrixFactory.createVector(3, 3, 3));
+	}
+}
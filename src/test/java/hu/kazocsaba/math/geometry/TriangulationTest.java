@@ -0,0 +1,154 @@
+package hu.kazocsaba.math.geometry;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import hu.kazocsaba.math.matrix.Vector3;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class TriangulationTest {
+	/**
+	 * Returns rays from random camera centers through a point, with some noise in the directions.
+	 */
+	private static List<Line3> rays(Random random, Vector3 point, int count, double noise) {
+		List<Line3> rays=new ArrayList<Line3>();
+		for (int i=0; i<count; i++) {
+			Vector3 center=point.plus(Fixtures.randomVector(random, 50));
+			rays.add(Line3.createFromDir(center, point.minus(center).plus(Fixtures.randomVector(random, noise))));
+		}
+		return rays;
+	}
+
+	private static double cost(List<Line3> lines, double[] weights, Vector3 point) {
+		double sum=0;
+		for (int i=0; i<lines.size(); i++) {
+			double distance=lines.get(i).distance(point);
+			sum+=weights[i]*distance*distance;
+		}
+		return sum;
+	}
+
+	@Test
+	public void testExact() {
+		Random random=new Random(5501);
+		Vector3 point=MatrixFactory.createVector(1000, -2000, 500);
+		List<Line3> rays=rays(random, point, 5, 0);
+		double[] residuals=new double[5];
+		assertEquals(0, Triangulation.triangulate(rays, null, residuals).minus(point).norm(), 1e-9);
+		for (double residual: residuals)
+			assertEquals(0, residual, 1e-9);
+		// two perpendicular lines
+		assertEquals(0, Triangulation.triangulate(Arrays.asList(
+				Line3.createFromDir(MatrixFactory.createVector(0, 0, 1), MatrixFactory.createVector(1, 0, 0)),
+				Line3.createFromDir(MatrixFactory.createVector(0, 0, -1), MatrixFactory.createVector(0, 1, 0))
+				)).norm(), 1e-12);
+	}
+
+	@Test
+	public void testLeastSquares() {
+		Random random=new Random(5502);
+		for (int test=0; test<20; test++) {
+			List<Line3> rays=rays(random, Fixtures.randomVector(random, 100), 6, 2);
+			double[] weights=new double[6], residuals=new double[6];
+			for (int i=0; i<weights.length; i++) weights[i]=random.nextDouble()*3;
+			Vector3 result=Triangulation.triangulate(rays, weights, residuals);
+			for (int i=0; i<6; i++)
+				assertEquals(rays.get(i).distance(result), residuals[i], 1e-9);
+			// the result is a minimum of the cost function
+			double cost=cost(rays, weights, result);
+			for (int i=0; i<20; i++)
+				assertTrue(cost<=cost(rays, weights, result.plus(Fixtures.randomVector(random, 1e-3))));
+		}
+	}
+
+	@Test
+	public void testNarrowBaseline() {
+		// rays starting 0.5 apart which meet at a distance of 10000
+		Vector3 point=MatrixFactory.createVector(6000, 5000, 6000);
+		Vector3 start=MatrixFactory.createVector(.3, .4, 0);
+		List<Line3> rays=Arrays.asList(Line3.createFromDir(MatrixFactory.createVector(0, 0, 0), point),
+				Line3.createFromDir(start, point.minus(start)));
+		assertEquals(0, Triangulation.triangulate(rays).minus(point).norm(), 1e-6);
+		Line3Buffer buffer=new Line3Buffer();
+		for (Line3 ray: rays) buffer.add(ray);
+		double[] points=new double[3];
+		assertEquals(1, Triangulation.triangulate(buffer, new int[] {0, 2}, 1, null, points, 0, null));
+		assertEquals(0, MatrixFactory.createVector(points[0], points[1], points[2]).minus(point).norm(), 1e-6);
+	}
+
+	@Test
+	public void testDegenerate() {
+		Vector3 dir=MatrixFactory.createVector(1, 2, 3);
+		List<Line3> parallel=Arrays.asList(Line3.createFromDir(MatrixFactory.createVector(0, 0, 0), dir),
+				Line3.createFromDir(MatrixFactory.createVector(1, 0, 0), dir.times(-2)));
+		try {
+			Triangulation.triangulate(parallel);
+			fail();
+		} catch (DegenerateCaseException e) {}
+		try {
+			Triangulation.triangulate(parallel.subList(0, 1));
+			fail();
+		} catch (DegenerateCaseException e) {}
+		List<Line3> rays=rays(new Random(5503), MatrixFactory.createVector(0, 0, 0), 2, 0);
+		try {
+			Triangulation.triangulate(rays, new double[] {1, 0}, null);
+			fail();
+		} catch (DegenerateCaseException e) {}
+		try {
+			Triangulation.triangulate(rays, new double[] {1, -1}, null);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testBatch() {
+		Random random=new Random(5504);
+		// large enough for parallel processing
+		int bundleCount=4000;
+		Line3Buffer buffer=new Line3Buffer();
+		int[] starts=new int[bundleCount+1];
+		List<List<Line3>> bundles=new ArrayList<List<Line3>>();
+		for (int k=0; k<bundleCount; k++) {
+			List<Line3> bundle;
+			if (k%100==0)
+				bundle=Collections.singletonList(Line3.createFromDir(Fixtures.randomVector(random, 10), Fixtures.randomVector(random, 1)));
+			else
+				bundle=rays(random, Fixtures.randomVector(random, 100), 2+random.nextInt(8), 1);
+			bundles.add(bundle);
+			for (Line3 line: bundle)
+				buffer.add(line);
+			starts[k+1]=buffer.size();
+		}
+		double[] weights=new double[buffer.size()], residuals=new double[buffer.size()];
+		for (int i=0; i<weights.length; i++) weights[i]=random.nextDouble()+.5;
+		double[] points=new double[1+3*bundleCount];
+		assertEquals(bundleCount-bundleCount/100, Triangulation.triangulate(buffer, starts, bundleCount, weights, points, 1, residuals));
+		for (int k=0; k<bundleCount; k++) {
+			List<Line3> bundle=bundles.get(k);
+			if (k%100==0) {
+				assertTrue(Double.isNaN(points[1+3*k]));
+				continue;
+			}
+			double[] expectedResiduals=new double[bundle.size()];
+			Vector3 expected=Triangulation.triangulate(bundle, Arrays.copyOfRange(weights, starts[k], starts[k+1]), expectedResiduals);
+			assertEquals(0, expected.minus(MatrixFactory.createVector(points[1+3*k], points[2+3*k], points[3+3*k])).norm(), 1e-9);
+			for (int i=0; i<bundle.size(); i++)
+				assertEquals(expectedResiduals[i], residuals[starts[k]+i], 1e-9);
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidBundle() {
+		Line3Buffer buffer=new Line3Buffer();
+		buffer.add(0, 0, 0, 1, 0, 0);
+		Triangulation.triangulate(buffer, new int[] {0, 2}, 1, null, new double[3], 0, null);
+	}
+}
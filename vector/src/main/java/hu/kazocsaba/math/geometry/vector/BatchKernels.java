@@ -0,0 +1,161 @@
+package hu.kazocsaba.math.geometry.vector;
+
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+
+/**
+ * Batch operations on structure-of-arrays inputs: distances of many points from a line or a plane, and
+ * intersections of many lines with a plane. The results are the same as those of the corresponding batch methods
+ * of {@link Line2}, {@link Line3} and {@link Plane3}, up to rounding errors.
+ * <p>
+ * There are two implementations. The {@linkplain #vectorized() vectorized} one uses the SIMD instructions of the
+ * processor through the incubating Vector API, which is only available if the {@code jdk.incubator.vector} module
+ * is added to the JVM (e.g. with {@code --add-modules jdk.incubator.vector}). The {@linkplain #scalar() scalar}
+ * one calls the methods of the geometry library. The implementation returned by {@link #get()} is chosen when this
+ * class is initialized: the vectorized one if it is available and the processor has vector registers of at least
+ * two doubles, unless the {@code hu.kazocsaba.math.geometry.vector.disable} system property is {@code true}.
+ * <p>
+ * The implementations are stateless and can be used by multiple threads.
+ * @author Kazó Csaba
+ */
+public abstract class BatchKernels {
+	BatchKernels() {}
+
+	private static class Holder {
+		static final BatchKernels VECTORIZED=createVectorized();
+		static final BatchKernels DEFAULT=VECTORIZED==null || Boolean.getBoolean("hu.kazocsaba.math.geometry.vector.disable") ?
+				ScalarKernels.INSTANCE : VECTORIZED;
+
+		private static BatchKernels createVectorized() {
+			try {
+				// loaded by name: linking the class fails if the incubator module is not present
+				VectorKernels kernels=(VectorKernels)Class.forName("hu.kazocsaba.math.geometry.vector.VectorKernels")
+						.getDeclaredConstructor().newInstance();
+				return kernels.getLanes()>1 ? kernels : null;
+			} catch (LinkageError e) {
+				return null;
+			} catch (ReflectiveOperationException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the implementation chosen at startup.
+	 * @return the vectorized implementation if it is available and enabled, the scalar one otherwise
+	 */
+	public static BatchKernels get() {
+		return Holder.DEFAULT;
+	}
+
+	/**
+	 * Returns the implementation calling the methods of the geometry library.
+	 * @return the scalar implementation
+	 */
+	public static BatchKernels scalar() {
+		return ScalarKernels.INSTANCE;
+	}
+
+	/**
+	 * Returns the implementation using the Vector API.
+	 * @return the vectorized implementation
+	 * @throws UnsupportedOperationException if the Vector API is not available, or the processor has no vector
+	 * registers
+	 */
+	public static BatchKernels vectorized() {
+		if (Holder.VECTORIZED==null) throw new UnsupportedOperationException("The Vector API is not available");
+		return Holder.VECTORIZED;
+	}
+
+	/**
+	 * Returns a short description of this implementation, for logging.
+	 * @return the name of this implementation
+	 */
+	public abstract String getName();
+
+	/**
+	 * Computes the distances of a set of points from a 2D line.
+	 * @param line the line
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see Line2#distances(double[], double[], int, int, double[], int)
+	 */
+	public abstract void distances(Line2 line, double[] xs, double[] ys, int offset, int length, double[] result, int resultOffset);
+
+	/**
+	 * Computes the distances of a set of points from a 3D line.
+	 * @param line the line
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see Line3#distances(double[], double[], double[], int, int, double[], int)
+	 */
+	public abstract void distances(Line3 line, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset);
+
+	/**
+	 * Computes the signed distances of a set of points from a plane.
+	 * @param plane the plane
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see Plane3#signedDistances(double[], double[], double[], int, int, double[], int)
+	 */
+	public abstract void signedDistances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset);
+
+	/**
+	 * Computes the distances of a set of points from a plane.
+	 * @param plane the plane
+	 * @param xs the x coordinates of the points
+	 * @param ys the y coordinates of the points
+	 * @param zs the z coordinates of the points
+	 * @param offset the index of the first point in the coordinate arrays
+	 * @param length the number of points
+	 * @param result the array to store the distances in
+	 * @param resultOffset the index in {@code result} where the first distance is stored
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see Plane3#distances(double[], double[], double[], int, int, double[], int)
+	 */
+	public abstract void distances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset);
+
+	/**
+	 * Intersects a set of lines with a plane. The parameter values of the intersection points are stored, NaN for
+	 * the lines parallel with the plane.
+	 * @param plane the plane
+	 * @param pxs the x coordinates of the points of the lines
+	 * @param pys the y coordinates of the points of the lines
+	 * @param pzs the z coordinates of the points of the lines
+	 * @param dxs the x coordinates of the directions of the lines
+	 * @param dys the y coordinates of the directions of the lines
+	 * @param dzs the z coordinates of the directions of the lines
+	 * @param offset the index of the first line in the input arrays
+	 * @param length the number of lines
+	 * @param ts the array to store the parameter values in
+	 * @param resultOffset the index in {@code ts} where the value of the first line is stored
+	 * @return the number of lines which intersect the plane in a single point
+	 * @throws IndexOutOfBoundsException if the specified ranges are not valid for the arrays
+	 * @see Plane3#intersect(double[], double[], double[], double[], double[], double[], int, int, double[], int)
+	 */
+	public abstract int intersect(Plane3 plane, double[] pxs, double[] pys, double[] pzs, double[] dxs, double[] dys, double[] dzs,
+			int offset, int length, double[] ts, int resultOffset);
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,46 @@
+package hu.kazocsaba.math.geometry.vector;
+
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+
+/**
+ * The implementation calling the batch methods of the geometry library.
+ * @author Kazó Csaba
+ */
+final class ScalarKernels extends BatchKernels {
+	static final ScalarKernels INSTANCE=new ScalarKernels();
+
+	private ScalarKernels() {}
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void distances(Line2 line, double[] xs, double[] ys, int offset, int length, double[] result, int resultOffset) {
+		line.distances(xs, ys, offset, length, result, resultOffset);
+	}
+
+	@Override
+	public void distances(Line3 line, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		line.distances(xs, ys, zs, offset, length, result, resultOffset);
+	}
+
+	@Override
+	public void signedDistances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		plane.signedDistances(xs, ys, zs, offset, length, result, resultOffset);
+	}
+
+	@Override
+	public void distances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		plane.distances(xs, ys, zs, offset, length, result, resultOffset);
+	}
+
+	@Override
+	public int intersect(Plane3 plane, double[] pxs, double[] pys, double[] pzs, double[] dxs, double[] dys, double[] dzs,
+			int offset, int length, double[] ts, int resultOffset) {
+		return plane.intersect(pxs, pys, pzs, dxs, dys, dzs, offset, length, ts, resultOffset);
+	}
+}
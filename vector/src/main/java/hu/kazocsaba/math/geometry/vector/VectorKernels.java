@@ -0,0 +1,173 @@
+package hu.kazocsaba.math.geometry.vector;
+
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.geometry.Predicates;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector2;
+import hu.kazocsaba.math.matrix.immutable.ImmutableVector3;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The implementation using the Vector API. The loops process as many points as fit into a vector register of the
+ * processor, and the remaining points one by one.
+ * @author Kazó Csaba
+ */
+final class VectorKernels extends BatchKernels {
+	/**
+	 * A looser error bound than that of {@link Predicates#signOfDot}: dot products smaller than this, relative to
+	 * the sum of the absolute values of their terms, are decided exactly.
+	 */
+	private static final double DOT_TOLERANCE=1e-15;
+	private static final VectorSpecies<Double> SPECIES=DoubleVector.SPECIES_PREFERRED;
+
+	VectorKernels() {}
+
+	int getLanes() {
+		return SPECIES.length();
+	}
+
+	@Override
+	public String getName() {
+		return "vectorized ("+SPECIES.length()+" lanes)";
+	}
+
+	@Override
+	public void distances(Line2 line, double[] xs, double[] ys, int offset, int length, double[] result, int resultOffset) {
+		checkRange("xs", xs.length, offset, length);
+		checkRange("ys", ys.length, offset, length);
+		checkRange("result", result.length, resultOffset, length);
+		ImmutableVector2 p=line.getPoint(), u=line.getUnitDir();
+		double a=p.getX(), b=p.getY(), c=u.getX(), d=u.getY();
+		int i=0;
+		for (int bound=SPECIES.loopBound(length); i<bound; i+=SPECIES.length()) {
+			DoubleVector vx=DoubleVector.fromArray(SPECIES, xs, offset+i).sub(a);
+			DoubleVector vy=DoubleVector.fromArray(SPECIES, ys, offset+i).sub(b);
+			vx.mul(d).sub(vy.mul(c)).abs().intoArray(result, resultOffset+i);
+		}
+		for (; i<length; i++)
+			result[resultOffset+i]=Math.abs((xs[offset+i]-a)*d-(ys[offset+i]-b)*c);
+	}
+
+	@Override
+	public void distances(Line3 line, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		checkRange("xs", xs.length, offset, length);
+		checkRange("ys", ys.length, offset, length);
+		checkRange("zs", zs.length, offset, length);
+		checkRange("result", result.length, resultOffset, length);
+		ImmutableVector3 p=line.getPoint(), u=line.getUnitDir();
+		double ax=p.getX(), ay=p.getY(), az=p.getZ(), bx=u.getX(), by=u.getY(), bz=u.getZ();
+		int i=0;
+		for (int bound=SPECIES.loopBound(length); i<bound; i+=SPECIES.length()) {
+			DoubleVector vx=DoubleVector.fromArray(SPECIES, xs, offset+i).sub(ax);
+			DoubleVector vy=DoubleVector.fromArray(SPECIES, ys, offset+i).sub(ay);
+			DoubleVector vz=DoubleVector.fromArray(SPECIES, zs, offset+i).sub(az);
+			// |(p-P) x U| with the unit direction U
+			DoubleVector cx=vy.mul(bz).sub(vz.mul(by));
+			DoubleVector cy=vz.mul(bx).sub(vx.mul(bz));
+			DoubleVector cz=vx.mul(by).sub(vy.mul(bx));
+			cx.mul(cx).add(cy.mul(cy)).add(cz.mul(cz)).sqrt().intoArray(result, resultOffset+i);
+		}
+		for (; i<length; i++) {
+			double vx=xs[offset+i]-ax, vy=ys[offset+i]-ay, vz=zs[offset+i]-az;
+			double cx=vy*bz-vz*by;
+			double cy=vz*bx-vx*bz;
+			double cz=vx*by-vy*bx;
+			result[resultOffset+i]=Math.sqrt(cx*cx+cy*cy+cz*cz);
+		}
+	}
+
+	@Override
+	public void signedDistances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		planeDistances(plane, xs, ys, zs, offset, length, result, resultOffset, false);
+	}
+
+	@Override
+	public void distances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset) {
+		planeDistances(plane, xs, ys, zs, offset, length, result, resultOffset, true);
+	}
+
+	private void planeDistances(Plane3 plane, double[] xs, double[] ys, double[] zs, int offset, int length, double[] result, int resultOffset, boolean abs) {
+		checkRange("xs", xs.length, offset, length);
+		checkRange("ys", ys.length, offset, length);
+		checkRange("zs", zs.length, offset, length);
+		checkRange("result", result.length, resultOffset, length);
+		ImmutableVector3 n=plane.getUnitNormal(), p=plane.getPoint();
+		double a=n.getX(), b=n.getY(), c=n.getZ(), d=a*p.getX()+b*p.getY()+c*p.getZ();
+		int i=0;
+		for (int bound=SPECIES.loopBound(length); i<bound; i+=SPECIES.length()) {
+			DoubleVector x=DoubleVector.fromArray(SPECIES, xs, offset+i);
+			DoubleVector y=DoubleVector.fromArray(SPECIES, ys, offset+i);
+			DoubleVector z=DoubleVector.fromArray(SPECIES, zs, offset+i);
+			DoubleVector distance=x.mul(a).add(y.mul(b)).add(z.mul(c)).sub(d);
+			if (abs) distance=distance.abs();
+			distance.intoArray(result, resultOffset+i);
+		}
+		for (; i<length; i++) {
+			double distance=a*xs[offset+i]+b*ys[offset+i]+c*zs[offset+i]-d;
+			result[resultOffset+i]=abs ? Math.abs(distance) : distance;
+		}
+	}
+
+	@Override
+	public int intersect(Plane3 plane, double[] pxs, double[] pys, double[] pzs, double[] dxs, double[] dys, double[] dzs,
+			int offset, int length, double[] ts, int resultOffset) {
+		checkRange("pxs", pxs.length, offset, length);
+		checkRange("pys", pys.length, offset, length);
+		checkRange("pzs", pzs.length, offset, length);
+		checkRange("dxs", dxs.length, offset, length);
+		checkRange("dys", dys.length, offset, length);
+		checkRange("dzs", dzs.length, offset, length);
+		checkRange("ts", ts.length, resultOffset, length);
+		ImmutableVector3 n=plane.getUnitNormal(), p=plane.getPoint();
+		double a=n.getX(), b=n.getY(), c=n.getZ(), d=a*p.getX()+b*p.getY()+c*p.getZ();
+		// the same exact parallelism test as Plane3.intersect(Line3)
+		ImmutableVector3 normal=plane.getNormal();
+		double rawX=normal.getX(), rawY=normal.getY(), rawZ=normal.getZ();
+		int hits=0;
+		int i=0;
+		for (int bound=SPECIES.loopBound(length); i<bound; i+=SPECIES.length()) {
+			DoubleVector dx=DoubleVector.fromArray(SPECIES, dxs, offset+i);
+			DoubleVector dy=DoubleVector.fromArray(SPECIES, dys, offset+i);
+			DoubleVector dz=DoubleVector.fromArray(SPECIES, dzs, offset+i);
+			DoubleVector denom=dx.mul(a).add(dy.mul(b)).add(dz.mul(c));
+			DoubleVector dot=DoubleVector.fromArray(SPECIES, pxs, offset+i).mul(a)
+					.add(DoubleVector.fromArray(SPECIES, pys, offset+i).mul(b))
+					.add(DoubleVector.fromArray(SPECIES, pzs, offset+i).mul(c));
+			DoubleVector tx=dx.mul(rawX), ty=dy.mul(rawY), tz=dz.mul(rawZ);
+			VectorMask<Double> uncertain=tx.add(ty).add(tz).abs()
+					.compare(VectorOperators.LE, tx.abs().add(ty.abs()).add(tz.abs()).mul(DOT_TOLERANCE));
+			DoubleVector t=dot.neg().add(d).div(denom);
+			hits+=SPECIES.length();
+			if (uncertain.anyTrue()) {
+				// rare: only lines which are parallel with the plane, or nearly so
+				double[] lanes=t.toArray();
+				for (int lane=0; lane<lanes.length; lane++)
+					if (uncertain.laneIsSet(lane) && Predicates.signOfDot(dxs[offset+i+lane], dys[offset+i+lane], dzs[offset+i+lane], rawX, rawY, rawZ)==0) {
+						lanes[lane]=Double.NaN;
+						hits--;
+					}
+				t=DoubleVector.fromArray(SPECIES, lanes, 0);
+			}
+			t.intoArray(ts, resultOffset+i);
+		}
+		for (; i<length; i++) {
+			double denom=dxs[offset+i]*a+dys[offset+i]*b+dzs[offset+i]*c;
+			if (Predicates.signOfDot(dxs[offset+i], dys[offset+i], dzs[offset+i], rawX, rawY, rawZ)==0) {
+				ts[resultOffset+i]=Double.NaN;
+			} else {
+				ts[resultOffset+i]=(d-(pxs[offset+i]*a+pys[offset+i]*b+pzs[offset+i]*c))/denom;
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	private static void checkRange(String array, int arrayLength, int offset, int length) {
+		if (offset<0 || length<0 || offset>arrayLength-length)
+			throw new IndexOutOfBoundsException("Range ["+offset+", "+offset+"+"+length+") is outside "+array+" (length "+arrayLength+")");
+	}
+}
@@ -0,0 +1,97 @@
+package hu.kazocsaba.math.geometry.vector;
+
+import hu.kazocsaba.math.geometry.Line2;
+import hu.kazocsaba.math.geometry.Line3;
+import hu.kazocsaba.math.geometry.Plane3;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class BatchKernelsTest {
+	// odd sizes and offsets, so that the loops also have remainders
+	private static final int COUNT=37, OFFSET=3, RESULT_OFFSET=5;
+
+	private final Random random=new Random(6151);
+
+	private double[] coords() {
+		double[] coords=new double[OFFSET+COUNT];
+		for (int i=0; i<coords.length; i++)
+			coords[i]=random.nextDouble()*20-10;
+		return coords;
+	}
+
+	private static void assertClose(double[] expected, double[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i=0; i<expected.length; i++) {
+			if (Double.isNaN(expected[i]))
+				assertTrue(Double.isNaN(actual[i]));
+			else
+				assertEquals(expected[i], actual[i], 1e-12*Math.max(1, Math.abs(expected[i])));
+		}
+	}
+
+	@Test
+	public void testVectorizedAvailable() {
+		// the tests run with the incubator module
+		assertNotNull(BatchKernels.vectorized());
+		assertSame(BatchKernels.vectorized(), BatchKernels.get());
+	}
+
+	@Test
+	public void testLineDistances() {
+		double[] xs=coords(), ys=coords(), zs=coords();
+		BatchKernels scalar=BatchKernels.scalar(), vectorized=BatchKernels.vectorized();
+		Line2 line2=Line2.createFromDir(MatrixFactory.createVector(1, 2), MatrixFactory.createVector(3, -1));
+		double[] expected=new double[RESULT_OFFSET+COUNT], actual=new double[RESULT_OFFSET+COUNT];
+		scalar.distances(line2, xs, ys, OFFSET, COUNT, expected, RESULT_OFFSET);
+		vectorized.distances(line2, xs, ys, OFFSET, COUNT, actual, RESULT_OFFSET);
+		assertClose(expected, actual);
+
+		Line3 line3=Line3.createFromDir(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(3, -1, .5));
+		scalar.distances(line3, xs, ys, zs, OFFSET, COUNT, expected, RESULT_OFFSET);
+		vectorized.distances(line3, xs, ys, zs, OFFSET, COUNT, actual, RESULT_OFFSET);
+		assertClose(expected, actual);
+	}
+
+	@Test
+	public void testPlaneDistances() {
+		double[] xs=coords(), ys=coords(), zs=coords();
+		BatchKernels scalar=BatchKernels.scalar(), vectorized=BatchKernels.vectorized();
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(-2, 1, 4));
+		double[] expected=new double[RESULT_OFFSET+COUNT], actual=new double[RESULT_OFFSET+COUNT];
+		scalar.signedDistances(plane, xs, ys, zs, OFFSET, COUNT, expected, RESULT_OFFSET);
+		vectorized.signedDistances(plane, xs, ys, zs, OFFSET, COUNT, actual, RESULT_OFFSET);
+		assertClose(expected, actual);
+		scalar.distances(plane, xs, ys, zs, OFFSET, COUNT, expected, RESULT_OFFSET);
+		vectorized.distances(plane, xs, ys, zs, OFFSET, COUNT, actual, RESULT_OFFSET);
+		assertClose(expected, actual);
+	}
+
+	@Test
+	public void testIntersect() {
+		double[] pxs=coords(), pys=coords(), pzs=coords(), dxs=coords(), dys=coords(), dzs=coords();
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(0, 0, 2));
+		// some lines parallel with the plane, and some nearly parallel ones, which still intersect it
+		for (int i=OFFSET; i<OFFSET+COUNT; i+=4) {
+			dzs[i]=0;
+			if (i+1<OFFSET+COUNT) dzs[i+1]=1e-12;
+		}
+		double[] expected=new double[RESULT_OFFSET+COUNT], actual=new double[RESULT_OFFSET+COUNT];
+		int hits=BatchKernels.scalar().intersect(plane, pxs, pys, pzs, dxs, dys, dzs, OFFSET, COUNT, expected, RESULT_OFFSET);
+		assertEquals(hits, BatchKernels.vectorized().intersect(plane, pxs, pys, pzs, dxs, dys, dzs, OFFSET, COUNT, actual, RESULT_OFFSET));
+		assertEquals(COUNT-(COUNT+3)/4, hits);
+		assertClose(expected, actual);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testRangeCheck() {
+		Plane3 plane=Plane3.create(MatrixFactory.createVector(1, 2, 3), MatrixFactory.createVector(0, 0, 2));
+		double[] coords=new double[4];
+		BatchKernels.vectorized().distances(plane, coords, coords, coords, 1, 4, new double[4], 0);
+	}
+}